@@ -18,6 +18,9 @@ public class ChessClient implements ServerMessageObserver {
     private String authToken = null;
     private State state = State.LOGGEDOUT;
     private WebSocketCommunicator wsCommunicator = null; // WebSocket communicator instance
+    private WebSocketCommunicator lobbyCommunicator = null; // Streams lobby changes while logged in
+    private final LobbyMirror lobby = new LobbyMirror();
+    private volatile boolean lobbyMissedChange = false; // Set on the WebSocket thread; the next listing resubscribes
     private ChessGame currentGame = null; // Holds the current game state received from server
     private Integer currentGameID = null; // ID of the game being played/observed
     private ChessGame.TeamColor playerColor = null; // null for observer
@@ -35,6 +38,12 @@ public class ChessClient implements ServerMessageObserver {
                 drawBoardBasedOnColor();
                 printPrompt(); // Show prompt again after drawing
                 break;
+            case MOVE:
+                if (applyMoveMessage((MoveMessage) message)) {
+                    drawBoardBasedOnColor();
+                    printPrompt();
+                }
+                break;
             case ERROR:
                 ErrorMessage errorMsg = (ErrorMessage) message;
                 System.out.println(SET_TEXT_COLOR_RED + "\nServer Error. " + errorMsg.getErrorMessage() + RESET_TEXT_COLOR);
@@ -45,12 +54,34 @@ public class ChessClient implements ServerMessageObserver {
                 System.out.println(SET_TEXT_COLOR_BLUE + "\nNotification: " + notificationMsg.getMessage() + RESET_TEXT_COLOR);
                 printPrompt(); // Show prompt again
                 break;
+            case LOBBY:
+                if (!lobby.apply((LobbyMessage) message)) {
+                    lobbyMissedChange = true; // Not listed here: that would block this thread on an HTTP call
+                }
+                break;
             default:
                 System.out.println(SET_TEXT_COLOR_RED + "\nUnknown message type received: " + message.getServerMessageType() + RESET_TEXT_COLOR);
                 printPrompt();
                 break;
         }
     }
+    // Plays the server's move on our copy; on a gap or a different position, asks for the whole game again
+    private boolean applyMoveMessage(MoveMessage moveMsg) {
+        if (currentGame != null && moveMsg.getSequence() == currentGame.getMoveHistory().size() + 1) {
+            ChessGame updated = new ChessGame(currentGame);
+            try { updated.makeMove(moveMsg.getMove());
+                if (PositionHash.of(updated) == moveMsg.getPositionHash()) {
+                    currentGame = updated;
+                    return true;
+                }
+            } catch (InvalidMoveException e) {
+                //Out of step with the server; fall through to a full reload
+            }
+        } try { wsCommunicator.sendMessage(new ConnectCommand(authToken, currentGameID, true));
+        } catch (Exception e) {
+            System.out.println(SET_TEXT_COLOR_RED + "\nLost track of the game and could not reload it." + RESET_TEXT_COLOR);
+        } return false;
+    }
     public String eval(String input) {
         try { var tokens = input.toLowerCase().trim().split("\\s+");
             var cmd = tokens.length > 0 ? tokens[0] : "help";
@@ -127,6 +158,7 @@ public class ChessClient implements ServerMessageObserver {
         }  AuthData data = server.register(params[0], params[1], params[2]);
         authToken = data.authToken();
         state = State.LOGGEDIN; // Set state
+        subscribeToLobby();
         return SET_TEXT_COLOR_GREEN + "Registered & logged in as: " + data.username() + RESET_TEXT_COLOR;
     }
     private String login(String... params) throws ResponseException {
@@ -135,6 +167,7 @@ public class ChessClient implements ServerMessageObserver {
         } AuthData data = server.login(params[0], params[1]);
         authToken = data.authToken();
         state = State.LOGGEDIN; // Set state
+        subscribeToLobby();
         return SET_TEXT_COLOR_GREEN + "Logged in as: " + data.username() + RESET_TEXT_COLOR;
     }
     private String logout() throws ResponseException {
@@ -144,19 +177,28 @@ public class ChessClient implements ServerMessageObserver {
             System.out.println(SET_TEXT_COLOR_YELLOW + "Note: Server logout failed, continuing client cleanup. " + e.getMessage() + RESET_TEXT_COLOR);
         } authToken = null;
         wsLeaveCleanup(); // Close WebSocket if connected, clear game state
+        lobbyCleanup();
         state = State.LOGGEDOUT; // Set state
         return SET_TEXT_COLOR_GREEN + "Logged out." + RESET_TEXT_COLOR;
     }
     private String createGame(String... params) throws ResponseException {
         ensureLoggedInState(); // Must be logged in, not in game
-        if (params.length != 1) {
-            throw new ResponseException(400, "Usage: create <game name>");
-        } GameData game = server.createGame(authToken, params[0]);
-        return String.format(SET_TEXT_COLOR_GREEN + "Created game '%s'" + RESET_TEXT_COLOR, game.gameName());
+        if (params.length != 1 && params.length != 2) {
+            throw new ResponseException(400, "Usage: create <game name> [computer color: WHITE|BLACK]");
+        } if (params.length == 1) {
+            GameData game = server.createGame(authToken, params[0]);
+            return String.format(SET_TEXT_COLOR_GREEN + "Created game '%s'" + RESET_TEXT_COLOR, game.gameName());
+        }
+        String botColorStr = params[1].toUpperCase();
+        if (!("WHITE".equals(botColorStr) || "BLACK".equals(botColorStr))) {
+            throw new ResponseException(400, "Invalid color. Must be WHITE or BLACK.");
+        } GameData game = server.createGame(authToken, params[0], ChessGame.TeamColor.valueOf(botColorStr));
+        return String.format(SET_TEXT_COLOR_GREEN + "Created game '%s' against the computer (playing %s)" + RESET_TEXT_COLOR,
+                game.gameName(), botColorStr);
     }
     private String listGames() throws ResponseException {
         ensureLoggedInState(); // Must be logged in, not in game
-        List<GameInfo> games = server.listGames(authToken);
+        List<GameInfo> games = listedGames();
         if (games == null || games.isEmpty()) {
             return "No games available";
         } StringBuilder sb = new StringBuilder();
@@ -169,6 +211,44 @@ public class ChessClient implements ServerMessageObserver {
                     index++, info.gameName(), whitePlayer, blackPlayer));
         } return sb.toString();
     }
+    // The lobby copy when it is current, so list, join and observe agree on the numbering without asking the server;
+    // after a missed lobby change, the listing asked for instead restarts the copy
+    private List<GameInfo> listedGames() throws ResponseException {
+        if (lobby.isSynced()) {
+            return lobby.games();
+        } List<GameInfo> listing = server.listGames(authToken);
+        if (lobbyMissedChange) {
+            subscribeToLobby(listing);
+        } return listing;
+    }
+    private void subscribeToLobby() {
+        try { subscribeToLobby(server.listGames(authToken));
+        } catch (Exception e) {
+            lobbyCleanup(); // Lists fall back to asking the server
+        }
+    }
+    private void subscribeToLobby(List<GameInfo> listing) {
+        lobbyMissedChange = false;
+        try {
+            lobby.load(listing); // Listed first, so every lobby change is newer
+            if (lobbyCommunicator == null || !lobbyCommunicator.isOpen()) {
+                String wsUrl = serverUrl.replaceFirst("http", "ws");
+                lobbyCommunicator = new WebSocketCommunicator(wsUrl, this, true);
+            } lobbyCommunicator.sendMessage(new LobbySubscribeCommand(authToken));
+        } catch (Exception e) {
+            lobbyCleanup(); // Lists fall back to asking the server
+        }
+    }
+    private void lobbyCleanup() {
+        lobbyMissedChange = false;
+        lobby.clear();
+        try { if (lobbyCommunicator != null) {
+                lobbyCommunicator.close();
+            }
+        } catch (Exception e) {
+            //Closed already
+        } lobbyCommunicator = null;
+    }
     private String joinGame(String... params) throws ResponseException {
         ensureLoggedInState(); // Must be logged in, not already in a game
         if (params.length != 2) {
@@ -180,7 +260,7 @@ public class ChessClient implements ServerMessageObserver {
         } if (!("WHITE".equals(playerColorStr) || "BLACK".equals(playerColorStr))) {
             throw new ResponseException(400, "Invalid color. Choose WHITE or BLACK.");
         }  this.playerColor = ChessGame.TeamColor.valueOf(playerColorStr);
-        List<GameInfo> games = server.listGames(authToken);
+        List<GameInfo> games = listedGames();
         if (games == null || idx < 0 || idx >= games.size()) {
             this.playerColor = null; // Reset color if index is bad
             throw new ResponseException(400, "Invalid game index.");
@@ -193,8 +273,8 @@ public class ChessClient implements ServerMessageObserver {
             throw e;
         } try {
             String wsUrl = serverUrl.replaceFirst("http", "ws");
-            wsCommunicator = new WebSocketCommunicator(wsUrl, this);
-            ConnectCommand connectCmd = new ConnectCommand(authToken, this.currentGameID);
+            wsCommunicator = new WebSocketCommunicator(wsUrl, this, true);
+            ConnectCommand connectCmd = new ConnectCommand(authToken, this.currentGameID, true);
             wsCommunicator.sendMessage(connectCmd);
             state = State.GAMESTATE;
             return String.format(SET_TEXT_COLOR_GREEN + "Joining game %d as %s. " + RESET_TEXT_COLOR, this.currentGameID, playerColorStr);
@@ -213,15 +293,15 @@ public class ChessClient implements ServerMessageObserver {
         } catch (NumberFormatException e) {
             throw new ResponseException(400, "Invalid game index: Must be a number.");
         } this.playerColor = null; // Observer has no color
-        List<GameInfo> games = server.listGames(authToken);
+        List<GameInfo> games = listedGames();
         if (games == null || idx < 0 || idx >= games.size()) {
             throw new ResponseException(400, "Invalid game index.");
         } GameInfo info = games.get(idx);
         this.currentGameID = info.gameID(); // Store gameID
         try {
             String wsUrl = serverUrl.replaceFirst("http", "ws");
-            wsCommunicator = new WebSocketCommunicator(wsUrl, this);
-            ConnectCommand connectCmd = new ConnectCommand(authToken, this.currentGameID);
+            wsCommunicator = new WebSocketCommunicator(wsUrl, this, true);
+            ConnectCommand connectCmd = new ConnectCommand(authToken, this.currentGameID, true);
             wsCommunicator.sendMessage(connectCmd);
             state = State.OBSERVING; // Change state
             return String.format(SET_TEXT_COLOR_GREEN + "Observing game %s. " + RESET_TEXT_COLOR, info.gameName());
@@ -463,7 +543,7 @@ public class ChessClient implements ServerMessageObserver {
                      help                                   - Show this help message
                      """;
             case LOGGEDIN -> """
-                     create <NAME>          - Create a game
+                     create <NAME> [COLOR]  - Create a game, optionally with the computer playing COLOR
                      list                   - List available games
                      join <INDEX> <COLOR>   - Join a game as WHITE or BLACK (e.g., join 1 white)
                      observe <INDEX>        - Observe a game (e.g., observe 1)
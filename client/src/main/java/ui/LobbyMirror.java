@@ -0,0 +1,78 @@
+package ui;
+
+import model.GameSummary;
+import results.ListGamesResult.GameInfo;
+import websocket.messages.LobbyMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * The client's copy of the game list, kept current by the server's lobby messages instead of by
+ * listing the games again. The copy starts from a full listing taken before subscribing, so every lobby
+ * message is newer than it; the lobby only streams games in play, so a game that finishes stays listed
+ * as it was, like GET /game lists it. Lobby messages arrive on the WebSocket thread while commands read
+ * the copy.
+ */
+public class LobbyMirror {
+    private final TreeMap<Integer, GameInfo> games = new TreeMap<>(); //Listed in game ID order, like GET /game
+    private int sequence;
+    private boolean synced;
+    private boolean awaitingSnapshot; //The next reset is the snapshot that follows load, not a clear
+
+    /**
+     * Starts again from a full listing; call before subscribing, and apply the lobby messages that follow
+     */
+    public synchronized void load(List<GameInfo> listing) {
+        games.clear();
+        for (GameInfo game : listing) {
+            games.put(game.gameID(), game);
+        }
+        synced = false;
+        awaitingSnapshot = true;
+    }
+
+    /**
+     * @return false if a message was missed, so the copy can't be trusted until it is loaded again
+     */
+    public synchronized boolean apply(LobbyMessage message) {
+        if (message.isReset() && (awaitingSnapshot || synced)) {
+            if (!awaitingSnapshot) {
+                games.clear(); //Everything since the games were cleared
+            }
+            awaitingSnapshot = false;
+            synced = true;
+        } else if (!synced || message.getSequence() <= sequence) {
+            return true; //Waiting for a listing and snapshot, or already applied
+        } else if (message.getSequence() != sequence + 1) {
+            synced = false;
+            return false;
+        }
+        sequence = message.getSequence();
+        for (GameSummary game : message.getAdded()) {
+            games.put(game.gameID(), GameInfo.of(game));
+        }
+        for (GameSummary game : message.getUpdated()) {
+            games.put(game.gameID(), GameInfo.of(game));
+        }
+        return true; //Removed games have finished, and are still listed
+    }
+
+    public synchronized boolean isSynced() {
+        return synced;
+    }
+
+    /**
+     * @return every game, in the form GET /game lists them
+     */
+    public synchronized List<GameInfo> games() {
+        return new ArrayList<>(games.values());
+    }
+
+    public synchronized void clear() {
+        games.clear();
+        synced = false;
+        awaitingSnapshot = false;
+    }
+}
@@ -1,6 +1,7 @@
 package websocket;
 
 import com.google.gson.Gson;
+import json.Serializer;
 import ui.ServerMessageObserver;
 import websocket.messages.ServerMessage;
 
@@ -8,18 +9,25 @@ import javax.websocket.*;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 
 @ClientEndpoint
 public class WebSocketCommunicator {
 
     private Session session;
     private ServerMessageObserver observer; // Observer to notify
-    private Gson gson = new Gson();
+    private Gson gson = Serializer.GSON;
+    private final boolean binary; // Talk BinaryProtocol instead of JSON
 
     // Constructor
     public WebSocketCommunicator(String serverUri, ServerMessageObserver observer) throws DeploymentException, IOException, URISyntaxException {
+        this(serverUri, observer, false);
+    }
+
+    public WebSocketCommunicator(String serverUri, ServerMessageObserver observer, boolean binary) throws DeploymentException, IOException, URISyntaxException {
         this.observer = observer;
-        URI uri = new URI(serverUri + "/ws");
+        this.binary = binary;
+        URI uri = new URI(serverUri + "/ws?json=compact"); // Serializer.GSON reads the compact form too
         WebSocketContainer container = ContainerProvider.getWebSocketContainer();
         // Attempt to connect and establish the session, pass 'this' instance to connectToServer
         container.connectToServer(this, uri);
@@ -44,16 +52,12 @@ public class WebSocketCommunicator {
                 case LOAD_GAME -> gson.fromJson(messageJson, websocket.messages.LoadGameMessage.class);
                 case ERROR -> gson.fromJson(messageJson, websocket.messages.ErrorMessage.class);
                 case NOTIFICATION -> gson.fromJson(messageJson, websocket.messages.NotificationMessage.class);
+                case MOVE -> gson.fromJson(messageJson, websocket.messages.MoveMessage.class);
+                case LOBBY -> gson.fromJson(messageJson, websocket.messages.LobbyMessage.class);
                 // Any other messages ?
             };
 
-            // Notify observer with the specific message object
-            if (observer != null) {
-                observer.notify(specificMessage);
-            } else {
-                System.out.println("Observer is null, cannot notify.");
-            }
-
+            deliver(specificMessage);
         } catch (Exception e) {
             System.err.println("Error processing server message." + messageJson);
             System.err.println("Exception: " + e.getMessage());
@@ -65,9 +69,35 @@ public class WebSocketCommunicator {
         }
     }
 
+    // Called when the server sends a binary frame (after we have sent one)
+    @OnMessage
+    public void onMessage(ByteBuffer frame) {
+        try {
+            deliver(BinaryProtocol.decodeMessage(frame));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error processing binary server message: " + e.getMessage());
+            if (observer != null) {
+                observer.notify(new websocket.messages.ErrorMessage("Failed to parse server message: " + e.getMessage()));
+            }
+        }
+    }
+
+    // Notify observer with the specific message object
+    private void deliver(ServerMessage message) {
+        if (observer != null) {
+            observer.notify(message);
+        } else {
+            System.out.println("Observer is null, cannot notify.");
+        }
+    }
+
     // Send message (UserGameCommand) to the server
     public void sendMessage(Object message) throws IOException {
         if (this.session != null && this.session.isOpen()) {
+            if (binary && message instanceof websocket.commands.UserGameCommand command) {
+                this.session.getBasicRemote().sendBinary(ByteBuffer.wrap(BinaryProtocol.encodeCommand(command)));
+                return;
+            }
             String messageJson = gson.toJson(message);
             this.session.getBasicRemote().sendText(messageJson);
         } else {
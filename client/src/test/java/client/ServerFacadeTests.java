@@ -3,10 +3,14 @@ package client;
 import exception.ResponseException;
 import model.AuthData;
 import model.GameData;
+import model.GameQuery;
 import org.junit.jupiter.api.*;
 import serverfacade.ServerFacade;
+import results.ListGamesResult;
 import results.ListGamesResult.GameInfo;
 
+import java.net.HttpURLConnection;
+import java.net.URI;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -14,14 +18,23 @@ import static org.junit.jupiter.api.Assertions.*;
 public class ServerFacadeTests {
     private static server.Server server;
     private static ServerFacade facade;
+    private static int port;
 
     @BeforeAll
     static void setupServer() {
         server = new server.Server();
-        int port = server.run(0);
+        port = server.run(0);
         facade = new ServerFacade("http://localhost:" + port);
     }
 
+    private static HttpURLConnection get(String authToken, String ifNoneMatch) throws Exception {
+        HttpURLConnection http = (HttpURLConnection) new URI("http://localhost:" + port + "/game").toURL().openConnection();
+        http.setRequestProperty("Authorization", authToken);
+        if (ifNoneMatch != null) {
+            http.setRequestProperty("If-None-Match", ifNoneMatch);
+        } return http;
+    }
+
     @AfterAll
     static void shutdown() {
         server.stop();
@@ -109,6 +122,41 @@ public class ServerFacadeTests {
                 () -> facade.listGames("badToken"));
         assertEquals("Error: unauthorized", ex.getMessage());
     }
+    @Test void listGamesPages() throws Exception {
+        AuthData auth = facade.register("p","pw","p@e.com");
+        for (int i = 0; i < 3; i++) {
+            facade.createGame(auth.authToken(), "Page" + i);
+        }
+        ListGamesResult first = facade.listGames(auth.authToken(), GameQuery.ALL.withLimit(2));
+        assertEquals(2, first.games().size());
+        assertNotNull(first.next());
+        ListGamesResult rest = facade.listGames(auth.authToken(), GameQuery.ALL.withLimit(2).withAfter(first.next()));
+        assertEquals(1, rest.games().size());
+        assertNull(rest.next());
+        assertEquals(0, facade.listGames(auth.authToken(), new GameQuery(null, null, null, false, "p", false)).games().size());
+    }
+    @Test void listGamesConditionalGet() throws Exception {
+        AuthData auth = facade.register("c","pw","c@e.com");
+        facade.createGame(auth.authToken(), "Cached");
+        HttpURLConnection first = get(auth.authToken(), null);
+        assertEquals(200, first.getResponseCode());
+        String etag = first.getHeaderField("ETag");
+        assertNotNull(etag);
+        assertEquals(304, get(auth.authToken(), etag).getResponseCode());
+        assertEquals(401, get("badToken", etag).getResponseCode());
+
+        assertEquals(1, facade.listGames(auth.authToken()).size());
+        assertEquals(1, facade.listGames(auth.authToken()).size()); //Served from the facade's copy
+        facade.createGame(auth.authToken(), "Fresh");
+        assertEquals(200, get(auth.authToken(), etag).getResponseCode());
+        assertEquals(2, facade.listGames(auth.authToken()).size());
+    }
+    @Test void listGamesBadPageSizeFails() throws Exception {
+        AuthData auth = facade.register("q","pw","q@e.com");
+        ResponseException ex = assertThrows(ResponseException.class,
+                () -> facade.listGames(auth.authToken(), GameQuery.ALL.withLimit(0)));
+        assertEquals("Error: bad request", ex.getMessage());
+    }
 
     // JOIN GAME
     @Test void joinGameSuccess() throws Exception {
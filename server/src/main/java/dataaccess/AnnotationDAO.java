@@ -0,0 +1,29 @@
+package dataaccess;
+
+import model.MoveAnnotation;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface AnnotationDAO {
+    /**
+     * Remove all annotations
+     */
+    void clear() throws DataAccessException;
+
+    /**
+     * Store the annotations and mark the games as annotated, all or nothing
+     */
+    void saveAnnotations(List<MoveAnnotation> annotations, Collection<Integer> gameIDs) throws DataAccessException;
+
+    /**
+     * Annotations of one game in ply order, empty if it has not been annotated
+     */
+    List<MoveAnnotation> getAnnotations(int gameID) throws DataAccessException;
+
+    /**
+     * Games whose annotations are complete - the batch pipeline's checkpoint
+     */
+    Set<Integer> annotatedGameIDs() throws DataAccessException;
+}
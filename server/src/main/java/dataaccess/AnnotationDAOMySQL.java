@@ -0,0 +1,107 @@
+package dataaccess;
+
+import model.MoveAnnotation;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+
+public class AnnotationDAOMySQL implements AnnotationDAO {
+
+    @Override
+    public void clear() throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var moves = conn.prepareStatement("DELETE FROM move_annotations");
+             var games = conn.prepareStatement("DELETE FROM annotated_games")) {
+            moves.executeUpdate();
+            games.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Error clearing annotations");
+        }
+    }
+
+    @Override
+    public void saveAnnotations(List<MoveAnnotation> annotations, Collection<Integer> gameIDs) throws DataAccessException {
+        String insertMove = "REPLACE INTO move_annotations (game_id, ply, move, best_move, evaluation, loss, judgement) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        String insertGame = "REPLACE INTO annotated_games (game_id) VALUES (?)";
+
+        try (var conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (var moveStmt = conn.prepareStatement(insertMove);
+                 var gameStmt = conn.prepareStatement(insertGame)) {
+                for (MoveAnnotation annotation : annotations) {
+                    moveStmt.setInt(1, annotation.gameID());
+                    moveStmt.setInt(2, annotation.ply());
+                    moveStmt.setString(3, annotation.move());
+                    moveStmt.setString(4, annotation.bestMove());
+                    moveStmt.setInt(5, annotation.evaluation());
+                    moveStmt.setInt(6, annotation.loss());
+                    moveStmt.setString(7, annotation.judgement().name());
+                    moveStmt.addBatch();
+                } for (Integer gameID : gameIDs) {
+                    gameStmt.setInt(1, gameID);
+                    gameStmt.addBatch();
+                }
+                moveStmt.executeBatch();
+                gameStmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                rollback(conn);
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error saving annotations");
+        }
+    }
+
+    @Override
+    public List<MoveAnnotation> getAnnotations(int gameID) throws DataAccessException {
+        String sql = "SELECT game_id, ply, move, best_move, evaluation, loss, judgement "
+                + "FROM move_annotations WHERE game_id = ? ORDER BY ply";
+        List<MoveAnnotation> annotations = new ArrayList<>();
+
+        try (var conn = DatabaseManager.getConnection(); var stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, gameID);
+            try (var rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    annotations.add(new MoveAnnotation(
+                            rs.getInt("game_id"),
+                            rs.getInt("ply"),
+                            rs.getString("move"),
+                            rs.getString("best_move"),
+                            rs.getInt("evaluation"),
+                            rs.getInt("loss"),
+                            MoveAnnotation.Judgement.valueOf(rs.getString("judgement"))
+                    ));
+                }
+            } return annotations;
+
+        } catch (SQLException e) {
+            throw new DataAccessException("Error retrieving annotations");
+        }
+    }
+
+    @Override
+    public Set<Integer> annotatedGameIDs() throws DataAccessException {
+        Set<Integer> gameIDs = new HashSet<>();
+        try (var conn = DatabaseManager.getConnection();
+             var stmt = conn.prepareStatement("SELECT game_id FROM annotated_games");
+             var rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                gameIDs.add(rs.getInt("game_id"));
+            } return gameIDs;
+
+        } catch (SQLException e) {
+            throw new DataAccessException("Error listing annotated games");
+        }
+    }
+
+    private static void rollback(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            System.err.println("Error rolling back annotations: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers token lookups in front of another AuthDAO, so checking a token is usually a map lookup.
+ * <p>
+ * Valid tokens are kept for ttlMillis and unknown tokens for negativeTtlMillis, which stops a client
+ * retrying a bad token from reaching the database on every message. Tokens deleted through this DAO
+ * (logout) are rejected at once. A token deleted by another server can still be accepted here until
+ * its entry expires, so ttlMillis bounds how stale a logout can be across servers.
+ * <p>
+ * At most maxTokens entries are held; past that, expired entries and then the oldest are dropped.
+ */
+public class CachingAuthDAO implements AuthDAO {
+    private final AuthDAO delegate;
+    private final int maxTokens;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final LongSupplier clock;
+    private final Map<String, Entry> tokens = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CachingAuthDAO(AuthDAO delegate, int maxTokens, long ttlMillis, long negativeTtlMillis) {
+        this(delegate, maxTokens, ttlMillis, negativeTtlMillis, System::currentTimeMillis);
+    }
+
+    CachingAuthDAO(AuthDAO delegate, int maxTokens, long ttlMillis, long negativeTtlMillis, LongSupplier clock) {
+        if (maxTokens < 1 || ttlMillis < 1 || negativeTtlMillis < 0) {
+            throw new IllegalArgumentException("Invalid auth cache settings");
+        }
+        this.delegate = delegate;
+        this.maxTokens = maxTokens;
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        tokens.clear();
+        delegate.clear();
+        tokens.clear(); //Drop anything looked up while the table was being cleared
+    }
+
+    @Override
+    public void createAuth(AuthData auth) throws DataAccessException {
+        delegate.createAuth(auth);
+        tokens.put(auth.authToken(), new Entry(auth, clock.getAsLong() + ttlMillis, false)); //Replaces a negative entry
+        evictIfFull();
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            return delegate.getAuth(null);
+        }
+        long now = clock.getAsLong();
+        Entry entry = tokens.get(authToken);
+        if (entry != null && entry.expiresAt > now) {
+            hits.increment();
+            return entry.auth;
+        }
+        misses.increment();
+        AuthData auth = delegate.getAuth(authToken);
+        if (auth != null || negativeTtlMillis > 0) {
+            Entry loaded = new Entry(auth, now + (auth != null ? ttlMillis : negativeTtlMillis), false);
+            // A logout that finished while we were reading wins over what we read
+            tokens.compute(authToken, (token, current) -> current != null && current.deleted ? current : loaded);
+            evictIfFull();
+        } return auth;
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        tokens.remove(authToken);
+        delegate.deleteAuth(authToken);
+        // Remember the logout for a while so an in-flight lookup cannot cache the token as valid again
+        tokens.put(authToken, new Entry(null, clock.getAsLong() + ttlMillis, true));
+        evictIfFull();
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    // Drops expired entries, then the soonest to expire, leaving a tenth of the room free
+    private void evictIfFull() {
+        if (tokens.size() <= maxTokens) {
+            return;
+        }
+        long now = clock.getAsLong();
+        tokens.values().removeIf(entry -> entry.expiresAt <= now);
+        int excess = tokens.size() - maxTokens + maxTokens / 10;
+        if (excess <= 0) {
+            return;
+        }
+        tokens.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().expiresAt))
+                .limit(excess)
+                .forEach(e -> tokens.remove(e.getKey(), e.getValue()));
+    }
+
+    // auth is null for a token the underlying DAO does not know; deleted marks a logout made through this DAO
+    private record Entry(AuthData auth, long expiresAt, boolean deleted) {}
+}
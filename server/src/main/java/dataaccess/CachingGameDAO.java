@@ -0,0 +1,237 @@
+package dataaccess;
+
+import model.GameData;
+import model.GameQuery;
+import model.GameStatus;
+import model.GameSummary;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps active games in memory in front of another GameDAO.
+ * <p>
+ * The cache owns the live copy of each game it holds: getGame returns the same GameData (and ChessGame)
+ * every time until it is evicted, and the underlying DAO is only read on a miss. Writes go through to
+ * the underlying DAO first, and a failed write drops the entry so the next read reloads the stored state.
+ * Callers that change a game in place must therefore always follow up with updateGame. Compare-and-set
+ * updates should instead be built on a copy: if one loses, the cached game must still be the stored one.
+ * <p>
+ * Entries are evicted when the game ends, when they have not been used for idleMillis, or - least
+ * recently used first - when more than maxGames are held. A full cache makes room for a tenth more
+ * games at once, so the sort that picks them is paid once per many misses rather than on each.
+ */
+public class CachingGameDAO implements GameDAO {
+    private final GameDAO delegate;
+    private final int maxGames;
+    private final long idleMillis;
+    private final LongSupplier clock;
+    private final Map<Integer, Entry> games = new ConcurrentHashMap<>();
+    private volatile long lastSweep;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CachingGameDAO(GameDAO delegate, GameCacheSettings settings) {
+        this(delegate, settings.maxGames(), settings.idleMillis());
+    }
+
+    public CachingGameDAO(GameDAO delegate, int maxGames, long idleMillis) {
+        this(delegate, maxGames, idleMillis, System::currentTimeMillis);
+    }
+
+    CachingGameDAO(GameDAO delegate, int maxGames, long idleMillis, LongSupplier clock) {
+        if (maxGames < 1 || idleMillis < 1) {
+            throw new IllegalArgumentException("Cache size and idle time must be positive");
+        }
+        this.delegate = delegate;
+        this.maxGames = maxGames;
+        this.idleMillis = idleMillis;
+        this.clock = clock;
+        this.lastSweep = clock.getAsLong();
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        games.clear();
+        delegate.clear();
+        games.clear(); //Drop anything loaded while the table was being cleared
+    }
+
+    @Override
+    public void createGame(GameData game) throws DataAccessException {
+        delegate.createGame(game);
+        cache(game);
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        long now = clock.getAsLong();
+        sweepIfDue(now);
+        Entry entry = games.get(gameID);
+        if (entry != null) {
+            hits.increment();
+            entry.lastAccess = now;
+            return entry.game;
+        }
+        misses.increment();
+        GameData game = delegate.getGame(gameID);
+        if (game != null) {
+            Entry loaded = new Entry(game, now);
+            Entry existing = games.putIfAbsent(gameID, loaded);
+            if (existing != null) {
+                return existing.game; //Another thread loaded it first; keep a single live copy
+            } if (game.status() != GameStatus.ACTIVE) {
+                games.remove(gameID, loaded); //Finished games are read rarely, don't hold them
+            }
+            evictOverflow();
+        } return game;
+    }
+
+    /**
+     * Lists from the underlying DAO, substituting the cached copy of each game that is held in memory
+     */
+    @Override
+    public List<GameData> listGames() throws DataAccessException {
+        List<GameData> stored = delegate.listGames();
+        List<GameData> result = new ArrayList<>(stored.size());
+        for (GameData game : stored) {
+            Entry entry = games.get(game.gameID());
+            result.add(entry != null ? entry.game : game);
+        } return result;
+    }
+
+    /**
+     * Summaries from the underlying DAO, with those of games held in memory taken from the cached copy
+     */
+    @Override
+    public List<GameSummary> listGameSummaries() throws DataAccessException {
+        List<GameSummary> stored = delegate.listGameSummaries();
+        List<GameSummary> result = new ArrayList<>(stored.size());
+        for (GameSummary summary : stored) {
+            Entry entry = games.get(summary.gameID());
+            result.add(entry != null ? GameSummary.of(entry.game) : summary);
+        } return result;
+    }
+
+    /**
+     * Runs the query in the underlying DAO, which writes go through to, and takes the games held in
+     * memory from the cached copy like listGameSummaries
+     */
+    @Override
+    public List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException {
+        List<GameSummary> stored = delegate.listGameSummaries(query);
+        List<GameSummary> result = new ArrayList<>(stored.size());
+        for (GameSummary summary : stored) {
+            Entry entry = games.get(summary.gameID());
+            GameSummary current = entry != null ? GameSummary.of(entry.game) : summary;
+            if (query.matches(current)) {
+                result.add(current);
+            }
+        } return result;
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        try {
+            delegate.updateGame(game);
+        } catch (DataAccessException | RuntimeException e) {
+            games.remove(game.gameID()); //The in-memory copy may now differ from what is stored
+            throw e;
+        }
+        cache(game);
+    }
+
+    /**
+     * Fails fast against the cached version, so a lost update is usually caught without a round trip;
+     * otherwise the underlying DAO decides
+     */
+    @Override
+    public GameData updateGameIfUnchanged(GameData game) throws DataAccessException {
+        Entry entry = games.get(game.gameID());
+        if (entry != null && entry.game.version() != game.version()) {
+            throw new StaleGameException(game.gameID());
+        }
+        GameData updated;
+        try {
+            updated = delegate.updateGameIfUnchanged(game);
+        } catch (DataAccessException | RuntimeException e) {
+            games.remove(game.gameID()); //Reload whatever won
+            throw e;
+        } if (updated.status() != GameStatus.ACTIVE) {
+            games.remove(updated.gameID());
+        } else { //A later update may have been cached first; keep the newest
+            games.merge(updated.gameID(), new Entry(updated, clock.getAsLong()),
+                    (cached, fresh) -> cached.game.version() > fresh.game.version() ? cached : fresh);
+            evictOverflow();
+        } return updated;
+    }
+
+    /**
+     * Drops a game from memory, e.g. after changing its stored state some other way
+     */
+    public void evict(int gameID) {
+        games.remove(gameID);
+    }
+
+    public int size() {
+        return games.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    private void cache(GameData game) {
+        if (game.status() != GameStatus.ACTIVE) {
+            games.remove(game.gameID());
+            return;
+        }
+        games.put(game.gameID(), new Entry(game, clock.getAsLong()));
+        evictOverflow();
+    }
+
+    // Removes idle entries, at most a few times per idle period so the common path stays a map lookup
+    private void sweepIfDue(long now) {
+        if (now - lastSweep < idleMillis / 4) {
+            return;
+        }
+        lastSweep = now;
+        games.values().removeIf(entry -> now - entry.lastAccess >= idleMillis);
+    }
+
+    // Drops idle entries, then the least recently used, leaving a tenth of the room free
+    private void evictOverflow() {
+        if (games.size() <= maxGames) {
+            return;
+        }
+        long now = clock.getAsLong();
+        games.values().removeIf(entry -> now - entry.lastAccess >= idleMillis);
+        int excess = games.size() - maxGames + maxGames / 10;
+        if (excess <= 0) {
+            return;
+        }
+        games.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                .limit(excess)
+                .forEach(e -> games.remove(e.getKey(), e.getValue()));
+    }
+
+    private static final class Entry {
+        final GameData game;
+        volatile long lastAccess;
+
+        Entry(GameData game, long lastAccess) {
+            this.game = game;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
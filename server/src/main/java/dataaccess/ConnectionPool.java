@@ -0,0 +1,254 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of JDBC connections.
+ * <p>
+ * getConnection hands out a wrapper whose close() returns the connection to the pool, so DAOs keep
+ * using try-with-resources as before. Returned connections are rolled back if a transaction was left
+ * open and put back in auto-commit mode. Connections older than the maximum lifetime are retired,
+ * ones that sat idle are validated before reuse, and connections held too long are logged as leaks
+ * with the borrowing thread, and the stack of the code that borrowed them when borrows are traced.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens a new physical connection
+     */
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * A point-in-time view of the pool
+     *
+     * @param active   connections currently borrowed
+     * @param idle     open connections waiting to be borrowed
+     * @param created  physical connections opened since the pool started
+     * @param retired  physical connections closed because they expired, failed validation or broke
+     * @param timeouts getConnection calls that gave up waiting
+     * @param leaks    connections reported as held past the leak threshold
+     */
+    public record Stats(int active, int idle, long created, long retired, long timeouts, long leaks) {}
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final ConnectionFactory factory;
+    private final PoolSettings settings;
+    private final Semaphore permits;
+    private final ArrayDeque<Pooled> idle = new ArrayDeque<>();
+    private final Set<Lease> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService leakDetector;
+    private final LongAdder created = new LongAdder();
+    private final LongAdder retired = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private volatile boolean closed;
+
+    public ConnectionPool(ConnectionFactory factory, PoolSettings settings) {
+        this.factory = factory;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.maxSize(), true);
+        this.leakDetector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-leak-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, settings.leakThresholdMillis() / 2);
+        leakDetector.scheduleAtFixedRate(this::reportLeaks, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the borrow timeout if all of them are in use
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(settings.borrowTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLException("Timed out after " + settings.borrowTimeoutMillis()
+                        + "ms waiting for a database connection (" + settings.maxSize() + " in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a database connection");
+        }
+        try {
+            Pooled pooled = takeUsable();
+            Lease lease = new Lease(pooled, settings.traceBorrows() ? new Throwable("Connection borrowed here") : null);
+            borrowed.add(lease);
+            return lease.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public Stats stats() {
+        int idleCount;
+        synchronized (idle) {
+            idleCount = idle.size();
+        }
+        return new Stats(borrowed.size(), idleCount, created.sum(), retired.sum(), timeouts.sum(), leaks.sum());
+    }
+
+    /**
+     * Closes idle connections now and borrowed ones as they are returned
+     */
+    @Override
+    public void close() {
+        closed = true;
+        leakDetector.shutdownNow();
+        synchronized (idle) {
+            while (!idle.isEmpty()) {
+                retire(idle.pop());
+            }
+        }
+    }
+
+    // Reuses the most recently returned connection that is still fit for use, or opens a new one
+    private Pooled takeUsable() throws SQLException {
+        long now = System.currentTimeMillis();
+        while (true) {
+            Pooled pooled;
+            synchronized (idle) {
+                pooled = idle.poll();
+            } if (pooled == null) {
+                created.increment();
+                return new Pooled(factory.open(), now);
+            } if (now - pooled.openedAt >= settings.maxLifetimeMillis()) {
+                retire(pooled);
+            } else if (now - pooled.returnedAt >= settings.validateAfterMillis() && !isValid(pooled.connection)) {
+                retire(pooled);
+            } else {
+                return pooled;
+            }
+        }
+    }
+
+    private void release(Lease lease) {
+        borrowed.remove(lease);
+        Pooled pooled = lease.pooled;
+        try {
+            Connection connection = pooled.connection;
+            if (connection.isClosed()) {
+                retired.increment();
+                return;
+            } if (!connection.getAutoCommit()) {
+                connection.rollback(); //Undo anything the borrower left uncommitted
+                connection.setAutoCommit(true);
+            }
+            pooled.returnedAt = System.currentTimeMillis();
+            if (closed || pooled.returnedAt - pooled.openedAt >= settings.maxLifetimeMillis()) {
+                retire(pooled);
+                return;
+            }
+            synchronized (idle) {
+                idle.push(pooled);
+            }
+        } catch (SQLException e) {
+            retire(pooled); //A connection that cannot be reset is not worth keeping
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void retire(Pooled pooled) {
+        retired.increment();
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    void reportLeaks() {
+        long now = System.currentTimeMillis();
+        for (Lease lease : borrowed) {
+            if (now - lease.borrowedAt >= settings.leakThresholdMillis() && lease.reported.compareAndSet(false, true)) {
+                leaks.increment();
+                System.err.println("Possible connection leak: connection held by " + lease.thread + " for "
+                        + (now - lease.borrowedAt) + "ms");
+                if (lease.borrowSite != null) {
+                    lease.borrowSite.printStackTrace();
+                } else {
+                    System.err.println("Set db.pool.traceBorrows=true to log where leaked connections are borrowed");
+                }
+            }
+        }
+    }
+
+    private static final class Pooled {
+        final Connection connection;
+        final long openedAt;
+        volatile long returnedAt;
+
+        Pooled(Connection connection, long openedAt) {
+            this.connection = connection;
+            this.openedAt = openedAt;
+            this.returnedAt = openedAt;
+        }
+    }
+
+    // One borrowing of a connection; the proxy stops working once it has been closed
+    private final class Lease {
+        final Pooled pooled;
+        final Throwable borrowSite; //Null unless borrows are traced
+        final String thread = Thread.currentThread().getName();
+        final long borrowedAt = System.currentTimeMillis();
+        final AtomicBoolean returned = new AtomicBoolean();
+        final AtomicBoolean reported = new AtomicBoolean();
+        final Connection proxy;
+
+        Lease(Pooled pooled, Throwable borrowSite) {
+            this.pooled = pooled;
+            this.borrowSite = borrowSite;
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (p, method, args) -> switch (method.getName()) {
+                        case "close" -> {
+                            if (returned.compareAndSet(false, true)) {
+                                release(this);
+                            }
+                            yield null;
+                        }
+                        case "isClosed" -> returned.get() || pooled.connection.isClosed();
+                        case "equals" -> p == args[0];
+                        case "hashCode" -> System.identityHashCode(p);
+                        case "toString" -> "Pooled " + pooled.connection;
+                        default -> {
+                            if (returned.get()) {
+                                throw new SQLException("Connection has been returned to the pool");
+                            }
+                            try {
+                                yield method.invoke(pooled.connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        }
+                    });
+        }
+    }
+}
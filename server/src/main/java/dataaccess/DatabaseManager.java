@@ -8,6 +8,9 @@ public class DatabaseManager {
     private static final String USER;
     private static final String PASSWORD;
     private static final String CONNECTION_URL;
+    private static final PoolSettings POOL_SETTINGS;
+    private static volatile ConnectionPool pool;
+    private static final Object POOL_LOCK = new Object(); //Only taken to start or close the pool
 
     /*
      * Load the database information for the db.properties file.
@@ -27,6 +30,7 @@ public class DatabaseManager {
                 var host = props.getProperty("db.host");
                 var port = Integer.parseInt(props.getProperty("db.port"));
                 CONNECTION_URL = String.format("jdbc:mysql://%s:%d", host, port);
+                POOL_SETTINGS = PoolSettings.from(props);
             }
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
@@ -37,22 +41,20 @@ public class DatabaseManager {
      * Creates the database if it does not already exist.
      */
     public static void createDatabase() throws DataAccessException {
-        try {
-            var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            try (var preparedStatement = conn.prepareStatement(statement)) {
-                preparedStatement.executeUpdate();
-            }
+        var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
+        try (var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+             var preparedStatement = conn.prepareStatement(statement)) {
+            preparedStatement.executeUpdate();
         } catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
+     * Borrow a connection to the database from the pool, with the catalog set based upon the
      * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * be short-lived, and you must close the connection when you are done with it,
+     * which returns it to the pool. The easiest way to do that is with a try-with-resource block.
      * <br/>
      * <code>
      * try (var conn = DbInfo.getConnection(databaseName)) {
@@ -62,17 +64,51 @@ public class DatabaseManager {
      */
     static Connection getConnection() throws DataAccessException {
         try {
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            conn.setCatalog(DATABASE_NAME);
-            return conn;
+            return pool().getConnection();
         } catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
     }
 
+    /**
+     * @return usage counters of the connection pool
+     */
+    public static ConnectionPool.Stats poolStats() {
+        return pool().stats();
+    }
+
+    /**
+     * Closes the connection pool; the next getConnection starts a new one
+     */
+    public static void closePool() {
+        ConnectionPool closing;
+        synchronized (POOL_LOCK) {
+            closing = pool;
+            pool = null;
+        } if (closing != null) {
+            closing.close();
+        }
+    }
+
+    // Every borrow reads the volatile field without locking; the lock is only taken while no pool is open
+    private static ConnectionPool pool() {
+        ConnectionPool current = pool;
+        if (current != null) {
+            return current;
+        }
+        synchronized (POOL_LOCK) {
+            if (pool == null) {
+                pool = new ConnectionPool(() -> {
+                    var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+                    conn.setCatalog(DATABASE_NAME);
+                    return conn;
+                }, POOL_SETTINGS);
+            } return pool;
+        }
+    }
+
     public static void createTablesIfNotExists() throws DataAccessException {
-        try (var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD)) {
-            conn.setCatalog(DATABASE_NAME);
+        try (var conn = getConnection()) {
 
             // Users
             String createUsers = """
@@ -106,8 +142,15 @@ public class DatabaseManager {
                 white_username VARCHAR(50),
                 black_username VARCHAR(50),
                 game_name VARCHAR(255),
-                game_state JSON NOT NULL,
+                game_state JSON,
                 status VARCHAR(30) NOT NULL DEFAULT 'ACTIVE',
+                bot_color VARCHAR(5),
+                game_blob BLOB,
+                snapshot_ply INT,
+                plies INT,
+                position_hash BIGINT,
+                version INT NOT NULL DEFAULT 0,
+                INDEX games_status (status, game_id),
                 FOREIGN KEY (white_username) REFERENCES users(username)
                     ON DELETE RESTRICT,
                 FOREIGN KEY (black_username) REFERENCES users(username)
@@ -117,11 +160,127 @@ public class DatabaseManager {
             try (var stmt = conn.prepareStatement(createGames)) {
                 stmt.executeUpdate();
             }
+            addColumnIfMissing(conn, "games", "bot_color", "VARCHAR(5)"); //Tables created before bot games existed
+            addColumnIfMissing(conn, "games", "game_blob", "BLOB"); //Tables created when games were stored as JSON
+            dropNotNull(conn, "games", "game_state", "JSON"); //Only rows not yet migrated still use it
+            addColumnIfMissing(conn, "games", "snapshot_ply", "INT"); //NULL until a game's moves are in game_moves
+            addColumnIfMissing(conn, "games", "position_hash", "BIGINT");
+            addColumnIfMissing(conn, "games", "plies", "INT"); //How many moves are logged, so a save never counts them
+            addColumnIfMissing(conn, "games", "version", "INT NOT NULL DEFAULT 0"); //For compare-and-set updates
+            //Listing by status walks this in game ID order; the foreign keys already index both usernames
+            addIndexIfMissing(conn, "games", "games_status", "status, game_id");
+
+            // Every move of every game, replayed on top of the latest snapshot in games.game_blob
+            String createGameMoves = """
+            CREATE TABLE IF NOT EXISTS game_moves (
+                game_id INT NOT NULL,
+                ply INT NOT NULL,
+                move SMALLINT NOT NULL,
+                PRIMARY KEY (game_id, ply),
+                FOREIGN KEY (game_id) REFERENCES games(game_id)
+                    ON DELETE CASCADE
+            )
+            """;
+            try (var stmt = conn.prepareStatement(createGameMoves)) {
+                stmt.executeUpdate();
+            }
+            try (var stmt = conn.prepareStatement("UPDATE games g SET plies = "
+                    + "(SELECT COUNT(*) FROM game_moves m WHERE m.game_id = g.game_id) WHERE plies IS NULL AND snapshot_ply IS NOT NULL")) {
+                stmt.executeUpdate(); //Games logged before the count was kept
+            }
+
+            // Engine annotations of finished games, written by the batch pipeline
+            String createAnnotations = """
+            CREATE TABLE IF NOT EXISTS move_annotations (
+                game_id INT NOT NULL,
+                ply INT NOT NULL,
+                move VARCHAR(5) NOT NULL,
+                best_move VARCHAR(5),
+                evaluation INT NOT NULL,
+                loss INT NOT NULL,
+                judgement VARCHAR(10) NOT NULL,
+                PRIMARY KEY (game_id, ply),
+                FOREIGN KEY (game_id) REFERENCES games(game_id)
+                    ON DELETE CASCADE
+            )
+            """;
+            try (var stmt = conn.prepareStatement(createAnnotations)) {
+                stmt.executeUpdate();
+            }
+
+            String createAnnotatedGames = """
+            CREATE TABLE IF NOT EXISTS annotated_games (
+                game_id INT NOT NULL PRIMARY KEY,
+                FOREIGN KEY (game_id) REFERENCES games(game_id)
+                    ON DELETE CASCADE
+            )
+            """;
+            try (var stmt = conn.prepareStatement(createAnnotatedGames)) {
+                stmt.executeUpdate();
+            }
+
+            // Logged-out signed session tokens, kept until they would have expired
+            String createRevokedTokens = """
+            CREATE TABLE IF NOT EXISTS revoked_tokens (
+                token_id VARCHAR(32) NOT NULL PRIMARY KEY,
+                expires_at BIGINT NOT NULL,
+                revoked_at BIGINT NOT NULL DEFAULT 0,
+                INDEX (expires_at),
+                INDEX revoked_tokens_revoked_at (revoked_at)
+            )
+            """;
+            try (var stmt = conn.prepareStatement(createRevokedTokens)) {
+                stmt.executeUpdate();
+            }
+            //When each revocation was written, by the database's clock, so servers only read new ones
+            addColumnIfMissing(conn, "revoked_tokens", "revoked_at", "BIGINT NOT NULL DEFAULT 0");
+            addIndexIfMissing(conn, "revoked_tokens", "revoked_tokens_revoked_at", "revoked_at");
 
         } catch (SQLException e) {
             throw new DataAccessException("Error creating tables: " + e.getMessage());
         }
     }
+    /**
+     * Adds a column to an existing table, for schema changes made after the table was first created
+     */
+    static void addColumnIfMissing(Connection conn, String table, String column, String definition) throws SQLException {
+        try (var columns = conn.getMetaData().getColumns(DATABASE_NAME, null, table, column)) {
+            if (columns.next()) {
+                return;
+            }
+        } try (var stmt = conn.prepareStatement("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition)) {
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Adds an index to an existing table, for indexes added after the table was first created
+     */
+    static void addIndexIfMissing(Connection conn, String table, String index, String columns) throws SQLException {
+        try (var indexes = conn.getMetaData().getIndexInfo(DATABASE_NAME, null, table, false, false)) {
+            while (indexes.next()) {
+                if (index.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                    return;
+                }
+            }
+        } try (var stmt = conn.prepareStatement("CREATE INDEX " + index + " ON " + table + " (" + columns + ")")) {
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Lets an existing column hold NULL, leaving the table alone when it already does
+     */
+    static void dropNotNull(Connection conn, String table, String column, String definition) throws SQLException {
+        try (var columns = conn.getMetaData().getColumns(DATABASE_NAME, null, table, column)) {
+            if (!columns.next() || "YES".equals(columns.getString("IS_NULLABLE"))) {
+                return;
+            }
+        } try (var stmt = conn.prepareStatement("ALTER TABLE " + table + " MODIFY COLUMN " + column + " " + definition + " NULL")) {
+            stmt.executeUpdate();
+        }
+    }
+
     public void testConnection() throws Exception {
         try (var conn = DatabaseManager.getConnection()) {
             try (var stmt = conn.prepareStatement("SELECT 1+1 AS result")) {
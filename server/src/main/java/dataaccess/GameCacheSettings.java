@@ -0,0 +1,44 @@
+package dataaccess;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Sizing for the in-memory game cache, read from an optional persistence.properties on the classpath.
+ *
+ * @param maxGames   active games held in memory before the least recently used are evicted
+ * @param idleMillis how long a game may go unused before it is evicted
+ */
+public record GameCacheSettings(
+        int maxGames,
+        long idleMillis
+) {
+    public GameCacheSettings {
+        if (maxGames < 1 || idleMillis < 1) {
+            throw new IllegalArgumentException("Invalid game cache settings");
+        }
+    }
+
+    public static GameCacheSettings defaults() {
+        return new GameCacheSettings(10_000, 30 * 60 * 1000);
+    }
+
+    /**
+     * Loads persistence.properties, falling back to {@link #defaults()} for missing keys or a missing file
+     */
+    public static GameCacheSettings load() {
+        Properties props = new Properties();
+        try (InputStream stream = Thread.currentThread().getContextClassLoader().getResourceAsStream("persistence.properties")) {
+            if (stream != null) {
+                props.load(stream);
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to read persistence.properties, using defaults: " + e.getMessage());
+        }
+        GameCacheSettings defaults = defaults();
+        return new GameCacheSettings(
+                Integer.parseInt(props.getProperty("games.cacheSize", String.valueOf(defaults.maxGames()))),
+                Long.parseLong(props.getProperty("games.cacheIdleMillis", String.valueOf(defaults.idleMillis()))));
+    }
+}
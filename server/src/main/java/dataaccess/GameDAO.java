@@ -1,6 +1,11 @@
 package dataaccess;
 
 import model.GameData;
+import model.GameQuery;
+import model.GameSummary;
+
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public interface GameDAO {
@@ -25,8 +30,46 @@ public interface GameDAO {
     List<GameData> listGames() throws DataAccessException;
 
     /**
-     * Update an existing game’s state - after a move, after a user joins
+     * Return the listed columns of all games, without loading any boards.
+     * This default goes through listGames; implementations backed by storage read only the columns.
+     */
+    default List<GameSummary> listGameSummaries() throws DataAccessException {
+        List<GameSummary> summaries = new ArrayList<>();
+        for (GameData game : listGames()) {
+            summaries.add(GameSummary.of(game));
+        } return summaries;
+    }
+
+    /**
+     * Return one page of summaries: those matching the query, in its order, at most query.limit() of them.
+     * This default filters listGameSummaries; implementations backed by storage run the query there.
+     */
+    default List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException {
+        return query.apply(listGameSummaries());
+    }
+
+    /**
+     * Update an existing game’s state - after a move, after a user joins.
+     * Stores the game as given, version included, whatever is stored now.
      */
     void updateGame(GameData game) throws DataAccessException;
 
+    /**
+     * Compare-and-set update: stores the game only if the stored version still equals game.version(),
+     * i.e. nobody has updated it since the caller read it. Never waits for a lock held by another update.
+     *
+     * @return the game as stored, with its version one higher
+     * @throws StaleGameException if the stored version has moved on; read the game again and retry
+     */
+    GameData updateGameIfUnchanged(GameData game) throws DataAccessException;
+
+    /**
+     * Update several games at once. Implementations backed by a database do this in one transaction.
+     */
+    default void updateGames(Collection<GameData> games) throws DataAccessException {
+        for (GameData game : games) {
+            updateGame(game);
+        }
+    }
+
 }
@@ -1,20 +1,71 @@
 package dataaccess;
 import model.GameData;
 import com.google.gson.Gson;
+import json.Serializer;
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+import chess.PositionHash;
+import model.GameQuery;
 import model.GameStatus;
+import model.GameSummary;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Each game is kept as a log of its moves in game_moves, one row per ply, plus a snapshot of the
+ * position in games.game_blob ({@link GameStateCodec}) taken every few plies. Saving a move inserts
+ * its row; the snapshot is only rewritten once snapshotInterval plies have been played since the last.
+ * Loading decodes the snapshot and replays the moves played after it. games.position_hash holds the
+ * hash of the latest position, so a change made without a move (a position set up directly) is noticed
+ * and snapshotted too.
+ * <p>
+ * games.version is the version of the stored GameData. {@link #updateGameIfUnchanged} takes no lock
+ * before it writes: its UPDATE only matches the row while the version is still the one it read, and
+ * its moves go in under the (game_id, ply) key, so a conflicting update is stale rather than queued.
+ * <p>
+ * Rows written before the log existed have no snapshot_ply. They are read from game_blob or, older
+ * still, the game_state JSON, and are moved to the log when next saved or when {@link #migrateLegacyRows}
+ * reaches them.
+ */
 public class GameDAOMySQL implements GameDAO {
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 20;
+    private static final int LOCK_WAIT_TIMEOUT = 1205;
+    private static final int LOCK_DEADLOCK = 1213;
+    private static final int DUPLICATE_KEY = 1062;
+    private static final String SUMMARY_COLUMNS = "game_id, white_username, black_username, game_name, status, bot_color";
+    private static final String GAME_COLUMNS = "game_id, white_username, black_username, game_name, game_blob, snapshot_ply, plies, "
+            + "game_state, status, bot_color, version";
+    private static final int LIST_PAGE = 200;
 
-    private final Gson gson = new Gson(); // serialize/deserialize ChessGame
+    private final Gson gson = Serializer.GSON; // deserialize ChessGame from rows not yet migrated
+    private final int snapshotInterval;
+
+    public GameDAOMySQL() {
+        this(DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    public GameDAOMySQL(int snapshotInterval) {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be at least 1");
+        }
+        this.snapshotInterval = snapshotInterval;
+    }
 
     @Override
     public void clear() throws DataAccessException {
-        String sql = "DELETE FROM games";
+        String sql = "DELETE FROM games"; //Moves go with their game
         try (var conn = DatabaseManager.getConnection();
              var stmt = conn.prepareStatement(sql)) {
             stmt.executeUpdate();
@@ -25,23 +76,33 @@ public class GameDAOMySQL implements GameDAO {
 
     @Override
     public void createGame(GameData game) throws DataAccessException {
-        String gameJson = gson.toJson(game.game());
-
-        String sql = "INSERT INTO games (game_id, white_username, black_username, game_name, game_state, status ) "
-                + "VALUES (?, ?, ?, ?, ?, ?)";
-
-        try (var conn = DatabaseManager.getConnection();
-             var stmt = conn.prepareStatement(sql)) {
-
-            // Insert game_id from GameData
-            stmt.setInt(1, game.gameID());
-            stmt.setString(2, game.whiteUsername());
-            stmt.setString(3, game.blackUsername());
-            stmt.setString(4, game.gameName());
-            stmt.setString(5, gameJson);
-            stmt.setString(6, game.status().name());
-            stmt.executeUpdate();
+        String sql = "INSERT INTO games (game_id, white_username, black_username, game_name, game_blob, snapshot_ply, plies, "
+                + "position_hash, status, bot_color, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
+        try (var conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (var stmt = conn.prepareStatement(sql); var log = new LogWriter(conn)) {
+                List<ChessMove> history = game.game().getMoveHistory();
+                // Insert game_id from GameData
+                stmt.setInt(1, game.gameID());
+                stmt.setString(2, game.whiteUsername());
+                stmt.setString(3, game.blackUsername());
+                stmt.setString(4, game.gameName());
+                stmt.setBytes(5, GameStateCodec.snapshot(game.game()));
+                stmt.setInt(6, history.size());
+                stmt.setInt(7, history.size());
+                stmt.setLong(8, PositionHash.of(game.game()));
+                stmt.setString(9, game.status().name());
+                stmt.setString(10, game.botColor() == null ? null : game.botColor().name());
+                stmt.setInt(11, game.version());
+                stmt.executeUpdate();
+                log.addMoves(game.gameID(), history, 0);
+                log.execute();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             throw new DataAccessException("Error creating game");
         }
@@ -49,88 +110,446 @@ public class GameDAOMySQL implements GameDAO {
 
     @Override
     public GameData getGame(int gameID) throws DataAccessException {
-        String sql = "SELECT game_id, white_username, black_username, game_name, game_state, status "
-                + "FROM games WHERE game_id = ?";
+        String sql = "SELECT " + GAME_COLUMNS + " FROM games WHERE game_id = ?";
+        String movesSql = "SELECT game_id, move FROM game_moves WHERE game_id = ? AND ply <= ? ORDER BY ply";
 
-        try (var conn = DatabaseManager.getConnection(); var stmt = conn.prepareStatement(sql)) {
+        try (var conn = DatabaseManager.getConnection(); var stmt = conn.prepareStatement(sql);
+             var movesStmt = conn.prepareStatement(movesSql)) {
+            beginSnapshot(conn);
             stmt.setInt(1, gameID);
+            movesStmt.setInt(1, gameID);
+            GameData game = null;
             try (var rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    String gameJson = rs.getString("game_state");
-                    ChessGame chessGame = gson.fromJson(gameJson, ChessGame.class);
-                    String statusStr = rs.getString("status"); // Get status string
-                    GameStatus status = GameStatus.valueOf(statusStr); // Convert string back to enum
-
-                    return new GameData(
-                            rs.getInt("game_id"),
-                            rs.getString("white_username"),
-                            rs.getString("black_username"),
-                            rs.getString("game_name"),
-                            chessGame,
-                            status
-                    );
+                    movesStmt.setInt(2, rs.getInt("plies"));
+                    List<ChessMove> moves;
+                    try (var movesRs = movesStmt.executeQuery()) {
+                        moves = readMoves(movesRs).getOrDefault(gameID, List.of());
+                    }
+                    game = readGame(rs, moves);
                 }
-            } return null;
+            }
+            conn.commit();
+            return game;
 
         } catch (SQLException e) {
             throw new DataAccessException("Error retrieving game");
         }
     }
 
+    /**
+     * Reads the games LIST_PAGE at a time, each page with only its own games' logged moves, all from
+     * one snapshot
+     */
     @Override
     public List<GameData> listGames() throws DataAccessException {
-        String sql = "SELECT game_id, white_username, black_username, game_name, game_state, status FROM games";
+        String sql = "SELECT " + GAME_COLUMNS + " FROM games WHERE game_id > ? ORDER BY game_id LIMIT ?";
+        String movesSql = "SELECT m.game_id, m.move FROM game_moves m JOIN "
+                + "(SELECT game_id, plies FROM games WHERE game_id > ? ORDER BY game_id LIMIT ?) g "
+                + "ON m.game_id = g.game_id AND m.ply <= g.plies ORDER BY m.game_id, m.ply";
         List<GameData> games = new ArrayList<>();
 
+        try (var conn = DatabaseManager.getConnection();
+             var movesStmt = conn.prepareStatement(movesSql);
+             var stmt = conn.prepareStatement(sql)) {
+            beginSnapshot(conn);
+            int after = Integer.MIN_VALUE;
+            int read;
+            do {
+                movesStmt.setInt(1, after);
+                movesStmt.setInt(2, LIST_PAGE);
+                stmt.setInt(1, after);
+                stmt.setInt(2, LIST_PAGE);
+                Map<Integer, List<ChessMove>> moves;
+                try (var movesRs = movesStmt.executeQuery()) {
+                    moves = readMoves(movesRs);
+                }
+                read = 0;
+                try (var rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        after = rs.getInt("game_id");
+                        games.add(readGame(rs, moves.getOrDefault(after, List.of())));
+                        read++;
+                    }
+                }
+            } while (read == LIST_PAGE);
+            conn.commit();
+            return games;
+
+        } catch (SQLException e) {
+            throw new DataAccessException("Error listing games");
+        }
+    }
+
+    @Override
+    public List<GameSummary> listGameSummaries() throws DataAccessException {
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM games";
+        List<GameSummary> summaries = new ArrayList<>();
+
         try (var conn = DatabaseManager.getConnection();
              var stmt = conn.prepareStatement(sql);
              var rs = stmt.executeQuery()) {
             while (rs.next()) {
-                String gameJson = rs.getString("game_state");
-                ChessGame chessGame = gson.fromJson(gameJson, ChessGame.class);
-                String statusStr = rs.getString("status");
-                GameStatus status = GameStatus.valueOf(statusStr);
-                GameData gameData = new GameData(
-                        rs.getInt("game_id"),
-                        rs.getString("white_username"),
-                        rs.getString("black_username"),
-                        rs.getString("game_name"),
-                        chessGame,
-                        status
-                );
-
-                games.add(gameData);
+                summaries.add(readSummary(rs));
             }
-            return games;
+            return summaries;
 
         } catch (SQLException e) {
             throw new DataAccessException("Error listing games");
         }
     }
 
+    /**
+     * Runs the query in the database. Pages walk the primary key from query.after(), so a page reads
+     * about limit rows however deep it is; the status index and the indexes behind the username foreign
+     * keys serve the filters.
+     */
     @Override
-    public void updateGame(GameData game) throws DataAccessException {
-        String sql = "UPDATE games "
-                + "SET white_username = ?, black_username = ?, game_name = ?, game_state = ?, status = ? "
-                + "WHERE game_id = ?";
-
-        String gameJson = gson.toJson(game.game());
+    public List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException {
+        StringBuilder sql = new StringBuilder("SELECT " + SUMMARY_COLUMNS + " FROM games WHERE TRUE");
+        List<Object> params = new ArrayList<>();
+        if (query.after() != null) {
+            sql.append(query.descending() ? " AND game_id < ?" : " AND game_id > ?");
+            params.add(query.after());
+        } if (query.status() != null) {
+            sql.append(" AND status = ?");
+            params.add(query.status().name());
+        } if (query.openSeat()) {
+            sql.append(" AND ((white_username IS NULL AND (bot_color IS NULL OR bot_color <> 'WHITE'))"
+                    + " OR (black_username IS NULL AND (bot_color IS NULL OR bot_color <> 'BLACK')))");
+        } if (query.player() != null) {
+            sql.append(" AND (white_username = ? OR black_username = ?)");
+            params.add(query.player());
+            params.add(query.player());
+        }
+        sql.append(query.descending() ? " ORDER BY game_id DESC" : " ORDER BY game_id");
+        if (query.limit() != null) {
+            sql.append(" LIMIT ?");
+            params.add(query.limit());
+        }
+        List<GameSummary> summaries = new ArrayList<>();
 
         try (var conn = DatabaseManager.getConnection();
-             var stmt = conn.prepareStatement(sql)) {
+             var stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            try (var rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    summaries.add(readSummary(rs));
+                }
+            }
+            return summaries;
 
-            stmt.setString(1, game.whiteUsername());
-            stmt.setString(2, game.blackUsername());
-            stmt.setString(3, game.gameName());
-            stmt.setString(4, gameJson);
-            stmt.setString(5, game.status().name());
-            stmt.setInt(6, game.gameID());
-            //is this correct?
+        } catch (SQLException e) {
+            throw new DataAccessException("Error listing games");
+        }
+    }
 
-            stmt.executeUpdate();
+    private static GameSummary readSummary(ResultSet rs) throws SQLException {
+        return new GameSummary(
+                rs.getInt("game_id"),
+                rs.getString("white_username"),
+                rs.getString("black_username"),
+                rs.getString("game_name"),
+                GameStatus.valueOf(rs.getString("status")),
+                botColor(rs.getString("bot_color"))
+        );
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        updateGames(List.of(game));
+    }
+
+    @Override
+    public void updateGames(Collection<GameData> updates) throws DataAccessException {
+        Map<Integer, GameData> latest = new LinkedHashMap<>(); //Only the last state of each game is logged
+        for (GameData game : updates) {
+            latest.put(game.gameID(), game);
+        }
+        try {
+            write(latest.values(), null);
+        } catch (SQLException e) {
+            throw new DataAccessException("Error updating games");
+        }
+    }
 
+    @Override
+    public GameData updateGameIfUnchanged(GameData game) throws DataAccessException {
+        GameData updated = game.withVersion(game.version() + 1);
+        try {
+            write(List.of(updated), game.version());
         } catch (SQLException e) {
+            if (e.getErrorCode() == DUPLICATE_KEY || e.getErrorCode() == LOCK_WAIT_TIMEOUT || e.getErrorCode() == LOCK_DEADLOCK) {
+                throw new StaleGameException(game.gameID()); //Another update logged the same plies first
+            }
             throw new DataAccessException("Error updating game");
+        } return updated;
+    }
+
+    /**
+     * Writes the games in one transaction, without locking them first. With an expected version there
+     * is exactly one game, and its row is only updated while it still has that version.
+     */
+    private void write(Collection<GameData> games, Integer expectedVersion) throws SQLException, DataAccessException {
+        String sql = "UPDATE games "
+                + "SET white_username = ?, black_username = ?, game_name = ?, status = ?, bot_color = ?, plies = ?, "
+                + "position_hash = ?, " + (expectedVersion != null ? "version = version + 1 WHERE game_id = ? AND version = ?"
+                : "version = ? WHERE game_id = ?");
+
+        try (var conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (var stmt = conn.prepareStatement(sql); var log = new LogWriter(conn)) {
+                Map<Integer, Logged> logged = readLogged(conn, games);
+                for (GameData game : games) {
+                    Logged stored = logged.get(game.gameID());
+                    if (expectedVersion != null && stored == null) {
+                        throw new DataAccessException("Game not found with ID: " + game.gameID());
+                    } if (expectedVersion != null && stored.version() != expectedVersion) {
+                        throw new StaleGameException(game.gameID());
+                    }
+                    stmt.setString(1, game.whiteUsername());
+                    stmt.setString(2, game.blackUsername());
+                    stmt.setString(3, game.gameName());
+                    stmt.setString(4, game.status().name());
+                    stmt.setString(5, game.botColor() == null ? null : game.botColor().name());
+                    stmt.setInt(6, game.game().getMoveHistory().size());
+                    stmt.setLong(7, PositionHash.of(game.game()));
+                    if (expectedVersion != null) {
+                        stmt.setInt(8, game.gameID());
+                        stmt.setInt(9, expectedVersion);
+                        if (stmt.executeUpdate() == 0) {
+                            throw new StaleGameException(game.gameID()); //Changed since it was read
+                        }
+                    } else {
+                        stmt.setInt(8, game.version());
+                        stmt.setInt(9, game.gameID());
+                        stmt.addBatch();
+                    }
+                    if (stored != null) {
+                        log.append(game, stored, snapshotInterval);
+                    }
+                }
+                stmt.executeBatch();
+                log.execute();
+                conn.commit();
+            } catch (SQLException | DataAccessException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Moves up to batchSize rows written before the move log existed into it
+     *
+     * @return how many rows were converted; 0 once none are left
+     */
+    public int migrateLegacyRows(int batchSize) throws DataAccessException {
+        String select = "SELECT game_id, game_blob, game_state FROM games WHERE snapshot_ply IS NULL LIMIT ? FOR UPDATE";
+
+        try (var conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (var query = conn.prepareStatement(select); var log = new LogWriter(conn)) {
+                query.setInt(1, batchSize);
+                int count = 0;
+                try (var rs = query.executeQuery()) {
+                    while (rs.next()) {
+                        log.rewrite(rs.getInt("game_id"), readLegacyGame(rs));
+                        count++;
+                    }
+                }
+                log.execute();
+                conn.commit();
+                return count;
+            } catch (SQLException | DataAccessException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error migrating games: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Where each game's log stands. Nothing is locked: two writers appending the same ply collide on
+     * the (game_id, ply) key instead. Only the last logged move is read, by its key.
+     */
+    private static Map<Integer, Logged> readLogged(Connection conn, Collection<GameData> games) throws SQLException {
+        Map<Integer, Logged> logged = new HashMap<>();
+        if (games.isEmpty()) {
+            return logged;
+        }
+        String sql = "SELECT game_id, snapshot_ply, plies, position_hash, version, "
+                + "(SELECT move FROM game_moves m WHERE m.game_id = g.game_id AND m.ply = g.plies) AS last_move "
+                + "FROM games g WHERE game_id IN (" + String.join(", ", Collections.nCopies(games.size(), "?"))
+                + ")";
+        try (var stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (GameData game : games) {
+                stmt.setInt(index++, game.gameID());
+            }
+            try (var rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int snapshotPly = rs.getInt("snapshot_ply");
+                    if (rs.wasNull()) {
+                        snapshotPly = -1;
+                    }
+                    logged.put(rs.getInt("game_id"), new Logged(snapshotPly, rs.getInt("plies"), rs.getInt("last_move"),
+                            rs.getLong("position_hash"), rs.getInt("version")));
+                }
+            }
+        } return logged;
+    }
+
+    /**
+     * Starts a transaction whose reads all see the same snapshot, so that a game row is never paired
+     * with moves logged before or after it was written
+     */
+    private static void beginSnapshot(Connection conn) throws SQLException {
+        conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        conn.setAutoCommit(false);
+    }
+
+    private static Map<Integer, List<ChessMove>> readMoves(ResultSet rs) throws SQLException {
+        Map<Integer, List<ChessMove>> moves = new HashMap<>();
+        while (rs.next()) {
+            moves.computeIfAbsent(rs.getInt("game_id"), id -> new ArrayList<>())
+                    .add(PackedMove.unpack(rs.getInt("move")));
+        } return moves;
+    }
+
+    private GameData readGame(ResultSet rs, List<ChessMove> moves) throws SQLException, DataAccessException {
+        int snapshotPly = rs.getInt("snapshot_ply");
+        ChessGame chessGame = rs.wasNull() ? readLegacyGame(rs) : replay(rs.getInt("game_id"), rs.getBytes("game_blob"), snapshotPly, moves);
+        return new GameData(
+                rs.getInt("game_id"),
+                rs.getString("white_username"),
+                rs.getString("black_username"),
+                rs.getString("game_name"),
+                chessGame,
+                GameStatus.valueOf(rs.getString("status")),
+                botColor(rs.getString("bot_color")),
+                rs.getInt("version")
+        );
+    }
+
+    /**
+     * Rebuilds a game from its snapshot and the moves played after it
+     */
+    private static ChessGame replay(int gameID, byte[] snapshot, int snapshotPly, List<ChessMove> moves) throws DataAccessException {
+        try {
+            ChessGame chessGame = GameStateCodec.decode(snapshot);
+            for (int ply = snapshotPly; ply < moves.size(); ply++) {
+                chessGame.makeMove(moves.get(ply));
+            }
+            chessGame.setMoveHistory(moves);
+            return chessGame;
+        } catch (IllegalArgumentException | InvalidMoveException e) {
+            throw new DataAccessException("Error: game " + gameID + " is unreadable: " + e.getMessage());
+        }
+    }
+
+    private ChessGame readLegacyGame(ResultSet rs) throws SQLException, DataAccessException {
+        byte[] blob = rs.getBytes("game_blob");
+        try {
+            return blob != null ? GameStateCodec.decode(blob)
+                    : gson.fromJson(rs.getString("game_state"), ChessGame.class);
+        } catch (RuntimeException e) {
+            throw new DataAccessException("Error: game " + rs.getInt("game_id") + " is unreadable: " + e.getMessage());
+        }
+    }
+
+    private static ChessGame.TeamColor botColor(String value) {
+        return value == null ? null : ChessGame.TeamColor.valueOf(value);
+    }
+
+    /**
+     * How far a game's log had got, its last logged move packed, and its version when its row was
+     * read; snapshotPly is -1 for rows from before the log
+     */
+    private record Logged(int snapshotPly, int plies, int lastMove, long positionHash, int version) {
+        /**
+         * @return true if the history has the last logged move where it was logged
+         */
+        boolean isExtendedBy(List<ChessMove> history) {
+            return plies == 0 || history.size() >= plies && PackedMove.pack(history.get(plies - 1)) == lastMove;
+        }
+    }
+
+    /**
+     * Batches the log writes of one transaction
+     */
+    private static class LogWriter implements AutoCloseable {
+        private final PreparedStatement deleteMoves;
+        private final PreparedStatement insertMove;
+        private final PreparedStatement writeSnapshot;
+
+        LogWriter(Connection conn) throws SQLException {
+            deleteMoves = conn.prepareStatement("DELETE FROM game_moves WHERE game_id = ?");
+            insertMove = conn.prepareStatement("INSERT INTO game_moves (game_id, ply, move) VALUES (?, ?, ?)");
+            writeSnapshot = conn.prepareStatement("UPDATE games "
+                    + "SET game_blob = ?, snapshot_ply = ?, plies = ?, position_hash = ?, game_state = NULL WHERE game_id = ?");
+        }
+
+        /**
+         * Logs the moves played since the last save, and a new snapshot when one is due. A history
+         * shorter than the log was read before those moves were logged, and is refused rather than
+         * allowed to drop them; one that no longer ends at the last logged move replaces the log.
+         */
+        void append(GameData game, Logged stored, int snapshotInterval) throws SQLException, DataAccessException {
+            List<ChessMove> history = game.game().getMoveHistory();
+            if (stored.snapshotPly() >= 0 && history.size() < stored.plies()) {
+                throw new DataAccessException("Error: game " + game.gameID() + " has " + stored.plies()
+                        + " moves logged but only " + history.size() + " in the state being saved");
+            } if (stored.snapshotPly() < 0 || !stored.isExtendedBy(history)) {
+                rewrite(game.gameID(), game.game());
+                return;
+            }
+            addMoves(game.gameID(), history, stored.plies());
+            boolean setUp = history.size() == stored.plies() && PositionHash.of(game.game()) != stored.positionHash();
+            if (setUp || history.size() - stored.snapshotPly() >= snapshotInterval) {
+                addSnapshot(game.gameID(), game.game());
+            }
+        }
+
+        void rewrite(int gameID, ChessGame game) throws SQLException {
+            deleteMoves.setInt(1, gameID);
+            deleteMoves.addBatch();
+            addMoves(gameID, game.getMoveHistory(), 0);
+            addSnapshot(gameID, game);
+        }
+
+        void addMoves(int gameID, List<ChessMove> history, int fromPly) throws SQLException {
+            for (int ply = fromPly; ply < history.size(); ply++) {
+                insertMove.setInt(1, gameID);
+                insertMove.setInt(2, ply + 1);
+                insertMove.setInt(3, PackedMove.pack(history.get(ply)));
+                insertMove.addBatch();
+            }
+        }
+
+        private void addSnapshot(int gameID, ChessGame game) throws SQLException {
+            writeSnapshot.setBytes(1, GameStateCodec.snapshot(game));
+            writeSnapshot.setInt(2, game.getMoveHistory().size());
+            writeSnapshot.setInt(3, game.getMoveHistory().size());
+            writeSnapshot.setLong(4, PositionHash.of(game));
+            writeSnapshot.setInt(5, gameID);
+            writeSnapshot.addBatch();
+        }
+
+        void execute() throws SQLException {
+            deleteMoves.executeBatch();
+            insertMove.executeBatch();
+            writeSnapshot.executeBatch();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            deleteMoves.close();
+            insertMove.close();
+            writeSnapshot.close();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package dataaccess;
+
+import chess.*;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary form of a ChessGame for the games.game_blob column: a fixed-size snapshot of the position
+ * followed by the move history as {@link PackedMove}s, two bytes each, in the order they were played.
+ * <pre>
+ *   byte 0      format version
+ *   byte 1      bit 0 set when black is to move
+ *   bytes 2-33  one nibble per square, a1 first (low nibble): 0 empty, else type ordinal + 1, bit 3 black
+ *   bytes 34-41 squares whose piece has moved, a1 as bit 0
+ *   bytes 42-49 squares whose pawn just moved two squares
+ *   bytes 50-   packed moves
+ * </pre>
+ * A new move only adds two bytes to the end, so the history never has to be re-encoded. The snapshot
+ * alone ({@link #snapshot}) decodes to the position with an empty history.
+ */
+public final class GameStateCodec {
+    static final int VERSION = 1;
+    static final int SNAPSHOT_BYTES = 50;
+
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+
+    private GameStateCodec() {
+    }
+
+    public static byte[] encode(ChessGame game) {
+        List<ChessMove> history = game.getMoveHistory();
+        ByteBuffer out = ByteBuffer.allocate(SNAPSHOT_BYTES + 2 * history.size());
+        writeSnapshot(out, game);
+        for (ChessMove move : history) {
+            out.putShort((short) PackedMove.pack(move));
+        }
+        return out.array();
+    }
+
+    public static byte[] snapshot(ChessGame game) {
+        ByteBuffer out = ByteBuffer.allocate(SNAPSHOT_BYTES);
+        writeSnapshot(out, game);
+        return out.array();
+    }
+
+    public static ChessGame decode(byte[] bytes) {
+        try {
+            ByteBuffer in = ByteBuffer.wrap(bytes);
+            ChessGame game = readSnapshot(in);
+            if (in.remaining() % 2 != 0) {
+                throw new IllegalArgumentException("Move list has an odd number of bytes");
+            }
+            List<ChessMove> history = new ArrayList<>(in.remaining() / 2);
+            while (in.hasRemaining()) {
+                history.add(PackedMove.unpack(in.getShort() & 0xFFFF));
+            }
+            game.setMoveHistory(history);
+            return game;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Game state is truncated");
+        }
+    }
+
+    private static void writeSnapshot(ByteBuffer out, ChessGame game) {
+        ChessBoard board = game.getBoard();
+        byte[] squares = new byte[32];
+        long moved = 0;
+        long doubleMoved = 0;
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(PackedMove.position(square));
+            if (piece == null) {
+                continue;
+            }
+            int nibble = (piece.getPieceType().ordinal() + 1)
+                    | (piece.getTeamColor() == ChessGame.TeamColor.BLACK ? 0x8 : 0);
+            squares[square / 2] |= (byte) (square % 2 == 0 ? nibble : nibble << 4);
+            if (piece.hasMoved) {
+                moved |= 1L << square;
+            } if (piece.pawnJustDoubleMoved) {
+                doubleMoved |= 1L << square;
+            }
+        }
+        out.put((byte) VERSION);
+        out.put((byte) (game.getTeamTurn() == ChessGame.TeamColor.BLACK ? 1 : 0));
+        out.put(squares);
+        out.putLong(moved);
+        out.putLong(doubleMoved);
+    }
+
+    private static ChessGame readSnapshot(ByteBuffer in) {
+        int version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unknown game state version " + version);
+        }
+        int flags = in.get();
+        byte[] squares = new byte[32];
+        in.get(squares);
+        long moved = in.getLong();
+        long doubleMoved = in.getLong();
+        ChessBoard board = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            int nibble = (square % 2 == 0 ? squares[square / 2] : squares[square / 2] >> 4) & 0xF;
+            if (nibble == 0) {
+                continue;
+            } if ((nibble & 0x7) == 0 || (nibble & 0x7) > PIECE_TYPES.length) {
+                throw new IllegalArgumentException("Unknown piece on square " + square);
+            }
+            ChessPiece piece = new ChessPiece((nibble & 0x8) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE,
+                    PIECE_TYPES[(nibble & 0x7) - 1]);
+            piece.setHasMoved((moved & (1L << square)) != 0);
+            piece.pawnJustDoubleMoved = (doubleMoved & (1L << square)) != 0;
+            board.addPiece(PackedMove.position(square), piece);
+        }
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn((flags & 1) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        game.getKingPosition(ChessGame.TeamColor.WHITE);
+        game.getKingPosition(ChessGame.TeamColor.BLACK);
+        return game;
+    }
+}
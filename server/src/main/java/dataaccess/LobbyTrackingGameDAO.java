@@ -0,0 +1,141 @@
+package dataaccess;
+
+import model.GameData;
+import model.GameQuery;
+import model.GameStatus;
+import model.GameSummary;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts changes to the game list in front of another GameDAO, so a listing can be recognised as
+ * unchanged without reading it.
+ * <p>
+ * The version goes up, after the write, whenever a game is created, the games are cleared, or an update
+ * changes a game's summary (seats, name, status). Moves that don't end the game leave it alone. The last
+ * summary of each active game written since startup is kept to tell the difference; a game without one
+ * counts as changed. {@link Listener}s hear about each change as it is counted.
+ */
+public class LobbyTrackingGameDAO implements GameDAO {
+    /**
+     * Called on the writing thread after the write, so it must not block
+     */
+    public interface Listener {
+        /**
+         * @param created true when the game is new
+         */
+        void gameChanged(GameSummary summary, boolean created);
+
+        void gamesCleared();
+    }
+
+    private final GameDAO delegate;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<Integer, GameSummary> active = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36); //Versions restart with the server
+
+    public LobbyTrackingGameDAO(GameDAO delegate) {
+        this.delegate = delegate;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return how many times the game list has changed since startup
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * @return the version, qualified so that it never repeats across restarts
+     */
+    public String versionTag() {
+        return epoch + "-" + version.get();
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        try {
+            delegate.clear();
+        } finally {
+            active.clear();
+            version.incrementAndGet();
+            for (Listener listener : listeners) {
+                listener.gamesCleared();
+            }
+        }
+    }
+
+    @Override
+    public void createGame(GameData game) throws DataAccessException {
+        delegate.createGame(game);
+        changed(GameSummary.of(game), true);
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        return delegate.getGame(gameID);
+    }
+
+    @Override
+    public List<GameData> listGames() throws DataAccessException {
+        return delegate.listGames();
+    }
+
+    @Override
+    public List<GameSummary> listGameSummaries() throws DataAccessException {
+        return delegate.listGameSummaries();
+    }
+
+    @Override
+    public List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException {
+        return delegate.listGameSummaries(query);
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        delegate.updateGame(game);
+        changed(GameSummary.of(game), false);
+    }
+
+    @Override
+    public GameData updateGameIfUnchanged(GameData game) throws DataAccessException {
+        GameData stored = delegate.updateGameIfUnchanged(game);
+        changed(GameSummary.of(stored), false);
+        return stored;
+    }
+
+    @Override
+    public void updateGames(Collection<GameData> games) throws DataAccessException {
+        delegate.updateGames(games);
+        for (GameData game : games) {
+            changed(GameSummary.of(game), false);
+        }
+    }
+
+    private void changed(GameSummary summary, boolean created) {
+        GameSummary previous = summary.status() == GameStatus.ACTIVE
+                ? active.put(summary.gameID(), summary)
+                : active.remove(summary.gameID()); //Finished games rarely change again
+        if (summary.equals(previous)) {
+            return;
+        }
+        version.incrementAndGet();
+        for (Listener listener : listeners) {
+            listener.gameChanged(summary, created);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package dataaccess;
+
+import model.MoveAnnotation;
+
+import java.util.*;
+
+public class MemoryAnnotationDAO implements AnnotationDAO {
+    private final Map<Integer, List<MoveAnnotation>> annotations = new HashMap<>();
+
+    @Override
+    public synchronized void clear() throws DataAccessException {
+        annotations.clear();
+    }
+
+    @Override
+    public synchronized void saveAnnotations(List<MoveAnnotation> annotations, Collection<Integer> gameIDs)
+            throws DataAccessException {
+        if (annotations == null || gameIDs == null) {
+            throw new DataAccessException("Annotations cannot be null");
+        }
+        Map<Integer, List<MoveAnnotation>> byGame = new HashMap<>();
+        for (Integer gameID : gameIDs) {
+            byGame.put(gameID, new ArrayList<>());
+        } for (MoveAnnotation annotation : annotations) {
+            List<MoveAnnotation> list = byGame.get(annotation.gameID());
+            if (list == null) {
+                throw new DataAccessException("Annotation for game " + annotation.gameID() + " outside the batch");
+            }
+            list.add(annotation);
+        } for (List<MoveAnnotation> list : byGame.values()) {
+            list.sort(Comparator.comparingInt(MoveAnnotation::ply));
+        }
+        this.annotations.putAll(byGame);
+    }
+
+    @Override
+    public synchronized List<MoveAnnotation> getAnnotations(int gameID) throws DataAccessException {
+        return List.copyOf(annotations.getOrDefault(gameID, List.of()));
+    }
+
+    @Override
+    public synchronized Set<Integer> annotatedGameIDs() throws DataAccessException {
+        return new HashSet<>(annotations.keySet());
+    }
+}
@@ -1,5 +1,6 @@
 package dataaccess;
 import model.GameData;
+import model.GameSummary;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -36,7 +37,15 @@ public class MemoryGameDAO implements GameDAO {
     }
 
     @Override
-    public void updateGame(GameData game) throws DataAccessException {
+    public List<GameSummary> listGameSummaries() throws DataAccessException {
+        List<GameSummary> summaries = new ArrayList<>(games.size());
+        for (GameData game : games.values()) {
+            summaries.add(GameSummary.of(game));
+        } return summaries;
+    }
+
+    @Override
+    public synchronized void updateGame(GameData game) throws DataAccessException {
         if (game == null) {
             throw new DataAccessException("Game cannot be null");
         }
@@ -46,4 +55,20 @@ public class MemoryGameDAO implements GameDAO {
         }
         games.put(gameID, game);
     }
+
+    @Override
+    public synchronized GameData updateGameIfUnchanged(GameData game) throws DataAccessException {
+        if (game == null) {
+            throw new DataAccessException("Game cannot be null");
+        }
+        GameData stored = games.get(game.gameID());
+        if (stored == null) {
+            throw new DataAccessException("Game not found with ID: " + game.gameID());
+        } if (stored.version() != game.version()) {
+            throw new StaleGameException(game.gameID());
+        }
+        GameData updated = game.withVersion(game.version() + 1);
+        games.put(game.gameID(), updated);
+        return updated;
+    }
 }
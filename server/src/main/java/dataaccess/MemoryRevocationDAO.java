@@ -0,0 +1,37 @@
+package dataaccess;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class MemoryRevocationDAO implements RevocationDAO {
+    private final Map<String, Revocation> revoked = new HashMap<>();
+    private long sequence;
+
+    @Override
+    public synchronized void clear() throws DataAccessException {
+        revoked.clear();
+    }
+
+    @Override
+    public synchronized void revoke(String tokenID, long expiresAtMillis) throws DataAccessException {
+        revoked.put(tokenID, new Revocation(expiresAtMillis, ++sequence));
+    }
+
+    @Override
+    public synchronized Revocations listRevokedSince(long cursor, long nowMillis) throws DataAccessException {
+        Map<String, Long> result = new HashMap<>();
+        revoked.forEach((tokenID, revocation) -> {
+            if (revocation.sequence > cursor && revocation.expiresAt > nowMillis) {
+                result.put(tokenID, revocation.expiresAt);
+            }
+        });
+        return new Revocations(result, Math.max(cursor, sequence));
+    }
+
+    @Override
+    public synchronized void purgeExpired(long nowMillis) throws DataAccessException {
+        revoked.values().removeIf(revocation -> revocation.expiresAt <= nowMillis);
+    }
+
+    private record Revocation(long expiresAt, long sequence) {}
+}
@@ -0,0 +1,48 @@
+package dataaccess;
+
+import java.util.Properties;
+
+/**
+ * Tuning for the JDBC connection pool, read from the db.pool.* keys of db.properties.
+ *
+ * @param maxSize             most connections open at once, borrowed or idle
+ * @param borrowTimeoutMillis how long getConnection waits for a free connection before failing
+ * @param maxLifetimeMillis   age after which a connection is closed instead of reused
+ * @param validateAfterMillis connections idle for longer than this are checked before being handed out
+ * @param leakThresholdMillis a connection borrowed for longer than this is reported as a probable leak
+ * @param traceBorrows        record the stack of every borrow so a leak report shows where it was borrowed;
+ *                            costs a stack walk per borrow, so only for debugging
+ */
+public record PoolSettings(
+        int maxSize,
+        long borrowTimeoutMillis,
+        long maxLifetimeMillis,
+        long validateAfterMillis,
+        long leakThresholdMillis,
+        boolean traceBorrows
+) {
+    public PoolSettings {
+        if (maxSize < 1 || borrowTimeoutMillis < 0 || maxLifetimeMillis < 1 || validateAfterMillis < 0
+                || leakThresholdMillis < 1) {
+            throw new IllegalArgumentException("Invalid connection pool settings");
+        }
+    }
+
+    public static PoolSettings defaults() {
+        return new PoolSettings(10, 5000, 30 * 60 * 1000, 5000, 60_000, false);
+    }
+
+    /**
+     * Reads the pool keys, falling back to {@link #defaults()} for missing ones
+     */
+    public static PoolSettings from(Properties props) {
+        PoolSettings defaults = defaults();
+        return new PoolSettings(
+                Integer.parseInt(props.getProperty("db.pool.maxSize", String.valueOf(defaults.maxSize()))),
+                Long.parseLong(props.getProperty("db.pool.borrowTimeoutMillis", String.valueOf(defaults.borrowTimeoutMillis()))),
+                Long.parseLong(props.getProperty("db.pool.maxLifetimeMillis", String.valueOf(defaults.maxLifetimeMillis()))),
+                Long.parseLong(props.getProperty("db.pool.validateAfterMillis", String.valueOf(defaults.validateAfterMillis()))),
+                Long.parseLong(props.getProperty("db.pool.leakThresholdMillis", String.valueOf(defaults.leakThresholdMillis()))),
+                Boolean.parseBoolean(props.getProperty("db.pool.traceBorrows", String.valueOf(defaults.traceBorrows()))));
+    }
+}
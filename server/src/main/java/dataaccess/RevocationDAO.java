@@ -0,0 +1,32 @@
+package dataaccess;
+
+import java.util.Map;
+
+public interface RevocationDAO {
+    /**
+     * Remove all revocations
+     */
+    void clear() throws DataAccessException;
+
+    /**
+     * Record that a signed token was logged out. It only needs remembering until it would have expired anyway.
+     */
+    void revoke(String tokenID, long expiresAtMillis) throws DataAccessException;
+
+    /**
+     * Revoked tokens that have not expired yet and were recorded after the cursor. Start from Long.MIN_VALUE
+     * and pass each result's cursor to the next call; a result may repeat tokens already returned.
+     */
+    Revocations listRevokedSince(long cursor, long nowMillis) throws DataAccessException;
+
+    /**
+     * Forget revocations of tokens that have expired
+     */
+    void purgeExpired(long nowMillis) throws DataAccessException;
+
+    /**
+     * @param expiresAt expiry time by token ID
+     * @param cursor    where the next call should pick up
+     */
+    record Revocations(Map<String, Long> expiresAt, long cursor) {}
+}
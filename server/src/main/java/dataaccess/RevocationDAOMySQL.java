@@ -0,0 +1,66 @@
+package dataaccess;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class RevocationDAOMySQL implements RevocationDAO {
+    //Rows are stamped by the database when written but only seen once committed, so each read
+    //starts this far before the newest stamp to pick up writes that committed late
+    private static final long OVERLAP_MILLIS = 5000;
+
+    @Override
+    public void clear() throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var stmt = conn.prepareStatement("DELETE FROM revoked_tokens")) {
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Error clearing revoked tokens");
+        }
+    }
+
+    @Override
+    public void revoke(String tokenID, long expiresAtMillis) throws DataAccessException {
+        String sql = "REPLACE INTO revoked_tokens (token_id, expires_at, revoked_at) "
+                + "VALUES (?, ?, ROUND(UNIX_TIMESTAMP(CURRENT_TIMESTAMP(3)) * 1000))";
+        try (var conn = DatabaseManager.getConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, tokenID);
+            stmt.setLong(2, expiresAtMillis);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Error revoking token");
+        }
+    }
+
+    @Override
+    public Revocations listRevokedSince(long cursor, long nowMillis) throws DataAccessException {
+        String sql = "SELECT token_id, expires_at, revoked_at FROM revoked_tokens WHERE revoked_at > ? AND expires_at > ?";
+        Map<String, Long> revoked = new HashMap<>();
+        long newest = Long.MIN_VALUE;
+        try (var conn = DatabaseManager.getConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, cursor);
+            stmt.setLong(2, nowMillis);
+            try (var rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    revoked.put(rs.getString("token_id"), rs.getLong("expires_at"));
+                    newest = Math.max(newest, rs.getLong("revoked_at"));
+                }
+            } return new Revocations(revoked, revoked.isEmpty() ? cursor : Math.max(cursor, newest - OVERLAP_MILLIS));
+        } catch (SQLException e) {
+            throw new DataAccessException("Error listing revoked tokens");
+        }
+    }
+
+    @Override
+    public void purgeExpired(long nowMillis) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var stmt = conn.prepareStatement("DELETE FROM revoked_tokens WHERE expires_at <= ?")) {
+            stmt.setLong(1, nowMillis);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Error purging revoked tokens");
+        }
+    }
+}
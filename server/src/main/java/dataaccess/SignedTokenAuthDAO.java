@@ -0,0 +1,201 @@
+package dataaccess;
+
+import model.AuthData;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Session tokens that carry their own username and issue time under an HMAC-SHA256 signature.
+ * <p>
+ * A token is {@code base64(username).issuedAt.id.signature}. Checking one needs no storage: the
+ * signature is recomputed and compared, and the token is rejected once it is older than the TTL.
+ * Logout adds the token's id to a revocation list that is kept only until the token would have
+ * expired. Revocations are written to a RevocationDAO and the new ones read on an interval, so servers
+ * sharing the secret see each other's logouts within that interval. Issue times from another server's
+ * clock are accepted up to the configured skew ahead of this one.
+ * <p>
+ * createAuth stores nothing; tokens come from {@link #issue(String)}.
+ */
+public class SignedTokenAuthDAO implements AuthDAO, AutoCloseable {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final byte[] secret;
+    private final long ttlMillis;
+    private final long clockSkewMillis;
+    private final boolean purgeRevocations;
+    private final RevocationDAO revocations;
+    private final LongSupplier clock;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final ThreadLocal<Mac> macs;
+    private final ScheduledExecutorService refresher;
+    private volatile long clearedAt;
+    private long revocationCursor = Long.MIN_VALUE;
+
+    public SignedTokenAuthDAO(TokenSettings settings, RevocationDAO revocations) {
+        this(settings, revocations, System::currentTimeMillis);
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, settings.refreshMillis(), settings.refreshMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    SignedTokenAuthDAO(TokenSettings settings, RevocationDAO revocations, LongSupplier clock) {
+        if (settings.secret() == null || settings.secret().length < 32) {
+            throw new IllegalArgumentException("Token secret must be at least 256 bits");
+        } if (settings.ttlMillis() < 1) {
+            throw new IllegalArgumentException("Token lifetime must be positive");
+        } if (settings.clockSkewMillis() < 0) {
+            throw new IllegalArgumentException("Clock skew must not be negative");
+        }
+        this.secret = settings.secret().clone();
+        this.ttlMillis = settings.ttlMillis();
+        this.clockSkewMillis = settings.clockSkewMillis();
+        this.purgeRevocations = settings.purgeRevocations();
+        this.revocations = revocations;
+        this.clock = clock;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-revocations");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Signs a new token for the user
+     */
+    public String issue(String username) {
+        byte[] id = new byte[9];
+        random.nextBytes(id);
+        String payload = ENCODER.encodeToString(username.getBytes(StandardCharsets.UTF_8)) + "."
+                + Long.toString(clock.getAsLong(), 36) + "." + ENCODER.encodeToString(id);
+        return payload + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    /**
+     * Forgets every revocation and rejects every token issued before now
+     */
+    @Override
+    public void clear() throws DataAccessException {
+        clearedAt = clock.getAsLong();
+        revoked.clear();
+        revocations.clear();
+    }
+
+    @Override
+    public void createAuth(AuthData auth) throws DataAccessException {
+        if (auth == null || verify(auth.authToken()) == null) {
+            throw new DataAccessException("Error: token was not issued by this server");
+        }
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        return verify(authToken);
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        Token token = parse(authToken);
+        if (token == null) {
+            return;
+        }
+        long expiresAt = token.issuedAt + ttlMillis;
+        revoked.put(token.id, expiresAt);
+        revocations.revoke(token.id, expiresAt);
+    }
+
+    /**
+     * Reads revocations made by other servers since the last refresh and drops expired ones, deleting them
+     * from the RevocationDAO too if this is the server that purges
+     */
+    public synchronized void refreshRevocations() throws DataAccessException {
+        long now = clock.getAsLong();
+        RevocationDAO.Revocations latest = revocations.listRevokedSince(revocationCursor, now);
+        revoked.putAll(latest.expiresAt());
+        revocationCursor = latest.cursor();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        if (purgeRevocations) {
+            revocations.purgeExpired(now);
+        }
+    }
+
+    public int revokedTokens() {
+        return revoked.size();
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    private AuthData verify(String authToken) {
+        Token token = parse(authToken);
+        if (token == null) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        if (token.issuedAt < clearedAt || token.issuedAt > now + clockSkewMillis
+                || now - token.issuedAt >= ttlMillis || revoked.containsKey(token.id)) {
+            return null;
+        } return new AuthData(authToken, token.username);
+    }
+
+    // Returns the token's fields if it is well formed and the signature matches, otherwise null
+    private Token parse(String authToken) {
+        if (authToken == null) {
+            return null;
+        }
+        String[] parts = authToken.split("\\.");
+        if (parts.length != 4) {
+            return null;
+        }
+        try {
+            String payload = parts[0] + "." + parts[1] + "." + parts[2];
+            if (!MessageDigest.isEqual(sign(payload), DECODER.decode(parts[3]))) {
+                return null;
+            }
+            return new Token(new String(DECODER.decode(parts[0]), StandardCharsets.UTF_8),
+                    Long.parseLong(parts[1], 36), parts[2]);
+        } catch (IllegalArgumentException e) { //Bad base64 or number
+            return null;
+        }
+    }
+
+    private byte[] sign(String payload) {
+        return macs.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refreshRevocations();
+        } catch (DataAccessException e) {
+            System.err.println("Unable to refresh revoked tokens: " + e.getMessage());
+        }
+    }
+
+    private record Token(String username, long issuedAt, String id) {}
+}
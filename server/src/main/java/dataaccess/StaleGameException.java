@@ -0,0 +1,11 @@
+package dataaccess;
+
+/**
+ * A compare-and-set update lost: the game was changed after the caller read it. Reading the game
+ * again and redoing the change usually succeeds.
+ */
+public class StaleGameException extends DataAccessException {
+    public StaleGameException(int gameID) {
+        super("Error: game " + gameID + " was changed by another request");
+    }
+}
@@ -0,0 +1,59 @@
+package dataaccess;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Properties;
+
+/**
+ * How session tokens are issued and checked, read from an optional auth.properties on the classpath.
+ *
+ * @param signed          true for self-contained HMAC-signed tokens, false for random tokens stored in the auth table
+ * @param secret          signing key shared by every server; generated at startup if not configured
+ * @param ttlMillis       lifetime of a signed token
+ * @param refreshMillis   how often revocations made by other servers are picked up
+ * @param clockSkewMillis how far ahead of this server's clock another server's issue time may be
+ * @param purgeRevocations true if this server deletes expired revocations; one server purging is enough
+ */
+public record TokenSettings(
+        boolean signed,
+        byte[] secret,
+        long ttlMillis,
+        long refreshMillis,
+        long clockSkewMillis,
+        boolean purgeRevocations
+) {
+    public static TokenSettings defaults() {
+        return new TokenSettings(false, null, 24 * 60 * 60 * 1000, 5000, 30_000, true);
+    }
+
+    /**
+     * Loads auth.properties, falling back to {@link #defaults()} for missing keys or a missing file
+     */
+    public static TokenSettings load() {
+        Properties props = new Properties();
+        try (InputStream stream = Thread.currentThread().getContextClassLoader().getResourceAsStream("auth.properties")) {
+            if (stream != null) {
+                props.load(stream);
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to read auth.properties, using defaults: " + e.getMessage());
+        }
+        TokenSettings defaults = defaults();
+        boolean signed = props.getProperty("auth.mode", "database").equalsIgnoreCase("signed");
+        byte[] secret = null;
+        if (props.getProperty("auth.secret") != null) {
+            secret = Base64.getDecoder().decode(props.getProperty("auth.secret"));
+        } else if (signed) {
+            System.err.println("auth.secret is not set; tokens will only be valid on this server until it restarts");
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+        }
+        return new TokenSettings(signed, secret,
+                Long.parseLong(props.getProperty("auth.tokenTtlMillis", String.valueOf(defaults.ttlMillis()))),
+                Long.parseLong(props.getProperty("auth.revocationRefreshMillis", String.valueOf(defaults.refreshMillis()))),
+                Long.parseLong(props.getProperty("auth.clockSkewMillis", String.valueOf(defaults.clockSkewMillis()))),
+                Boolean.parseBoolean(props.getProperty("auth.purgeRevocations", String.valueOf(defaults.purgeRevocations()))));
+    }
+}
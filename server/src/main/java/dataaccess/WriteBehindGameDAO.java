@@ -0,0 +1,469 @@
+package dataaccess;
+
+import chess.ChessGame;
+import model.GameData;
+import model.GameQuery;
+import model.GameSummary;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues game updates and writes them to another GameDAO in batches on a background thread.
+ * <p>
+ * Updates to the same game coalesce: only the newest state waiting in the queue is written. Every
+ * flush interval all waiting games are committed together, maxBatch games per transaction. Reads
+ * see queued state, so callers never observe a game going back in time.
+ * <p>
+ * How long updateGame waits depends on the {@link Durability}. When the queue holds maxPending games,
+ * updates for further games wait for a flush, and fail as busy if none comes within backpressureMillis.
+ * <p>
+ * When a batch fails its games are written one at a time, so one game that can't be stored doesn't hold
+ * up the rest. A game that fails on its own while others are written is retried in later flushes, and
+ * dropped from the queue after MAX_WRITE_ATTEMPTS; its stored row is left as it was. When nothing can be
+ * written at all, as when the database is down, games are kept until it comes back.
+ */
+public class WriteBehindGameDAO implements GameDAO, AutoCloseable {
+
+    public enum Durability {
+        /** Write before returning, as if there were no queue */
+        SYNC,
+        /** Return once the batch containing the update has committed; many moves share one commit */
+        GROUP_COMMIT,
+        /** Return immediately; a crash loses at most one flush interval of moves */
+        ASYNC
+    }
+
+    private static final long COMMIT_WAIT_MILLIS = 10_000;
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+
+    private final GameDAO delegate;
+    private final Durability durability;
+    private final int maxPending;
+    private final int maxBatch;
+    private final long backpressureMillis;
+    private final ScheduledExecutorService flusher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private final LinkedHashMap<Integer, GameData> pending = new LinkedHashMap<>();
+    private final Map<Integer, GameData> writing = new LinkedHashMap<>();
+    private final Map<Integer, Integer> failedWrites = new HashMap<>(); //Games that failed while others were written
+    private long clears; //So a cycle that overlaps a clear doesn't queue its games again
+    private long startedCycles; //Flush cycles that have taken their games from the queue
+    private long committedCycles; //Highest cycle whose games are all stored
+    private boolean closed;
+
+    public WriteBehindGameDAO(GameDAO delegate, WriteBehindSettings settings) {
+        this.delegate = delegate;
+        this.durability = settings.durability();
+        this.maxPending = settings.maxPending();
+        this.maxBatch = settings.maxBatch();
+        this.backpressureMillis = settings.backpressureMillis();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (durability != Durability.SYNC) {
+            flusher.scheduleWithFixedDelay(this::flushQuietly, settings.flushIntervalMillis(),
+                    settings.flushIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        lock.lock();
+        try {
+            pending.clear();
+            writing.clear();
+            failedWrites.clear();
+            clears++;
+        } finally {
+            lock.unlock();
+        }
+        delegate.clear();
+    }
+
+    @Override
+    public void createGame(GameData game) throws DataAccessException {
+        delegate.createGame(game); //New games need their row (and ID) right away
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        lock.lock();
+        try {
+            GameData queued = pending.get(gameID);
+            if (queued == null) {
+                queued = writing.get(gameID);
+            } if (queued != null) {
+                return queued;
+            }
+        } finally {
+            lock.unlock();
+        } return delegate.getGame(gameID);
+    }
+
+    @Override
+    public List<GameData> listGames() throws DataAccessException {
+        List<GameData> stored = delegate.listGames();
+        List<GameData> result = new ArrayList<>(stored.size());
+        lock.lock();
+        try {
+            for (GameData game : stored) {
+                GameData queued = pending.get(game.gameID());
+                if (queued == null) {
+                    queued = writing.get(game.gameID());
+                }
+                result.add(queued != null ? queued : game);
+            }
+        } finally {
+            lock.unlock();
+        } return result;
+    }
+
+    @Override
+    public List<GameSummary> listGameSummaries() throws DataAccessException {
+        List<GameSummary> stored = delegate.listGameSummaries();
+        List<GameSummary> result = new ArrayList<>(stored.size());
+        lock.lock();
+        try {
+            for (GameSummary summary : stored) {
+                GameData queued = queued(summary.gameID());
+                result.add(queued != null ? GameSummary.of(queued) : summary);
+            }
+        } finally {
+            lock.unlock();
+        } return result;
+    }
+
+    /**
+     * Runs the query in the underlying DAO and merges in the games still queued. Only queued games can
+     * differ from their rows, and only those past the page's start can push a row off it, so asking for
+     * that many more rows than the page needs is always enough.
+     */
+    @Override
+    public List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException {
+        Map<Integer, GameSummary> queued = new HashMap<>();
+        lock.lock();
+        try {
+            for (GameData game : writing.values()) {
+                queued.put(game.gameID(), GameSummary.of(game));
+            } for (GameData game : pending.values()) {
+                queued.put(game.gameID(), GameSummary.of(game)); //Newer than the one being written
+            }
+        } finally {
+            lock.unlock();
+        } if (queued.isEmpty()) {
+            return delegate.listGameSummaries(query);
+        }
+        int padding = 0;
+        for (int gameID : queued.keySet()) {
+            if (query.isPastAfter(gameID)) {
+                padding++;
+            }
+        }
+        GameQuery padded = query.limit() == null ? query : query.withLimit(query.limit() + padding);
+        Map<Integer, GameSummary> merged = new HashMap<>(queued);
+        for (GameSummary summary : delegate.listGameSummaries(padded)) {
+            merged.putIfAbsent(summary.gameID(), summary);
+        } return query.apply(merged.values());
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        if (game == null) {
+            throw new DataAccessException("Game cannot be null");
+        } if (durability == Durability.SYNC) {
+            delegate.updateGame(game);
+            return;
+        }
+        GameData snapshot = snapshot(game);
+        long cycle;
+        lock.lock();
+        try {
+            awaitRoom(game.gameID());
+            cycle = enqueue(snapshot);
+        } finally {
+            lock.unlock();
+        } if (durability == Durability.GROUP_COMMIT) {
+            awaitCommit(cycle);
+        }
+    }
+
+    /**
+     * Checks the version against the newest state queued for the game, or the stored one when none is
+     * queued, and queues the update like updateGame if it matches
+     */
+    @Override
+    public GameData updateGameIfUnchanged(GameData game) throws DataAccessException {
+        if (game == null) {
+            throw new DataAccessException("Game cannot be null");
+        } if (durability == Durability.SYNC) {
+            return delegate.updateGameIfUnchanged(game);
+        }
+        GameData updated = game.withVersion(game.version() + 1);
+        GameData snapshot = snapshot(updated);
+        long cycle;
+        lock.lock();
+        try {
+            awaitRoom(game.gameID());
+            GameData current;
+            while ((current = queued(game.gameID())) == null) {
+                long seen = startedCycles;
+                lock.unlock();
+                GameData stored;
+                try {
+                    stored = delegate.getGame(game.gameID());
+                } finally {
+                    lock.lock();
+                } if (stored == null) {
+                    throw new DataAccessException("Game not found with ID: " + game.gameID());
+                } if (queued(game.gameID()) == null && startedCycles == seen) {
+                    current = stored; //Nothing was queued or written while reading
+                    break;
+                }
+            } if (current.version() != game.version()) {
+                throw new StaleGameException(game.gameID());
+            }
+            cycle = enqueue(snapshot);
+        } finally {
+            lock.unlock();
+        } if (durability == Durability.GROUP_COMMIT) {
+            awaitCommit(cycle);
+        }
+        return updated;
+    }
+
+    /**
+     * Writes every queued game now, returning once they are stored
+     */
+    public void flush() throws DataAccessException {
+        lock.lock();
+        try {
+            if (pending.isEmpty() && committedCycles >= startedCycles) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.submit(() -> {
+                flushCycle();
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Error: interrupted while saving games");
+        } catch (ExecutionException e) { //Runs after any cycle already writing, so that one is done too
+            throw e.getCause() instanceof DataAccessException dae ? dae
+                    : new DataAccessException("Error saving games: " + e.getCause().getMessage());
+        } catch (RejectedExecutionException e) {
+            flushCycle();
+        }
+    }
+
+    /**
+     * @return games waiting to be written
+     */
+    public int pendingGames() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the background writer after writing everything still queued
+     */
+    @Override
+    public void close() throws DataAccessException {
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(COMMIT_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushCycle();
+    }
+
+    // Callers keep changing their ChessGame after an update returns, so the queue holds a copy
+    private static GameData snapshot(GameData game) {
+        return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(),
+                game.game() == null ? null : new ChessGame(game.game()), game.status(), game.botColor(), game.version());
+    }
+
+    // Waits, with the lock held, until the queue has room for another game
+    private void awaitRoom(int gameID) throws DataAccessException {
+        if (closed) {
+            throw new DataAccessException("Error: game writer is shut down");
+        }
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backpressureMillis);
+            while (pending.size() >= maxPending && !pending.containsKey(gameID)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                flushed.awaitNanos(remaining);
+            } if (pending.size() >= maxPending && !pending.containsKey(gameID)) {
+                throw new DataAccessException("Error: server busy (game writes are backed up)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Error: interrupted while saving game");
+        }
+    }
+
+    // With the lock held; returns the flush cycle that will write the game
+    private long enqueue(GameData snapshot) {
+        pending.remove(snapshot.gameID()); //Re-insert so the queue stays in order of last change
+        pending.put(snapshot.gameID(), snapshot);
+        return startedCycles + 1;
+    }
+
+    private GameData queued(int gameID) {
+        GameData queued = pending.get(gameID);
+        return queued != null ? queued : writing.get(gameID);
+    }
+
+    private void flushQuietly() {
+        try {
+            flushCycle();
+        } catch (DataAccessException e) {
+            System.err.println("Deferred game writes failed, will retry: " + e.getMessage());
+        }
+    }
+
+    // Takes everything queued and commits it in transactions of maxBatch games
+    private void flushCycle() throws DataAccessException {
+        long cycle;
+        long clearsAtStart;
+        List<GameData> games;
+        lock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            cycle = ++startedCycles;
+            clearsAtStart = clears;
+            games = new ArrayList<>(pending.values());
+            writing.putAll(pending);
+            pending.clear();
+            flushed.signalAll(); //Room in the queue again
+        } finally {
+            lock.unlock();
+        }
+
+        List<GameData> failed = new ArrayList<>();
+        List<GameData> unwritten = List.of();
+        Exception error = null;
+        boolean anyWritten = false;
+        for (int from = 0; from < games.size(); from += maxBatch) {
+            List<GameData> batch = games.subList(from, Math.min(games.size(), from + maxBatch));
+            try {
+                delegate.updateGames(batch);
+                anyWritten = true;
+                continue;
+            } catch (DataAccessException | RuntimeException e) {
+                error = e;
+            }
+            int failedBefore = failed.size();
+            for (GameData game : batch) { //Find the games that can't be written
+                try {
+                    delegate.updateGames(List.of(game));
+                    anyWritten = true;
+                } catch (DataAccessException | RuntimeException e) {
+                    failed.add(game);
+                    error = e;
+                }
+            } if (batch.size() > 1 && failed.size() - failedBefore == batch.size()) {
+                unwritten = games.subList(from + batch.size(), games.size()); //Nothing gets through; try again later
+                break;
+            }
+        }
+
+        List<Integer> dropped = new ArrayList<>();
+        boolean retrying = false;
+        lock.lock();
+        try {
+            writing.clear();
+            if (clears == clearsAtStart) {
+                Map<Integer, Integer> earlierFailures = new HashMap<>(failedWrites);
+                for (GameData game : games.subList(0, games.size() - unwritten.size())) {
+                    failedWrites.remove(game.gameID()); //Written, or counted again below
+                }
+                for (GameData game : failed) {
+                    int attempts = earlierFailures.getOrDefault(game.gameID(), 0);
+                    if (anyWritten) { //Only blamed when other games could be written
+                        attempts++;
+                    } if (attempts >= MAX_WRITE_ATTEMPTS) {
+                        dropped.add(game.gameID());
+                        continue;
+                    } if (attempts > 0) {
+                        failedWrites.put(game.gameID(), attempts);
+                    }
+                    pending.putIfAbsent(game.gameID(), game); //Unless a newer state was queued meanwhile
+                    retrying = true;
+                }
+                for (GameData game : unwritten) {
+                    pending.putIfAbsent(game.gameID(), game);
+                    retrying = true;
+                }
+            }
+            if (!retrying) { //Everything still wanted was stored
+                committedCycles = Math.max(committedCycles, cycle);
+            }
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        if (!dropped.isEmpty()) {
+            System.err.println("Gave up saving games " + dropped + " after " + MAX_WRITE_ATTEMPTS + " attempts: "
+                    + error.getMessage());
+        } if (retrying) {
+            if (error instanceof RuntimeException e) {
+                throw e;
+            } throw (DataAccessException) error;
+        }
+    }
+
+    private void awaitCommit(long cycle) throws DataAccessException {
+        lock.lock();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(COMMIT_WAIT_MILLIS);
+            while (committedCycles < cycle) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new DataAccessException("Error: timed out saving game");
+                }
+                flushed.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Error: interrupted while saving game");
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package dataaccess;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Tuning for deferred game writes, read from an optional persistence.properties on the classpath.
+ *
+ * @param durability         when updateGame returns relative to the database commit
+ * @param flushIntervalMillis time between background flushes
+ * @param maxPending         games that may wait to be written before updates are held back
+ * @param maxBatch           games written per transaction
+ * @param backpressureMillis how long an update waits for room in a full queue before failing as busy
+ */
+public record WriteBehindSettings(
+        WriteBehindGameDAO.Durability durability,
+        long flushIntervalMillis,
+        int maxPending,
+        int maxBatch,
+        long backpressureMillis
+) {
+    public WriteBehindSettings {
+        if (durability == null || flushIntervalMillis < 1 || maxPending < 1 || maxBatch < 1 || backpressureMillis < 0) {
+            throw new IllegalArgumentException("Invalid write-behind settings");
+        }
+    }
+
+    public static WriteBehindSettings defaults() {
+        return new WriteBehindSettings(WriteBehindGameDAO.Durability.ASYNC, 20, 10_000, 500, 2000);
+    }
+
+    /**
+     * Loads persistence.properties, falling back to {@link #defaults()} for missing keys or a missing file
+     */
+    public static WriteBehindSettings load() {
+        Properties props = new Properties();
+        try (InputStream stream = Thread.currentThread().getContextClassLoader().getResourceAsStream("persistence.properties")) {
+            if (stream != null) {
+                props.load(stream);
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to read persistence.properties, using defaults: " + e.getMessage());
+        }
+        WriteBehindSettings defaults = defaults();
+        return new WriteBehindSettings(
+                WriteBehindGameDAO.Durability.valueOf(props.getProperty("games.durability", defaults.durability().name())),
+                Long.parseLong(props.getProperty("games.flushIntervalMillis", String.valueOf(defaults.flushIntervalMillis()))),
+                Integer.parseInt(props.getProperty("games.maxPending", String.valueOf(defaults.maxPending()))),
+                Integer.parseInt(props.getProperty("games.maxBatch", String.valueOf(defaults.maxBatch()))),
+                Long.parseLong(props.getProperty("games.backpressureMillis", String.valueOf(defaults.backpressureMillis()))));
+    }
+}
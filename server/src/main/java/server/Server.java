@@ -2,15 +2,32 @@ package server;
 
 import dataaccess.*;
 import server.handlers.*;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.TranspositionTable;
+import service.AnalysisService;
+import service.AnnotationPipeline;
+import service.BotService;
+import service.BotSettings;
 import service.ClearService;
 import service.GameService;
 import service.UserService;
 import spark.Spark;
 
 import dataaccess.DatabaseManager;
+import websocket.ConnectionManager;
 import websocket.WebSocketHandler;
 
 public class Server {
+    private static final int AUTH_CACHE_SIZE = 100_000;
+    private static final long AUTH_CACHE_TTL_MILLIS = 5 * 60 * 1000;
+
+    private BotService botService;
+    private AnalysisService analysisService;
+    private AnnotationPipeline annotationPipeline;
+    private WriteBehindGameDAO gameWriter;
+    private WebSocketHandler webSocketHandler;
+    private SignedTokenAuthDAO signedTokens;
 
     public int run(int desiredPort) {
         try {
@@ -22,20 +39,45 @@ public class Server {
             return -1;
         }
 
+        // Instantiate DAOs
+        var userDAO = new UserDAOMySQL();
+        var gameStore = new GameDAOMySQL();
+        migrateLegacyGames(gameStore);
+        gameWriter = new WriteBehindGameDAO(gameStore, WriteBehindSettings.load()); //Moves are saved in batches
+        var gameDAO = new LobbyTrackingGameDAO( //Versions the game list for conditional GET /game and lobby updates
+                new CachingGameDAO(gameWriter, GameCacheSettings.load())); //Active games stay in memory
+        var tokenSettings = TokenSettings.load();
+        AuthDAO authDAO;
+        UserService.TokenIssuer tokenIssuer = null;
+        if (tokenSettings.signed()) { //Tokens verify themselves; only logouts are stored
+            signedTokens = new SignedTokenAuthDAO(tokenSettings, new RevocationDAOMySQL());
+            authDAO = signedTokens;
+            tokenIssuer = signedTokens::issue;
+        } else {
+            authDAO = new CachingAuthDAO(new AuthDAOMySQL(), AUTH_CACHE_SIZE, AUTH_CACHE_TTL_MILLIS, 5000); //Token checks skip MySQL
+        }
+
+        // Engine work (computer opponent, analysis) runs on its own worker pools, off the Jetty threads
+        var botSettings = BotSettings.load();
+        botService = new BotService(botSettings);
+        analysisService = new AnalysisService(gameDAO, authDAO, //Searches book positions too, and lists the book's moves
+                new Engine(null, botService.tablebase(), new TranspositionTable(botSettings.hashMegabytes())),
+                botService.openingBook(), botSettings.threads(), 10_000);
+        annotationPipeline = new AnnotationPipeline(gameDAO, new AnnotationDAOMySQL(), //Book moves carry no score
+                new Engine(null, botService.tablebase(), new TranspositionTable(botSettings.hashMegabytes())),
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2), new SearchLimits(8, 1000), 50);
+        annotationPipeline.schedule(10 * 60 * 1000);
+
         // Set up Spark
         Spark.port(desiredPort);
         Spark.staticFiles.location("web");
-        Spark.webSocket("/ws", WebSocketHandler.class);
-
-        // Instantiate DAOs
-        var userDAO = new UserDAOMySQL();
-        var gameDAO = new GameDAOMySQL();
-        var authDAO = new AuthDAOMySQL();
+        webSocketHandler = new WebSocketHandler(authDAO, gameDAO, botService, gameDAO);
+        Spark.webSocket("/ws", webSocketHandler);
 
         // Instantiate Services
         var clearService = new ClearService(userDAO, gameDAO, authDAO);
-        var userService = new UserService(userDAO, authDAO);
-        var gameService = new GameService(gameDAO, authDAO);
+        var userService = tokenIssuer == null ? new UserService(userDAO, authDAO) : new UserService(userDAO, authDAO, tokenIssuer);
+        var gameService = new GameService(gameDAO, authDAO, gameDAO::versionTag);
 
         // Instantiate Handlers
         var clearHandler = new ClearHandler(clearService);
@@ -45,6 +87,7 @@ public class Server {
         var listGamesHandler = new ListGamesHandler(gameService);
         var createGameHandler = new CreateGameHandler(gameService);
         var joinGameHandler = new JoinGameHandler(gameService);
+        var analysisHandler = new AnalysisHandler(analysisService);
 
         // Register Routes
         Spark.delete("/db", clearHandler);
@@ -54,14 +97,61 @@ public class Server {
         Spark.get("/game", listGamesHandler);
         Spark.post("/game", createGameHandler);
         Spark.put("/game", joinGameHandler);
+        Spark.get("/analysis", analysisHandler);
 
         // Wait for Spark to finish initialization
         Spark.awaitInitialization();
         return Spark.port();
     }
 
+    /**
+     * Moves games stored before the move log existed into it in the background; until a row is
+     * reached it is read in its old form
+     */
+    private static void migrateLegacyGames(GameDAOMySQL games) {
+        Thread migration = new Thread(() -> {
+            try {
+                int total = 0;
+                for (int count; (count = games.migrateLegacyRows(500)) > 0; ) {
+                    total += count;
+                } if (total > 0) {
+                    System.out.println("Moved " + total + " stored games to the move log");
+                }
+            } catch (DataAccessException e) {
+                System.err.println("Stopped converting stored games: " + e.getMessage());
+            }
+        }, "game-migration");
+        migration.setDaemon(true);
+        migration.start();
+    }
+
+    /**
+     * @return usage counters of the WebSocket connections, or null before the server has started
+     */
+    public ConnectionManager.Stats connectionStats() {
+        return webSocketHandler == null ? null : webSocketHandler.connectionStats();
+    }
+
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        if (webSocketHandler != null) {
+            webSocketHandler.shutdown();
+        } if (signedTokens != null) {
+            signedTokens.close();
+        } if (analysisService != null) {
+            analysisService.shutdown();
+        } if (annotationPipeline != null) {
+            annotationPipeline.shutdown();
+        } if (botService != null) {
+            botService.shutdown(); //Last of the engines, as it closes the book and tablebase they share
+        } if (gameWriter != null) {
+            try {
+                gameWriter.close(); //Write moves still waiting in the queue
+            } catch (DataAccessException e) {
+                System.err.println("Failed to save queued games on shutdown: " + e.getMessage());
+            }
+        }
+        DatabaseManager.closePool();
     }
 }
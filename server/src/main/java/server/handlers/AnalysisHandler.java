@@ -0,0 +1,75 @@
+package server.handlers;
+
+import com.google.gson.Gson;
+import json.Serializer;
+import dataaccess.DataAccessException;
+import requests.AnalysisRequest;
+import results.AnalysisResult;
+import service.AnalysisService;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * Handles [GET] /analysis
+ * Header: authorization: <authToken>
+ * Query: fen=<FEN> or gameID=<id>, optional depth=<1-12>
+ * Returns: { "fen": "...", "depth": 6, "score": 35, "bestMove": "e2e4", ... } on success
+ */
+public class AnalysisHandler implements Route {
+
+    private final AnalysisService analysisService;
+    private static final Gson GSON = Serializer.GSON;
+
+    public AnalysisHandler(AnalysisService analysisService) {
+        this.analysisService = analysisService;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) {
+        response.type("application/json");
+        try {
+            String authToken = request.headers("authorization");
+            if (authToken == null || authToken.isBlank()) {
+                response.status(401);
+                return GSON.toJson(new ErrorMessage("Error: unauthorized"));
+            }
+
+            Integer gameID = null;
+            int depth = AnalysisService.DEFAULT_DEPTH;
+            try {
+                if (request.queryParams("gameID") != null) {
+                    gameID = Integer.parseInt(request.queryParams("gameID"));
+                } if (request.queryParams("depth") != null) {
+                    depth = Integer.parseInt(request.queryParams("depth"));
+                }
+            } catch (NumberFormatException e) {
+                response.status(400);
+                return GSON.toJson(new ErrorMessage("Error: bad request"));
+            }
+
+            AnalysisRequest req = new AnalysisRequest(authToken, request.queryParams("fen"), gameID, depth);
+            AnalysisResult result = analysisService.analyze(req);
+            response.status(200);
+            return GSON.toJson(result);
+
+        } catch (DataAccessException e) {
+            String msg = e.getMessage() == null ? "" : e.getMessage().toLowerCase();
+            if (msg.contains("unauthorized")) {
+                response.status(401);
+            } else if (msg.contains("bad request")) {
+                response.status(400);
+            } else if (msg.contains("busy")) {
+                response.status(503);
+            } else {
+                response.status(500);
+            } return GSON.toJson(new ErrorMessage(e.getMessage()));
+
+        } catch (Exception e) {
+            response.status(500);
+            return GSON.toJson(new ErrorMessage("Error: " + e.getMessage()));
+        }
+    }
+
+    private record ErrorMessage(String message) {}
+}
@@ -1,6 +1,7 @@
 package server.handlers;
 
 import com.google.gson.Gson;
+import json.Serializer;
 import dataaccess.DataAccessException;
 import service.ClearService;
 import spark.Request;
@@ -13,7 +14,7 @@ import spark.Route;
 public class ClearHandler implements Route {
 
     private final ClearService clearService;
-    private final Gson gson = new Gson();
+    private final Gson gson = Serializer.GSON;
 
     public ClearHandler(ClearService clearService) {
         this.clearService = clearService;
@@ -1,6 +1,8 @@
 package server.handlers;
 
+import chess.ChessGame;
 import com.google.gson.Gson;
+import json.Serializer;
 import dataaccess.DataAccessException;
 import model.GameData; // <-- Added import
 import service.GameService;
@@ -13,13 +15,13 @@ import spark.Route;
 /**
  * Handles [POST] /game
  * Headers: authorization: <authToken>
- * Body: {"gameName":"..."}
+ * Body: {"gameName":"...", "botColor":"WHITE"|"BLACK" (optional, seats the computer)}
  * Returns: Full GameData JSON on success {"gameID": 1234, "whiteUsername":null, ...}
  */
 public class CreateGameHandler implements Route {
 
     private final GameService gameService;
-    private final Gson gson = new Gson();
+    private final Gson gson = Serializer.GSON;
 
     public CreateGameHandler(GameService gameService) {
         this.gameService = gameService;
@@ -44,9 +46,18 @@ public class CreateGameHandler implements Route {
                 return gson.toJson(new ErrorMessage("Error: bad request (missing gameName)"));
             }
 
+            ChessGame.TeamColor botColor = null;
+            if (body.botColor != null && !body.botColor.isBlank()) {
+                try {
+                    botColor = ChessGame.TeamColor.valueOf(body.botColor.toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    response.status(400); // Bad Request
+                    return gson.toJson(new ErrorMessage("Error: bad request (botColor must be WHITE or BLACK)"));
+                }
+            }
+
             // 3. Create service-layer request object
-            // Assuming CreateGameRequest definition is: (String authToken, String gameName)
-            CreateGameRequest createReq = new CreateGameRequest(authToken, body.gameName);
+            CreateGameRequest createReq = new CreateGameRequest(authToken, body.gameName, botColor);
 
             // 4. Call the service to create the game
             // This returns only the gameID according to your GameService code
@@ -122,9 +133,9 @@ public class CreateGameHandler implements Route {
 
 
     /**
-     * Helper record for parsing incoming JSON body {"gameName":"..."}
+     * Helper record for parsing incoming JSON body {"gameName":"...", "botColor":"..."}
      */
-    private record BodyJSON(String gameName) {}
+    private record BodyJSON(String gameName, String botColor) {}
 
     /**
      * Helper record for returning error messages in JSON format {"message":"..."}
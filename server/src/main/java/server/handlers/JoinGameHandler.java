@@ -1,5 +1,6 @@
 package server.handlers;
 import com.google.gson.Gson;
+import json.Serializer;
 import dataaccess.DataAccessException;
 import service.GameService;
 import requests.JoinGameRequest;
@@ -17,7 +18,7 @@ import spark.Route;
 public class JoinGameHandler implements Route {
 
     private final GameService gameService;
-    private final Gson gson = new Gson();
+    private final Gson gson = Serializer.GSON;
 
     public JoinGameHandler(GameService gameService) {
         this.gameService = gameService;
@@ -1,7 +1,10 @@
 package server.handlers;
 
 import com.google.gson.Gson;
+import json.Serializer;
 import dataaccess.DataAccessException;
+import model.GameQuery;
+import model.GameStatus;
 import service.GameService;
 import requests.ListGamesRequest;
 import results.ListGamesResult;
@@ -12,12 +15,16 @@ import spark.Route;
 /**
  * Handles [GET] /game
  * Header: authorization: <authToken>
- * Returns: { "games": [ ... ] } on success
+ * Query (all optional): after=<gameID>, limit=<1-100>, status=<GameStatus>, open=true, player=<username>,
+ * sort=asc|desc (by game ID)
+ * Returns: { "games": [ ... ], "next": <gameID> } on success; next is left out on the last page
+ * The response carries an ETag for the state of the game list; a request whose If-None-Match holds it
+ * gets 304 and no body.
  */
 public class ListGamesHandler implements Route {
 
     private final GameService gameService;
-    private static final Gson GSON = new Gson();
+    private static final Gson GSON = Serializer.GSON;
 
     public ListGamesHandler(GameService gameService) {
         this.gameService = gameService;
@@ -33,8 +40,27 @@ public class ListGamesHandler implements Route {
                 return GSON.toJson(new ErrorMessage("Error: unauthorized"));
             }
 
+            GameQuery query;
+            try {
+                query = parseQuery(request);
+            } catch (IllegalArgumentException e) { //Also covers NumberFormatException
+                response.status(400);
+                return GSON.toJson(new ErrorMessage("Error: bad request"));
+            }
+
+            String tag = gameService.listingTag(authToken);
+            if (tag != null) {
+                String etag = '"' + tag + '"';
+                response.header("ETag", etag);
+                response.header("Cache-Control", "no-cache"); //Clients may keep the list but must ask first
+                if (matches(request.headers("If-None-Match"), etag)) {
+                    response.status(304);
+                    return "";
+                }
+            }
+
             // Build ListGamesRequest &  call service
-            ListGamesRequest req = new ListGamesRequest(authToken);
+            ListGamesRequest req = new ListGamesRequest(authToken, query);
             ListGamesResult result = gameService.listGames(req);
 
             // Return 200 + JSON
@@ -42,7 +68,10 @@ public class ListGamesHandler implements Route {
             return GSON.toJson(result);
 
         } catch (DataAccessException e) {
-            return jsonConvert(e, response);
+            if (e.getMessage() != null && e.getMessage().toLowerCase().contains("bad request")) {
+                response.status(400); //A page size out of range
+                return GSON.toJson(new ErrorMessage(e.getMessage()));
+            } return jsonConvert(e, response);
 
         } catch (Exception e) {
             response.status(500);
@@ -50,6 +79,41 @@ public class ListGamesHandler implements Route {
         }
     } // Empty
 
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        } for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2); //Weak comparison, as If-None-Match calls for
+            } if (value.equals(etag) || value.equals("*")) {
+                return true;
+            }
+        } return false;
+    }
+
+    private static GameQuery parseQuery(Request request) {
+        String after = request.queryParams("after");
+        String limit = request.queryParams("limit");
+        String status = request.queryParams("status");
+        String open = request.queryParams("open");
+        String sort = request.queryParams("sort");
+        String player = request.queryParams("player");
+        if (open != null && !open.equalsIgnoreCase("true") && !open.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("open must be true or false");
+        } if (sort != null && !sort.equalsIgnoreCase("asc") && !sort.equalsIgnoreCase("desc")) {
+            throw new IllegalArgumentException("sort must be asc or desc");
+        }
+        return new GameQuery(
+                after == null ? null : Integer.valueOf(after),
+                limit == null ? null : Integer.valueOf(limit),
+                status == null ? null : GameStatus.valueOf(status.toUpperCase()),
+                Boolean.parseBoolean(open),
+                player == null || player.isBlank() ? null : player,
+                "desc".equalsIgnoreCase(sort)
+        );
+    }
+
     public static Object jsonConvert(DataAccessException e, Response response) {
         String msg = e.getMessage() == null ? "" : e.getMessage().toLowerCase();
         if (msg.contains("unauthorized") || msg.contains("invalid")) {
@@ -1,6 +1,7 @@
 package server.handlers;
 
 import com.google.gson.Gson;
+import json.Serializer;
 import dataaccess.DataAccessException;
 import service.UserService;
 import requests.LogoutRequest;
@@ -19,7 +20,7 @@ import static server.handlers.ListGamesHandler.jsonConvert;
 public class LogoutHandler implements Route {
 
     private final UserService userService;
-    private final Gson gson = new Gson();
+    private final Gson gson = Serializer.GSON;
 
     public LogoutHandler(UserService userService) {
         this.userService = userService;
@@ -1,5 +1,6 @@
 package server.handlers;
 import com.google.gson.Gson;
+import json.Serializer;
 import dataaccess.DataAccessException;
 import service.UserService;
 import requests.RegisterRequest;
@@ -14,7 +15,7 @@ import spark.Route;
 public class RegisterHandler implements Route {
 
     private final UserService userService;
-    private final Gson gson = new Gson();
+    private final Gson gson = Serializer.GSON;
 
     public RegisterHandler(UserService userService) {
         this.userService = userService;
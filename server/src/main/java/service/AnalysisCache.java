@@ -0,0 +1,60 @@
+package service;
+
+import results.AnalysisResult;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded map of finished analyses, evicting the least recently used entry when full
+ */
+public class AnalysisCache {
+
+    public record Key(long positionHash, int depth) {}
+
+    private final int capacity;
+    private final LinkedHashMap<Key, AnalysisResult> entries;
+    private long hits;
+    private long misses;
+
+    public AnalysisCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, AnalysisResult> eldest) {
+                return size() > AnalysisCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * @return the cached result, or null on a miss
+     */
+    public synchronized AnalysisResult get(Key key) {
+        AnalysisResult result = entries.get(key);
+        if (result == null) {
+            misses++;
+        } else {
+            hits++;
+        } return result;
+    }
+
+    public synchronized void put(Key key, AnalysisResult result) {
+        entries.put(key, result);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+}
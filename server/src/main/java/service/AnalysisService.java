@@ -0,0 +1,170 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Fen;
+import chess.PositionHash;
+import chess.book.OpeningBook;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import dataaccess.AuthDAO;
+import dataaccess.DataAccessException;
+import dataaccess.GameDAO;
+import model.AuthData;
+import model.GameData;
+import requests.AnalysisRequest;
+import results.AnalysisResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Evaluates positions on request.
+ * <p>
+ * The engine searches every position, in book or not, so each result is a real evaluation at the
+ * depth asked for; the opening book's moves for the position are listed next to it rather than
+ * standing in for it. Finished results are cached by position hash and depth. Requests for a position that is already
+ * being searched wait for that search instead of starting another. Searches run on a small bounded
+ * pool so a burst of requests cannot take every CPU from live games.
+ */
+public class AnalysisService {
+    public static final int DEFAULT_DEPTH = 6;
+    public static final int MAX_DEPTH = 12;
+    private static final long TIME_LIMIT_MILLIS = 5000;
+
+    private final GameDAO gameDAO;
+    private final AuthDAO authDAO;
+    private final Engine engine;
+    private final OpeningBook book;
+    private final AnalysisCache cache;
+    private final ConcurrentHashMap<AnalysisCache.Key, CompletableFuture<AnalysisResult>> inFlight = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor workers;
+
+    public AnalysisService(GameDAO gameDAO, AuthDAO authDAO, Engine engine, int threads, int cacheCapacity) {
+        this(gameDAO, authDAO, engine, null, threads, cacheCapacity);
+    }
+
+    /**
+     * @param engine an engine without an opening book, so that book positions are searched too
+     * @param book   the book whose moves are listed with each result, or null
+     */
+    public AnalysisService(GameDAO gameDAO, AuthDAO authDAO, Engine engine, OpeningBook book, int threads, int cacheCapacity) {
+        this.gameDAO = gameDAO;
+        this.authDAO = authDAO;
+        this.engine = engine;
+        this.book = book;
+        this.cache = new AnalysisCache(cacheCapacity);
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 16), BotService.threadFactory("analysis-worker", Thread.NORM_PRIORITY - 1),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public AnalysisResult analyze(AnalysisRequest request) throws DataAccessException {
+        if (request == null || request.authToken() == null || request.authToken().isBlank()) {
+            throw new DataAccessException("Error: bad request"); // 400
+        } if (request.depth() < 1 || request.depth() > MAX_DEPTH) {
+            throw new DataAccessException("Error: bad request (depth must be 1-" + MAX_DEPTH + ")"); // 400
+        } if ((request.fen() == null) == (request.gameID() == null)) {
+            throw new DataAccessException("Error: bad request (give either fen or gameID)"); // 400
+        }
+        AuthData authData = authDAO.getAuth(request.authToken());
+        if (authData == null) {
+            throw new DataAccessException("Error: unauthorized"); // 401
+        }
+
+        ChessGame game;
+        if (request.fen() != null) {
+            try {
+                game = Fen.parse(request.fen());
+            } catch (IllegalArgumentException e) {
+                throw new DataAccessException("Error: bad request (" + e.getMessage() + ")"); // 400
+            }
+        } else {
+            GameData gameData = gameDAO.getGame(request.gameID());
+            if (gameData == null) {
+                throw new DataAccessException("Error: bad request (game not found)"); // 400
+            }
+            game = gameData.game();
+        }
+
+        AnalysisCache.Key key = new AnalysisCache.Key(PositionHash.of(game), request.depth());
+        AnalysisResult cached = cache.get(key);
+        if (cached != null) {
+            return cached.asCached();
+        }
+        try {
+            return join(key, game).get(TIME_LIMIT_MILLIS * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Error: server busy");
+        } catch (TimeoutException e) {
+            throw new DataAccessException("Error: server busy (analysis timed out)"); // 503
+        } catch (ExecutionException e) {
+            throw new DataAccessException("Error: analysis failed - " + e.getCause().getMessage());
+        }
+    }
+
+    public AnalysisCache cache() {
+        return cache;
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    // Starts a search for the key, or returns the one already running
+    private CompletableFuture<AnalysisResult> join(AnalysisCache.Key key, ChessGame game) throws DataAccessException {
+        CompletableFuture<AnalysisResult> created = new CompletableFuture<>();
+        CompletableFuture<AnalysisResult> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        ChessGame snapshot = new ChessGame(game);
+        try {
+            workers.execute(() -> {
+                try {
+                    AnalysisResult result = search(snapshot, key.depth());
+                    if (result.depth() >= key.depth() || result.mateIn() != null || result.bestMove() == null) {
+                        cache.put(key, result); //Only cache searches that reached the requested depth
+                    }
+                    created.complete(result);
+                } catch (RuntimeException e) {
+                    created.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+            throw new DataAccessException("Error: server busy"); // 503
+        } return created;
+    }
+
+    private AnalysisResult search(ChessGame game, int depth) {
+        SearchResult result = engine.search(game, new SearchLimits(depth, TIME_LIMIT_MILLIS));
+        int sign = game.getTeamTurn() == ChessGame.TeamColor.WHITE ? 1 : -1;
+        Integer mateIn = null;
+        if (result.matePlies() != 0) {
+            int plies = result.matePlies();
+            mateIn = sign * (plies > 0 ? (plies + 1) / 2 : -((-plies + 1) / 2));
+        } else if (result.bestMove() == null && result.score() != 0) {
+            mateIn = 0; //Already checkmated
+        }
+        List<String> line = new ArrayList<>();
+        for (ChessMove move : result.principalVariation()) {
+            line.add(Fen.moveToString(move));
+        }
+        List<String> bookMoves = new ArrayList<>();
+        if (book != null) {
+            for (ChessMove move : book.moves(game)) {
+                bookMoves.add(Fen.moveToString(move));
+            }
+        }
+        return new AnalysisResult(Fen.format(game), result.depth(), sign * result.score(), mateIn,
+                result.bestMove() == null ? null : Fen.moveToString(result.bestMove()), List.copyOf(line),
+                List.copyOf(bookMoves), result.nodes(), false);
+    }
+}
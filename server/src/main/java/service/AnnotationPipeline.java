@@ -0,0 +1,217 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Fen;
+import chess.InvalidMoveException;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import dataaccess.AnnotationDAO;
+import dataaccess.DataAccessException;
+import dataaccess.GameDAO;
+import model.GameData;
+import model.GameStatus;
+import model.GameSummary;
+import model.MoveAnnotation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Annotates the moves of finished games with engine evaluations and flags mistakes.
+ * <p>
+ * Games are taken in batches. Every position of a batch is searched in parallel on a fork-join pool
+ * of minimum-priority threads, all sharing the engine's transposition table, and the batch's
+ * annotations are written in one transaction together with the games' checkpoint. A run that is
+ * stopped part way resumes after the last saved batch.
+ */
+public class AnnotationPipeline {
+    private static final int SPLIT_THRESHOLD = 4;
+    private static final int MATE_CAP = 1000; //Mate scores are capped so one missed mate is not a 30000 loss
+
+    private final GameDAO gameDAO;
+    private final AnnotationDAO annotationDAO;
+    private final Engine engine;
+    private final SearchLimits limits;
+    private final int batchSize;
+    private final ForkJoinPool pool;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopped;
+
+    /**
+     * @param engine should be created without an opening book, so every position gets a real score
+     */
+    public AnnotationPipeline(GameDAO gameDAO, AnnotationDAO annotationDAO, Engine engine, int parallelism,
+                              SearchLimits limits, int batchSize) {
+        if (parallelism < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Parallelism and batch size must be positive");
+        }
+        this.gameDAO = gameDAO;
+        this.annotationDAO = annotationDAO;
+        this.engine = engine;
+        this.limits = limits;
+        this.batchSize = batchSize;
+        this.pool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("annotation-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY); //Live games and analysis come first
+            return thread;
+        }, null, false);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(BotService.threadFactory("annotation-scheduler", Thread.MIN_PRIORITY));
+    }
+
+    /**
+     * Runs the pipeline every period, starting after one period
+     */
+    public void schedule(long periodMillis) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                runOnce();
+            } catch (Exception e) {
+                System.err.println("Annotation run failed: " + e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Annotates every finished game that has not been annotated yet
+     *
+     * @return the number of games annotated
+     */
+    public int runOnce() throws DataAccessException {
+        if (!running.compareAndSet(false, true)) {
+            return 0; //A run is already in progress
+        }
+        try {
+            Set<Integer> done = annotationDAO.annotatedGameIDs();
+            List<Integer> pending = new ArrayList<>();
+            for (GameSummary game : gameDAO.listGameSummaries()) { //Only finished games are loaded, a batch at a time
+                if (game.status() != null && game.status() != GameStatus.ACTIVE && !done.contains(game.gameID())) {
+                    pending.add(game.gameID());
+                }
+            }
+            int annotated = 0;
+            for (int i = 0; i < pending.size() && !stopped; i += batchSize) {
+                List<GameData> batch = new ArrayList<>();
+                for (int gameID : pending.subList(i, Math.min(pending.size(), i + batchSize))) {
+                    GameData game = gameDAO.getGame(gameID);
+                    if (game != null && game.game() != null) {
+                        batch.add(game);
+                    }
+                }
+                annotateBatch(batch);
+                annotated += batch.size();
+            } return annotated;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public void shutdown() {
+        stopped = true;
+        scheduler.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    private void annotateBatch(List<GameData> batch) throws DataAccessException {
+        List<Replay> replays = new ArrayList<>();
+        List<ChessGame> positions = new ArrayList<>();
+        List<Integer> gameIDs = new ArrayList<>();
+        for (GameData game : batch) {
+            gameIDs.add(game.gameID());
+            Replay replay = replay(game, positions.size());
+            if (replay != null) {
+                replays.add(replay);
+                positions.addAll(replay.positions);
+            }
+        }
+
+        SearchResult[] results = new SearchResult[positions.size()];
+        try {
+            pool.invoke(new EvaluateTask(positions, results, 0, positions.size()));
+        } catch (CancellationException | RejectedExecutionException e) {
+            return; //Shutting down - the batch is picked up again next run
+        } if (stopped) {
+            return;
+        }
+
+        List<MoveAnnotation> annotations = new ArrayList<>();
+        for (Replay replay : replays) {
+            annotate(replay, results, annotations);
+        }
+        annotationDAO.saveAnnotations(annotations, gameIDs);
+    }
+
+    // Plays the game's recorded moves from the start, collecting the position before each move and the final one
+    private static Replay replay(GameData gameData, int offset) {
+        List<ChessMove> moves = gameData.game().getMoveHistory();
+        if (moves.isEmpty()) {
+            return null; //Games stored before moves were recorded, or without any moves
+        }
+        ChessGame game = new ChessGame();
+        List<ChessGame> positions = new ArrayList<>();
+        try {
+            for (ChessMove move : moves) {
+                positions.add(new ChessGame(game));
+                game.makeMove(move);
+            }
+        } catch (InvalidMoveException e) {
+            System.err.println("Skipping annotation of game " + gameData.gameID() + ": " + e.getMessage());
+            return null;
+        }
+        positions.add(game);
+        return new Replay(gameData.gameID(), moves, positions, offset);
+    }
+
+    private static void annotate(Replay replay, SearchResult[] results, List<MoveAnnotation> out) {
+        for (int ply = 0; ply < replay.moves.size(); ply++) {
+            SearchResult before = results[replay.offset + ply];
+            SearchResult after = results[replay.offset + ply + 1];
+            int best = cap(before.score());
+            int played = -cap(after.score()); //The next position is scored for the opponent
+            int loss = Math.max(0, best - played);
+            int whiteSign = replay.positions.get(ply + 1).getTeamTurn() == ChessGame.TeamColor.WHITE ? 1 : -1;
+            out.add(new MoveAnnotation(replay.gameID, ply, Fen.moveToString(replay.moves.get(ply)),
+                    before.bestMove() == null ? null : Fen.moveToString(before.bestMove()),
+                    whiteSign * after.score(), loss, MoveAnnotation.Judgement.of(loss)));
+        }
+    }
+
+    private static int cap(int score) {
+        return Math.max(-MATE_CAP, Math.min(MATE_CAP, score));
+    }
+
+    private record Replay(int gameID, List<ChessMove> moves, List<ChessGame> positions, int offset) {}
+
+    private class EvaluateTask extends RecursiveAction {
+        private final List<ChessGame> positions;
+        private final SearchResult[] results;
+        private final int from;
+        private final int to;
+
+        EvaluateTask(List<ChessGame> positions, SearchResult[] results, int from, int to) {
+            this.positions = positions;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new EvaluateTask(positions, results, from, mid), new EvaluateTask(positions, results, mid, to));
+                return;
+            }
+            for (int i = from; i < to && !stopped; i++) {
+                results[i] = engine.search(positions.get(i), limits);
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.PositionHash;
+import chess.book.OpeningBook;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import chess.tablebase.Tablebase;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays moves for the computer seat of bot games.
+ * <p>
+ * Searches run on a small, fixed pool of low-priority worker threads, never on the caller's thread,
+ * so WebSocket threads stay free for people's moves. Each game has at most one search in flight.
+ * As the queue fills up the bot searches shallower and for less time; when it is full, requests are
+ * retried with backoff and finally answered with a shallow search instead of stalling the game.
+ */
+public class BotService {
+    private static final long RETRY_DELAY_MILLIS = 250;
+
+    /**
+     * Receives the chosen move on a worker thread. The game may have changed since the search started,
+     * so implementations should check that its position still matches positionHash before applying.
+     */
+    public interface MoveCallback {
+        void botMoved(int gameID, long positionHash, ChessMove move);
+    }
+
+    private final Engine engine;
+    private final BotSettings settings;
+    private final OpeningBook book;
+    private final Tablebase tablebase;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService retries;
+    private final ConcurrentHashMap<Integer, Job> jobs = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, AtomicLong> timeSpent = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the engine from the settings, opening the book and tablebases if they are configured
+     */
+    public BotService(BotSettings settings) {
+        this(settings, openBook(settings.bookPath()), openTablebase(settings.tablebasePath()));
+    }
+
+    private BotService(BotSettings settings, OpeningBook book, Tablebase tablebase) {
+        this(new Engine(book, tablebase, new TranspositionTable(settings.hashMegabytes())), settings, book, tablebase);
+    }
+
+    public BotService(Engine engine, BotSettings settings) {
+        this(engine, settings, null, null);
+    }
+
+    private BotService(Engine engine, BotSettings settings, OpeningBook book, Tablebase tablebase) {
+        this.engine = engine;
+        this.settings = settings;
+        this.book = book;
+        this.tablebase = tablebase;
+        this.workers = new ThreadPoolExecutor(settings.threads(), settings.threads(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(settings.queueCapacity()), threadFactory("bot-worker", Thread.NORM_PRIORITY - 2),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.retries = Executors.newSingleThreadScheduledExecutor(threadFactory("bot-retry", Thread.NORM_PRIORITY - 2));
+    }
+
+    /**
+     * Starts a search for the game's current position. Does nothing if one is already running for the
+     * same position, and cancels a search for an older position of the same game.
+     */
+    public void requestMove(int gameID, ChessGame game, MoveCallback callback) {
+        Job job = new Job(gameID, PositionHash.of(game), new ChessGame(game), callback);
+        Job previous = jobs.get(gameID);
+        if (previous != null && previous.positionHash == job.positionHash) {
+            return;
+        } previous = jobs.put(gameID, job);
+        if (previous != null) {
+            previous.cancel();
+        } submit(job);
+    }
+
+    /**
+     * Stops any search for the game and drops its time budget, e.g. when the game ends
+     */
+    public void forget(int gameID) {
+        Job job = jobs.remove(gameID);
+        if (job != null) {
+            job.cancel();
+        }
+        timeSpent.remove(gameID);
+    }
+
+    /**
+     * @return searches waiting for a worker
+     */
+    public int queuedSearches() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * @return the opening book the computer plays from, or null if none is configured or the engine was
+     * passed in; other engines may share it until shutdown
+     */
+    public OpeningBook openingBook() {
+        return book;
+    }
+
+    /**
+     * @return the endgame tablebase, like {@link #openingBook()}
+     */
+    public Tablebase tablebase() {
+        return tablebase;
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+        retries.shutdownNow();
+        for (Closeable resource : new Closeable[]{book, tablebase}) {
+            try {
+                if (resource != null) {
+                    resource.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Error closing engine data: " + e.getMessage());
+            }
+        }
+    }
+
+    private void submit(Job job) {
+        if (jobs.get(job.gameID) != job) {
+            return; //Superseded or forgotten while waiting to retry
+        }
+        try {
+            job.future = workers.submit(() -> search(job, limits(job.gameID)));
+        } catch (RejectedExecutionException e) {
+            if (workers.isShutdown()) {
+                return;
+            } if (job.attempts++ < settings.maxRetries()) {
+                retries.schedule(() -> submit(job), RETRY_DELAY_MILLIS << job.attempts, TimeUnit.MILLISECONDS);
+            } else { //Still overloaded: answer with a shallow search rather than leave the game waiting
+                System.err.println("Bot workers saturated, playing a quick move in game " + job.gameID);
+                job.future = retries.submit(() -> search(job, new SearchLimits(1, settings.minMoveMillis())));
+            }
+        }
+    }
+
+    // Scales strength down as the queue fills and as the game's total budget is used up
+    private SearchLimits limits(int gameID) {
+        double load = (double) workers.getQueue().size() / settings.queueCapacity();
+        long spent = timeSpent.computeIfAbsent(gameID, id -> new AtomicLong()).get();
+        long remaining = Math.max(0, settings.gameBudgetMillis() - spent);
+        long time = Math.min(settings.moveTimeMillis(), remaining / 20);
+        time = Math.max(settings.minMoveMillis(), (long) (time * (1.0 - load)));
+        int depth = load > 0.5 ? Math.max(2, settings.maxDepth() / 2) : settings.maxDepth();
+        return new SearchLimits(Math.min(depth, SearchLimits.MAX_DEPTH), time);
+    }
+
+    private void search(Job job, SearchLimits limits) {
+        if (jobs.get(job.gameID) != job) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            SearchResult result = engine.search(job.game, limits);
+            timeSpent.computeIfAbsent(job.gameID, id -> new AtomicLong())
+                    .addAndGet((System.nanoTime() - start) / 1_000_000);
+            if (Thread.currentThread().isInterrupted() || !jobs.remove(job.gameID, job)) {
+                return; //Cancelled while searching
+            } if (result.bestMove() != null) {
+                job.callback.botMoved(job.gameID, job.positionHash, result.bestMove());
+            }
+        } catch (Exception e) {
+            jobs.remove(job.gameID, job);
+            System.err.println("Bot search failed in game " + job.gameID + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    static ThreadFactory threadFactory(String name, int priority) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(priority);
+            return thread;
+        };
+    }
+
+    private static OpeningBook openBook(String path) {
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+        try {
+            return OpeningBook.open(Path.of(path));
+        } catch (IOException e) {
+            System.err.println("Unable to open opening book " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Tablebase openTablebase(String path) {
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+        try {
+            return Tablebase.open(Path.of(path));
+        } catch (IOException e) {
+            System.err.println("Unable to open tablebases in " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static final class Job {
+        final int gameID;
+        final long positionHash;
+        final ChessGame game;
+        final MoveCallback callback;
+        int attempts;
+        volatile Future<?> future;
+
+        Job(int gameID, long positionHash, ChessGame game, MoveCallback callback) {
+            this.gameID = gameID;
+            this.positionHash = positionHash;
+            this.game = game;
+            this.callback = callback;
+        }
+
+        void cancel() {
+            Future<?> running = future;
+            if (running != null) {
+                running.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Tuning for the computer opponent, read from an optional engine.properties on the classpath.
+ *
+ * @param threads          engine worker threads; kept below the core count so web threads keep a CPU
+ * @param queueCapacity    searches that may wait for a worker before new ones are shed
+ * @param moveTimeMillis   time budget for one move when the server is idle
+ * @param minMoveMillis    floor for the move budget under load or late in a long game
+ * @param gameBudgetMillis total engine time one game may use; moves get faster as it runs out
+ * @param maxDepth         deepest search when the server is idle
+ * @param maxRetries       times a shed search is retried before a shallow fallback move is played
+ * @param hashMegabytes    size of the transposition table shared by all workers
+ * @param bookPath         opening book file, or null for none
+ * @param tablebasePath    directory of endgame tables, or null for none
+ */
+public record BotSettings(
+        int threads,
+        int queueCapacity,
+        long moveTimeMillis,
+        long minMoveMillis,
+        long gameBudgetMillis,
+        int maxDepth,
+        int maxRetries,
+        int hashMegabytes,
+        String bookPath,
+        String tablebasePath
+) {
+    public static BotSettings defaults() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BotSettings(threads, threads * 8, 1000, 50, 120_000, 12, 3, 32, null, null);
+    }
+
+    /**
+     * Loads engine.properties, falling back to {@link #defaults()} for missing keys or a missing file
+     */
+    public static BotSettings load() {
+        Properties props = new Properties();
+        try (InputStream stream = Thread.currentThread().getContextClassLoader().getResourceAsStream("engine.properties")) {
+            if (stream != null) {
+                props.load(stream);
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to read engine.properties, using defaults: " + e.getMessage());
+        }
+        BotSettings defaults = defaults();
+        return new BotSettings(
+                Integer.parseInt(props.getProperty("bot.threads", String.valueOf(defaults.threads()))),
+                Integer.parseInt(props.getProperty("bot.queueCapacity", String.valueOf(defaults.queueCapacity()))),
+                Long.parseLong(props.getProperty("bot.moveTimeMillis", String.valueOf(defaults.moveTimeMillis()))),
+                Long.parseLong(props.getProperty("bot.minMoveMillis", String.valueOf(defaults.minMoveMillis()))),
+                Long.parseLong(props.getProperty("bot.gameBudgetMillis", String.valueOf(defaults.gameBudgetMillis()))),
+                Integer.parseInt(props.getProperty("bot.maxDepth", String.valueOf(defaults.maxDepth()))),
+                Integer.parseInt(props.getProperty("bot.maxRetries", String.valueOf(defaults.maxRetries()))),
+                Integer.parseInt(props.getProperty("engine.hashMegabytes", String.valueOf(defaults.hashMegabytes()))),
+                props.getProperty("engine.book"),
+                props.getProperty("engine.tablebases"));
+    }
+}
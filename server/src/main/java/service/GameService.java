@@ -4,9 +4,12 @@ import chess.ChessGame;
 import dataaccess.AuthDAO;
 import dataaccess.DataAccessException;
 import dataaccess.GameDAO;
+import dataaccess.StaleGameException;
 import model.AuthData;
 import model.GameData;
+import model.GameQuery;
 import model.GameStatus;
+import model.GameSummary;
 import requests.CreateGameRequest;
 import requests.JoinGameRequest;
 import requests.ListGamesRequest;
@@ -17,34 +20,71 @@ import results.ListGamesResult;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.function.Supplier;
 
 public class GameService {
+    private static final int JOIN_ATTEMPTS = 5; //Joins racing moves or other joins read the game again
+    public static final int MAX_PAGE_SIZE = 100;
 
     private final GameDAO gameDAO;
     private final AuthDAO authDAO;
+    private final Supplier<String> listingTag;
     private final Random idGenerator = new Random();
 
     public GameService(GameDAO gameDAO, AuthDAO authDAO) {
+        this(gameDAO, authDAO, () -> null);
+    }
+
+    /**
+     * @param listingTag the current version of the game list, e.g. {@link dataaccess.LobbyTrackingGameDAO#versionTag};
+     *                   it must change whenever any listed game does
+     */
+    public GameService(GameDAO gameDAO, AuthDAO authDAO, Supplier<String> listingTag) {
         this.gameDAO = gameDAO;
         this.authDAO = authDAO;
+        this.listingTag = listingTag;
+    }
+
+    /**
+     * Identifies the current state of the game list, so a client holding a listing can tell it is still
+     * current without fetching it again. Read it before listing: a listing is at least as new as the tag.
+     *
+     * @return the tag, or null if this service does not track the list
+     */
+    public String listingTag(String authToken) throws DataAccessException {
+        authorize(authToken);
+        return listingTag.get();
     }
 
     public ListGamesResult listGames(ListGamesRequest request) throws DataAccessException {
-        if (request == null || request.authToken() == null || request.authToken().isBlank()) {
+        authorize(request == null ? null : request.authToken());
+        GameQuery query = request.query() != null ? request.query() : GameQuery.ALL;
+        Integer limit = query.limit();
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
             throw new DataAccessException("Error: bad request"); // 400
         }
-        AuthData authData = authDAO.getAuth(request.authToken());
+        // Boards are not needed for the list; one game past the page tells whether there is another page
+        List<GameSummary> page = gameDAO.listGameSummaries(limit == null ? query : query.withLimit(limit + 1));
+        Integer next = null;
+        if (limit != null && page.size() > limit) {
+            page = page.subList(0, limit);
+            next = page.getLast().gameID();
+        }
+        List<ListGamesResult.GameInfo> gameInfos = new ArrayList<>(page.size());
+        for (GameSummary g : page) {
+            gameInfos.add(ListGamesResult.GameInfo.of(g));
+        }
+        return new ListGamesResult(gameInfos, next);
+    }
+
+    private void authorize(String authToken) throws DataAccessException {
+        if (authToken == null || authToken.isBlank()) {
+            throw new DataAccessException("Error: bad request"); // 400
+        }
+        AuthData authData = authDAO.getAuth(authToken);
         if (authData == null) {
             throw new DataAccessException("Error: unauthorized"); // 401
         }
-        List<GameData> allGames = gameDAO.listGames();
-        List<ListGamesResult.GameInfo> gameInfos = new ArrayList<>();
-        if (allGames != null) {
-            for (GameData g : allGames) {
-                gameInfos.add(new ListGamesResult.GameInfo(g.gameID(), g.whiteUsername(), g.blackUsername(), g.gameName()));
-            }
-        }
-        return new ListGamesResult(gameInfos);
     }
 
     public CreateGameResult createGame(CreateGameRequest request) throws DataAccessException {
@@ -64,7 +104,8 @@ public class GameService {
         int newID = Math.abs(idGenerator.nextInt());
         ChessGame newChessGame = new ChessGame();
         newChessGame.getBoard().resetBoard();
-        GameData newGame = new GameData(newID, null, null, request.gameName(), newChessGame, GameStatus.ACTIVE);
+        GameData newGame = new GameData(newID, null, null, request.gameName(), newChessGame, GameStatus.ACTIVE,
+                request.botColor());
         try {
             gameDAO.createGame(newGame);
         } catch (DataAccessException e) {
@@ -104,21 +145,40 @@ public class GameService {
             throw new DataAccessException("Error: unauthorized"); // 401
         }
 
-        // 6. Fetch game from DAO (check if game exists)
-        GameData game = gameDAO.getGame(request.gameID());
+        // 6. Fetch game from DAO (check if game exists), then take the seat unless someone else changed the game first
+        for (int attempt = 1; ; attempt++) {
+            try {
+                takeSeat(request.gameID(), isValidPlayerColor ? requestedColor : null, authData.username());
+                break;
+            } catch (StaleGameException e) {
+                if (attempt == JOIN_ATTEMPTS) {
+                    System.err.println("DAO Error during joinGame update: " + e.getMessage());
+                    throw new DataAccessException("Error: Failed to update game during join"); // 500
+                }
+            }
+        }
+        // 8. If observing (isObserving was true), no game update is needed.
+
+        return new JoinGameResult();
+    }
+
+    // Steps 6 and 7 of joinGame; requestedColor is null for observers
+    private void takeSeat(int gameID, String requestedColor, String username) throws DataAccessException {
+        GameData game = gameDAO.getGame(gameID);
         if (game == null) {
             throw new DataAccessException("Error: bad request"); // 400 (Game not found for the given ID)
         }
 
         // 7. If joining as a player (color was valid and provided)
-        if (isValidPlayerColor) {
-            String username = authData.username();
+        if (requestedColor != null) {
             GameData updatedGame = game; // Start with current game data
 
-            if ("WHITE".equalsIgnoreCase(requestedColor)) {
+            if (game.botColor() != null && game.botColor().name().equalsIgnoreCase(requestedColor)) {
+                throw new DataAccessException("Error: already taken"); // 403 - The computer plays this seat
+            } if ("WHITE".equalsIgnoreCase(requestedColor)) {
                 if (game.whiteUsername() == null) {
                     // Assign user to white
-                    updatedGame = new GameData(game.gameID(), username, game.blackUsername(), game.gameName(), game.game(), game.status());
+                    updatedGame = new GameData(game.gameID(), username, game.blackUsername(), game.gameName(), game.game(), game.status(), game.botColor(), game.version());
                 } else if (!game.whiteUsername().equals(username)) {
                     // White slot is taken by someone else
                     throw new DataAccessException("Error: already taken"); // 403
@@ -126,7 +186,7 @@ public class GameService {
             } else { // "BLACK"
                 if (game.blackUsername() == null) {
                     // Assign user to black
-                    updatedGame = new GameData(game.gameID(), game.whiteUsername(), username, game.gameName(), game.game(), game.status());
+                    updatedGame = new GameData(game.gameID(), game.whiteUsername(), username, game.gameName(), game.game(), game.status(), game.botColor(), game.version());
                 } else if (!game.blackUsername().equals(username)) {
                     // Black slot is taken by someone else
                     throw new DataAccessException("Error: already taken"); // 403
@@ -136,16 +196,15 @@ public class GameService {
             // Only call DAO update if game state actually changed
             if (updatedGame != game) {
                 try {
-                    gameDAO.updateGame(updatedGame);
+                    gameDAO.updateGameIfUnchanged(updatedGame);
+                } catch (StaleGameException e) {
+                    throw e; // Read again and retry
                 } catch (DataAccessException e) {
                     System.err.println("DAO Error during joinGame update: " + e.getMessage());
                     throw new DataAccessException("Error: Failed to update game during join"); // 500
                 }
             }
         }
-        // 8. If observing (isObserving was true), no game update is needed.
-
-        return new JoinGameResult();
     }
 
 
@@ -16,12 +16,25 @@ import results.RegisterResult;
 import java.util.UUID;
 
 public class UserService {
+    /**
+     * Makes the token handed to a user at register/login; it is then passed to AuthDAO.createAuth
+     */
+    public interface TokenIssuer {
+        String newToken(String username);
+    }
+
     private final UserDAO userDAO;
     private final AuthDAO authDAO;
+    private final TokenIssuer tokenIssuer;
 
     public UserService(UserDAO userDAO, AuthDAO authDAO) {
+        this(userDAO, authDAO, username -> UUID.randomUUID().toString());
+    }
+
+    public UserService(UserDAO userDAO, AuthDAO authDAO, TokenIssuer tokenIssuer) {
         this.userDAO = userDAO;
         this.authDAO = authDAO;
+        this.tokenIssuer = tokenIssuer;
     }
 
     /**
@@ -49,7 +62,7 @@ public class UserService {
         userDAO.createUser(newUser);
 
         // Generate & store auth token
-        String token = UUID.randomUUID().toString();
+        String token = tokenIssuer.newToken(request.username());
         AuthData authData = new AuthData(token, request.username());
         authDAO.createAuth(authData);
 
@@ -78,7 +91,7 @@ public class UserService {
         }
 
         // Create new auth token
-        String token = UUID.randomUUID().toString();
+        String token = tokenIssuer.newToken(user.username());
         AuthData authData = new AuthData(token, user.username());
         authDAO.createAuth(authData);
 
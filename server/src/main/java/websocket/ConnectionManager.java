@@ -1,104 +1,286 @@
 package websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Predicate;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
+/**
+ * Tracks which sessions are in which games and queues messages to them.
+ * <p>
+ * Membership is kept both ways - game to sessions and session to games - in concurrent maps, so adds,
+ * removes and broadcasts from many Jetty and game threads need no outside locking, and closing a
+ * session only touches the games that session was in.
+ */
 public class ConnectionManager {
     public static class Connection {
         public final String username;
         public final Session session;
+        public final boolean moveDeltas; // Gets MOVE messages instead of a full LOAD_GAME after each move
 
         public Connection(String username, Session session) {
+            this(username, session, false);
+        }
+
+        public Connection(String username, Session session, boolean moveDeltas) {
             this.username = username;
             this.session = session;
+            this.moveDeltas = moveDeltas;
         }
     }
 
-    public final ConcurrentHashMap<Integer, List<Connection>> gameConnections = new ConcurrentHashMap<>();
+    /**
+     * Usage counters, read together for monitoring
+     *
+     * @param connections     open sessions in at least one game
+     * @param games           games with at least one session
+     * @param queues          connections with a message queue
+     * @param droppedMessages messages discarded because a client was not keeping up
+     */
+    public record Stats(int connections, int games, int queues, long droppedMessages) {}
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private final ConcurrentHashMap<Integer, Map<Session, Connection>> gameConnections = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Session, Set<Integer>> sessionGames = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Session, OutboundQueue> outbound = new ConcurrentHashMap<>();
+    private final int queueCapacity;
+    private final OutboundQueue.SlowConsumerPolicy slowConsumerPolicy;
+    private final LongAdder droppedMessages = new LongAdder();
+
+    public ConnectionManager() {
+        this(DEFAULT_QUEUE_CAPACITY, OutboundQueue.SlowConsumerPolicy.COALESCE);
+    }
+
+    public ConnectionManager(int queueCapacity, OutboundQueue.SlowConsumerPolicy slowConsumerPolicy) {
+        this.queueCapacity = queueCapacity;
+        this.slowConsumerPolicy = slowConsumerPolicy;
+    }
 
     /**
      * Adds a connection for a given game.
      */
     public void add(Integer gameID, Session session, String username) {
-        Connection newConnection = new Connection(username, session);
-        gameConnections.computeIfAbsent(gameID, k -> new ArrayList<>()).add(newConnection);
+        add(gameID, session, username, false);
+    }
+
+    /**
+     * Adds a connection for a given game; moveDeltas chooses how moves are sent to it. A session that has
+     * already closed is not kept, as its close may have been handled before this command ran.
+     */
+    public void add(Integer gameID, Session session, String username, boolean moveDeltas) {
+        Connection newConnection = new Connection(username, session, moveDeltas);
+        // Both indexes are updated inside the game's compute so a concurrent remove cannot split them
+        gameConnections.compute(gameID, (id, members) -> {
+            Map<Session, Connection> map = members != null ? members : new ConcurrentHashMap<>();
+            map.put(session, newConnection);
+            sessionGames.computeIfAbsent(session, s -> ConcurrentHashMap.newKeySet()).add(gameID);
+            return map;
+        });
+        if (!session.isOpen()) {
+            removeSessionGlobally(session); //Checked after adding, so a close racing the add is still caught
+        }
     }
 
     /**
      * Removes a specific connection from a game.
      */
     public void remove(Integer gameID, Session session) {
-        List<Connection> gameSessions = gameConnections.get(gameID);
-        if (gameSessions != null) {
-            Predicate<Connection> condition = conn -> conn.session.equals(session);
-            boolean removed = gameSessions.removeIf(condition);
-            if (gameSessions.isEmpty()) {
-                gameConnections.remove(gameID);
-            }
-        }
+        removeFromGame(gameID, session);
+        sessionGames.computeIfPresent(session, (s, games) -> {
+            games.remove(gameID);
+            return games.isEmpty() ? null : games;
+        });
     }
 
     /**
      * Removes a session from ALL games it might be in.
      */
     public void removeSessionGlobally(Session session) {
-        // Iterate through all game entries
-        gameConnections.forEach((gameID, connections) -> {
-            // Use removeIf to safely remove the session if found
-            Predicate<Connection> condition = conn -> conn.session.equals(session);
-            boolean removed = connections.removeIf(condition);
-            if (removed) {
-                if (connections.isEmpty()) {
-                    gameConnections.remove(gameID);
-                }
+        OutboundQueue queue = outbound.remove(session);
+        if (queue != null) {
+            queue.close();
+        }
+        Set<Integer> games = sessionGames.remove(session);
+        if (games != null) {
+            for (Integer gameID : games) {
+                removeFromGame(gameID, session);
             }
-        });
+        }
     }
 
+    /**
+     * Queues a message for one connection without waiting for it to be sent
+     */
+    public void send(Session session, String messageJson) {
+        send(session, EncodedMessage.text(messageJson));
+    }
+
+    /**
+     * Queues a message for one connection in whichever protocol it uses
+     */
+    public void send(Session session, EncodedMessage message) {
+        OutboundQueue queue = queueFor(session);
+        if (queue != null) {
+            queue.offer(message, null);
+        }
+    }
+
+    /**
+     * Switches a connection to binary frames; called when its client sends one
+     */
+    public void useBinary(Session session) {
+        OutboundQueue queue = queueFor(session);
+        if (queue != null) {
+            queue.useBinary();
+        }
+    }
+
+    /**
+     * Switches a connection to compact JSON; called when its client asks for it on connecting
+     */
+    public void useCompactJson(Session session) {
+        OutboundQueue queue = queueFor(session);
+        if (queue != null) {
+            queue.useCompactJson();
+        }
+    }
 
+    /**
+     * Queues a message for every connection in the game except excludeSession (null for everyone)
+     */
     public void broadcast(Integer gameID, Session excludeSession, String messageJson) {
-        List<Connection> gameConnectionsList = gameConnections.get(gameID);
-        if (gameConnectionsList == null || gameConnectionsList.isEmpty()) {
-            // System.out.println("No sessions for game " + gameID + " to broadcast.");
+        broadcast(gameID, excludeSession, EncodedMessage.text(messageJson), null);
+    }
+
+    /**
+     * Like broadcast, encoding the message at most once per protocol
+     */
+    public void broadcast(Integer gameID, Session excludeSession, EncodedMessage message) {
+        broadcast(gameID, excludeSession, message, null);
+    }
+
+    /**
+     * Like broadcast, for a full game state (LOAD_GAME): a client that has fallen behind only needs the newest one
+     */
+    public void broadcastGameState(Integer gameID, String messageJson) {
+        broadcast(gameID, null, EncodedMessage.text(messageJson), gameID);
+    }
+
+    /**
+     * Sends a move to everyone in the game: the small MOVE message to connections that asked for deltas,
+     * the full state to the rest. The full state is only built if someone needs it.
+     */
+    public void broadcastMove(Integer gameID, Supplier<EncodedMessage> loadGame, EncodedMessage move) {
+        Map<Session, Connection> members = gameConnections.get(gameID);
+        if (members == null) {
             return;
         }
-
-        List<Connection> sessionsToRemove = new ArrayList<>(); // Store disconnected sessions
-
-        // Iterate safely over the list (can't modify while iterating directly)
-        for (Connection conn : new ArrayList<>(gameConnectionsList)) { // Iterate over a copy
-            if (conn.session.isOpen()) {
-                boolean shouldExclude = (excludeSession != null && conn.session.equals(excludeSession));
-                if (!shouldExclude) {
-                    try {
-                        conn.session.getRemote().sendString(messageJson); // Send the JSON message
-                        // System.out.printf("Broadcast message sent to '%s' in game %d%n", conn.username, gameID);
-                    } catch (IOException e) {
-                        System.err.printf("ERROR broadcasting to user '%s' in game %d: %s%n", conn.username, gameID, e.getMessage());
-
-                        sessionsToRemove.add(conn);
-                    }
-                }
+        EncodedMessage fullState = null;
+        for (Connection conn : members.values()) {
+            OutboundQueue queue = queueFor(conn.session);
+            if (queue == null) {
+                removeSessionGlobally(conn.session); // Closed without us hearing about it
+            } else if (conn.moveDeltas) {
+                queue.offer(move, null); //Never merged; a gap is caught by the client's hash check
             } else {
-                sessionsToRemove.add(conn);
+                if (fullState == null) {
+                    fullState = loadGame.get();
+                }
+                queue.offer(fullState, gameID);
             }
         }
+    }
 
-        // Remove any sessions that failed or were closed
-        if (!sessionsToRemove.isEmpty()) {
-            List<Connection> currentList = gameConnections.get(gameID);
-            if (currentList != null) {
-                boolean changed = currentList.removeAll(sessionsToRemove);
-                if (changed) {
-                    if (currentList.isEmpty()) {
-                        gameConnections.remove(gameID);
-                    }
-                }
+    /**
+     * @return true if the session is already in the game
+     */
+    public boolean isConnected(Integer gameID, Session session) {
+        Map<Session, Connection> members = gameConnections.get(gameID);
+        return members != null && members.containsKey(session);
+    }
+
+    /**
+     * @return open sessions in at least one game
+     */
+    public int connectionCount() {
+        return sessionGames.size();
+    }
+
+    /**
+     * @return games with at least one session
+     */
+    public int gameCount() {
+        return gameConnections.size();
+    }
+
+    /**
+     * @return sessions in the game
+     */
+    public int connectionCount(Integer gameID) {
+        Map<Session, Connection> members = gameConnections.get(gameID);
+        return members == null ? 0 : members.size();
+    }
+
+    /**
+     * @return messages discarded because a client was not keeping up
+     */
+    public long droppedMessages() {
+        return droppedMessages.sum();
+    }
+
+    /**
+     * @return connections with a message queue
+     */
+    public int queueCount() {
+        return outbound.size();
+    }
+
+    public Stats stats() {
+        return new Stats(connectionCount(), gameCount(), queueCount(), droppedMessages());
+    }
+
+    private void removeFromGame(Integer gameID, Session session) {
+        gameConnections.computeIfPresent(gameID, (id, members) -> {
+            members.remove(session);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    /**
+     * @return the session's queue, or null once it has closed; queues of closed sessions are removed here
+     * too, as a session that was never in a game is not cleaned up by a broadcast
+     */
+    private OutboundQueue queueFor(Session session) {
+        if (!session.isOpen()) {
+            OutboundQueue stale = outbound.remove(session);
+            if (stale != null) {
+                stale.close();
+            }
+            return null;
+        }
+        OutboundQueue queue = outbound.computeIfAbsent(session,
+                s -> new OutboundQueue(s, queueCapacity, slowConsumerPolicy, droppedMessages));
+        if (!session.isOpen() && outbound.remove(session, queue)) { //Closed, and maybe cleaned up, meanwhile
+            queue.close();
+            return null;
+        } return queue;
+    }
+
+    private void broadcast(Integer gameID, Session excludeSession, EncodedMessage message, Integer stateKey) {
+        Map<Session, Connection> members = gameConnections.get(gameID);
+        if (members == null) {
+            return;
+        }
+        for (Connection conn : members.values()) {
+            OutboundQueue queue = queueFor(conn.session);
+            if (queue == null) {
+                removeSessionGlobally(conn.session); // Closed without us hearing about it
+            } else if (!conn.session.equals(excludeSession)) {
+                queue.offer(message, stateKey); // Sent asynchronously, never blocks the mover
             }
         }
     }
-}
\ No newline at end of file
+}
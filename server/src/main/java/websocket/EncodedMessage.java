@@ -0,0 +1,71 @@
+package websocket;
+
+import com.google.gson.Gson;
+import json.Serializer;
+import websocket.messages.ServerMessage;
+
+/**
+ * A server message ready to send over either protocol, as plain or compact JSON or as a binary frame.
+ * Each form is encoded the first time a connection using it needs it, then shared by every other recipient.
+ */
+public final class EncodedMessage {
+    private final ServerMessage message;
+    private final Gson gson;
+    private volatile String json;
+    private volatile String compactJson;
+    private volatile byte[] binary;
+
+    public EncodedMessage(ServerMessage message, Gson gson) {
+        this.message = message;
+        this.gson = gson;
+    }
+
+    private EncodedMessage(String json) {
+        this.message = null;
+        this.gson = null;
+        this.json = json;
+    }
+
+    /**
+     * Wraps JSON that is already encoded; binary connections are sent it as a text frame
+     */
+    public static EncodedMessage text(String json) {
+        return new EncodedMessage(json);
+    }
+
+    public String json() {
+        String result = json;
+        if (result == null) {
+            result = gson.toJson(message); //A race only costs a second encoding of the same thing
+            json = result;
+        } return result;
+    }
+
+    /**
+     * @return the JSON with chess objects in their compact form; JSON that was already encoded as it is
+     */
+    public String compactJson() {
+        if (message == null) {
+            return json;
+        }
+        String result = compactJson;
+        if (result == null) {
+            result = Serializer.COMPACT.toJson(message);
+            compactJson = result;
+        } return result;
+    }
+
+    /**
+     * @return the binary frame, or null if this message only exists as JSON
+     */
+    public byte[] binary() {
+        if (message == null) {
+            return null;
+        }
+        byte[] result = binary;
+        if (result == null) {
+            result = BinaryProtocol.encodeMessage(message);
+            binary = result;
+        } return result;
+    }
+}
@@ -0,0 +1,87 @@
+package websocket;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the commands for each game one at a time, in the order they were submitted.
+ * <p>
+ * Every game with work waiting has a mailbox drained by a single virtual thread, so two moves for the
+ * same game can never interleave their read-modify-write, while different games run in parallel with
+ * no lock shared between them. A mailbox is dropped as soon as it is empty.
+ */
+public class GameActors {
+
+    private final ExecutorService executor;
+    private final Map<Integer, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    public GameActors() {
+        this(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("game-", 0).factory()));
+    }
+
+    GameActors(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Queues a command for the game. It runs after every command submitted for the game before it.
+     */
+    public void submit(int gameID, Runnable command) {
+        boolean[] start = new boolean[1];
+        Mailbox mailbox = mailboxes.compute(gameID, (id, existing) -> {
+            Mailbox box = existing != null ? existing : new Mailbox();
+            box.commands.add(command);
+            if (!box.running) {
+                box.running = true;
+                start[0] = true;
+            } return box;
+        });
+        if (start[0]) {
+            executor.execute(() -> drain(gameID, mailbox));
+        }
+    }
+
+    /**
+     * @return games with commands queued or running
+     */
+    public int activeGames() {
+        return mailboxes.size();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void drain(int gameID, Mailbox mailbox) {
+        while (true) {
+            Runnable command = mailbox.commands.poll();
+            if (command == null) {
+                // Retire the mailbox unless something arrived since the poll; compute makes that check atomic
+                Mailbox remaining = mailboxes.compute(gameID, (id, box) -> {
+                    if (box.commands.isEmpty()) {
+                        box.running = false;
+                        return null;
+                    } return box;
+                });
+                if (remaining == null) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                command.run();
+            } catch (RuntimeException e) {
+                System.err.println("Command for game " + gameID + " failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static final class Mailbox {
+        final ConcurrentLinkedQueue<Runnable> commands = new ConcurrentLinkedQueue<>(); //Added to only inside compute
+        boolean running; //Only read or written inside compute on this game's key
+    }
+}
@@ -0,0 +1,94 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.PositionHash;
+import com.google.gson.Gson;
+import websocket.messages.LoadGameMessage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Encoded LOAD_GAME messages, one per game, kept until the game changes.
+ * <p>
+ * A game's version is its ply count and position hash; the history only grows, so the pair changes
+ * with every move. A client connecting to a game that has not moved since the last LOAD_GAME gets the
+ * same JSON string or binary frame instead of the game being encoded again. At most maxGames are kept,
+ * least recently used first out.
+ */
+public class GameStateCache {
+    private final Gson gson;
+    private final Map<Integer, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public GameStateCache(Gson gson, int maxGames) {
+        if (maxGames < 1) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.gson = gson;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                return size() > maxGames;
+            }
+        };
+    }
+
+    /**
+     * @return the LOAD_GAME JSON for the game as it is now, serialized only if it changed since last time
+     */
+    public String loadGameJson(int gameID, ChessGame game) {
+        return loadGame(gameID, game).json();
+    }
+
+    /**
+     * @return the LOAD_GAME message for the game as it is now, reused until the game changes
+     */
+    public EncodedMessage loadGame(int gameID, ChessGame game) {
+        Version version = Version.of(game);
+        synchronized (entries) {
+            Entry entry = entries.get(gameID);
+            if (entry != null && entry.version.equals(version)) {
+                hits.increment();
+                return entry.message;
+            }
+        }
+        misses.increment();
+        // Built from a copy taken now, on the game's actor, since the game may have moved on by the time a
+        // queue gets round to encoding it; each form is then encoded once, by the first queue that sends it
+        EncodedMessage message = new EncodedMessage(new LoadGameMessage(new ChessGame(game)), gson);
+        synchronized (entries) {
+            entries.put(gameID, new Entry(version, message));
+        } return message;
+    }
+
+    public void forget(int gameID) {
+        synchronized (entries) {
+            entries.remove(gameID);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    private record Version(int plies, long positionHash) {
+        static Version of(ChessGame game) {
+            return new Version(game.getMoveHistory().size(), PositionHash.of(game));
+        }
+    }
+
+    private record Entry(Version version, EncodedMessage message) {}
+}
@@ -0,0 +1,193 @@
+package websocket;
+
+import com.google.gson.Gson;
+import dataaccess.DataAccessException;
+import dataaccess.GameDAO;
+import dataaccess.LobbyTrackingGameDAO;
+import model.GameQuery;
+import model.GameStatus;
+import model.GameSummary;
+import org.eclipse.jetty.websocket.api.Session;
+import websocket.messages.ErrorMessage;
+import websocket.messages.LobbyMessage;
+import websocket.messages.ServerMessage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams changes to the lobby - the games in play - to the connections that subscribed to it.
+ * <p>
+ * Changes are collected for batchMillis and sent as one {@link LobbyMessage}, encoded once for every
+ * subscriber. Within a batch only the newest state of each game is kept, so however fast games are
+ * created, joined and finished, a subscriber gets at most one message per batch interval carrying at
+ * most one entry per game. A subscriber starts from a snapshot of the games in play, read off the
+ * caller's thread; batches sent while that snapshot was being read follow it, so no change falls in between. Lobby messages are never
+ * merged in a connection's queue: if a slow client has one dropped, it sees the gap in the sequence
+ * numbers and subscribes again.
+ */
+public class LobbyBroadcaster implements LobbyTrackingGameDAO.Listener, AutoCloseable {
+    public static final long DEFAULT_BATCH_MILLIS = 100;
+
+    private static final GameQuery IN_PLAY = new GameQuery(null, null, GameStatus.ACTIVE, false, null, false);
+
+    private enum Kind { ADDED, UPDATED, REMOVED }
+
+    private record Change(Kind kind, GameSummary summary) {}
+
+    private final GameDAO games;
+    private final ConnectionManager connections;
+    private final Gson gson;
+    private final ScheduledExecutorService flusher;
+    private final Executor snapshotReader;
+
+    private final Object lock = new Object();
+    private final Map<Session, List<EncodedMessage>> subscribers = new LinkedHashMap<>(); //Holds batches while the snapshot is read
+    private final LinkedHashMap<Integer, Change> pending = new LinkedHashMap<>();
+    private boolean resetPending;
+    private int sequence; //Of the last batch sent
+
+    public LobbyBroadcaster(GameDAO games, ConnectionManager connections, Gson gson, long batchMillis) {
+        this(games, connections, gson, batchMillis,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("lobby-snapshot-", 0).factory()));
+    }
+
+    LobbyBroadcaster(GameDAO games, ConnectionManager connections, Gson gson, long batchMillis, Executor snapshotReader) {
+        this.games = games;
+        this.connections = connections;
+        this.gson = gson;
+        this.snapshotReader = snapshotReader;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lobby-broadcaster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, batchMillis, batchMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends the session the games in play, then every batch of changes until it unsubscribes or closes.
+     * Subscribing again sends a fresh snapshot. Returns at once; the snapshot is read on another thread,
+     * and a failed read is reported to the session as an error.
+     */
+    public void subscribe(Session session) {
+        List<EncodedMessage> held = new ArrayList<>(); //Batches from now on wait for the snapshot
+        int snapshotSequence;
+        synchronized (lock) {
+            subscribers.put(session, held);
+            snapshotSequence = sequence;
+        }
+        snapshotReader.execute(() -> sendSnapshot(session, held, snapshotSequence));
+    }
+
+    private void sendSnapshot(Session session, List<EncodedMessage> held, int snapshotSequence) {
+        List<GameSummary> inPlay;
+        try {
+            inPlay = games.listGameSummaries(IN_PLAY); //Read without the lock, so writes never wait on it
+        } catch (DataAccessException | RuntimeException e) {
+            synchronized (lock) {
+                subscribers.remove(session, held);
+            }
+            connections.send(session, encode(new ErrorMessage("A database error occurred: " + e.getMessage())));
+            return;
+        }
+        synchronized (lock) {
+            if (subscribers.get(session) != held) {
+                return; //Closed, unsubscribed or subscribed again meanwhile
+            }
+            connections.send(session, encode(new LobbyMessage(snapshotSequence, true, inPlay, null, null)));
+            for (EncodedMessage batch : held) {
+                connections.send(session, batch); //May repeat changes the snapshot has; applying them is harmless
+            }
+            subscribers.put(session, null);
+        }
+    }
+
+    public void unsubscribe(Session session) {
+        synchronized (lock) {
+            subscribers.remove(session);
+        }
+    }
+
+    public int subscriberCount() {
+        synchronized (lock) {
+            return subscribers.size();
+        }
+    }
+
+    @Override
+    public void gameChanged(GameSummary summary, boolean created) {
+        Kind kind = summary.status() != GameStatus.ACTIVE ? Kind.REMOVED : created ? Kind.ADDED : Kind.UPDATED;
+        if (created && kind == Kind.REMOVED) {
+            return; //Never in play, so never listed
+        }
+        synchronized (lock) {
+            Change earlier = pending.get(summary.gameID());
+            if (earlier != null && earlier.kind() == Kind.ADDED && kind == Kind.UPDATED) {
+                kind = Kind.ADDED; //Still new to subscribers
+            }
+            pending.put(summary.gameID(), new Change(kind, summary));
+        }
+    }
+
+    @Override
+    public void gamesCleared() {
+        synchronized (lock) {
+            pending.clear();
+            resetPending = true;
+        }
+    }
+
+    /**
+     * Sends the changes collected since the last batch, if any; runs every batch interval
+     */
+    void flush() {
+        synchronized (lock) {
+            if (pending.isEmpty() && !resetPending) {
+                return;
+            }
+            List<GameSummary> added = new ArrayList<>();
+            List<GameSummary> updated = new ArrayList<>();
+            List<Integer> removed = new ArrayList<>();
+            for (Change change : pending.values()) {
+                switch (change.kind()) {
+                    case ADDED -> added.add(change.summary());
+                    case UPDATED -> updated.add(change.summary());
+                    case REMOVED -> removed.add(change.summary().gameID());
+                }
+            }
+            EncodedMessage batch = encode(new LobbyMessage(++sequence, resetPending, added, updated, removed));
+            pending.clear();
+            resetPending = false;
+            for (var it = subscribers.entrySet().iterator(); it.hasNext(); ) {
+                var subscriber = it.next();
+                if (!subscriber.getKey().isOpen()) {
+                    it.remove();
+                } else if (subscriber.getValue() != null) {
+                    subscriber.getValue().add(batch);
+                } else {
+                    connections.send(subscriber.getKey(), batch); //Only queued; never waits for the client
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdownNow();
+        if (snapshotReader instanceof ExecutorService service) {
+            service.shutdown();
+        }
+    }
+
+    private EncodedMessage encode(ServerMessage message) {
+        return new EncodedMessage(message, gson);
+    }
+}
@@ -0,0 +1,206 @@
+package websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Messages waiting to be sent to one WebSocket connection.
+ * <p>
+ * offer never blocks: messages are written one at a time with Jetty's asynchronous send, the next
+ * starting when the previous completes, so a slow client only backs up its own queue. When the queue
+ * is full the {@link SlowConsumerPolicy} decides what gives. Messages go out as JSON text frames, compact
+ * after {@link #useCompactJson()}, until {@link #useBinary()} switches the connection to
+ * {@link BinaryProtocol} frames.
+ */
+public class OutboundQueue {
+
+    public enum SlowConsumerPolicy {
+        /** Drop the new message */
+        DROP,
+        /** Keep only the newest game state, queued where the old one was; if that is not enough, drop the oldest notification */
+        COALESCE,
+        /** Close the connection; the client reconnects and gets a fresh LOAD_GAME */
+        DISCONNECT
+    }
+
+    private final Session session;
+    private final int capacity;
+    private final SlowConsumerPolicy policy;
+    private final LongAdder dropped;
+    private final ArrayDeque<Message> queue = new ArrayDeque<>();
+    private boolean sending;
+    private boolean closed;
+    private volatile boolean binary;
+    private volatile boolean compactJson;
+
+    /**
+     * @param dropped counts messages discarded by the policy, shared across queues for metrics
+     */
+    public OutboundQueue(Session session, int capacity, SlowConsumerPolicy policy, LongAdder dropped) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        this.session = session;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.dropped = dropped;
+    }
+
+    /**
+     * Queues a message
+     *
+     * @param stateKey identifies a full game state that makes earlier states with the same key obsolete,
+     *                 or null for messages that must not be merged
+     * @return false if the message was dropped or the connection is gone
+     */
+    public boolean offer(String json, Integer stateKey) {
+        return offer(EncodedMessage.text(json), stateKey);
+    }
+
+    /**
+     * Queues a message, to be encoded in whichever protocol the connection uses when it is sent
+     */
+    public boolean offer(EncodedMessage payload, Integer stateKey) {
+        Message next;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            } if (policy == SlowConsumerPolicy.COALESCE && stateKey != null && replaceState(payload, stateKey)) {
+                return true; //A queued message means a write is already in flight
+            } if (queue.size() >= capacity && !makeRoom(stateKey != null)) {
+                return false;
+            }
+            queue.add(new Message(payload, stateKey));
+            if (sending) {
+                return true;
+            }
+            sending = true;
+            next = queue.poll();
+        }
+        write(next);
+        return true;
+    }
+
+    /**
+     * Sends binary frames from now on; called when the client sends one
+     */
+    public void useBinary() {
+        binary = true;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Writes chess objects in their compact form in JSON frames from now on; asked for when connecting
+     */
+    public void useCompactJson() {
+        compactJson = true;
+    }
+
+    public synchronized int pending() {
+        return queue.size();
+    }
+
+    /**
+     * Drops everything still queued; called when the connection closes
+     */
+    public synchronized void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    // Puts the new state where the one it supersedes was queued, so it still goes out before the
+    // notifications that came after it; returns false if no state with the key is queued
+    private boolean replaceState(EncodedMessage payload, Integer stateKey) {
+        boolean replaced = false;
+        for (int i = queue.size(); i > 0; i--) {
+            Message message = queue.poll();
+            if (!replaced && stateKey.equals(message.stateKey)) {
+                message = new Message(payload, stateKey);
+                replaced = true;
+            }
+            queue.add(message);
+        } return replaced;
+    }
+
+    // Applies the slow-consumer policy to a full queue; returns true if the new message can now be added
+    private boolean makeRoom(boolean isState) {
+        switch (policy) {
+            case DROP -> {
+                dropped.increment();
+                return false;
+            }
+            case COALESCE -> {
+                for (Iterator<Message> it = queue.iterator(); it.hasNext(); ) {
+                    if (it.next().stateKey == null) {
+                        it.remove();
+                        dropped.increment();
+                        return true;
+                    }
+                } if (isState) {
+                    queue.poll(); //Only other games' states left; the oldest is the least useful
+                    dropped.increment();
+                    return true;
+                }
+                dropped.increment();
+                return false;
+            }
+            default -> {
+                dropped.add(queue.size() + 1);
+                closed = true;
+                queue.clear();
+                System.err.println("Closing slow WebSocket client " + session.getRemoteAddress());
+                session.close(StatusCode.POLICY_VIOLATION, "Too slow to receive game updates");
+                return false;
+            }
+        }
+    }
+
+    private void write(Message message) {
+        if (!session.isOpen()) {
+            close();
+            return;
+        }
+        WriteCallback callback = new WriteCallback() {
+            @Override
+            public void writeSuccess() {
+                sendNext();
+            }
+
+            @Override
+            public void writeFailed(Throwable error) {
+                System.err.println("Failed to send to WebSocket client " + session.getRemoteAddress() + ": "
+                        + error.getMessage());
+                close();
+            }
+        };
+        byte[] frame = binary ? message.payload.binary() : null;
+        if (frame != null) {
+            session.getRemote().sendBytes(ByteBuffer.wrap(frame), callback); //Fresh buffer; the array is shared
+        } else {
+            session.getRemote().sendString(compactJson ? message.payload.compactJson() : message.payload.json(), callback);
+        }
+    }
+
+    private void sendNext() {
+        Message next;
+        synchronized (this) {
+            next = closed ? null : queue.poll();
+            if (next == null) {
+                sending = false;
+                return;
+            }
+        }
+        write(next);
+    }
+
+    private record Message(EncodedMessage payload, Integer stateKey) {}
+}
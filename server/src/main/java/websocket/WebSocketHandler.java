@@ -3,49 +3,86 @@ package websocket;
 import chess.ChessMove;
 import chess.ChessPosition;
 import chess.InvalidMoveException;
+import chess.PositionHash;
 import com.google.gson.Gson;
+import json.Serializer;
 import dataaccess.*;
 import model.AuthData;
 import model.GameData;
 import model.GameStatus;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.annotations.*;
-import service.GameService; // If needed for game logic/validation
+import service.BotService;
 import websocket.commands.*;
 import websocket.messages.*;
 import chess.ChessGame;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 @WebSocket
 public class WebSocketHandler {
+    private static final int GAME_STATE_CACHE_SIZE = 10_000;
+    private static final int UPDATE_ATTEMPTS = 5; //A save that lost to a concurrent join or leave is redone on fresh state
 
     private final AuthDAO authDAO;
     private final GameDAO gameDAO;
-    // private final GameService gameService;
+    private final BotService botService; // Null when computer opponents are disabled
+    private final LobbyBroadcaster lobby; // Null when the game list is not tracked
 
     // Connection management (needs refinement? )
     private final ConnectionManager connectionManager;
-    private final Gson gson = new Gson();
+    private final GameActors actors = new GameActors();
+    private final Gson gson = Serializer.GSON; // Reads each command in one pass
+    private final GameStateCache gameStates = new GameStateCache(gson, GAME_STATE_CACHE_SIZE);
 
     public WebSocketHandler() {
-        this.authDAO = new AuthDAOMySQL();
-        this.gameDAO = new GameDAOMySQL();
-        // this.gameService = new GameService(gameDAO, authDAO);
+        this(new AuthDAOMySQL(), new GameDAOMySQL(), null);
+    }
+
+    public WebSocketHandler(AuthDAO authDAO, GameDAO gameDAO, BotService botService) {
+        this(authDAO, gameDAO, botService, null);
+    }
+
+    /**
+     * @param lobbyTracker the game list to stream to lobby subscribers, usually gameDAO itself; null to turn
+     *                     lobby subscriptions off
+     */
+    public WebSocketHandler(AuthDAO authDAO, GameDAO gameDAO, BotService botService, LobbyTrackingGameDAO lobbyTracker) {
+        this.authDAO = authDAO;
+        this.gameDAO = gameDAO;
+        this.botService = botService;
         this.connectionManager = new ConnectionManager(); // Instantiate connection manager
+        if (lobbyTracker != null) {
+            this.lobby = new LobbyBroadcaster(lobbyTracker, connectionManager, gson, LobbyBroadcaster.DEFAULT_BATCH_MILLIS);
+            lobbyTracker.addListener(lobby);
+        } else {
+            this.lobby = null;
+        }
     }
 
 
+    /**
+     * A client connecting with ?json=compact is sent chess objects in their compact JSON form
+     */
     @OnWebSocketConnect
     public void onConnect(Session session) throws IOException {
         // System.out.println("WS Connect: " + session.getRemoteAddress());
+        List<String> json = session.getUpgradeRequest().getParameterMap().get("json");
+        if (json != null && json.contains("compact")) {
+            connectionManager.useCompactJson(session);
+        }
     }
 
     @OnWebSocketClose
     public void onClose(Session session, int statusCode, String reason) {
         // System.out.println("WS Close: " + session.getRemoteAddress() + " Code: " + statusCode + " Reason: " + reason);
         connectionManager.removeSessionGlobally(session); // Use improved removal
+        if (lobby != null) {
+            lobby.unsubscribe(session);
+        }
     }
 
     @OnWebSocketError
@@ -54,14 +91,72 @@ public class WebSocketHandler {
         error.printStackTrace();
         if (session != null) {
             connectionManager.removeSessionGlobally(session); // Clean up on error
+            if (lobby != null) {
+                lobby.unsubscribe(session);
+            }
         }
     }
 
     @OnWebSocketMessage
     public void onMessage(Session session, String messageJson) throws IOException {
-        UserGameCommand baseCommand = null;
+        UserGameCommand command;
+        try {
+            command = gson.fromJson(messageJson, UserGameCommand.class); // Already the concrete command
+        } catch (Exception e) { // Malformed JSON
+            sendError(session, "Error processing request. Details: " + e.getMessage());
+            return;
+        }
+        submit(session, command);
+    }
+
+    /**
+     * A {@link BinaryProtocol} command. The first one switches the connection to binary replies.
+     */
+    @OnWebSocketMessage
+    public void onMessage(Session session, byte[] payload, int offset, int length) {
+        connectionManager.useBinary(session);
+        UserGameCommand command;
+        try {
+            command = BinaryProtocol.decodeCommand(ByteBuffer.wrap(payload, offset, length));
+        } catch (IllegalArgumentException e) {
+            sendError(session, "Error processing request. Details: " + e.getMessage());
+            return;
+        }
+        submit(session, command);
+    }
+
+    private void submit(Session session, UserGameCommand command) {
+        if (command == null || command.getGameID() == null) {
+            dispatch(session, command); // Nothing to order against; handlers report the missing ID
+            return;
+        }
+        // Commands for one game run one at a time, in arrival order, off the Jetty thread
+        actors.submit(command.getGameID(), () -> dispatch(session, command));
+    }
+
+    /**
+     * @return usage counters of the WebSocket connections
+     */
+    public ConnectionManager.Stats connectionStats() {
+        return connectionManager.stats();
+    }
+
+    /**
+     * Stops accepting game commands and sending lobby changes; commands already queued still run
+     */
+    public void shutdown() {
+        actors.shutdown();
+        if (lobby != null) {
+            lobby.close();
+        }
+    }
+
+    private void dispatch(Session session, UserGameCommand baseCommand) {
         try {
-            baseCommand = gson.fromJson(messageJson, UserGameCommand.class);
+            if (baseCommand == null || baseCommand.getCommandType() == null) {
+                sendError(session, "Unknown command.");
+                return;
+            }
             String authToken = baseCommand.getAuthToken();
             AuthData authData = authDAO.getAuth(authToken); // Validate token
 
@@ -71,12 +166,22 @@ public class WebSocketHandler {
             }
 
             String username = authData.username();
-            switch (baseCommand.getCommandType()) {
-                case CONNECT -> handleConnect(session, messageJson, username); // Pass username
-                case MAKE_MOVE -> handleMakeMove(session, messageJson, username);
-                case LEAVE -> handleLeave(session, messageJson, username);
-                case RESIGN -> handleResign(session, messageJson, username);
-                default -> sendError(session, "Unknown command.");
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    switch (baseCommand.getCommandType()) {
+                        case CONNECT -> handleConnect(session, (ConnectCommand) baseCommand, username); // Pass username
+                        case MAKE_MOVE -> handleMakeMove(session, (MakeMoveCommand) baseCommand, username);
+                        case LEAVE -> handleLeave(session, (LeaveCommand) baseCommand, username);
+                        case RESIGN -> handleResign(session, (ResignCommand) baseCommand, username);
+                        case LOBBY_SUBSCRIBE -> handleLobbySubscribe(session);
+                        case LOBBY_UNSUBSCRIBE -> handleLobbyUnsubscribe(session);
+                    }
+                    break;
+                } catch (StaleGameException e) {
+                    if (attempt == UPDATE_ATTEMPTS) { // Handlers save before telling anyone, so they can simply run again
+                        throw e;
+                    }
+                }
             }
 
         } catch (DataAccessException dbError) {
@@ -94,8 +199,7 @@ public class WebSocketHandler {
         }
     }
 
-    private void handleConnect(Session session, String messageJson, String username) throws DataAccessException, IOException {
-        ConnectCommand connectCmd = gson.fromJson(messageJson, ConnectCommand.class);
+    private void handleConnect(Session session, ConnectCommand connectCmd, String username) throws DataAccessException, IOException {
         Integer gameID = connectCmd.getGameID();
 
         if (gameID == null) {
@@ -119,21 +223,28 @@ public class WebSocketHandler {
         }
         String role = (userColor != null) ? userColor.toString() : "observer";
 
+        // A client already in the game is asking for a fresh LOAD_GAME after missing a move
+        boolean resync = connectionManager.isConnected(gameID, session);
+
         // Add session to the connection manager
-        connectionManager.add(gameID, session, username); // Store username with session
+        connectionManager.add(gameID, session, username, connectCmd.wantsMoveDeltas()); // Store username with session
 
         // Send LOAD_GAME message back to connecting client (root client)
-        LoadGameMessage loadGameMsg = new LoadGameMessage(gameData.game());
-        session.getRemote().sendString(gson.toJson(loadGameMsg));
+        connectionManager.send(session, gameStates.loadGame(gameID, gameData.game())); // Usually already encoded
+        if (resync) {
+            return;
+        }
 
         // Send NOTIFICATION message to all other clients in the game
         String notificationText = String.format("%s joined the game as %s.", username, role);
         NotificationMessage notification = new NotificationMessage(notificationText);
-        connectionManager.broadcast(gameID, session, gson.toJson(notification)); // Exclude self
+        connectionManager.broadcast(gameID, session, encode(notification)); // Exclude self
+
+        // The computer may be white, or may have been waiting since a restart
+        requestBotMoveIfNeeded(gameData);
     }
 
-    private void handleMakeMove(Session session, String messageJson, String username) throws DataAccessException, IOException, InvalidMoveException {
-        MakeMoveCommand moveCmd = gson.fromJson(messageJson, MakeMoveCommand.class);
+    private void handleMakeMove(Session session, MakeMoveCommand moveCmd, String username) throws DataAccessException, IOException, InvalidMoveException {
         Integer gameID = moveCmd.getGameID();
         ChessMove move = moveCmd.getMove();
         if (gameID == null || move == null) {
@@ -173,7 +284,19 @@ public class WebSocketHandler {
             return;
         }
 
-        // 4. Attempt to make the move using ChessGame logic
+        // 4. Apply, save and broadcast the move
+        applyMove(gameData, move, username, session);
+    }
+
+    /**
+     * Makes a move for whoever's turn it is, saves the game and tells every client in it.
+     * Shared by people's moves and the computer's; moverSession is null for the computer.
+     */
+    private void applyMove(GameData gameData, ChessMove move, String username, Session moverSession)
+            throws DataAccessException, InvalidMoveException {
+        int gameID = gameData.gameID();
+        ChessGame currentGame = new ChessGame(gameData.game()); // The cached game stays as stored if the save loses a race
+        ChessGame.TeamColor playerColor = currentGame.getTeamTurn();
         currentGame.makeMove(move);
 
         ChessGame.TeamColor opponentColor = (playerColor == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
@@ -195,22 +318,23 @@ public class WebSocketHandler {
                 gameData.blackUsername(),
                 gameData.gameName(),
                 currentGame,
-                gameData.status()
+                finalStatus,
+                gameData.botColor(),
+                gameData.version()
         );
-        gameDAO.updateGame(updatedGameData); // Save new state to DB
+        updatedGameData = gameDAO.updateGameIfUnchanged(updatedGameData); // Save new state to DB
 
         // 6. Broadcast updated game state to clients
-        LoadGameMessage loadGameMsg = new LoadGameMessage(currentGame);
-        String loadGameJson = gson.toJson(loadGameMsg);
-        connectionManager.broadcast(gameID, null, loadGameJson);
+        // Clients that asked for deltas get just the move; the full state is serialized once for the rest
+        MoveMessage moveMsg = new MoveMessage(move, PositionHash.of(currentGame), currentGame.getMoveHistory().size());
+        connectionManager.broadcastMove(gameID, () -> gameStates.loadGame(gameID, currentGame), encode(moveMsg));
 
         // 7. Broadcast move notification to other clients
         String startPosStr = positionToString(move.getStartPosition());
         String endPosStr = positionToString(move.getEndPosition());
         String notificationText = String.format("%s made move %s to %s.", username, startPosStr, endPosStr);
         NotificationMessage notification = new NotificationMessage(notificationText);
-        String notificationJson = gson.toJson(notification);
-        connectionManager.broadcast(gameID, session, notificationJson);
+        connectionManager.broadcast(gameID, moverSession, encode(notification));
 
         String checkNotificationText = null;
         if (finalStatus == GameStatus.ACTIVE && currentGame.isInCheck(opponentColor)) {
@@ -220,12 +344,50 @@ public class WebSocketHandler {
         String finalNotificationText = (endConditionNotificationText != null) ? endConditionNotificationText : checkNotificationText;
         if (finalNotificationText != null) {
             NotificationMessage conditionNotification = new NotificationMessage(finalNotificationText);
-            connectionManager.broadcast(gameID, null, gson.toJson(conditionNotification));
+            connectionManager.broadcast(gameID, null, encode(conditionNotification));
+        }
+
+        // 8. Let the computer reply, or stop its clock if the game is over
+        if (finalStatus != GameStatus.ACTIVE && botService != null) {
+            botService.forget(gameID);
         }
+        requestBotMoveIfNeeded(updatedGameData);
     }
 
-    private void handleLeave(Session session, String messageJson, String username) throws DataAccessException, IOException {
-        LeaveCommand leaveCmd = gson.fromJson(messageJson, LeaveCommand.class);
+    private void requestBotMoveIfNeeded(GameData gameData) {
+        if (botService != null && gameData.isBotTurn()) {
+            botService.requestMove(gameData.gameID(), gameData.game(), this::onBotMove);
+        }
+    }
+
+    // Called on a bot worker thread; the move is played on the game's own queue like a person's
+    private void onBotMove(int gameID, long positionHash, ChessMove move) {
+        actors.submit(gameID, () -> playBotMove(gameID, positionHash, move));
+    }
+
+    // The game may have moved on while the engine was thinking
+    private void playBotMove(int gameID, long positionHash, ChessMove move) {
+        try {
+            for (int attempt = 1; ; attempt++) {
+                GameData gameData = gameDAO.getGame(gameID);
+                if (gameData == null || !gameData.isBotTurn() || PositionHash.of(gameData.game()) != positionHash) {
+                    return;
+                }
+                try {
+                    applyMove(gameData, move, GameData.BOT_USERNAME, null);
+                    return;
+                } catch (StaleGameException e) {
+                    if (attempt == UPDATE_ATTEMPTS) {
+                        throw e;
+                    }
+                }
+            }
+        } catch (DataAccessException | InvalidMoveException e) {
+            System.err.println("Failed to play computer move in game " + gameID + ": " + e.getMessage());
+        }
+    }
+
+    private void handleLeave(Session session, LeaveCommand leaveCmd, String username) throws DataAccessException, IOException {
         Integer gameID = leaveCmd.getGameID();
 
         if (gameID == null) {
@@ -238,14 +400,14 @@ public class WebSocketHandler {
             GameData updatedGameData = gameData;
             boolean changed = false;
             if (username.equals(gameData.whiteUsername())) {
-                updatedGameData = new GameData(gameID, null, gameData.blackUsername(), gameData.gameName(), gameData.game(), gameData.status());
+                updatedGameData = new GameData(gameID, null, gameData.blackUsername(), gameData.gameName(), gameData.game(), gameData.status(), gameData.botColor(), gameData.version());
                 changed = true;
             } else if (username.equals(gameData.blackUsername())) {
-                updatedGameData = new GameData(gameID, gameData.whiteUsername(), null, gameData.gameName(), gameData.game(), gameData.status());
+                updatedGameData = new GameData(gameID, gameData.whiteUsername(), null, gameData.gameName(), gameData.game(), gameData.status(), gameData.botColor(), gameData.version());
                 changed = true;
             }
             if (changed) {
-                gameDAO.updateGame(updatedGameData);
+                gameDAO.updateGameIfUnchanged(updatedGameData);
                 System.out.println("Updated game " + gameData.gameName() + " - removed user " + username);
             }
         }
@@ -256,14 +418,13 @@ public class WebSocketHandler {
         // Notify remaining clients
         String notificationText = String.format("%s left the game.", username);
         NotificationMessage notification = new NotificationMessage(notificationText);
-        connectionManager.broadcast(gameID, session, gson.toJson(notification));
+        connectionManager.broadcast(gameID, session, encode(notification));
 
         // Delete game if appropriate
         // checkAndDeleteGameIfAppropriate(gameID);
     }
 
-    private void handleResign(Session session, String messageJson, String username) throws DataAccessException, IOException {
-        ResignCommand resignCmd = gson.fromJson(messageJson, ResignCommand.class);
+    private void handleResign(Session session, ResignCommand resignCmd, String username) throws DataAccessException, IOException {
         Integer gameID = resignCmd.getGameID();
 
         if (gameID == null) {
@@ -297,25 +458,44 @@ public class WebSocketHandler {
         GameData updatedGameData = new GameData(
                 gameData.gameID(), gameData.whiteUsername(), gameData.blackUsername(), gameData.gameName(),
                 gameData.game(),
-                finalStatus
+                finalStatus,
+                gameData.botColor(),
+                gameData.version()
         );
 
-        gameDAO.updateGame(updatedGameData);
+        gameDAO.updateGameIfUnchanged(updatedGameData);
+        if (botService != null) {
+            botService.forget(gameID);
+        }
 
         // Notify clients (including resigning player)
-        String winner = (resigningColor == ChessGame.TeamColor.WHITE) ? gameData.blackUsername() + " (BLACK)" : gameData.whiteUsername() + " (WHITE)";
+        String winner = (resigningColor == ChessGame.TeamColor.WHITE) ? playerName(gameData, ChessGame.TeamColor.BLACK) + " (BLACK)" : playerName(gameData, ChessGame.TeamColor.WHITE) + " (WHITE)";
         String notificationText = String.format("%s (%s) resigned. %s wins.", username, resigningColor, winner);
         NotificationMessage notification = new NotificationMessage(notificationText);
-        connectionManager.broadcast(gameID, null, gson.toJson(notification)); // Send to everyone
+        connectionManager.broadcast(gameID, null, encode(notification)); // Send to everyone
         // checkAndDeleteGameIfAppropriate(gameID);
     }
 
+    private void handleLobbySubscribe(Session session) {
+        if (lobby == null) {
+            sendError(session, "Error: Lobby updates are not available.");
+            return;
+        }
+        lobby.subscribe(session); // Reads the games in play off this thread, then sends them and their changes
+    }
+
+    private void handleLobbyUnsubscribe(Session session) {
+        if (lobby != null) {
+            lobby.unsubscribe(session);
+        }
+    }
+
     // Helper to send an error message to a specific session
     private void sendError(Session session, String errorMessage) {
         try {
             if (session != null && session.isOpen()) {
                 ErrorMessage errorMsg = new ErrorMessage(errorMessage);
-                session.getRemote().sendString(gson.toJson(errorMsg));
+                connectionManager.send(session, encode(errorMsg));
             } else {
                 System.err.println("Attempted to send error to closed/null session.");
             }
@@ -323,6 +503,17 @@ public class WebSocketHandler {
             System.err.println("Failed to send error message '" + errorMessage + "': " + e.getMessage());
         }
     }
+    // Encoded lazily, once per protocol in use among the recipients
+    private EncodedMessage encode(ServerMessage message) {
+        return new EncodedMessage(message, gson);
+    }
+
+    private String playerName(GameData gameData, ChessGame.TeamColor color) {
+        if (color == gameData.botColor()) {
+            return GameData.BOT_USERNAME;
+        } return color == ChessGame.TeamColor.WHITE ? gameData.whiteUsername() : gameData.blackUsername();
+    }
+
     private String positionToString(ChessPosition pos) {
         if (pos == null) {
             return "??";
@@ -0,0 +1,88 @@
+package dataaccess;
+
+import model.AuthData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingAuthDAOTest {
+
+    private CountingAuthDAO stored;
+    private AtomicLong now;
+    private CachingAuthDAO cache;
+
+    @BeforeEach
+    void setUp() {
+        stored = new CountingAuthDAO();
+        now = new AtomicLong(1_000);
+        cache = new CachingAuthDAO(stored, 10, 60_000, 1_000, now::get);
+    }
+
+    @Test
+    void testValidTokenIsReadOnce() throws Exception {
+        stored.createAuth(new AuthData("token", "alice"));
+        for (int i = 0; i < 5; i++) {
+            assertEquals("alice", cache.getAuth("token").username());
+        }
+        assertEquals(1, stored.reads.get());
+        assertEquals(4, cache.hits());
+
+        now.addAndGet(60_000); //Expired: read again
+        cache.getAuth("token");
+        assertEquals(2, stored.reads.get());
+    }
+
+    @Test
+    void testBadTokenIsCachedBriefly() throws Exception {
+        assertNull(cache.getAuth("bogus"));
+        assertNull(cache.getAuth("bogus"));
+        assertEquals(1, stored.reads.get());
+
+        now.addAndGet(1_000);
+        assertNull(cache.getAuth("bogus"));
+        assertEquals(2, stored.reads.get());
+    }
+
+    @Test
+    void testCreateReplacesNegativeEntry() throws Exception {
+        assertNull(cache.getAuth("token"));
+        cache.createAuth(new AuthData("token", "alice"));
+        assertEquals("alice", cache.getAuth("token").username());
+        assertEquals(1, stored.reads.get());
+    }
+
+    @Test
+    void testLogoutIsImmediate() throws Exception {
+        cache.createAuth(new AuthData("token", "alice"));
+        assertNotNull(cache.getAuth("token"));
+        cache.deleteAuth("token");
+
+        assertNull(cache.getAuth("token"));
+        assertNull(stored.getAuth("token"));
+    }
+
+    @Test
+    void testSizeIsBounded() throws Exception {
+        for (int i = 0; i < 25; i++) {
+            now.incrementAndGet();
+            cache.createAuth(new AuthData("token" + i, "user" + i));
+        }
+        assertTrue(cache.size() <= 10);
+        assertEquals("user24", cache.getAuth("token24").username()); //Newest entries survive
+        assertEquals(0, stored.reads.get());
+    }
+
+    private static class CountingAuthDAO extends MemoryAuthDAO {
+        final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        public AuthData getAuth(String authToken) throws DataAccessException {
+            reads.incrementAndGet();
+            return super.getAuth(authToken);
+        }
+    }
+}
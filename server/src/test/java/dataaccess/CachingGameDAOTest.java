@@ -0,0 +1,144 @@
+package dataaccess;
+
+import chess.ChessGame;
+import model.GameData;
+import model.GameStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingGameDAOTest {
+
+    private CountingGameDAO stored;
+    private AtomicLong now;
+    private CachingGameDAO cache;
+
+    @BeforeEach
+    void setUp() {
+        stored = new CountingGameDAO();
+        now = new AtomicLong(1_000);
+        cache = new CachingGameDAO(stored, 2, 10_000, now::get);
+    }
+
+    @Test
+    void testReadsStoreOnlyOnMiss() throws Exception {
+        stored.createGame(game(1, GameStatus.ACTIVE));
+
+        GameData first = cache.getGame(1);
+        GameData second = cache.getGame(1);
+        assertSame(first, second);
+        assertSame(first.game(), second.game());
+        assertEquals(1, stored.reads.get());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void testUpdateWritesThroughAndKeepsLiveCopy() throws Exception {
+        cache.createGame(game(1, GameStatus.ACTIVE));
+        GameData updated = new GameData(1, "white", "black", "game", new ChessGame(), GameStatus.ACTIVE);
+        cache.updateGame(updated);
+
+        assertSame(updated, cache.getGame(1));
+        assertSame(updated, stored.getGame(1));
+        assertEquals(1, stored.reads.get()); //Only the direct read above
+    }
+
+    @Test
+    void testFailedWriteDropsEntry() throws Exception {
+        cache.createGame(game(1, GameStatus.ACTIVE));
+        assertThrows(DataAccessException.class, () -> cache.updateGame(game(2, GameStatus.ACTIVE)));
+        cache.getGame(1);
+        stored.failWrites = true;
+        assertThrows(DataAccessException.class, () -> cache.updateGame(game(1, GameStatus.ACTIVE)));
+
+        assertEquals(0, cache.size());
+        cache.getGame(1);
+        assertEquals(1, stored.reads.get());
+    }
+
+    @Test
+    void testEvictsFinishedIdleAndLeastRecentlyUsed() throws Exception {
+        cache.createGame(game(1, GameStatus.ACTIVE));
+        cache.updateGame(game(1, GameStatus.WHITE_RESIGNED));
+        assertEquals(0, cache.size());
+
+        cache.createGame(game(2, GameStatus.ACTIVE));
+        now.addAndGet(10);
+        cache.createGame(game(3, GameStatus.ACTIVE));
+        now.addAndGet(10);
+        cache.getGame(2); //3 is now the least recently used
+        cache.createGame(game(4, GameStatus.ACTIVE));
+        assertEquals(2, cache.size());
+        cache.getGame(3);
+        assertEquals(1, stored.reads.get());
+
+        now.addAndGet(20_000);
+        cache.getGame(4);
+        assertEquals(1, cache.size()); //Only the game just reloaded
+    }
+
+    @Test
+    void testFullCacheEvictsATenthAtOnce() throws Exception {
+        CachingGameDAO larger = new CachingGameDAO(stored, 20, 10_000, now::get);
+        for (int id = 1; id <= 20; id++) {
+            larger.createGame(game(id, GameStatus.ACTIVE));
+            now.incrementAndGet();
+        }
+        larger.createGame(game(21, GameStatus.ACTIVE));
+        assertEquals(18, larger.size(), "Room for two more, so the next miss evicts nothing");
+        larger.getGame(1);
+        assertEquals(1, stored.reads.get(), "The oldest went first");
+        assertEquals(19, larger.size());
+    }
+
+    @Test
+    void testCompareAndSetFailsFastOnCachedVersion() throws Exception {
+        cache.createGame(game(1, GameStatus.ACTIVE));
+        GameData read = cache.getGame(1);
+        GameData joined = cache.updateGameIfUnchanged(new GameData(1, "white", "late", "game", read.game(),
+                GameStatus.ACTIVE, null, read.version()));
+
+        assertEquals(read.version() + 1, joined.version());
+        assertSame(joined, cache.getGame(1));
+        stored.failWrites = true; //The cached version alone must reject this
+        assertThrows(StaleGameException.class, () -> cache.updateGameIfUnchanged(read));
+        assertSame(joined, cache.getGame(1));
+        assertEquals(0, stored.reads.get());
+    }
+
+    private static GameData game(int gameID, GameStatus status) {
+        return new GameData(gameID, "white", "black", "game", new ChessGame(), status);
+    }
+
+    private static class CountingGameDAO extends MemoryGameDAO {
+        final AtomicInteger reads = new AtomicInteger();
+        boolean failWrites;
+
+        @Override
+        public GameData getGame(int gameID) throws DataAccessException {
+            reads.incrementAndGet();
+            return super.getGame(gameID);
+        }
+
+        @Override
+        public void updateGame(GameData game) throws DataAccessException {
+            if (failWrites) {
+                throw new DataAccessException("Error updating game");
+            }
+            super.updateGame(game);
+        }
+
+        @Override
+        public GameData updateGameIfUnchanged(GameData game) throws DataAccessException {
+            if (failWrites) {
+                throw new DataAccessException("Error updating game");
+            }
+            return super.updateGameIfUnchanged(game);
+        }
+    }
+}
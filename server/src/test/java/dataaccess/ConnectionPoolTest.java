@@ -0,0 +1,144 @@
+package dataaccess;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTest {
+
+    private final List<FakeConnection> opened = new CopyOnWriteArrayList<>();
+    private ConnectionPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void testReusesReturnedConnections() throws Exception {
+        pool = pool(new PoolSettings(2, 100, 60_000, 60_000, 60_000, false));
+        for (int i = 0; i < 5; i++) {
+            try (Connection conn = pool.getConnection()) {
+                assertFalse(conn.isClosed());
+            }
+        }
+        assertEquals(1, opened.size());
+        assertEquals(new ConnectionPool.Stats(0, 1, 1, 0, 0, 0), pool.stats());
+    }
+
+    @Test
+    void testBoundedAndTimesOut() throws Exception {
+        pool = pool(new PoolSettings(2, 50, 60_000, 60_000, 60_000, false));
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        assertThrows(SQLException.class, () -> pool.getConnection());
+        assertEquals(1, pool.stats().timeouts());
+        assertEquals(2, pool.stats().active());
+
+        first.close();
+        pool.getConnection().close(); //A returned connection frees a slot
+        second.close();
+        assertEquals(2, opened.size());
+    }
+
+    @Test
+    void testReturnedConnectionIsResetAndUnusable() throws Exception {
+        pool = pool(new PoolSettings(1, 100, 60_000, 60_000, 60_000, false));
+        Connection conn = pool.getConnection();
+        conn.setAutoCommit(false);
+        conn.close();
+        conn.close(); //Closing twice must not return it twice
+
+        assertTrue(opened.get(0).rolledBack);
+        assertTrue(opened.get(0).autoCommit);
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, () -> conn.setAutoCommit(true));
+        assertEquals(1, pool.stats().idle());
+    }
+
+    @Test
+    void testRetiresExpiredAndInvalidConnections() throws Exception {
+        pool = pool(new PoolSettings(1, 100, 60_000, 0, 60_000, false));
+        pool.getConnection().close();
+        opened.get(0).valid = false;
+        pool.getConnection().close();
+
+        assertEquals(2, opened.size());
+        assertTrue(opened.get(0).closed);
+        assertEquals(1, pool.stats().retired());
+
+        pool.close();
+        pool = pool(new PoolSettings(1, 100, 1, 60_000, 60_000, false));
+        pool.getConnection().close();
+        Thread.sleep(5);
+        pool.getConnection().close();
+        assertEquals(4, opened.size()); //Each connection outlived its one millisecond lifetime
+    }
+
+    @Test
+    void testReportsLeaks() throws Exception {
+        pool = pool(new PoolSettings(1, 100, 60_000, 60_000, 10, false));
+        Connection conn = pool.getConnection();
+        Thread.sleep(20);
+        pool.reportLeaks();
+        pool.reportLeaks(); //Only reported once
+        assertEquals(1, pool.stats().leaks());
+        conn.close();
+    }
+
+    @Test
+    void testReportsTracedLeaks() throws Exception {
+        pool = pool(new PoolSettings(1, 100, 60_000, 60_000, 10, true));
+        Connection conn = pool.getConnection();
+        Thread.sleep(20);
+        pool.reportLeaks();
+        assertEquals(1, pool.stats().leaks());
+        conn.close();
+    }
+
+    private ConnectionPool pool(PoolSettings settings) {
+        return new ConnectionPool(() -> {
+            FakeConnection fake = new FakeConnection();
+            opened.add(fake);
+            return fake.proxy();
+        }, settings);
+    }
+
+    private static class FakeConnection {
+        volatile boolean autoCommit = true;
+        volatile boolean rolledBack;
+        volatile boolean closed;
+        volatile boolean valid = true;
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (p, method, args) -> switch (method.getName()) {
+                        case "getAutoCommit" -> autoCommit;
+                        case "setAutoCommit" -> {
+                            autoCommit = (Boolean) args[0];
+                            yield null;
+                        }
+                        case "rollback" -> {
+                            rolledBack = true;
+                            yield null;
+                        }
+                        case "close" -> {
+                            closed = true;
+                            yield null;
+                        }
+                        case "isClosed" -> closed;
+                        case "isValid" -> valid;
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+}
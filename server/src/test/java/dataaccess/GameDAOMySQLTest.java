@@ -2,11 +2,14 @@ package dataaccess;
 
 import chess.ChessGame;
 import model.GameData;
+import model.GameQuery;
 import model.GameStatus;
+import model.GameSummary;
 import model.UserData;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Comparator;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -89,6 +92,39 @@ public class GameDAOMySQLTest {
         assertEquals(2, games.size(), "Should have 2 games in the list");
     }
 
+    @Test
+    void testListGameSummaries() throws DataAccessException {
+        gameDao.createGame(new GameData(3333, "alice", "bob", "GameOne", new ChessGame(), GameStatus.WHITE_RESIGNED));
+        gameDao.createGame(new GameData(4444, "alice", null, "GameTwo", new ChessGame(), GameStatus.ACTIVE,
+                ChessGame.TeamColor.BLACK));
+
+        List<GameSummary> summaries = gameDao.listGameSummaries();
+        summaries.sort(Comparator.comparingInt(GameSummary::gameID));
+        assertEquals(List.of(
+                new GameSummary(3333, "alice", "bob", "GameOne", GameStatus.WHITE_RESIGNED, null),
+                new GameSummary(4444, "alice", null, "GameTwo", GameStatus.ACTIVE, ChessGame.TeamColor.BLACK)), summaries);
+    }
+
+    @Test
+    void testListGameSummariesQuery() throws DataAccessException {
+        gameDao.createGame(new GameData(1111, "alice", "bob", "Full", new ChessGame(), GameStatus.ACTIVE));
+        gameDao.createGame(new GameData(2222, "bob", null, "Open", new ChessGame(), GameStatus.ACTIVE));
+        gameDao.createGame(new GameData(3333, "alice", null, "VsComputer", new ChessGame(), GameStatus.ACTIVE,
+                ChessGame.TeamColor.BLACK));
+        gameDao.createGame(new GameData(4444, null, "alice", "Over", new ChessGame(), GameStatus.BLACK_RESIGNED));
+
+        assertEquals(List.of(1111, 2222), ids(GameQuery.ALL.withLimit(2)));
+        assertEquals(List.of(3333, 4444), ids(GameQuery.ALL.withAfter(2222)));
+        assertEquals(List.of(3333, 2222, 1111), ids(new GameQuery(4444, null, null, false, null, true)));
+        assertEquals(List.of(2222, 4444), ids(new GameQuery(null, null, null, true, null, false)));
+        assertEquals(List.of(3333, 4444), ids(new GameQuery(2222, 5, null, false, "alice", false)));
+        assertEquals(List.of(4444), ids(new GameQuery(null, null, GameStatus.BLACK_RESIGNED, false, null, false)));
+    }
+
+    private List<Integer> ids(GameQuery query) throws DataAccessException {
+        return gameDao.listGameSummaries(query).stream().map(GameSummary::gameID).toList();
+    }
+
     @Test
     void testUpdateGamePositive() throws DataAccessException {
         GameData original = new GameData(5555, "alice", null, "Original", new ChessGame(), GameStatus.ACTIVE);
@@ -118,6 +154,63 @@ public class GameDAOMySQLTest {
         assertEquals(chess.ChessGame.TeamColor.BLACK, afterUpdate.game().getTeamTurn());
     }
 
+    @Test
+    void testMovesReplayFromSnapshot() throws Exception {
+        GameDAO logged = new GameDAOMySQL(3); //Snapshot every 3 plies
+        ChessGame chess = new ChessGame();
+        logged.createGame(new GameData(8888, "alice", "bob", "Logged", chess, GameStatus.ACTIVE));
+        int[][] moves = {{2, 5, 4, 5}, {7, 5, 5, 5}, {1, 7, 3, 6}, {8, 2, 6, 3}, {1, 6, 4, 3}, {8, 7, 6, 6}, {1, 5, 1, 7}};
+        for (int[] move : moves) {
+            chess.makeMove(new chess.ChessMove(new chess.ChessPosition(move[0], move[1]),
+                    new chess.ChessPosition(move[2], move[3]), null));
+            logged.updateGame(new GameData(8888, "alice", "bob", "Logged", chess, GameStatus.ACTIVE));
+        }
+
+        GameData retrieved = logged.getGame(8888);
+        assertEquals(chess.getBoard(), retrieved.game().getBoard());
+        assertEquals(chess.getTeamTurn(), retrieved.game().getTeamTurn());
+        assertEquals(chess.getMoveHistory(), retrieved.game().getMoveHistory());
+        assertEquals(chess.getMoveHistory(), logged.listGames().get(0).game().getMoveHistory());
+    }
+
+    @Test
+    void testStaleHistoryIsRefusedAndDivergedHistoryReplacesLog() throws Exception {
+        ChessGame played = new ChessGame();
+        gameDao.createGame(new GameData(8889, "alice", "bob", "Stale", played, GameStatus.ACTIVE));
+        ChessGame stale = new ChessGame(played);
+        played.makeMove(new chess.ChessMove(new chess.ChessPosition(2, 5), new chess.ChessPosition(4, 5), null));
+        played.makeMove(new chess.ChessMove(new chess.ChessPosition(7, 5), new chess.ChessPosition(5, 5), null));
+        gameDao.updateGame(new GameData(8889, "alice", "bob", "Stale", played, GameStatus.ACTIVE));
+
+        assertThrows(DataAccessException.class, () -> gameDao.updateGame(
+                new GameData(8889, "alice", "bob", "Stale", stale, GameStatus.ACTIVE)), "Would drop logged moves");
+        assertEquals(played.getMoveHistory(), gameDao.getGame(8889).game().getMoveHistory());
+
+        ChessGame diverged = new ChessGame();
+        diverged.makeMove(new chess.ChessMove(new chess.ChessPosition(2, 4), new chess.ChessPosition(4, 4), null));
+        diverged.makeMove(new chess.ChessMove(new chess.ChessPosition(7, 4), new chess.ChessPosition(5, 4), null));
+        gameDao.updateGame(new GameData(8889, "alice", "bob", "Stale", diverged, GameStatus.ACTIVE));
+        GameData retrieved = gameDao.getGame(8889);
+        assertEquals(diverged.getMoveHistory(), retrieved.game().getMoveHistory());
+        assertEquals(diverged.getBoard(), retrieved.game().getBoard());
+    }
+
+    @Test
+    void testCompareAndSetRejectsStaleVersion() throws DataAccessException {
+        gameDao.createGame(new GameData(9999, null, null, "Race", new ChessGame(), GameStatus.ACTIVE));
+        GameData read = gameDao.getGame(9999);
+
+        GameData joined = gameDao.updateGameIfUnchanged(new GameData(9999, "alice", null, "Race", read.game(),
+                GameStatus.ACTIVE, null, read.version()));
+        assertThrows(StaleGameException.class, () -> gameDao.updateGameIfUnchanged(new GameData(9999, null, "bob", "Race",
+                read.game(), GameStatus.ACTIVE, null, read.version())));
+
+        GameData stored = gameDao.getGame(9999);
+        assertEquals("alice", stored.whiteUsername());
+        assertNull(stored.blackUsername());
+        assertEquals(joined.version(), stored.version());
+    }
+
     @Test
     void testClearPositive() throws DataAccessException {
         gameDao.createGame(new GameData(6666, "alice", "bob", "ClearTest", new ChessGame(), GameStatus.ACTIVE));
@@ -0,0 +1,61 @@
+package dataaccess;
+
+import chess.*;
+import com.google.gson.Gson;
+import json.Serializer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameStateCodecTest {
+
+    @Test
+    void testRoundTrip() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 4, 5, 4));
+        game.makeMove(move(4, 5, 5, 5));
+        game.makeMove(move(7, 6, 5, 6)); //White can take en passant on f6
+        game.makeMove(move(1, 5, 2, 5));
+
+        byte[] bytes = GameStateCodec.encode(game);
+        assertEquals(GameStateCodec.SNAPSHOT_BYTES + 2 * 5, bytes.length);
+        ChessGame decoded = GameStateCodec.decode(bytes);
+        assertEquals(game.getBoard(), decoded.getBoard());
+        assertEquals(game.getTeamTurn(), decoded.getTeamTurn());
+        assertEquals(game.getMoveHistory(), decoded.getMoveHistory());
+        assertEquals(PositionHash.of(game), PositionHash.of(decoded));
+        assertEquals(game.validMoves(new ChessPosition(5, 5)), decoded.validMoves(new ChessPosition(5, 5)));
+        assertTrue(decoded.getBoard().getPiece(new ChessPosition(2, 5)).hasMoved);
+
+        ChessGame position = GameStateCodec.decode(GameStateCodec.snapshot(game));
+        assertEquals(game.getBoard(), position.getBoard());
+        assertTrue(position.getMoveHistory().isEmpty());
+    }
+
+    @Test
+    void testMuchSmallerThanJson() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 5, 5, 5));
+
+        int reflective = new Gson().toJson(game).length(); //What rows held before the compact JSON form
+        assertTrue(GameStateCodec.encode(game).length * 10 <= reflective, "Binary state should be at least 10x smaller");
+        assertTrue(GameStateCodec.encode(game).length < Serializer.GSON.toJson(game).length());
+    }
+
+    @Test
+    void testRejectsBadBytes() {
+        byte[] bytes = GameStateCodec.encode(new ChessGame());
+        assertThrows(IllegalArgumentException.class, () -> GameStateCodec.decode(new byte[10]));
+        assertThrows(IllegalArgumentException.class, () -> GameStateCodec.decode(Arrays.copyOf(bytes, bytes.length + 1)));
+        bytes[2] = 0x0F; //Black piece type 7
+        assertThrows(IllegalArgumentException.class, () -> GameStateCodec.decode(bytes));
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+}
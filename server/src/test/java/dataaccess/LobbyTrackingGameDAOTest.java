@@ -0,0 +1,51 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.GameData;
+import model.GameStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LobbyTrackingGameDAOTest {
+
+    private final LobbyTrackingGameDAO lobby = new LobbyTrackingGameDAO(new MemoryGameDAO());
+
+    @Test
+    void testListedChangesBumpVersion() throws Exception {
+        long start = lobby.version();
+        lobby.createGame(new GameData(1, null, null, "Open", new ChessGame(), GameStatus.ACTIVE));
+        assertEquals(start + 1, lobby.version());
+
+        GameData joined = lobby.updateGameIfUnchanged(new GameData(1, "alice", null, "Open", new ChessGame(),
+                GameStatus.ACTIVE));
+        assertEquals(start + 2, lobby.version());
+
+        ChessGame moved = new ChessGame(joined.game());
+        moved.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        lobby.updateGame(new GameData(1, "alice", null, "Open", moved, GameStatus.ACTIVE));
+        lobby.updateGames(List.of(new GameData(1, "alice", null, "Open", moved, GameStatus.ACTIVE)));
+        assertEquals(start + 2, lobby.version(), "Moves don't change the list");
+
+        lobby.updateGame(new GameData(1, "alice", null, "Open", moved, GameStatus.WHITE_RESIGNED));
+        assertEquals(start + 3, lobby.version());
+    }
+
+    @Test
+    void testClearAndRestartChangeTag() throws Exception {
+        lobby.createGame(new GameData(1, null, null, "Open", new ChessGame(), GameStatus.ACTIVE));
+        String tag = lobby.versionTag();
+        assertEquals(tag, lobby.versionTag());
+        lobby.clear();
+        assertNotEquals(tag, lobby.versionTag());
+        assertTrue(lobby.listGames().isEmpty());
+
+        Thread.sleep(2); //A server started later numbers its versions apart
+        LobbyTrackingGameDAO restarted = new LobbyTrackingGameDAO(new MemoryGameDAO());
+        assertNotEquals(lobby.versionTag().split("-")[0], restarted.versionTag().split("-")[0]);
+    }
+}
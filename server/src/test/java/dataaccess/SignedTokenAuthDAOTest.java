@@ -0,0 +1,136 @@
+package dataaccess;
+
+import model.AuthData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SignedTokenAuthDAOTest {
+
+    private final byte[] secret = new byte[32];
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private MemoryRevocationDAO revocations;
+    private SignedTokenAuthDAO tokens;
+
+    @BeforeEach
+    void setUp() {
+        Arrays.fill(secret, (byte) 7);
+        revocations = new MemoryRevocationDAO();
+        tokens = new SignedTokenAuthDAO(settings(secret), revocations, now::get);
+    }
+
+    private static TokenSettings settings(byte[] secret) {
+        return new TokenSettings(true, secret, 60_000, 5000, 1000, true);
+    }
+
+    @Test
+    void testIssuedTokenVerifiesWithoutStorage() throws Exception {
+        String token = tokens.issue("alice");
+        tokens.createAuth(new AuthData(token, "alice"));
+
+        assertEquals(new AuthData(token, "alice"), tokens.getAuth(token));
+        assertNotEquals(token, tokens.issue("alice"));
+    }
+
+    @Test
+    void testRejectsTamperedForeignAndMalformedTokens() throws Exception {
+        String token = tokens.issue("alice");
+        String[] parts = token.split("\\.");
+        String asBob = Base64.getUrlEncoder().withoutPadding().encodeToString("bob".getBytes())
+                + "." + parts[1] + "." + parts[2] + "." + parts[3];
+        assertNull(tokens.getAuth(asBob));
+
+        byte[] otherSecret = secret.clone();
+        otherSecret[0]++;
+        SignedTokenAuthDAO other = new SignedTokenAuthDAO(settings(otherSecret), revocations, now::get);
+        assertNull(tokens.getAuth(other.issue("alice")));
+
+        assertNull(tokens.getAuth("not-a-token"));
+        assertNull(tokens.getAuth("a.b.c.d"));
+        assertNull(tokens.getAuth(null));
+        assertThrows(DataAccessException.class, () -> tokens.createAuth(new AuthData("a.b.c.d", "alice")));
+    }
+
+    @Test
+    void testTokensExpire() throws Exception {
+        String token = tokens.issue("alice");
+        now.addAndGet(59_999);
+        assertNotNull(tokens.getAuth(token));
+        now.incrementAndGet();
+        assertNull(tokens.getAuth(token));
+    }
+
+    @Test
+    void testLogoutRevokesAcrossServers() throws Exception {
+        SignedTokenAuthDAO otherServer = new SignedTokenAuthDAO(settings(secret), revocations, now::get);
+        String token = tokens.issue("alice");
+        String other = tokens.issue("alice");
+        assertNotNull(otherServer.getAuth(token));
+
+        tokens.deleteAuth(token);
+        assertNull(tokens.getAuth(token));
+        assertNotNull(tokens.getAuth(other), "Only the logged-out token is revoked");
+
+        otherServer.refreshRevocations();
+        assertNull(otherServer.getAuth(token));
+
+        now.addAndGet(60_000); //Expired tokens drop off the list
+        otherServer.refreshRevocations();
+        assertEquals(0, otherServer.revokedTokens());
+        assertTrue(revocations.listRevokedSince(Long.MIN_VALUE, 0).expiresAt().isEmpty());
+    }
+
+    @Test
+    void testRefreshReadsOnlyNewRevocations() throws Exception {
+        String first = tokens.issue("alice");
+        String second = tokens.issue("alice");
+        tokens.deleteAuth(first);
+        tokens.refreshRevocations();
+        long cursor = revocations.listRevokedSince(Long.MIN_VALUE, now.get()).cursor();
+
+        tokens.deleteAuth(second);
+        RevocationDAO.Revocations latest = revocations.listRevokedSince(cursor, now.get());
+        assertEquals(1, latest.expiresAt().size(), "Only the revocation made since the cursor");
+        assertTrue(latest.cursor() > cursor);
+        tokens.refreshRevocations();
+        assertEquals(2, tokens.revokedTokens());
+    }
+
+    @Test
+    void testOnlyThePurgingServerDeletesExpiredRevocations() throws Exception {
+        SignedTokenAuthDAO reader = new SignedTokenAuthDAO(new TokenSettings(true, secret, 60_000, 5000, 1000, false),
+                revocations, now::get);
+        tokens.deleteAuth(tokens.issue("alice"));
+        now.addAndGet(60_000);
+        reader.refreshRevocations();
+        assertEquals(0, reader.revokedTokens());
+        assertEquals(1, revocations.listRevokedSince(Long.MIN_VALUE, 0).expiresAt().size(), "Left for the purging server");
+
+        tokens.refreshRevocations();
+        assertTrue(revocations.listRevokedSince(Long.MIN_VALUE, 0).expiresAt().isEmpty());
+    }
+
+    @Test
+    void testAcceptsTokensFromAClockAheadWithinTheSkew() throws Exception {
+        AtomicLong ahead = new AtomicLong(now.get() + 1000);
+        SignedTokenAuthDAO fastServer = new SignedTokenAuthDAO(settings(secret), revocations, ahead::get);
+        assertNotNull(tokens.getAuth(fastServer.issue("alice")));
+
+        ahead.addAndGet(1);
+        assertNull(tokens.getAuth(fastServer.issue("alice")), "Further ahead than the skew allows");
+    }
+
+    @Test
+    void testClearInvalidatesEarlierTokens() throws Exception {
+        String token = tokens.issue("alice");
+        now.incrementAndGet();
+        tokens.clear();
+        assertNull(tokens.getAuth(token));
+        assertNotNull(tokens.getAuth(tokens.issue("alice")));
+    }
+}
@@ -0,0 +1,284 @@
+package dataaccess;
+
+import chess.ChessGame;
+import model.GameData;
+import model.GameQuery;
+import model.GameStatus;
+import model.GameSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteBehindGameDAOTest {
+
+    private final BatchRecordingGameDAO stored = new BatchRecordingGameDAO();
+    private WriteBehindGameDAO writer;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    @Test
+    void testCoalescesUpdatesPerGame() throws Exception {
+        writer = new WriteBehindGameDAO(stored, settings(WriteBehindGameDAO.Durability.ASYNC, 60_000, 10));
+        for (int id = 1; id <= 3; id++) {
+            writer.createGame(game(id, "start"));
+        } for (int i = 0; i < 5; i++) {
+            writer.updateGame(game(1, "one-" + i));
+            writer.updateGame(game(2, "two-" + i));
+        }
+
+        assertEquals(2, writer.pendingGames());
+        assertEquals("one-4", writer.getGame(1).gameName()); //Reads see queued state
+        assertEquals("start", stored.getGame(1).gameName());
+        writer.flush();
+
+        assertEquals(List.of(2), stored.batchSizes);
+        assertEquals("one-4", stored.getGame(1).gameName());
+        assertEquals("two-4", stored.getGame(2).gameName());
+    }
+
+    @Test
+    void testLargeFlushIsSplitIntoTransactions() throws Exception {
+        writer = new WriteBehindGameDAO(stored, new WriteBehindSettings(WriteBehindGameDAO.Durability.ASYNC, 60_000, 100, 4, 0));
+        for (int id = 1; id <= 10; id++) {
+            writer.createGame(game(id, "start"));
+            writer.updateGame(game(id, "moved"));
+        }
+        writer.flush();
+        assertEquals(List.of(4, 4, 2), stored.batchSizes);
+    }
+
+    @Test
+    void testGroupCommitWaitsForBatch() throws Exception {
+        writer = new WriteBehindGameDAO(stored, settings(WriteBehindGameDAO.Durability.GROUP_COMMIT, 50, 10));
+        int games = 4;
+        CountDownLatch done = new CountDownLatch(games);
+        for (int id = 1; id <= games; id++) {
+            writer.createGame(game(id, "start"));
+            int gameID = id;
+            new Thread(() -> {
+                try {
+                    writer.updateGame(game(gameID, "moved"));
+                    assertEquals("moved", stored.getGame(gameID).gameName()); //Stored by the time we return
+                    done.countDown();
+                } catch (DataAccessException e) {
+                    fail(e);
+                }
+            }).start();
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(stored.batchSizes.size() < games, "Updates should share commits: " + stored.batchSizes);
+    }
+
+    @Test
+    void testFullQueueRejectsNewGamesAsBusy() throws Exception {
+        writer = new WriteBehindGameDAO(stored, new WriteBehindSettings(WriteBehindGameDAO.Durability.ASYNC, 60_000, 2, 10, 50));
+        for (int id = 1; id <= 3; id++) {
+            writer.createGame(game(id, "start"));
+        }
+        writer.updateGame(game(1, "moved"));
+        writer.updateGame(game(2, "moved"));
+        writer.updateGame(game(2, "moved again")); //Same game coalesces, so it still fits
+
+        DataAccessException e = assertThrows(DataAccessException.class, () -> writer.updateGame(game(3, "moved")));
+        assertTrue(e.getMessage().contains("busy"));
+    }
+
+    @Test
+    void testCloseFlushesQueue() throws Exception {
+        writer = new WriteBehindGameDAO(stored, settings(WriteBehindGameDAO.Durability.ASYNC, 60_000, 10));
+        writer.createGame(game(1, "start"));
+        writer.updateGame(game(1, "moved"));
+        writer.close();
+
+        assertEquals("moved", stored.getGame(1).gameName());
+        assertThrows(DataAccessException.class, () -> writer.updateGame(game(1, "too late")));
+    }
+
+    @Test
+    void testFailedFlushIsRetried() throws Exception {
+        writer = new WriteBehindGameDAO(stored, settings(WriteBehindGameDAO.Durability.ASYNC, 60_000, 10));
+        writer.createGame(game(1, "start"));
+        writer.updateGame(game(1, "moved"));
+        stored.failBatches = true;
+        assertThrows(DataAccessException.class, () -> writer.flush());
+        assertEquals(1, writer.pendingGames());
+
+        stored.failBatches = false;
+        writer.flush();
+        assertEquals("moved", stored.getGame(1).gameName());
+    }
+
+    @Test
+    void testUnwritableGameIsDroppedWithoutBlockingOthers() throws Exception {
+        writer = new WriteBehindGameDAO(stored, settings(WriteBehindGameDAO.Durability.ASYNC, 60_000, 10));
+        writer.createGame(game(1, "start"));
+        writer.createGame(game(2, "start"));
+        stored.unwritableID = 1;
+        writer.updateGame(game(1, "moved"));
+        for (int i = 0; i < 5; i++) {
+            writer.updateGame(game(2, "moved " + i));
+            if (i < 4) {
+                assertThrows(DataAccessException.class, () -> writer.flush());
+            } else {
+                writer.flush(); //Given up on
+            }
+            assertEquals("moved " + i, stored.getGame(2).gameName(), "Game 2 is written either way");
+        }
+        assertEquals(0, writer.pendingGames());
+        assertEquals("start", writer.getGame(1).gameName());
+    }
+
+    @Test
+    void testFlushAndClearWaitForNothingInFlight() throws Exception {
+        writer = new WriteBehindGameDAO(stored, settings(WriteBehindGameDAO.Durability.ASYNC, 60_000, 10));
+        writer.createGame(game(1, "start"));
+        writer.updateGame(game(1, "moved"));
+        stored.gate = new CountDownLatch(1);
+        new Thread(this::flushQuietly).start();
+        while (writer.pendingGames() > 0) { //The first flush has taken the game and is writing it
+            Thread.sleep(5);
+        }
+
+        CountDownLatch secondFlush = new CountDownLatch(1);
+        new Thread(() -> {
+            flushQuietly();
+            secondFlush.countDown();
+        }).start();
+        assertFalse(secondFlush.await(100, TimeUnit.MILLISECONDS), "Waits for the write already under way");
+        assertEquals("moved", writer.getGame(1).gameName());
+
+        writer.clear();
+        assertNull(writer.getGame(1), "The game being written was cleared too");
+        stored.gate.countDown();
+        assertTrue(secondFlush.await(5, TimeUnit.SECONDS));
+        assertNull(writer.getGame(1));
+        assertEquals(0, writer.pendingGames());
+    }
+
+    @Test
+    void testCompareAndSetChecksQueuedVersion() throws Exception {
+        writer = new WriteBehindGameDAO(stored, settings(WriteBehindGameDAO.Durability.ASYNC, 60_000, 10));
+        writer.createGame(game(1, "start"));
+        GameData read = writer.getGame(1);
+
+        GameData first = writer.updateGameIfUnchanged(new GameData(1, "white", "black", "first", read.game(),
+                GameStatus.ACTIVE, null, read.version()));
+        assertEquals(read.version() + 1, first.version());
+        assertThrows(StaleGameException.class, () -> writer.updateGameIfUnchanged(new GameData(1, "white", "black", "lost",
+                read.game(), GameStatus.ACTIVE, null, read.version()))); //Checked against the queue, not the store
+        writer.updateGameIfUnchanged(new GameData(1, "white", "black", "second", read.game(), GameStatus.ACTIVE, null,
+                first.version()));
+        writer.flush();
+
+        assertEquals("second", stored.getGame(1).gameName());
+        assertEquals(read.version() + 2, stored.getGame(1).version());
+        assertThrows(StaleGameException.class, () -> writer.updateGameIfUnchanged(first)); //Now against the store
+    }
+
+    @Test
+    void testQueriesSeeQueuedState() throws Exception {
+        writer = new WriteBehindGameDAO(stored, settings(WriteBehindGameDAO.Durability.ASYNC, 60_000, 10));
+        for (int id = 1; id <= 4; id++) {
+            writer.createGame(game(id, "start"));
+        }
+        writer.updateGame(new GameData(1, "white", "black", "over", new ChessGame(), GameStatus.WHITE_RESIGNED));
+        writer.updateGame(new GameData(2, "white", "black", "moved", new ChessGame(), GameStatus.ACTIVE));
+
+        GameQuery active = new GameQuery(null, 2, GameStatus.ACTIVE, false, null, false);
+        assertEquals(List.of(2, 3), writer.listGameSummaries(active).stream().map(GameSummary::gameID).toList());
+        assertEquals("moved", writer.listGameSummaries(active).getFirst().gameName());
+        assertEquals(List.of(4), writer.listGameSummaries(active.withAfter(3)).stream().map(GameSummary::gameID).toList());
+    }
+
+    @Test
+    void testPagesArePaddedOnlyByQueuedGamesPastTheirStart() throws Exception {
+        writer = new WriteBehindGameDAO(stored, settings(WriteBehindGameDAO.Durability.ASYNC, 60_000, 10));
+        for (int id = 1; id <= 6; id++) {
+            writer.createGame(game(id, "start"));
+        }
+        writer.updateGame(game(1, "moved"));
+        writer.updateGame(game(2, "moved"));
+        writer.updateGame(game(5, "moved"));
+
+        GameQuery page = new GameQuery(3, 2, null, false, null, false);
+        assertEquals(List.of(4, 5), writer.listGameSummaries(page).stream().map(GameSummary::gameID).toList());
+        assertEquals(3, stored.lastQuery.limit(), "Only game 5 comes after game 3");
+        writer.listGameSummaries(page.withAfter(4).withLimit(1));
+        assertEquals(2, stored.lastQuery.limit());
+        GameQuery descending = new GameQuery(3, 2, null, false, null, true);
+        assertEquals(List.of(2, 1), writer.listGameSummaries(descending).stream().map(GameSummary::gameID).toList());
+        assertEquals(4, stored.lastQuery.limit());
+    }
+
+    private static WriteBehindSettings settings(WriteBehindGameDAO.Durability durability, long intervalMillis, int maxPending) {
+        return new WriteBehindSettings(durability, intervalMillis, maxPending, 100, 1000);
+    }
+
+    private void flushQuietly() {
+        try {
+            writer.flush();
+        } catch (DataAccessException e) {
+            fail(e);
+        }
+    }
+
+    private static GameData game(int gameID, String name) {
+        return new GameData(gameID, "white", "black", name, new ChessGame(), GameStatus.ACTIVE);
+    }
+
+    private static class BatchRecordingGameDAO extends MemoryGameDAO {
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        volatile boolean failBatches;
+        volatile GameQuery lastQuery;
+
+        @Override
+        public List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException {
+            lastQuery = query;
+            return super.listGameSummaries(query);
+        }
+
+        @Override
+        public synchronized GameData getGame(int gameID) throws DataAccessException {
+            return super.getGame(gameID);
+        }
+
+        @Override
+        public synchronized void createGame(GameData game) throws DataAccessException {
+            super.createGame(game);
+        }
+
+        volatile int unwritableID = -1;
+        volatile CountDownLatch gate; //Holds writes until opened
+
+        @Override
+        public void updateGames(Collection<GameData> games) throws DataAccessException {
+            CountDownLatch held = gate;
+            if (held != null) {
+                try {
+                    held.await();
+                } catch (InterruptedException e) {
+                    throw new DataAccessException("Error: interrupted");
+                }
+            }
+            synchronized (this) {
+                if (failBatches || games.stream().anyMatch(game -> game.gameID() == unwritableID)) {
+                    throw new DataAccessException("Error updating games");
+                }
+                batchSizes.add(games.size());
+                super.updateGames(games);
+            }
+        }
+    }
+}
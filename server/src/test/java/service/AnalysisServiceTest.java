@@ -0,0 +1,164 @@
+package service;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.book.OpeningBook;
+import chess.book.OpeningBookBuilder;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import dataaccess.*;
+import model.AuthData;
+import model.GameData;
+import model.GameStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import requests.AnalysisRequest;
+import results.AnalysisResult;
+
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnalysisServiceTest {
+
+    private GameDAO gameDAO;
+    private AuthDAO authDAO;
+    private CountingEngine engine;
+    private AnalysisService analysisService;
+
+    @BeforeEach
+    void setup() throws DataAccessException {
+        gameDAO = new MemoryGameDAO();
+        authDAO = new MemoryAuthDAO();
+        authDAO.createAuth(new AuthData("valid_token", "alice"));
+        engine = new CountingEngine();
+        analysisService = new AnalysisService(gameDAO, authDAO, engine, 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        analysisService.shutdown();
+    }
+
+    @Test
+    void testRepeatedRequestServedFromCache() throws DataAccessException {
+        AnalysisResult first = analysisService.analyze(new AnalysisRequest("valid_token", Fen.START, null, 3));
+        AnalysisResult second = analysisService.analyze(new AnalysisRequest("valid_token", Fen.START, null, 3));
+        assertFalse(first.cached());
+        assertTrue(second.cached());
+        assertEquals(first.bestMove(), second.bestMove());
+        assertEquals(1, engine.searches.get());
+
+        // A different depth is a different entry
+        analysisService.analyze(new AnalysisRequest("valid_token", Fen.START, null, 2));
+        assertEquals(2, engine.searches.get());
+    }
+
+    @Test
+    void testGameIDAndFenShareEntries() throws DataAccessException {
+        gameDAO.createGame(new GameData(55, "alice", null, "Game", new ChessGame(), GameStatus.ACTIVE));
+        analysisService.analyze(new AnalysisRequest("valid_token", null, 55, 2));
+        assertTrue(analysisService.analyze(new AnalysisRequest("valid_token", Fen.START, null, 2)).cached());
+    }
+
+    @Test
+    void testConcurrentRequestsCoalesce() throws Exception {
+        engine.delayMillis = 300;
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<AnalysisResult>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(clients.submit(() -> analysisService.analyze(new AnalysisRequest("valid_token", Fen.START, null, 2))));
+            } for (Future<AnalysisResult> result : results) {
+                assertNotNull(result.get(10, TimeUnit.SECONDS).bestMove());
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        assertEquals(1, engine.searches.get());
+    }
+
+    @Test
+    void testCacheEvictsLeastRecentlyUsed() throws DataAccessException {
+        String other = "4k3/8/8/8/8/8/4P3/4K3 w - - 0 1";
+        String third = "4k3/8/8/8/8/8/3P4/4K3 w - - 0 1";
+        analysisService.analyze(new AnalysisRequest("valid_token", Fen.START, null, 1));
+        analysisService.analyze(new AnalysisRequest("valid_token", other, null, 1));
+        analysisService.analyze(new AnalysisRequest("valid_token", Fen.START, null, 1)); //Touch START
+        analysisService.analyze(new AnalysisRequest("valid_token", third, null, 1)); //Evicts other
+        assertEquals(2, analysisService.cache().size());
+        assertTrue(analysisService.analyze(new AnalysisRequest("valid_token", Fen.START, null, 1)).cached());
+        assertFalse(analysisService.analyze(new AnalysisRequest("valid_token", other, null, 1)).cached());
+    }
+
+    @Test
+    void testRejectsBadRequests() {
+        assertThrows(DataAccessException.class,
+                () -> analysisService.analyze(new AnalysisRequest("bogus_token", Fen.START, null, 3)));
+        assertThrows(DataAccessException.class,
+                () -> analysisService.analyze(new AnalysisRequest("valid_token", Fen.START, 55, 3)));
+        assertThrows(DataAccessException.class,
+                () -> analysisService.analyze(new AnalysisRequest("valid_token", "not a fen", null, 3)));
+        assertThrows(DataAccessException.class,
+                () -> analysisService.analyze(new AnalysisRequest("valid_token", Fen.START, null, AnalysisService.MAX_DEPTH + 1)));
+    }
+
+    @Test
+    void testReportsMateFromWhitesSide() throws DataAccessException {
+        // Back-rank mate for black: ...Ra1#
+        AnalysisResult result = analysisService.analyze(
+                new AnalysisRequest("valid_token", "r5k1/8/8/8/8/8/5PPP/6K1 b - - 0 1", null, 3));
+        assertEquals("a8a1", result.bestMove());
+        assertEquals(-1, result.mateIn());
+        assertTrue(result.score() < 0);
+    }
+
+    @Test
+    void testBookPositionsAreSearchedAndTheirBookMovesListed(@TempDir Path dir) throws Exception {
+        OpeningBookBuilder builder = new OpeningBookBuilder(4, 1);
+        builder.addPgn(new StringReader("[Result \"1-0\"]\n\n1. e4 e5 1-0\n\n[Result \"1-0\"]\n\n1. e4 c5 1-0\n\n"
+                + "[Result \"1-0\"]\n\n1. d4 d5 1-0\n"));
+        builder.write(dir.resolve("book.bin"));
+        try (OpeningBook book = OpeningBook.open(dir.resolve("book.bin"))) {
+            AnalysisService withBook = new AnalysisService(gameDAO, authDAO, engine, book, 2, 2);
+            try {
+                AnalysisResult first = withBook.analyze(new AnalysisRequest("valid_token", Fen.START, null, 2));
+                AnalysisResult second = withBook.analyze(new AnalysisRequest("valid_token", Fen.START, null, 2));
+                assertEquals(2, first.depth(), "A real search, not a book pick");
+                assertFalse(first.principalVariation().isEmpty());
+                assertEquals(List.of("e2e4", "d2d4"), first.bookMoves());
+                assertTrue(second.cached(), "Reached the requested depth, so it is cached");
+                assertEquals(first.bestMove(), second.bestMove());
+            } finally {
+                withBook.shutdown();
+            }
+        }
+    }
+
+    private static class CountingEngine extends Engine {
+        final AtomicInteger searches = new AtomicInteger();
+        volatile long delayMillis;
+
+        CountingEngine() {
+            super(null, null, null);
+        }
+
+        @Override
+        public SearchResult search(ChessGame game, SearchLimits limits) {
+            searches.incrementAndGet();
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } return super.search(game, limits);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.TranspositionTable;
+import dataaccess.MemoryAnnotationDAO;
+import dataaccess.MemoryGameDAO;
+import model.GameData;
+import model.GameStatus;
+import model.MoveAnnotation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnnotationPipelineTest {
+
+    private MemoryGameDAO gameDAO;
+    private MemoryAnnotationDAO annotationDAO;
+    private AnnotationPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        gameDAO = new MemoryGameDAO();
+        annotationDAO = new MemoryAnnotationDAO();
+        pipeline = new AnnotationPipeline(gameDAO, annotationDAO, new Engine(null, null, new TranspositionTable(1)),
+                2, new SearchLimits(3, 2000), 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    void testFlagsBlunderInFinishedGame() throws Exception {
+        // 1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6?? 4. Qxf7#
+        gameDAO.createGame(new GameData(1, "a", "b", "scholar", play("e2e4", "e7e5", "d1h5", "b8c6", "f1c4", "g8f6", "h5f7"),
+                GameStatus.WHITE_WINS_CHECKMATE));
+
+        assertEquals(1, pipeline.runOnce());
+        List<MoveAnnotation> annotations = annotationDAO.getAnnotations(1);
+        assertEquals(7, annotations.size());
+        assertEquals("g8f6", annotations.get(5).move());
+        assertEquals(MoveAnnotation.Judgement.BLUNDER, annotations.get(5).judgement());
+        assertEquals(MoveAnnotation.Judgement.GOOD, annotations.get(6).judgement());
+        assertTrue(annotations.get(6).evaluation() > 0, "Mate by white should score for white");
+    }
+
+    @Test
+    void testSkipsActiveAndAlreadyAnnotatedGames() throws Exception {
+        gameDAO.createGame(new GameData(1, "a", "b", "done", play("e2e4", "e7e5"), GameStatus.WHITE_RESIGNED));
+        gameDAO.createGame(new GameData(2, "a", "b", "live", play("d2d4"), GameStatus.ACTIVE));
+        gameDAO.createGame(new GameData(3, "a", "b", "done too", play("c2c4"), GameStatus.BLACK_RESIGNED));
+
+        assertEquals(2, pipeline.runOnce());
+        assertTrue(annotationDAO.annotatedGameIDs().containsAll(List.of(1, 3)));
+        assertTrue(annotationDAO.getAnnotations(2).isEmpty());
+        assertEquals(0, pipeline.runOnce()); //Checkpoint: nothing left to do
+    }
+
+    @Test
+    void testGameWithoutMovesIsCheckpointed() throws Exception {
+        gameDAO.createGame(new GameData(4, "a", "b", "resigned at once", new ChessGame(), GameStatus.WHITE_RESIGNED));
+
+        assertEquals(1, pipeline.runOnce());
+        assertTrue(annotationDAO.annotatedGameIDs().contains(4));
+        assertTrue(annotationDAO.getAnnotations(4).isEmpty());
+    }
+
+    private static ChessGame play(String... moves) throws Exception {
+        ChessGame game = new ChessGame();
+        for (String move : moves) {
+            game.makeMove(new ChessMove(square(move, 0), square(move, 2), null));
+        } return game;
+    }
+
+    private static ChessPosition square(String move, int index) {
+        return new ChessPosition(move.charAt(index + 1) - '0', move.charAt(index) - 'a' + 1);
+    }
+}
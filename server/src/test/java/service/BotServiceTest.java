@@ -0,0 +1,86 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.PositionHash;
+import chess.engine.Engine;
+import chess.engine.TranspositionTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BotServiceTest {
+
+    private BotService botService;
+
+    @AfterEach
+    void tearDown() {
+        if (botService != null) {
+            botService.shutdown();
+        }
+    }
+
+    @Test
+    void testPlaysLegalMoveOffCallerThread() throws Exception {
+        botService = new BotService(new Engine(null, null, new TranspositionTable(1)), settings(1, 4, 100));
+        ChessGame game = new ChessGame();
+        CountDownLatch latch = new CountDownLatch(1);
+        Map<String, Object> seen = new ConcurrentHashMap<>();
+        botService.requestMove(42, game, (gameID, hash, move) -> {
+            seen.put("thread", Thread.currentThread().getName());
+            seen.put("hash", hash);
+            seen.put("move", move);
+            latch.countDown();
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(((String) seen.get("thread")).startsWith("bot-worker"));
+        assertEquals(PositionHash.of(game), seen.get("hash"));
+        new ChessGame(game).makeMove((ChessMove) seen.get("move")); //Throws if illegal
+    }
+
+    @Test
+    void testDuplicateRequestsSearchOnce() throws Exception {
+        botService = new BotService(new Engine(null, null, null), settings(1, 4, 200));
+        ChessGame game = new ChessGame();
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            botService.requestMove(7, game, (gameID, hash, move) -> calls.incrementAndGet());
+        }
+        Thread.sleep(1000);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testForgetCancelsSearch() throws Exception {
+        botService = new BotService(new Engine(null, null, null), settings(1, 4, 2000));
+        AtomicInteger calls = new AtomicInteger();
+        botService.requestMove(9, new ChessGame(), (gameID, hash, move) -> calls.incrementAndGet());
+        Thread.sleep(100);
+        botService.forget(9);
+        Thread.sleep(2500);
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void testOverloadStillAnswersEveryGame() throws Exception {
+        // One worker and a queue of one: most requests are shed, retried, then answered with quick moves
+        botService = new BotService(new Engine(null, null, null), settings(1, 1, 300));
+        int games = 6;
+        CountDownLatch latch = new CountDownLatch(games);
+        for (int gameID = 1; gameID <= games; gameID++) {
+            botService.requestMove(gameID, new ChessGame(), (id, hash, move) -> latch.countDown());
+        }
+        assertTrue(latch.await(20, TimeUnit.SECONDS), latch.getCount() + " games never got a move");
+    }
+
+    private static BotSettings settings(int threads, int queueCapacity, long moveTimeMillis) {
+        return new BotSettings(threads, queueCapacity, moveTimeMillis, 20, 60_000, 64, 1, 1, null, null);
+    }
+}
@@ -1,8 +1,10 @@
 package service;
 
+import chess.ChessGame;
 import dataaccess.*;
 import model.AuthData;
 import model.GameData;
+import model.GameQuery;
 import model.GameStatus;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,6 +15,8 @@ import results.CreateGameResult;
 import results.JoinGameResult;
 import results.ListGamesResult;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class GameServiceTest {
@@ -85,6 +89,95 @@ public class GameServiceTest {
         assertEquals(0, result.games().size());
     }
 
+    @Test
+    void testListGamesReadsOnlySummaries() throws DataAccessException {
+        gameDAO = new MemoryGameDAO() {
+            @Override
+            public List<GameData> listGames() {
+                throw new AssertionError("Listing should not load boards");
+            }
+        };
+        gameService = new GameService(gameDAO, authDAO);
+        authDAO.createAuth(new AuthData("valid_token", "alice"));
+        gameDAO.createGame(new GameData(303, "alice", null, "VsComputer", new ChessGame(), GameStatus.ACTIVE,
+                ChessGame.TeamColor.BLACK));
+
+        ListGamesResult result = gameService.listGames(new ListGamesRequest("valid_token"));
+        assertEquals(1, result.games().size());
+        assertEquals(GameData.BOT_USERNAME, result.games().get(0).blackUsername());
+        assertEquals("VsComputer", result.games().get(0).gameName());
+    }
+
+    @Test
+    void testListGamesPages() throws DataAccessException {
+        authDAO.createAuth(new AuthData("valid_token", "alice"));
+        for (int id = 1; id <= 5; id++) {
+            gameDAO.createGame(new GameData(id * 10, null, null, "Game" + id, null, GameStatus.ACTIVE));
+        }
+
+        ListGamesResult first = gameService.listGames(new ListGamesRequest("valid_token",
+                GameQuery.ALL.withLimit(2)));
+        assertEquals(List.of(10, 20), first.games().stream().map(ListGamesResult.GameInfo::gameID).toList());
+        assertEquals(20, first.next());
+        ListGamesResult last = gameService.listGames(new ListGamesRequest("valid_token",
+                GameQuery.ALL.withLimit(3).withAfter(first.next())));
+        assertEquals(List.of(30, 40, 50), last.games().stream().map(ListGamesResult.GameInfo::gameID).toList());
+        assertNull(last.next(), "No page after the last game");
+
+        GameQuery newestFirst = new GameQuery(30, 10, null, false, null, true);
+        ListGamesResult older = gameService.listGames(new ListGamesRequest("valid_token", newestFirst));
+        assertEquals(List.of(20, 10), older.games().stream().map(ListGamesResult.GameInfo::gameID).toList());
+        assertNull(gameService.listGames(new ListGamesRequest("valid_token")).next());
+    }
+
+    @Test
+    void testListGamesFilters() throws DataAccessException {
+        authDAO.createAuth(new AuthData("valid_token", "alice"));
+        gameDAO.createGame(new GameData(1, "alice", "bob", "Full", null, GameStatus.ACTIVE));
+        gameDAO.createGame(new GameData(2, "bob", null, "Open", null, GameStatus.ACTIVE));
+        gameDAO.createGame(new GameData(3, "alice", null, "VsComputer", null, GameStatus.ACTIVE,
+                ChessGame.TeamColor.BLACK));
+        gameDAO.createGame(new GameData(4, null, "alice", "Over", null, GameStatus.BLACK_RESIGNED));
+
+        assertEquals(List.of(2, 4), ids(new GameQuery(null, null, null, true, null, false)));
+        assertEquals(List.of(1, 3, 4), ids(new GameQuery(null, null, null, false, "alice", false)));
+        assertEquals(List.of(2), ids(new GameQuery(null, null, GameStatus.ACTIVE, true, null, false)));
+        assertEquals(List.of(4), ids(new GameQuery(null, null, GameStatus.BLACK_RESIGNED, false, "alice", false)));
+    }
+
+    @Test
+    void testListGamesRejectsBadPageSize() throws DataAccessException {
+        authDAO.createAuth(new AuthData("valid_token", "alice"));
+        for (int limit : new int[] {0, GameService.MAX_PAGE_SIZE + 1}) {
+            ListGamesRequest request = new ListGamesRequest("valid_token", GameQuery.ALL.withLimit(limit));
+            DataAccessException e = assertThrows(DataAccessException.class, () -> gameService.listGames(request));
+            assertEquals("Error: bad request", e.getMessage());
+        }
+    }
+
+    @Test
+    void testListingTagFollowsGameList() throws DataAccessException {
+        LobbyTrackingGameDAO lobby = new LobbyTrackingGameDAO(gameDAO);
+        gameService = new GameService(lobby, authDAO, lobby::versionTag);
+        authDAO.createAuth(new AuthData("valid_token", "alice"));
+
+        String empty = gameService.listingTag("valid_token");
+        assertEquals(empty, gameService.listingTag("valid_token"));
+        int gameID = gameService.createGame(new CreateGameRequest("valid_token", "Lobby")).gameID();
+        String created = gameService.listingTag("valid_token");
+        assertNotEquals(empty, created);
+        gameService.joinGame(new JoinGameRequest("valid_token", "WHITE", gameID));
+        assertNotEquals(created, gameService.listingTag("valid_token"));
+
+        assertThrows(DataAccessException.class, () -> gameService.listingTag("bogus_token"));
+        assertNull(new GameService(gameDAO, authDAO).listingTag("valid_token"), "Untracked lists have no tag");
+    }
+
+    private List<Integer> ids(GameQuery query) throws DataAccessException {
+        return gameService.listGames(new ListGamesRequest("valid_token", query)).games().stream()
+                .map(ListGamesResult.GameInfo::gameID).toList();
+    }
+
     @Test
     void testJoinGameWhiteSuccess() throws DataAccessException {
         // Valid auth
@@ -166,6 +259,35 @@ public class GameServiceTest {
         GameData updated = gameDAO.getGame(5005);
         assertEquals("eve", updated.blackUsername());
     }
+    @Test
+    void testJoinGameRetriesAfterConcurrentJoin() throws DataAccessException {
+        // Bob takes black between Alice reading the game and saving her seat
+        gameDAO = new MemoryGameDAO() {
+            private boolean raced;
+
+            @Override
+            public GameData updateGameIfUnchanged(GameData game) throws DataAccessException {
+                if (!raced) {
+                    raced = true;
+                    GameData stored = getGame(game.gameID());
+                    super.updateGameIfUnchanged(new GameData(stored.gameID(), stored.whiteUsername(), "bob",
+                            stored.gameName(), stored.game(), stored.status(), stored.botColor(), stored.version()));
+                }
+                return super.updateGameIfUnchanged(game);
+            }
+        };
+        gameService = new GameService(gameDAO, authDAO);
+        authDAO.createAuth(new AuthData("tokenA", "alice"));
+        gameDAO.createGame(new GameData(6006, null, null, "Race", null, GameStatus.ACTIVE));
+
+        gameService.joinGame(new JoinGameRequest("tokenA", "WHITE", 6006));
+
+        GameData updated = gameDAO.getGame(6006);
+        assertEquals("alice", updated.whiteUsername());
+        assertEquals("bob", updated.blackUsername()); // Not overwritten by Alice's stale copy
+        assertEquals(2, updated.version());
+    }
+
     @Test
     void testCreateGameSuccess() throws DataAccessException {
         // Insert valid token to authDAO
@@ -206,4 +328,24 @@ public class GameServiceTest {
 
         assertThrows(DataAccessException.class, () -> gameService.createGame(request));
     }
+
+    @Test
+    void testCreateBotGameReservesSeat() throws DataAccessException {
+        authDAO.createAuth(new AuthData("valid_token", "alice"));
+        CreateGameResult result = gameService.createGame(
+                new CreateGameRequest("valid_token", "VsComputer", ChessGame.TeamColor.BLACK));
+        assertEquals(ChessGame.TeamColor.BLACK, gameDAO.getGame(result.gameID()).botColor());
+
+        // The computer's seat cannot be taken, the other one can
+        DataAccessException ex = assertThrows(DataAccessException.class,
+                () -> gameService.joinGame(new JoinGameRequest("valid_token", "BLACK", result.gameID())));
+        assertTrue(ex.getMessage().contains("already taken"));
+        gameService.joinGame(new JoinGameRequest("valid_token", "WHITE", result.gameID()));
+
+        GameData stored = gameDAO.getGame(result.gameID());
+        assertEquals("alice", stored.whiteUsername());
+        assertEquals(ChessGame.TeamColor.BLACK, stored.botColor());
+        ListGamesResult.GameInfo info = gameService.listGames(new ListGamesRequest("valid_token")).games().getFirst();
+        assertEquals(GameData.BOT_USERNAME, info.blackUsername());
+    }
 }
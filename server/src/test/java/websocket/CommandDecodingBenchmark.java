@@ -0,0 +1,63 @@
+package websocket;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import websocket.commands.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a MAKE_MOVE the old way - parse as UserGameCommand, then parse the same text again
+ * as the concrete class - with the single pass through {@link CommandAdapterFactory}.
+ * <p>
+ * Not a unit test; run main from the IDE, or from server/ after {@code mvn test-compile}:
+ * <pre>
+ *   mvn dependency:build-classpath -Dmdep.outputFile=cp.txt
+ *   java -cp target/test-classes:target/classes:$(cat cp.txt) websocket.CommandDecodingBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandDecodingBenchmark {
+    private final Gson plainGson = new Gson();
+    private final Gson commandGson = new GsonBuilder().registerTypeAdapterFactory(new CommandAdapterFactory()).create();
+    private String makeMoveJson;
+
+    @Setup
+    public void setup() {
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        makeMoveJson = plainGson.toJson(new MakeMoveCommand("0f8b1e62-5a8e-4c55-9f3c-1f0f4b6f3a2d", 42, move));
+    }
+
+    @Benchmark
+    public UserGameCommand doubleParse() {
+        UserGameCommand base = plainGson.fromJson(makeMoveJson, UserGameCommand.class);
+        return switch (base.getCommandType()) {
+            case CONNECT -> plainGson.fromJson(makeMoveJson, ConnectCommand.class);
+            case MAKE_MOVE -> plainGson.fromJson(makeMoveJson, MakeMoveCommand.class);
+            case LEAVE -> plainGson.fromJson(makeMoveJson, LeaveCommand.class);
+            case RESIGN -> plainGson.fromJson(makeMoveJson, ResignCommand.class);
+            case LOBBY_SUBSCRIBE -> plainGson.fromJson(makeMoveJson, LobbySubscribeCommand.class);
+            case LOBBY_UNSUBSCRIBE -> plainGson.fromJson(makeMoveJson, LobbyUnsubscribeCommand.class);
+        };
+    }
+
+    @Benchmark
+    public UserGameCommand singlePass() {
+        return commandGson.fromJson(makeMoveJson, UserGameCommand.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CommandDecodingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
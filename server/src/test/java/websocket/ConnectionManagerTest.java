@@ -0,0 +1,183 @@
+package websocket;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionManagerTest {
+
+    private final ConnectionManager manager = new ConnectionManager();
+    private final Map<Session, List<String>> received = new ConcurrentHashMap<>();
+    private final Map<Session, AtomicBoolean> open = new ConcurrentHashMap<>();
+
+    @Test
+    void testBroadcastReachesGameMembersOnly() {
+        Session white = session(), black = session(), elsewhere = session();
+        manager.add(1, white, "white");
+        manager.add(1, black, "black");
+        manager.add(2, elsewhere, "other");
+
+        manager.broadcast(1, white, "moved");
+        manager.broadcastGameState(1, "state");
+
+        assertEquals(List.of("state"), received.get(white));
+        assertEquals(List.of("moved", "state"), received.get(black));
+        assertEquals(List.of(), received.get(elsewhere));
+    }
+
+    @Test
+    void testMovesGoAsDeltasToConnectionsThatAskedForThem() {
+        Session player = session(), spectator = session();
+        manager.add(1, player, "player", true);
+        manager.add(1, spectator, "spectator", true);
+        AtomicInteger builds = new AtomicInteger();
+        manager.broadcastMove(1, () -> EncodedMessage.text("state " + builds.incrementAndGet()), EncodedMessage.text("move"));
+        assertEquals(0, builds.get(), "Nobody needed the full state");
+        assertEquals(List.of("move"), received.get(spectator));
+
+        Session legacy = session();
+        manager.add(1, legacy, "legacy");
+        manager.broadcastMove(1, () -> EncodedMessage.text("state " + builds.incrementAndGet()), EncodedMessage.text("move"));
+        assertEquals(1, builds.get());
+        assertEquals(List.of("state 1"), received.get(legacy));
+        assertEquals(List.of("move", "move"), received.get(player));
+        assertTrue(manager.isConnected(1, legacy));
+        assertFalse(manager.isConnected(2, legacy));
+    }
+
+    @Test
+    void testSessionCloseRemovesItFromEveryGame() {
+        Session watcher = session(), player = session();
+        for (int gameID = 1; gameID <= 3; gameID++) {
+            manager.add(gameID, watcher, "watcher");
+        }
+        manager.add(3, player, "player");
+        assertEquals(2, manager.connectionCount());
+        assertEquals(3, manager.gameCount());
+
+        manager.removeSessionGlobally(watcher);
+        assertEquals(1, manager.connectionCount());
+        assertEquals(1, manager.gameCount());
+        assertEquals(1, manager.connectionCount(3));
+
+        assertEquals(new ConnectionManager.Stats(1, 1, manager.queueCount(), 0), manager.stats());
+
+        manager.remove(3, player);
+        assertEquals(0, manager.connectionCount());
+        assertEquals(0, manager.gameCount());
+    }
+
+    @Test
+    void testClosedSessionsAreDroppedOnBroadcast() {
+        Session open = session(), closed = session();
+        manager.add(1, open, "a");
+        manager.add(1, closed, "b");
+        close(closed);
+
+        manager.broadcast(1, null, "hello");
+        assertEquals(1, manager.connectionCount(1));
+        assertEquals(1, manager.connectionCount());
+    }
+
+    @Test
+    void testConcurrentJoinsAndLeaves() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        List<Session> sessions = new CopyOnWriteArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    Session session = session();
+                    sessions.add(session);
+                    manager.add(i % 10, session, "user");
+                    manager.add((i + 1) % 10, session, "user");
+                    manager.broadcast(i % 10, null, "ping");
+                    if (i % 2 == 0) {
+                        manager.removeSessionGlobally(session);
+                    }
+                }
+            }));
+        } for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        assertEquals(2000, manager.connectionCount());
+        int memberships = 0;
+        for (int gameID = 0; gameID < 10; gameID++) {
+            memberships += manager.connectionCount(gameID);
+        }
+        assertEquals(4000, memberships);
+    }
+
+    @Test
+    void testClosedSessionIsNotAdded() {
+        Session late = session();
+        close(late); //Closed before its CONNECT reached the game
+        manager.add(1, late, "late");
+        assertEquals(0, manager.connectionCount());
+        assertEquals(0, manager.gameCount());
+        assertFalse(manager.isConnected(1, late));
+    }
+
+    @Test
+    void testClosedSessionsKeepNoQueue() {
+        Session gone = session(), player = session(), watcher = session();
+        close(gone);
+        manager.send(gone, "error");
+        manager.useBinary(gone);
+        assertEquals(0, manager.queueCount());
+        assertEquals(List.of(), received.get(gone));
+
+        manager.add(1, player, "player");
+        manager.add(1, watcher, "watcher");
+        manager.broadcast(1, null, "moved");
+        assertEquals(2, manager.queueCount());
+
+        close(watcher);
+        manager.broadcast(1, null, "moved again");
+        assertEquals(1, manager.queueCount());
+        assertEquals(1, manager.connectionCount());
+    }
+
+    private void close(Session session) {
+        open.get(session).set(false);
+    }
+
+    private Session session() {
+        List<String> inbox = new CopyOnWriteArrayList<>();
+        AtomicBoolean isOpen = new AtomicBoolean(true);
+        RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (p, method, args) -> {
+                    inbox.add((String) args[0]);
+                    ((WriteCallback) args[1]).writeSuccess();
+                    return null;
+                });
+        Session session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Session.class},
+                (p, method, args) -> switch (method.getName()) {
+                    case "getRemote" -> remote;
+                    case "isOpen" -> isOpen.get();
+                    case "hashCode" -> System.identityHashCode(p);
+                    case "equals" -> p == args[0];
+                    default -> null;
+                });
+        received.put(session, inbox);
+        open.put(session, isOpen);
+        return session;
+    }
+}
@@ -0,0 +1,86 @@
+package websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameActorsTest {
+
+    private final GameActors actors = new GameActors();
+
+    @AfterEach
+    void tearDown() {
+        actors.shutdown();
+    }
+
+    @Test
+    void testCommandsForOneGameRunInOrderOneAtATime() throws Exception {
+        int commands = 2000;
+        List<Integer> order = new ArrayList<>(); //Deliberately unsynchronized: only one command may touch it at once
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(commands);
+        for (int i = 0; i < commands; i++) {
+            int n = i;
+            actors.submit(1, () -> {
+                if (running.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                order.add(n);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        for (int i = 0; i < commands; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    void testGamesRunIndependently() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch otherGameRan = new CountDownLatch(1);
+        actors.submit(1, () -> {
+            try {
+                blocked.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        actors.submit(2, otherGameRan::countDown);
+        assertTrue(otherGameRan.await(5, TimeUnit.SECONDS), "A slow game must not hold up another");
+        blocked.countDown();
+    }
+
+    @Test
+    void testFailedCommandDoesNotStopGameAndMailboxesAreReleased() throws Exception {
+        Map<String, Boolean> ran = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(1);
+        actors.submit(3, () -> {
+            throw new IllegalStateException("boom");
+        });
+        actors.submit(3, () -> {
+            ran.put("after", true);
+            done.countDown();
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(ran.get("after"));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (actors.activeGames() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, actors.activeGames());
+    }
+}
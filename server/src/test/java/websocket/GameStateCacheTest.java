@@ -0,0 +1,66 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import websocket.messages.LoadGameMessage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameStateCacheTest {
+
+    private final Gson gson = new Gson();
+
+    @Test
+    void testUnchangedGameIsSerializedOnce() {
+        GameStateCache cache = new GameStateCache(gson, 10);
+        ChessGame game = new ChessGame();
+        String first = cache.loadGameJson(1, game);
+        String second = cache.loadGameJson(1, game);
+        assertSame(first, second);
+        assertEquals(gson.toJson(new LoadGameMessage(game)), first);
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void testMoveProducesNewState() throws Exception {
+        GameStateCache cache = new GameStateCache(gson, 10);
+        ChessGame game = new ChessGame();
+        String before = cache.loadGameJson(1, game);
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        String after = cache.loadGameJson(1, game);
+        assertNotEquals(before, after);
+        assertEquals(gson.toJson(new LoadGameMessage(game)), after);
+        assertSame(after, cache.loadGameJson(1, game));
+    }
+
+    @Test
+    void testMessageIsEncodedFromTheGameAsItWasWhenCached() throws Exception {
+        GameStateCache cache = new GameStateCache(gson, 10);
+        ChessGame game = new ChessGame();
+        String expected = gson.toJson(new LoadGameMessage(new ChessGame(game)));
+        EncodedMessage message = cache.loadGame(1, game);
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null)); //Before anything is sent
+        assertEquals(expected, message.json());
+        assertArrayEquals(BinaryProtocol.encodeMessage(new LoadGameMessage(new ChessGame())), message.binary());
+    }
+
+    @Test
+    void testLeastRecentlyUsedGameIsDropped() {
+        GameStateCache cache = new GameStateCache(gson, 2);
+        ChessGame game = new ChessGame();
+        cache.loadGameJson(1, game);
+        cache.loadGameJson(2, game);
+        cache.loadGameJson(1, game);
+        cache.loadGameJson(3, game);
+        assertEquals(2, cache.size());
+        long misses = cache.misses();
+        cache.loadGameJson(1, game);
+        assertEquals(misses, cache.misses(), "Game 1 was used recently and should still be cached");
+        cache.loadGameJson(2, game);
+        assertEquals(misses + 1, cache.misses());
+    }
+}
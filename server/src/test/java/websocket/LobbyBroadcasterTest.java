@@ -0,0 +1,167 @@
+package websocket;
+
+import chess.ChessGame;
+import dataaccess.LobbyTrackingGameDAO;
+import dataaccess.MemoryGameDAO;
+import json.Serializer;
+import model.GameData;
+import model.GameStatus;
+import model.GameSummary;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import websocket.messages.LobbyMessage;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LobbyBroadcasterTest {
+
+    private final LobbyTrackingGameDAO games = new LobbyTrackingGameDAO(new MemoryGameDAO());
+    private final List<Runnable> snapshotReads = new CopyOnWriteArrayList<>();
+    private final LobbyBroadcaster lobby = new LobbyBroadcaster(games, new ConnectionManager(), Serializer.GSON,
+            60_000, snapshotReads::add); //Batches are flushed and snapshots read by the tests
+    private final Map<Session, List<String>> received = new ConcurrentHashMap<>();
+    private final Map<Session, AtomicBoolean> open = new ConcurrentHashMap<>();
+
+    {
+        games.addListener(lobby);
+    }
+
+    @AfterEach
+    void tearDown() {
+        lobby.close();
+    }
+
+    @Test
+    void testSubscriberGetsSnapshotThenCoalescedChanges() throws Exception {
+        games.createGame(game(1, null, GameStatus.ACTIVE));
+        games.createGame(game(2, null, GameStatus.STALEMATE_DRAW));
+        Session subscriber = session(), bystander = session();
+        lobby.subscribe(subscriber);
+        readSnapshots();
+
+        LobbyMessage snapshot = lobbyMessages(subscriber).getFirst();
+        assertTrue(snapshot.isReset());
+        assertEquals(0, snapshot.getSequence());
+        assertEquals(List.of(summary(1, null, GameStatus.ACTIVE)), snapshot.getAdded());
+
+        games.createGame(game(3, null, GameStatus.ACTIVE));
+        games.updateGame(game(3, "alice", GameStatus.ACTIVE));
+        games.updateGame(game(1, null, GameStatus.WHITE_RESIGNED));
+        games.createGame(game(4, null, GameStatus.ACTIVE));
+        games.updateGame(game(4, null, GameStatus.BLACK_RESIGNED));
+        lobby.flush();
+        lobby.flush(); //Nothing new
+
+        List<LobbyMessage> messages = lobbyMessages(subscriber);
+        assertEquals(2, messages.size(), "Five changes go out as one message");
+        LobbyMessage batch = messages.get(1);
+        assertEquals(1, batch.getSequence());
+        assertFalse(batch.isReset());
+        assertEquals(List.of(summary(3, "alice", GameStatus.ACTIVE)), batch.getAdded());
+        assertEquals(List.of(), batch.getUpdated());
+        assertEquals(List.of(1, 4), batch.getRemoved());
+        assertEquals(List.of(), received.get(bystander));
+    }
+
+    @Test
+    void testUnsubscribedAndClosedSessionsStopReceiving() throws Exception {
+        Session leaving = session(), closing = session(), staying = session();
+        lobby.subscribe(leaving);
+        lobby.subscribe(closing);
+        lobby.subscribe(staying);
+        readSnapshots();
+        assertEquals(3, lobby.subscriberCount());
+
+        lobby.unsubscribe(leaving);
+        open.get(closing).set(false);
+        games.createGame(game(1, null, GameStatus.ACTIVE));
+        lobby.flush();
+        assertEquals(1, lobby.subscriberCount());
+        assertEquals(1, lobbyMessages(leaving).size());
+        assertEquals(1, lobbyMessages(closing).size());
+
+        games.updateGame(game(1, "alice", GameStatus.ACTIVE));
+        games.clear();
+        games.createGame(game(2, null, GameStatus.ACTIVE));
+        lobby.flush();
+        LobbyMessage reset = lobbyMessages(staying).getLast();
+        assertEquals(2, reset.getSequence());
+        assertTrue(reset.isReset(), "Subscribers start over after a clear");
+        assertEquals(List.of(summary(2, null, GameStatus.ACTIVE)), reset.getAdded());
+        assertEquals(List.of(), reset.getUpdated());
+    }
+
+    @Test
+    void testSnapshotIsReadOffTheSubscribingThread() throws Exception {
+        games.createGame(game(1, null, GameStatus.ACTIVE));
+        Session resubscribing = session(), leaving = session();
+        lobby.subscribe(resubscribing);
+        lobby.subscribe(leaving);
+        assertEquals(List.of(), received.get(resubscribing), "Nothing is read until the reader runs");
+
+        games.createGame(game(2, null, GameStatus.ACTIVE));
+        lobby.flush();
+        lobby.subscribe(resubscribing);
+        lobby.unsubscribe(leaving);
+        readSnapshots();
+
+        List<LobbyMessage> messages = lobbyMessages(resubscribing);
+        assertEquals(1, messages.size(), "Only the newest subscription's snapshot is sent");
+        assertEquals(1, messages.getFirst().getSequence());
+        assertEquals(List.of(summary(1, null, GameStatus.ACTIVE), summary(2, null, GameStatus.ACTIVE)),
+                messages.getFirst().getAdded());
+        assertEquals(List.of(), received.get(leaving));
+        assertEquals(1, lobby.subscriberCount());
+    }
+
+    private void readSnapshots() {
+        for (Runnable read : snapshotReads) {
+            read.run();
+        }
+        snapshotReads.clear();
+    }
+
+    private static GameData game(int gameID, String white, GameStatus status) {
+        return new GameData(gameID, white, null, "Game " + gameID, new ChessGame(), status);
+    }
+
+    private static GameSummary summary(int gameID, String white, GameStatus status) {
+        return GameSummary.of(game(gameID, white, status));
+    }
+
+    private List<LobbyMessage> lobbyMessages(Session session) {
+        return received.get(session).stream().map(json -> Serializer.GSON.fromJson(json, LobbyMessage.class)).toList();
+    }
+
+    private Session session() {
+        List<String> inbox = new CopyOnWriteArrayList<>();
+        AtomicBoolean isOpen = new AtomicBoolean(true);
+        RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (p, method, args) -> {
+                    inbox.add((String) args[0]);
+                    ((WriteCallback) args[1]).writeSuccess();
+                    return null;
+                });
+        Session session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Session.class},
+                (p, method, args) -> switch (method.getName()) {
+                    case "getRemote" -> remote;
+                    case "isOpen" -> isOpen.get();
+                    case "hashCode" -> System.identityHashCode(p);
+                    case "equals" -> p == args[0];
+                    default -> null;
+                });
+        received.put(session, inbox);
+        open.put(session, isOpen);
+        return session;
+    }
+}
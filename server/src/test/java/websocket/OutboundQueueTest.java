@@ -0,0 +1,176 @@
+package websocket;
+
+import com.google.gson.Gson;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.Test;
+import chess.ChessGame;
+import json.Serializer;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.NotificationMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OutboundQueueTest {
+
+    private final FakeClient client = new FakeClient();
+    private final LongAdder dropped = new LongAdder();
+
+    @Test
+    void testSendsInOrderOneAtATime() {
+        OutboundQueue queue = new OutboundQueue(client.session(), 10, OutboundQueue.SlowConsumerPolicy.DROP, dropped);
+        assertTrue(queue.offer("a", null));
+        assertTrue(queue.offer("b", null));
+        assertTrue(queue.offer("c", null));
+
+        assertEquals(List.of("a"), client.sent); //Only one write in flight
+        assertEquals(2, queue.pending());
+        client.completeAll();
+        assertEquals(List.of("a", "b", "c"), client.sent);
+        assertEquals(0, queue.pending());
+    }
+
+    @Test
+    void testDropPolicyDiscardsNewMessages() {
+        OutboundQueue queue = new OutboundQueue(client.session(), 2, OutboundQueue.SlowConsumerPolicy.DROP, dropped);
+        queue.offer("in flight", null);
+        queue.offer("a", null);
+        queue.offer("b", null);
+        assertFalse(queue.offer("c", null));
+
+        client.completeAll();
+        assertEquals(List.of("in flight", "a", "b"), client.sent);
+        assertEquals(1, dropped.sum());
+    }
+
+    @Test
+    void testCoalescePolicyKeepsNewestState() {
+        OutboundQueue queue = new OutboundQueue(client.session(), 2, OutboundQueue.SlowConsumerPolicy.COALESCE, dropped);
+        queue.offer("in flight", null);
+        queue.offer("state 1", 7);
+        queue.offer("moved", null);
+        queue.offer("state 2", 7); //Replaces state 1
+        assertTrue(queue.offer("check", null)); //Full: the oldest notification gives way
+        queue.offer("state 3", 7);
+
+        client.completeAll();
+        assertEquals(List.of("in flight", "state 3", "check"), client.sent);
+        assertEquals(1, dropped.sum());
+    }
+
+    @Test
+    void testCoalescedStateKeepsItsPlace() {
+        OutboundQueue queue = new OutboundQueue(client.session(), 10, OutboundQueue.SlowConsumerPolicy.COALESCE, dropped);
+        queue.offer("in flight", null);
+        queue.offer("state 1", 7);
+        queue.offer("other game", 8);
+        queue.offer("check", null); //About the board in state 1
+        queue.offer("state 2", 7);
+
+        client.completeAll();
+        assertEquals(List.of("in flight", "state 2", "other game", "check"), client.sent);
+        assertEquals(0, dropped.sum());
+    }
+
+    @Test
+    void testDisconnectPolicyClosesSlowClient() {
+        OutboundQueue queue = new OutboundQueue(client.session(), 1, OutboundQueue.SlowConsumerPolicy.DISCONNECT, dropped);
+        queue.offer("in flight", null);
+        queue.offer("a", null);
+        assertFalse(queue.offer("b", null));
+
+        assertFalse(client.open);
+        assertFalse(queue.offer("c", null));
+        assertEquals(2, dropped.sum());
+    }
+
+    @Test
+    void testFailedWriteStopsQueue() {
+        OutboundQueue queue = new OutboundQueue(client.session(), 10, OutboundQueue.SlowConsumerPolicy.DROP, dropped);
+        queue.offer("a", null);
+        queue.offer("b", null);
+        client.failNext();
+        assertEquals(0, queue.pending());
+        assertFalse(queue.offer("c", null));
+    }
+
+    @Test
+    void testBinaryConnectionGetsFrames() {
+        OutboundQueue queue = new OutboundQueue(client.session(), 10, OutboundQueue.SlowConsumerPolicy.DROP, dropped);
+        EncodedMessage notification = new EncodedMessage(new NotificationMessage("hello"), new Gson());
+        queue.offer(notification, null);
+        queue.useBinary();
+        queue.offer(notification, null);
+        queue.offer(EncodedMessage.text("{\"legacy\":true}"), null); //Only exists as JSON
+
+        client.completeAll();
+        assertEquals(List.of(notification.json(), "NOTIFICATION frame", "{\"legacy\":true}"), client.sent);
+    }
+
+    @Test
+    void testCompactConnectionGetsCompactJson() {
+        OutboundQueue queue = new OutboundQueue(client.session(), 10, OutboundQueue.SlowConsumerPolicy.DROP, dropped);
+        EncodedMessage loadGame = new EncodedMessage(new LoadGameMessage(new ChessGame()), Serializer.GSON);
+        queue.offer(loadGame, null);
+        queue.useCompactJson();
+        queue.offer(loadGame, null);
+        queue.offer(EncodedMessage.text("{\"legacy\":true}"), null);
+
+        client.completeAll();
+        assertEquals(List.of(loadGame.json(), loadGame.compactJson(), "{\"legacy\":true}"), client.sent);
+        assertTrue(loadGame.compactJson().length() < loadGame.json().length() / 2);
+    }
+
+    // Records writes and completes them only when told to, like a client on a slow network
+    private static class FakeClient {
+        final List<String> sent = new ArrayList<>();
+        final List<WriteCallback> callbacks = new ArrayList<>();
+        boolean open = true;
+
+        Session session() {
+            RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.class}, (p, method, args) -> {
+                        if (method.getName().equals("sendString") && args.length == 2) {
+                            sent.add((String) args[0]);
+                            callbacks.add((WriteCallback) args[1]);
+                            return null;
+                        } if (method.getName().equals("sendBytes") && args.length == 2) {
+                            sent.add(BinaryProtocol.decodeMessage((ByteBuffer) args[0]).getServerMessageType() + " frame");
+                            callbacks.add((WriteCallback) args[1]);
+                            return null;
+                        } throw new UnsupportedOperationException(method.getName());
+                    });
+            return (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Session.class},
+                    (p, method, args) -> switch (method.getName()) {
+                        case "getRemote" -> remote;
+                        case "isOpen" -> open;
+                        case "close" -> {
+                            open = false;
+                            yield null;
+                        }
+                        case "getRemoteAddress" -> null;
+                        case "hashCode" -> System.identityHashCode(p);
+                        case "equals" -> p == args[0];
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        void completeAll() {
+            while (!callbacks.isEmpty()) {
+                callbacks.remove(0).writeSuccess();
+            }
+        }
+
+        void failNext() {
+            callbacks.remove(0).writeFailed(new IOException("connection reset"));
+        }
+    }
+}
@@ -28,6 +28,18 @@ public class ChessBoard {
     public ChessBoard() {
     }
 
+    /**
+     * Creates a deep copy of another board, including each piece's move flags
+     */
+    public ChessBoard(ChessBoard other) {
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                ChessPiece piece = other.board[i][j];
+                board[i][j] = piece == null ? null : new ChessPiece(piece);
+            }
+        }
+    }
+
     /**
      * Adds a chess piece to the chessboard
      *
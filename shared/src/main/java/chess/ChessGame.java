@@ -1,7 +1,10 @@
 package chess;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 
 import static java.lang.Math.abs;
 
@@ -14,14 +17,28 @@ import static java.lang.Math.abs;
 public class ChessGame {
     private TeamColor teamTurn = TeamColor.WHITE;
     private ChessBoard board = new ChessBoard();
-    private ChessPosition whiteKingPosition;
-    private ChessPosition blackKingPosition;
-    private ChessPiece storedMovedPiece;
-    private ChessPiece storedCapturedPiece;
+    //Scratch state for trying and undoing moves, rebuilt on every try; transient keeps it out of JSON
+    private transient ChessPosition whiteKingPosition;
+    private transient ChessPosition blackKingPosition;
+    private transient ChessPiece storedMovedPiece;
+    private transient ChessPiece storedCapturedPiece;
+    private transient boolean storedEnPassant;
+    private List<ChessMove> moveHistory = new ArrayList<>();
     public ChessGame() {
         board.resetBoard();
     }
 
+    /**
+     * Creates an independent copy of another game, so it can be explored without touching the original
+     */
+    public ChessGame(ChessGame other) {
+        this.teamTurn = other.teamTurn;
+        this.board = new ChessBoard(other.board);
+        this.whiteKingPosition = other.whiteKingPosition;
+        this.blackKingPosition = other.blackKingPosition;
+        this.moveHistory = new ArrayList<>(other.getMoveHistory());
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -38,6 +55,21 @@ public class ChessGame {
         this.teamTurn = team;
     }
 
+    /**
+     * @return the moves played so far with makeMove, oldest first. Empty for a position
+     * that was set up directly, or for games saved before moves were recorded.
+     */
+    public List<ChessMove> getMoveHistory() {
+        return moveHistory == null ? List.of() : Collections.unmodifiableList(moveHistory);
+    }
+
+    /**
+     * Replaces the recorded moves, for a game rebuilt from a stored position and its history
+     */
+    public void setMoveHistory(List<ChessMove> moveHistory) {
+        this.moveHistory = new ArrayList<>(moveHistory);
+    }
+
     /**
      * Enum identifying the 2 possible teams in a chess game
      */
@@ -138,12 +170,16 @@ public class ChessGame {
             piece.setPawnJustDoubleMoved(abs(startPosition.getRow() - endPosition.getRow()) == 2);
         } this.teamTurn = this.teamTurn == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE; //Set team turn
         piece.setHasMoved(true); //Mark the piece as having moved
+        if (moveHistory == null) { //Games saved before the history was recorded
+            moveHistory = new ArrayList<>();
+        }
+        moveHistory.add(new ChessMove(startPosition, endPosition, move.getPromotionPiece()));
         move.setIsEnPassant();
     }
 
     public void undoMove(ChessMove move) {
         this.board.addPiece(move.getStartPosition(), this.storedMovedPiece);
-        if (move.getIsEnPassant()) {
+        if (this.storedEnPassant) {
             this.board.addPiece(new ChessPosition(move.getStartPosition().getRow(), move.getEndPosition().getColumn()), this.storedCapturedPiece);
             this.board.addPiece(new ChessPosition(move.getEndPosition().getRow(), move.getEndPosition().getColumn()), null);
         } else {
@@ -163,8 +199,12 @@ public class ChessGame {
         // Check for en passant first
         ChessPosition enPassantPosition = new ChessPosition(move.getStartPosition().getRow(), move.getEndPosition().getColumn());
         ChessPiece enPassantPawn = board.getPiece(enPassantPosition);
-        if (move.getIsEnPassant() | (enPassantPawn != null && enPassantPawn.getPieceType() == ChessPiece.PieceType.PAWN
-                && enPassantPawn.pawnJustDoubleMoved)) {
+        this.storedEnPassant = storedMovedPiece.getPieceType() == ChessPiece.PieceType.PAWN
+                && move.getStartPosition().getColumn() != move.getEndPosition().getColumn()
+                && board.getPiece(move.getEndPosition()) == null && enPassantPawn != null
+                && enPassantPawn.getPieceType() == ChessPiece.PieceType.PAWN
+                && enPassantPawn.getTeamColor() != storedMovedPiece.getTeamColor() && enPassantPawn.pawnJustDoubleMoved;
+        if (this.storedEnPassant) {
             this.storedCapturedPiece = this.board.getPiece(enPassantPosition);
             this.board.addPiece(enPassantPosition, null);
             this.board.addPiece(move.getEndPosition(), this.storedMovedPiece);
@@ -217,7 +257,7 @@ public class ChessGame {
         if (staticIsInCheck(kingFirstSquare, board)) {
             undoMove(firstKingMove);
             return false;
-        } if (endPosition.getColumn() == 7) { //Queen-side castling
+        } if (endPosition.getColumn() == 3) { //Queen-side castling
             ChessPosition thirdPiecePosition = new ChessPosition(endPosition.getRow(), 2);
             ChessPiece thirdPiece = board.getPiece(thirdPiecePosition);
             if (thirdPiece != null) {
@@ -366,6 +406,7 @@ public class ChessGame {
      */
     public void setBoard (ChessBoard board){
         this.board = board;
+        this.moveHistory = new ArrayList<>(); //The history no longer leads to this position
     }
 
     /**
@@ -35,6 +35,16 @@ public class ChessPiece {
         this.pieceType = type;
     }
 
+    /**
+     * Creates a copy of another piece, including its move flags
+     */
+    public ChessPiece(ChessPiece other) {
+        this.teamColor = other.teamColor;
+        this.pieceType = other.pieceType;
+        this.hasMoved = other.hasMoved;
+        this.pawnJustDoubleMoved = other.pawnJustDoubleMoved;
+    }
+
     /**
      * The various different chess piece options
      */
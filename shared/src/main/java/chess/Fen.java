@@ -0,0 +1,270 @@
+package chess;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation.
+ * <p>
+ * ChessGame does not track move counters, so the halfmove clock and fullmove number are
+ * accepted but ignored when parsing, and written as "0 1". Castling rights and the en passant
+ * square are mapped onto the pieces' moved flags, which is how ChessGame tracks them.
+ */
+public final class Fen {
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private Fen() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the text is not a valid FEN position
+     */
+    public static ChessGame parse(String fen) {
+        if (fen == null) {
+            throw new IllegalArgumentException("FEN is missing");
+        }
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 2) {
+            throw new IllegalArgumentException("FEN needs at least piece placement and side to move");
+        }
+        ChessBoard board = parsePlacement(fields[0]);
+
+        ChessGame.TeamColor turn = switch (fields[1]) {
+            case "w" -> ChessGame.TeamColor.WHITE;
+            case "b" -> ChessGame.TeamColor.BLACK;
+            default -> throw new IllegalArgumentException("Side to move must be w or b: " + fields[1]);
+        };
+        String castling = fields.length > 2 ? fields[2] : "-";
+        applyCastling(board, castling, 1, 'K', 'Q');
+        applyCastling(board, castling, 8, 'k', 'q');
+        if (fields.length > 3 && !fields[3].equals("-")) {
+            applyEnPassant(board, fields[3], turn);
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(turn);
+        return game;
+    }
+
+    /**
+     * Reads a board written by {@link #formatBoard(ChessBoard)}
+     *
+     * @throws IllegalArgumentException if the text is not a valid board
+     */
+    public static ChessBoard parseBoard(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("Board is missing");
+        }
+        String[] fields = text.trim().split("\\s+");
+        ChessBoard board = parsePlacement(fields[0]);
+        String castling = fields.length > 1 ? fields[1] : "-";
+        applyCastling(board, castling, 1, 'K', 'Q');
+        applyCastling(board, castling, 8, 'k', 'q');
+        if (fields.length > 2 && !fields[2].equals("-")) {
+            //The capturing side is the one whose turn it is; a target on rank 6 means white
+            applyEnPassant(board, fields[2], fields[2].endsWith("6") ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK);
+        }
+        return board;
+    }
+
+    private static ChessBoard parsePlacement(String placement) {
+        ChessBoard board = new ChessBoard();
+        String[] ranks = placement.split("/");
+        if (ranks.length != 8) {
+            throw new IllegalArgumentException("FEN needs 8 ranks: " + placement);
+        } for (int i = 0; i < 8; i++) {
+            int row = 8 - i;
+            int col = 1;
+            for (char c : ranks[i].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    col += c - '0';
+                } else {
+                    if (col > 8) {
+                        throw new IllegalArgumentException("Rank " + row + " has more than 8 squares: " + ranks[i]);
+                    }
+                    ChessPiece piece = piece(c);
+                    if (piece.getPieceType() == ChessPiece.PieceType.PAWN && row != (piece.getTeamColor() == ChessGame.TeamColor.WHITE ? 2 : 7)) {
+                        piece.setHasMoved(true);
+                    }
+                    board.addPiece(new ChessPosition(row, col++), piece);
+                }
+            } if (col != 9) {
+                throw new IllegalArgumentException("Rank " + row + " does not have 8 squares: " + ranks[i]);
+            }
+        } return board;
+    }
+
+    public static String format(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        StringBuilder sb = new StringBuilder(placement(board));
+        sb.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w " : " b ");
+        sb.append(castling(board)).append(' ');
+        sb.append(enPassantTarget(board, game.getTeamTurn())).append(" 0 1");
+        return sb.toString();
+    }
+
+    /**
+     * @return the board without a side to move: piece placement, castling rights and en passant square
+     */
+    public static String formatBoard(ChessBoard board) {
+        String enPassant = enPassantTarget(board, ChessGame.TeamColor.WHITE);
+        if (enPassant.equals("-")) {
+            enPassant = enPassantTarget(board, ChessGame.TeamColor.BLACK);
+        } return placement(board) + " " + castling(board) + " " + enPassant;
+    }
+
+    private static String placement(ChessBoard board) {
+        StringBuilder sb = new StringBuilder();
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                } if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                sb.append(letter(piece));
+            } if (empty > 0) {
+                sb.append(empty);
+            } if (row > 1) {
+                sb.append('/');
+            }
+        } return sb.toString();
+    }
+
+    private static String castling(ChessBoard board) {
+        StringBuilder castling = new StringBuilder();
+        if (canCastle(board, 1, 8)) {
+            castling.append('K');
+        } if (canCastle(board, 1, 1)) {
+            castling.append('Q');
+        } if (canCastle(board, 8, 8)) {
+            castling.append('k');
+        } if (canCastle(board, 8, 1)) {
+            castling.append('q');
+        }
+        return castling.isEmpty() ? "-" : castling.toString();
+    }
+
+    /**
+     * @return the move in coordinate notation, e.g. "e2e4" or "e7e8q"
+     */
+    public static String moveToString(ChessMove move) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(square(move.getStartPosition())).append(square(move.getEndPosition()));
+        if (move.getPromotionPiece() != null) {
+            sb.append(Character.toLowerCase(letter(new ChessPiece(ChessGame.TeamColor.WHITE, move.getPromotionPiece()))));
+        } return sb.toString();
+    }
+
+    /**
+     * Reads a move written by {@link #moveToString(ChessMove)}
+     *
+     * @throws IllegalArgumentException if the text is not a move in coordinate notation
+     */
+    public static ChessMove parseMove(String text) {
+        if (text == null || (text.length() != 4 && text.length() != 5)) {
+            throw new IllegalArgumentException("Bad move: " + text);
+        }
+        ChessPiece.PieceType promotion = null;
+        if (text.length() == 5) {
+            promotion = piece(text.charAt(4)).getPieceType();
+            if (promotion == ChessPiece.PieceType.KING || promotion == ChessPiece.PieceType.PAWN) {
+                throw new IllegalArgumentException("Cannot promote to " + promotion + ": " + text);
+            }
+        } return new ChessMove(parseSquare(text, 0), parseSquare(text, 2), promotion);
+    }
+
+    private static ChessPosition parseSquare(String text, int index) {
+        char file = text.charAt(index);
+        char rank = text.charAt(index + 1);
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+            throw new IllegalArgumentException("Bad square in move: " + text);
+        } return new ChessPosition(rank - '0', file - 'a' + 1);
+    }
+
+    private static String square(ChessPosition position) {
+        return "" + (char) ('a' + position.getColumn() - 1) + position.getRow();
+    }
+
+    private static ChessPiece piece(char c) {
+        ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        ChessPiece.PieceType type = switch (Character.toLowerCase(c)) {
+            case 'k' -> ChessPiece.PieceType.KING;
+            case 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'r' -> ChessPiece.PieceType.ROOK;
+            case 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'n' -> ChessPiece.PieceType.KNIGHT;
+            case 'p' -> ChessPiece.PieceType.PAWN;
+            default -> throw new IllegalArgumentException("Unknown piece letter: " + c);
+        };
+        return new ChessPiece(color, type);
+    }
+
+    private static char letter(ChessPiece piece) {
+        char c = switch (piece.getPieceType()) {
+            case KING -> 'k';
+            case QUEEN -> 'q';
+            case ROOK -> 'r';
+            case BISHOP -> 'b';
+            case KNIGHT -> 'n';
+            case PAWN -> 'p';
+        };
+        return piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(c) : c;
+    }
+
+    // A king or rook on its home square without the matching right is marked as having moved
+    private static void applyCastling(ChessBoard board, String castling, int row, char kingSide, char queenSide) {
+        ChessGame.TeamColor color = row == 1 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        boolean kingRight = castling.indexOf(kingSide) >= 0;
+        boolean queenRight = castling.indexOf(queenSide) >= 0;
+        markMoved(board, row, 5, color, ChessPiece.PieceType.KING, !kingRight && !queenRight);
+        markMoved(board, row, 8, color, ChessPiece.PieceType.ROOK, !kingRight);
+        markMoved(board, row, 1, color, ChessPiece.PieceType.ROOK, !queenRight);
+    }
+
+    private static void markMoved(ChessBoard board, int row, int col, ChessGame.TeamColor color,
+                                  ChessPiece.PieceType type, boolean moved) {
+        ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+        if (piece != null && piece.getTeamColor() == color && piece.getPieceType() == type) {
+            piece.setHasMoved(moved);
+        }
+    }
+
+    private static void applyEnPassant(ChessBoard board, String target, ChessGame.TeamColor turn) {
+        if (target.length() != 2 || target.charAt(0) < 'a' || target.charAt(0) > 'h') {
+            throw new IllegalArgumentException("Bad en passant square: " + target);
+        }
+        int col = target.charAt(0) - 'a' + 1;
+        int pawnRow = turn == ChessGame.TeamColor.WHITE ? 5 : 4;
+        if (target.charAt(1) - '0' != (turn == ChessGame.TeamColor.WHITE ? 6 : 3)) {
+            throw new IllegalArgumentException("En passant square is on the wrong rank: " + target);
+        }
+        ChessPiece pawn = board.getPiece(new ChessPosition(pawnRow, col));
+        if (pawn == null || pawn.getPieceType() != ChessPiece.PieceType.PAWN || pawn.getTeamColor() == turn) {
+            throw new IllegalArgumentException("No pawn to capture en passant on " + target);
+        }
+        pawn.setPawnJustDoubleMoved(true);
+    }
+
+    private static boolean canCastle(ChessBoard board, int row, int rookCol) {
+        ChessPiece king = board.getPiece(new ChessPosition(row, 5));
+        ChessPiece rook = board.getPiece(new ChessPosition(row, rookCol));
+        ChessGame.TeamColor color = row == 1 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        return king != null && king.getPieceType() == ChessPiece.PieceType.KING && king.getTeamColor() == color
+                && !king.hasMoved && rook != null && rook.getPieceType() == ChessPiece.PieceType.ROOK
+                && rook.getTeamColor() == color && !rook.hasMoved;
+    }
+
+    private static String enPassantTarget(ChessBoard board, ChessGame.TeamColor turn) {
+        int row = turn == ChessGame.TeamColor.WHITE ? 5 : 4;
+        for (int col = 1; col <= 8; col++) {
+            ChessPiece pawn = board.getPiece(new ChessPosition(row, col));
+            if (pawn != null && pawn.getPieceType() == ChessPiece.PieceType.PAWN && pawn.getTeamColor() != turn
+                    && pawn.pawnJustDoubleMoved) {
+                return square(new ChessPosition(turn == ChessGame.TeamColor.WHITE ? 6 : 3, col));
+            }
+        } return "-";
+    }
+}
@@ -0,0 +1,62 @@
+package chess;
+
+/**
+ * Packs a ChessMove into 16 bits for compact storage and transfer.
+ * <p>
+ * Layout: bits 0-5 start square, bits 6-11 end square (a1 = 0, h8 = 63),
+ * bits 12-14 promotion piece (0 none, 1 knight, 2 bishop, 3 rook, 4 queen).
+ */
+public final class PackedMove {
+    public static final int NONE = 0;
+
+    private PackedMove() {
+    }
+
+    public static int pack(ChessMove move) {
+        ChessPosition start = move.getStartPosition();
+        ChessPosition end = move.getEndPosition();
+        int from = PositionHash.square(start.getRow(), start.getColumn());
+        int to = PositionHash.square(end.getRow(), end.getColumn());
+        return from | (to << 6) | (promotionCode(move.getPromotionPiece()) << 12);
+    }
+
+    public static ChessMove unpack(int packed) {
+        int from = packed & 0x3F;
+        int to = (packed >>> 6) & 0x3F;
+        return new ChessMove(position(from), position(to), promotionPiece((packed >>> 12) & 0x7));
+    }
+
+    public static int from(int packed) {
+        return packed & 0x3F;
+    }
+
+    public static int to(int packed) {
+        return (packed >>> 6) & 0x3F;
+    }
+
+    public static ChessPosition position(int square) {
+        return new ChessPosition(square / 8 + 1, square % 8 + 1);
+    }
+
+    private static int promotionCode(ChessPiece.PieceType type) {
+        if (type == null) {
+            return 0;
+        } return switch (type) {
+            case KNIGHT -> 1;
+            case BISHOP -> 2;
+            case ROOK -> 3;
+            case QUEEN -> 4;
+            default -> throw new IllegalArgumentException("Cannot promote to " + type);
+        };
+    }
+
+    private static ChessPiece.PieceType promotionPiece(int code) {
+        return switch (code) {
+            case 1 -> ChessPiece.PieceType.KNIGHT;
+            case 2 -> ChessPiece.PieceType.BISHOP;
+            case 3 -> ChessPiece.PieceType.ROOK;
+            case 4 -> ChessPiece.PieceType.QUEEN;
+            default -> null;
+        };
+    }
+}
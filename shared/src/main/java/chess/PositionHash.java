@@ -0,0 +1,155 @@
+package chess;
+
+/**
+ * Zobrist hashing for chess positions.
+ * <p>
+ * Two games hash equal when they have the same pieces on the same squares, the same
+ * side to move, the same castling rights and the same capturable en passant file.
+ * The keys come from a fixed-seed generator, so hashes are stable across runs and
+ * can be stored in files (opening books, caches).
+ */
+public final class PositionHash {
+    private static final long SEED = 0x2F0C_5EED_CAFE_F00DL;
+    private static final long[][] PIECE_KEYS = new long[12][64];
+    private static final long[] CASTLING_KEYS = new long[4];
+    private static final long[] EN_PASSANT_KEYS = new long[8];
+    private static final long SIDE_TO_MOVE_KEY;
+
+    static {
+        long state = SEED;
+        for (int piece = 0; piece < 12; piece++) {
+            for (int square = 0; square < 64; square++) {
+                state += 0x9E3779B97F4A7C15L;
+                PIECE_KEYS[piece][square] = mix(state);
+            }
+        } for (int i = 0; i < 4; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            CASTLING_KEYS[i] = mix(state);
+        } for (int i = 0; i < 8; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            EN_PASSANT_KEYS[i] = mix(state);
+        }
+        state += 0x9E3779B97F4A7C15L;
+        SIDE_TO_MOVE_KEY = mix(state);
+    }
+
+    private PositionHash() {
+    }
+
+    /**
+     * @return the Zobrist hash of the game's current position
+     */
+    public static long of(ChessGame game) {
+        return of(game.getBoard(), game.getTeamTurn());
+    }
+
+    /**
+     * @return the Zobrist hash of the board with the given side to move
+     */
+    public static long of(ChessBoard board, ChessGame.TeamColor sideToMove) {
+        long hash = 0L;
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+                if (piece != null) {
+                    hash ^= PIECE_KEYS[pieceIndex(piece)][square(row, col)];
+                }
+            }
+        } if (canCastle(board, 1, 8)) { //White king-side
+            hash ^= CASTLING_KEYS[0];
+        } if (canCastle(board, 1, 1)) { //White queen-side
+            hash ^= CASTLING_KEYS[1];
+        } if (canCastle(board, 8, 8)) { //Black king-side
+            hash ^= CASTLING_KEYS[2];
+        } if (canCastle(board, 8, 1)) { //Black queen-side
+            hash ^= CASTLING_KEYS[3];
+        }
+        int enPassantFile = enPassantFile(board, sideToMove);
+        if (enPassantFile >= 0) {
+            hash ^= EN_PASSANT_KEYS[enPassantFile];
+        } if (sideToMove == ChessGame.TeamColor.BLACK) {
+            hash ^= SIDE_TO_MOVE_KEY;
+        } return hash;
+    }
+
+    /**
+     * Key for a piece on a square, for callers that update a hash incrementally
+     *
+     * @param pieceIndex see {@link #pieceIndex(ChessPiece)}
+     */
+    public static long pieceKey(int pieceIndex, int square) {
+        return PIECE_KEYS[pieceIndex][square];
+    }
+
+    /**
+     * @param right 0 white king-side, 1 white queen-side, 2 black king-side, 3 black queen-side
+     */
+    public static long castlingKey(int right) {
+        return CASTLING_KEYS[right];
+    }
+
+    /**
+     * @param file 0-7, only mixed in when the en passant capture is available
+     */
+    public static long enPassantKey(int file) {
+        return EN_PASSANT_KEYS[file];
+    }
+
+    public static long sideToMoveKey() {
+        return SIDE_TO_MOVE_KEY;
+    }
+
+    /**
+     * @return 0-63 square index (a1 = 0, h8 = 63) of a 1-indexed row/column
+     */
+    public static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    /**
+     * @return 0-11 index of a piece: white king..pawn, then black king..pawn
+     */
+    public static int pieceIndex(ChessPiece piece) {
+        int offset = piece.getTeamColor() == ChessGame.TeamColor.WHITE ? 0 : 6;
+        return offset + piece.getPieceType().ordinal();
+    }
+
+    private static boolean canCastle(ChessBoard board, int row, int rookCol) {
+        ChessPiece king = board.getPiece(new ChessPosition(row, 5));
+        ChessPiece rook = board.getPiece(new ChessPosition(row, rookCol));
+        ChessGame.TeamColor color = row == 1 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        return king != null && king.getPieceType() == ChessPiece.PieceType.KING && king.getTeamColor() == color
+                && !king.hasMoved && rook != null && rook.getPieceType() == ChessPiece.PieceType.ROOK
+                && rook.getTeamColor() == color && !rook.hasMoved;
+    }
+
+    // Only counts the en passant file when a pawn of the side to move can actually capture there,
+    // so positions that differ only by an unusable double push still transpose
+    private static int enPassantFile(ChessBoard board, ChessGame.TeamColor sideToMove) {
+        int row = sideToMove == ChessGame.TeamColor.WHITE ? 5 : 4;
+        for (int col = 1; col <= 8; col++) {
+            ChessPiece pawn = board.getPiece(new ChessPosition(row, col));
+            if (pawn == null || pawn.getPieceType() != ChessPiece.PieceType.PAWN
+                    || pawn.getTeamColor() == sideToMove || !pawn.pawnJustDoubleMoved) {
+                continue;
+            } for (int side = -1; side <= 1; side += 2) {
+                int captureCol = col + side;
+                if (captureCol < 1 || captureCol > 8) {
+                    continue;
+                }
+                ChessPiece capturer = board.getPiece(new ChessPosition(row, captureCol));
+                if (capturer != null && capturer.getPieceType() == ChessPiece.PieceType.PAWN
+                        && capturer.getTeamColor() == sideToMove) {
+                    return col - 1;
+                }
+            }
+        } return -1;
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
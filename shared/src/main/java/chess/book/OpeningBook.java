@@ -0,0 +1,201 @@
+package chess.book;
+
+import chess.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Read-only opening book, memory-mapped from a file written by {@link OpeningBookBuilder}.
+ * <p>
+ * File layout (big-endian): a 16 byte header (magic, version, entry count, max ply) followed by
+ * fixed-size 16 byte entries sorted by position hash: hash (8), packed move (2), weight (2),
+ * games seen (4). Lookups are a binary search over the mapped file and allocate nothing.
+ * Instances are safe to share between threads.
+ */
+public class OpeningBook implements Closeable {
+    static final int MAGIC = 0x4348424B; // "CHBK"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int ENTRY_SIZE = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int entryCount;
+    private final int maxPly;
+
+    private OpeningBook(FileChannel channel, MappedByteBuffer buffer, int entryCount, int maxPly) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.entryCount = entryCount;
+        this.maxPly = maxPly;
+    }
+
+    /**
+     * Maps a book file into memory
+     *
+     * @throws IOException if the file cannot be read or is not an opening book
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not an opening book: " + path);
+            } if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported opening book version " + buffer.getInt(4) + ": " + path);
+            }
+            int entryCount = buffer.getInt(8);
+            if ((long) HEADER_SIZE + (long) entryCount * ENTRY_SIZE > buffer.capacity()) {
+                throw new IOException("Truncated opening book: " + path);
+            } return new OpeningBook(channel, buffer, entryCount, buffer.getInt(12));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of (position, move) entries in the book
+     */
+    public int entryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return how many plies into each game the book was built from
+     */
+    public int maxPly() {
+        return maxPly;
+    }
+
+    /**
+     * @return index of the first entry for the position, or -1 if the position is not in the book
+     */
+    public int findFirst(long positionHash) {
+        int low = 0;
+        int high = entryCount - 1;
+        while (low <= high) { //Lower-bound binary search
+            int mid = (low + high) >>> 1;
+            if (keyAt(mid) < positionHash) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        } return (low < entryCount && keyAt(low) == positionHash) ? low : -1;
+    }
+
+    public long keyAt(int index) {
+        return buffer.getLong(HEADER_SIZE + index * ENTRY_SIZE);
+    }
+
+    /**
+     * @return the {@link PackedMove} stored at an entry
+     */
+    public int moveAt(int index) {
+        return buffer.getShort(HEADER_SIZE + index * ENTRY_SIZE + 8) & 0xFFFF;
+    }
+
+    public int weightAt(int index) {
+        return buffer.getShort(HEADER_SIZE + index * ENTRY_SIZE + 10) & 0xFFFF;
+    }
+
+    public int gamesAt(int index) {
+        return buffer.getInt(HEADER_SIZE + index * ENTRY_SIZE + 12);
+    }
+
+    /**
+     * Picks a book move for a position with probability proportional to its weight
+     *
+     * @param positionHash the {@link PositionHash} of the position
+     * @param random       a uniformly random non-negative int
+     * @return the {@link PackedMove} chosen, or {@link PackedMove#NONE} if the position is not in the book
+     */
+    public int pickMove(long positionHash, int random) {
+        int first = findFirst(positionHash);
+        if (first < 0) {
+            return PackedMove.NONE;
+        }
+        long total = 0;
+        int end = first;
+        while (end < entryCount && keyAt(end) == positionHash) {
+            total += weightAt(end);
+            end++;
+        } if (total == 0) {
+            return PackedMove.NONE;
+        }
+        long target = Math.floorMod(random, total);
+        for (int i = first; i < end; i++) {
+            target -= weightAt(i);
+            if (target < 0) {
+                return moveAt(i);
+            }
+        } return moveAt(end - 1);
+    }
+
+    /**
+     * Picks a weighted book move for the game's current position and checks it is legal,
+     * guarding against hash collisions
+     *
+     * @return a legal book move, or null if the position is out of book
+     */
+    public ChessMove pickMove(ChessGame game, RandomGenerator random) {
+        int packed = pickMove(PositionHash.of(game), random.nextInt(Integer.MAX_VALUE));
+        if (packed == PackedMove.NONE) {
+            return null;
+        }
+        ChessMove move = PackedMove.unpack(packed);
+        ChessPiece piece = game.getBoard().getPiece(move.getStartPosition());
+        if (piece == null || piece.getTeamColor() != game.getTeamTurn()) {
+            return null;
+        }
+        Collection<ChessMove> legal = game.validMoves(move.getStartPosition());
+        for (ChessMove candidate : legal) {
+            if (candidate.equals(move)) {
+                return candidate;
+            }
+        } return null;
+    }
+
+    /**
+     * Every legal book move with any weight for the game's current position, most weighted first
+     *
+     * @return the moves, or an empty list if the position is out of book
+     */
+    public List<ChessMove> moves(ChessGame game) {
+        long positionHash = PositionHash.of(game);
+        int first = findFirst(positionHash);
+        List<Integer> entries = new ArrayList<>();
+        for (int i = first; i >= 0 && i < entryCount && keyAt(i) == positionHash; i++) {
+            if (weightAt(i) > 0) {
+                entries.add(i);
+            }
+        }
+        entries.sort(Comparator.comparingInt(this::weightAt).reversed());
+        List<ChessMove> moves = new ArrayList<>(entries.size());
+        for (int entry : entries) {
+            ChessMove move = PackedMove.unpack(moveAt(entry));
+            ChessPiece piece = game.getBoard().getPiece(move.getStartPosition());
+            if (piece != null && piece.getTeamColor() == game.getTeamTurn()
+                    && game.validMoves(move.getStartPosition()).contains(move)) {
+                moves.add(move); //Skips moves from a hash collision
+            }
+        } return moves;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
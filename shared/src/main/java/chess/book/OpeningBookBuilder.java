@@ -0,0 +1,168 @@
+package chess.book;
+
+import chess.*;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds an {@link OpeningBook} file from PGN archives.
+ * <p>
+ * Every game contributes its first {@code maxPly} moves. Each (position, move) pair is weighted by
+ * the results it led to from the mover's point of view (win 2, draw 1, loss 0), and pairs seen in
+ * fewer than {@code minGames} games are dropped.
+ * <p>
+ * Usage: {@code OpeningBookBuilder <book.bin> <games.pgn>...}
+ */
+public class OpeningBookBuilder {
+    private final int maxPly;
+    private final int minGames;
+    private final Map<Long, Map<Integer, MoveStats>> positions = new HashMap<>();
+    private int gamesAdded = 0;
+    private int gamesSkipped = 0;
+
+    public OpeningBookBuilder(int maxPly, int minGames) {
+        if (maxPly <= 0 || minGames <= 0) {
+            throw new IllegalArgumentException("maxPly and minGames must be positive");
+        }
+        this.maxPly = maxPly;
+        this.minGames = minGames;
+    }
+
+    private static class MoveStats {
+        int games;
+        long points;
+    }
+
+    /**
+     * Adds every game in a PGN archive
+     *
+     * @return the number of games added
+     */
+    public int addPgn(Reader source) throws IOException {
+        int added = 0;
+        try (PgnReader reader = new PgnReader(source)) {
+            PgnGame game;
+            while ((game = reader.next()) != null) {
+                if (addGame(game)) {
+                    added++;
+                }
+            }
+        } return added;
+    }
+
+    /**
+     * Adds the opening of a single game. Games that do not start from the standard position
+     * or contain an unreadable move are skipped.
+     *
+     * @return true if the game was added
+     */
+    public boolean addGame(PgnGame pgnGame) {
+        if (pgnGame.tags().containsKey("FEN") || pgnGame.sanMoves().isEmpty()) {
+            gamesSkipped++;
+            return false;
+        }
+        ChessGame game = new ChessGame();
+        List<long[]> line = new ArrayList<>(); //{hash, packed move, mover}
+        try {
+            for (int ply = 0; ply < maxPly && ply < pgnGame.sanMoves().size(); ply++) {
+                ChessMove move = SanMove.resolve(game, pgnGame.sanMoves().get(ply));
+                long mover = game.getTeamTurn().ordinal();
+                line.add(new long[]{PositionHash.of(game), PackedMove.pack(move), mover});
+                game.makeMove(move);
+            }
+        } catch (InvalidMoveException e) {
+            gamesSkipped++;
+            return false;
+        }
+        for (long[] step : line) {
+            MoveStats stats = positions.computeIfAbsent(step[0], k -> new HashMap<>())
+                    .computeIfAbsent((int) step[1], k -> new MoveStats());
+            stats.games++;
+            stats.points += points(pgnGame.result(), ChessGame.TeamColor.values()[(int) step[2]]);
+        }
+        gamesAdded++;
+        return true;
+    }
+
+    public int gamesAdded() {
+        return gamesAdded;
+    }
+
+    public int gamesSkipped() {
+        return gamesSkipped;
+    }
+
+    /**
+     * Writes the book, sorted by position hash
+     *
+     * @return the number of entries written
+     */
+    public int write(Path output) throws IOException {
+        List<long[]> entries = new ArrayList<>(); //{hash, packed move, weight, games}
+        for (Map.Entry<Long, Map<Integer, MoveStats>> position : positions.entrySet()) {
+            long maxPoints = 0;
+            for (MoveStats stats : position.getValue().values()) {
+                if (stats.games >= minGames) {
+                    maxPoints = Math.max(maxPoints, stats.points);
+                }
+            }
+            double scale = maxPoints > 0xFFFF ? (double) 0xFFFF / maxPoints : 1.0;
+            for (Map.Entry<Integer, MoveStats> move : position.getValue().entrySet()) {
+                MoveStats stats = move.getValue();
+                long weight = Math.round(stats.points * scale);
+                if (stats.games >= minGames && weight > 0) {
+                    entries.add(new long[]{position.getKey(), move.getKey(), weight, stats.games});
+                }
+            }
+        }
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[2], a[2]));
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeInt(entries.size());
+            out.writeInt(maxPly);
+            for (long[] entry : entries) {
+                out.writeLong(entry[0]);
+                out.writeShort((int) entry[1]);
+                out.writeShort((int) entry[2]);
+                out.writeInt((int) Math.min(entry[3], Integer.MAX_VALUE));
+            }
+        } return entries.size();
+    }
+
+    private static int points(String result, ChessGame.TeamColor mover) {
+        return switch (result) {
+            case "1-0" -> mover == ChessGame.TeamColor.WHITE ? 2 : 0;
+            case "0-1" -> mover == ChessGame.TeamColor.BLACK ? 2 : 0;
+            default -> 1; //Draws and unfinished games
+        };
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: OpeningBookBuilder <book.bin> <games.pgn>...");
+            System.exit(1);
+        }
+        OpeningBookBuilder builder = new OpeningBookBuilder(20, 3);
+        for (int i = 1; i < args.length; i++) {
+            try (BufferedReader reader = Files.newBufferedReader(Path.of(args[i]), StandardCharsets.ISO_8859_1)) {
+                System.out.printf("%s: %d games%n", args[i], builder.addPgn(reader));
+            }
+        }
+        int entries = builder.write(Path.of(args[0]));
+        System.out.printf("Wrote %d entries from %d games (%d skipped) to %s%n",
+                entries, builder.gamesAdded(), builder.gamesSkipped(), args[0]);
+    }
+}
@@ -0,0 +1,14 @@
+package chess.book;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single game read from a PGN archive: its tag pairs, its main line in SAN and its result
+ * ("1-0", "0-1", "1/2-1/2" or "*")
+ */
+public record PgnGame(
+        Map<String, String> tags,
+        List<String> sanMoves,
+        String result
+) {}
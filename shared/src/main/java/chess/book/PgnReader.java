@@ -0,0 +1,146 @@
+package chess.book;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams games out of a PGN archive one at a time.
+ * Comments, variations and NAGs are skipped; only the main line is kept.
+ */
+public class PgnReader implements Closeable {
+    private final PushbackReader reader;
+
+    public PgnReader(Reader reader) {
+        this.reader = new PushbackReader(reader, 1);
+    }
+
+    /**
+     * @return the next game in the archive, or null once the archive is exhausted
+     */
+    public PgnGame next() throws IOException {
+        Map<String, String> tags = new HashMap<>();
+        List<String> moves = new ArrayList<>();
+        boolean started = false;
+        while (true) {
+            int c = reader.read();
+            if (c == -1) {
+                return started ? finish(tags, moves, null) : null;
+            } if (Character.isWhitespace(c)) {
+                continue;
+            } if (c == '[') {
+                if (!moves.isEmpty()) { //Tags of the next game, current one had no result token
+                    reader.unread(c);
+                    return finish(tags, moves, null);
+                }
+                readTag(tags);
+                started = true;
+            } else if (c == '{') {
+                skipUntil('}');
+            } else if (c == ';') {
+                skipUntil('\n');
+            } else if (c == '(') {
+                skipVariation();
+            } else if (c == '$') {
+                readToken(c); //Numeric annotation glyph
+            } else {
+                started = true;
+                String token = readToken(c);
+                if (isResult(token)) {
+                    return finish(tags, moves, token);
+                }
+                String move = stripMoveNumber(token);
+                if (!move.isEmpty()) {
+                    moves.add(move);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private PgnGame finish(Map<String, String> tags, List<String> moves, String resultToken) {
+        String result = resultToken != null ? resultToken : tags.getOrDefault("Result", "*");
+        return new PgnGame(tags, moves, result);
+    }
+
+    private void readTag(Map<String, String> tags) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        boolean inQuotes = false;
+        while ((c = reader.read()) != -1) {
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (c == ']' && !inQuotes) {
+                break;
+            } sb.append((char) c);
+        }
+        String tag = sb.toString().trim();
+        int space = tag.indexOf(' ');
+        if (space > 0) {
+            String value = tag.substring(space + 1).trim();
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            } tags.put(tag.substring(0, space), value);
+        }
+    }
+
+    private String readToken(int first) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append((char) first);
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (Character.isWhitespace(c) || c == '{' || c == '(' || c == ')' || c == ';' || c == '[') {
+                reader.unread(c);
+                break;
+            } sb.append((char) c);
+        } return sb.toString();
+    }
+
+    private void skipUntil(char end) throws IOException {
+        int c;
+        while ((c = reader.read()) != -1 && c != end) {
+            // Skip comment contents
+        }
+    }
+
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        int c;
+        while (depth > 0 && (c = reader.read()) != -1) {
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '{') {
+                skipUntil('}');
+            }
+        }
+    }
+
+    private static boolean isResult(String token) {
+        return token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2") || token.equals("*");
+    }
+
+    // Handles "12.", "12..." and "12.e4"
+    private static String stripMoveNumber(String token) {
+        int i = 0;
+        while (i < token.length() && Character.isDigit(token.charAt(i))) {
+            i++;
+        } if (i == 0) {
+            return token;
+        } if (i < token.length() && token.charAt(i) == '.') {
+            while (i < token.length() && token.charAt(i) == '.') {
+                i++;
+            } return token.substring(i);
+        } return token; //Not a move number (e.g. "0-0" castling)
+    }
+}
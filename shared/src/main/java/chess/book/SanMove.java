@@ -0,0 +1,117 @@
+package chess.book;
+
+import chess.*;
+
+import java.util.Collection;
+
+/**
+ * Resolves Standard Algebraic Notation (e.g. "Nbd7", "exd5", "e8=Q+", "O-O") into a ChessMove
+ * that is legal in a given game
+ */
+public final class SanMove {
+
+    private SanMove() {
+    }
+
+    public static ChessMove resolve(ChessGame game, String san) throws InvalidMoveException {
+        String text = stripSuffixes(san);
+        ChessGame.TeamColor side = game.getTeamTurn();
+        int homeRow = side == ChessGame.TeamColor.WHITE ? 1 : 8;
+        if (text.equals("O-O") || text.equals("0-0")) {
+            return findUnique(game, ChessPiece.PieceType.KING, new ChessPosition(homeRow, 7), null, 0, 0, san);
+        } if (text.equals("O-O-O") || text.equals("0-0-0")) {
+            return findUnique(game, ChessPiece.PieceType.KING, new ChessPosition(homeRow, 3), null, 0, 0, san);
+        }
+
+        ChessPiece.PieceType promotion = null;
+        int equals = text.indexOf('=');
+        if (equals >= 0) {
+            promotion = pieceType(text.charAt(equals + 1), san);
+            text = text.substring(0, equals);
+        } else if (text.length() > 2 && "QRBN".indexOf(text.charAt(text.length() - 1)) >= 0
+                && Character.isDigit(text.charAt(text.length() - 2))) { //"e8Q" without '='
+            promotion = pieceType(text.charAt(text.length() - 1), san);
+            text = text.substring(0, text.length() - 1);
+        }
+
+        ChessPiece.PieceType type = ChessPiece.PieceType.PAWN;
+        if (!text.isEmpty() && "KQRBN".indexOf(text.charAt(0)) >= 0) {
+            type = pieceType(text.charAt(0), san);
+            text = text.substring(1);
+        }
+        text = text.replace("x", "").replace("-", "");
+        if (text.length() < 2) {
+            throw new InvalidMoveException("Unreadable move: " + san);
+        }
+        ChessPosition target = parseSquare(text.substring(text.length() - 2), san);
+        String disambiguation = text.substring(0, text.length() - 2);
+        int fromCol = 0;
+        int fromRow = 0;
+        for (char c : disambiguation.toCharArray()) {
+            if (c >= 'a' && c <= 'h') {
+                fromCol = c - 'a' + 1;
+            } else if (c >= '1' && c <= '8') {
+                fromRow = c - '1' + 1;
+            } else {
+                throw new InvalidMoveException("Unreadable move: " + san);
+            }
+        } return findUnique(game, type, target, promotion, fromRow, fromCol, san);
+    }
+
+    private static ChessMove findUnique(ChessGame game, ChessPiece.PieceType type, ChessPosition target,
+                                        ChessPiece.PieceType promotion, int fromRow, int fromCol, String san)
+            throws InvalidMoveException {
+        ChessMove found = null;
+        ChessBoard board = game.getBoard();
+        for (int row = 1; row <= 8; row++) {
+            if (fromRow != 0 && row != fromRow) {
+                continue;
+            } for (int col = 1; col <= 8; col++) {
+                if (fromCol != 0 && col != fromCol) {
+                    continue;
+                }
+                ChessPosition start = new ChessPosition(row, col);
+                ChessPiece piece = board.getPiece(start);
+                if (piece == null || piece.getPieceType() != type || piece.getTeamColor() != game.getTeamTurn()) {
+                    continue;
+                }
+                Collection<ChessMove> moves = game.validMoves(start);
+                for (ChessMove move : moves) {
+                    if (move.getEndPosition().equals(target) && move.getPromotionPiece() == promotion) {
+                        if (found != null) {
+                            throw new InvalidMoveException("Ambiguous move: " + san);
+                        } found = move;
+                    }
+                }
+            }
+        } if (found == null) {
+            throw new InvalidMoveException("Illegal move: " + san);
+        } return found;
+    }
+
+    private static String stripSuffixes(String san) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        } return san.substring(0, end);
+    }
+
+    private static ChessPosition parseSquare(String square, String san) throws InvalidMoveException {
+        char file = square.charAt(0);
+        char rank = square.charAt(1);
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+            throw new InvalidMoveException("Unreadable move: " + san);
+        } return new ChessPosition(rank - '1' + 1, file - 'a' + 1);
+    }
+
+    private static ChessPiece.PieceType pieceType(char letter, String san) throws InvalidMoveException {
+        return switch (letter) {
+            case 'K' -> ChessPiece.PieceType.KING;
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            case 'N' -> ChessPiece.PieceType.KNIGHT;
+            default -> throw new InvalidMoveException("Unknown piece in move: " + san);
+        };
+    }
+}
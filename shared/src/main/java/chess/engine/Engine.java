@@ -0,0 +1,346 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.book.OpeningBook;
+import chess.tablebase.Tablebase;
+import chess.tablebase.TablebaseResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks moves for a computer player.
+ * <p>
+ * The opening book is consulted first, then the endgame tablebase, and otherwise an iterative
+ * deepening alpha-beta search runs until its depth or time limit. The book, tablebase and
+ * transposition table are all optional and may be shared, so one Engine can serve many threads
+ * at once. A search stops early if its thread is interrupted.
+ */
+public class Engine {
+    private static final int INFINITY = 32_000;
+    private static final int MAX_PLY = 128;
+
+    private final OpeningBook book;
+    private final Tablebase tablebase;
+    private final TranspositionTable table;
+
+    public Engine(OpeningBook book, Tablebase tablebase, TranspositionTable table) {
+        this.book = book;
+        this.tablebase = tablebase;
+        this.table = table != null ? table : new TranspositionTable(1);
+    }
+
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        if (book != null) {
+            ChessMove move = book.pickMove(game, ThreadLocalRandom.current());
+            if (move != null) {
+                return new SearchResult(move, 0, 0, List.of(move), 0, SearchResult.Source.BOOK);
+            }
+        } if (tablebase != null) {
+            SearchResult result = probeTablebase(game);
+            if (result != null) {
+                return result;
+            }
+        } return new Search(new SearchBoard(game), table, limits).run();
+    }
+
+    // Tries every legal move and keeps the one whose resulting position is best for us
+    private SearchResult probeTablebase(ChessGame game) {
+        if (tablebase.probe(game) == null) {
+            return null;
+        }
+        SearchBoard board = new SearchBoard(game);
+        int[] moves = new int[SearchBoard.MAX_MOVES];
+        int count = board.generate(moves, false);
+        ChessMove bestMove = null;
+        int bestScore = -INFINITY;
+        for (int i = 0; i < count; i++) {
+            if (!board.makeLegal(moves[i])) {
+                continue;
+            }
+            board.unmake();
+            ChessMove move = SearchBoard.toChessMove(moves[i]);
+            ChessGame child = new ChessGame(game);
+            try {
+                child.makeMove(move);
+            } catch (InvalidMoveException e) {
+                continue;
+            }
+            TablebaseResult reply = tablebase.probe(child);
+            int score = 0; //Captured the last piece, or the table has no entry for the result
+            if (reply != null && reply.outcome() == TablebaseResult.Outcome.LOSS) {
+                score = SearchResult.MATE - reply.pliesToMate() - 1;
+            } else if (reply != null && reply.outcome() == TablebaseResult.Outcome.WIN) {
+                score = -SearchResult.MATE + reply.pliesToMate() + 1;
+            } if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+            }
+        } if (bestMove == null) {
+            return null;
+        } return new SearchResult(bestMove, bestScore, 0, List.of(bestMove), 0, SearchResult.Source.TABLEBASE);
+    }
+
+    /**
+     * State for a single search. Not shared between threads; only the transposition table is.
+     */
+    private static final class Search {
+        private final SearchBoard board;
+        private final TranspositionTable table;
+        private final SearchLimits limits;
+        private final long deadline;
+        private final int[][] moves = new int[MAX_PLY][SearchBoard.MAX_MOVES];
+        private final int[][] orderScores = new int[MAX_PLY][SearchBoard.MAX_MOVES];
+        private final int[][] killers = new int[MAX_PLY][2];
+        private final int[][] history = new int[13][64];
+        private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+        private final int[] pvLength = new int[MAX_PLY];
+        private long nodes;
+        private boolean stopped;
+
+        Search(SearchBoard board, TranspositionTable table, SearchLimits limits) {
+            this.board = board;
+            this.table = table;
+            this.limits = limits;
+            this.deadline = System.nanoTime() + limits.timeMillis() * 1_000_000L;
+        }
+
+        SearchResult run() {
+            long start = System.nanoTime();
+            int bestMove = firstLegalMove();
+            int bestScore = 0;
+            int completedDepth = 0;
+            List<ChessMove> line = List.of();
+            if (bestMove == 0) {
+                return new SearchResult(null, board.inCheck() ? -SearchResult.MATE : 0, 0, line, 0,
+                        SearchResult.Source.SEARCH);
+            }
+            for (int depth = 1; depth <= limits.maxDepth(); depth++) {
+                int score = negamax(depth, -INFINITY, INFINITY, 0, true);
+                if (stopped) {
+                    break; //Keep the last complete iteration, or any legal move if none finished
+                }
+                bestMove = pv[0][0];
+                bestScore = score;
+                completedDepth = depth;
+                line = new ArrayList<>();
+                for (int i = 0; i < pvLength[0]; i++) {
+                    line.add(SearchBoard.toChessMove(pv[0][i]));
+                } if (stopped || Math.abs(score) >= SearchResult.MATE - depth) {
+                    break;
+                } if ((System.nanoTime() - start) * 2 > limits.timeMillis() * 1_000_000L) {
+                    break; //The next iteration would not finish in time
+                }
+            } if (line.isEmpty()) {
+                line = List.of(SearchBoard.toChessMove(bestMove));
+            } return new SearchResult(SearchBoard.toChessMove(bestMove), bestScore, completedDepth,
+                    List.copyOf(line), nodes, SearchResult.Source.SEARCH);
+        }
+
+        private int firstLegalMove() {
+            int[] list = moves[0];
+            int count = board.generate(list, false);
+            for (int i = 0; i < count; i++) {
+                if (board.makeLegal(list[i])) {
+                    board.unmake();
+                    return list[i];
+                }
+            } return 0;
+        }
+
+        private int negamax(int depth, int alpha, int beta, int ply, boolean allowNull) {
+            pvLength[ply] = 0;
+            if ((++nodes & 1023) == 0 && (System.nanoTime() > deadline || Thread.currentThread().isInterrupted())) {
+                stopped = true;
+            } if (stopped) {
+                return 0;
+            } if (ply > 0 && (board.isRepetition() || board.halfmoveClock() >= 100)) {
+                return 0;
+            }
+            boolean inCheck = board.inCheck();
+            if (inCheck) {
+                depth++;
+            } if (depth <= 0 || ply >= MAX_PLY - 1) {
+                return quiescence(alpha, beta, ply);
+            }
+
+            long entry = table.probe(board.hash());
+            int hashMove = TranspositionTable.move(entry);
+            if (entry != 0 && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+
+            boolean pvNode = beta - alpha > 1;
+            if (allowNull && !pvNode && !inCheck && depth >= 3 && board.hasNonPawnMaterial()
+                    && Math.abs(beta) < SearchResult.MATE - MAX_PLY) {
+                board.makeNull();
+                int score = -negamax(depth - 3, -beta, -beta + 1, ply + 1, false);
+                board.unmakeNull();
+                if (stopped) {
+                    return 0;
+                } if (score >= beta) {
+                    return beta;
+                }
+            }
+
+            int[] list = moves[ply];
+            int count = board.generate(list, false);
+            scoreMoves(list, count, ply, hashMove);
+            int originalAlpha = alpha;
+            int bestScore = -INFINITY;
+            int bestMove = 0;
+            int legal = 0;
+            for (int i = 0; i < count; i++) {
+                int move = pickNext(list, count, i, ply);
+                if (!board.makeLegal(move)) {
+                    continue;
+                }
+                legal++;
+                int score;
+                if (legal == 1) {
+                    score = -negamax(depth - 1, -beta, -alpha, ply + 1, true);
+                } else { //Prove the move is no better with a null window before a full search
+                    score = -negamax(depth - 1, -alpha - 1, -alpha, ply + 1, true);
+                    if (score > alpha && score < beta) {
+                        score = -negamax(depth - 1, -beta, -alpha, ply + 1, true);
+                    }
+                }
+                board.unmake();
+                if (stopped) {
+                    return 0;
+                } if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = move;
+                    if (score > alpha) {
+                        alpha = score;
+                        updatePv(ply, move);
+                    }
+                } if (alpha >= beta) {
+                    if (isQuiet(move)) {
+                        if (killers[ply][0] != move) {
+                            killers[ply][1] = killers[ply][0];
+                            killers[ply][0] = move;
+                        }
+                        history[board.pieceAt(SearchBoard.from(move))][SearchBoard.to(move)] += depth * depth;
+                    } break;
+                }
+            } if (legal == 0) {
+                return inCheck ? -SearchResult.MATE + ply : 0;
+            }
+            int bound = bestScore >= beta ? TranspositionTable.LOWER
+                    : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            table.store(board.hash(), bestMove, toTable(bestScore, ply), depth, bound);
+            return bestScore;
+        }
+
+        private int quiescence(int alpha, int beta, int ply) {
+            pvLength[ply] = 0;
+            if ((++nodes & 1023) == 0 && (System.nanoTime() > deadline || Thread.currentThread().isInterrupted())) {
+                stopped = true;
+            } if (stopped) {
+                return 0;
+            }
+            int standPat = Evaluator.evaluate(board);
+            if (standPat >= beta || ply >= MAX_PLY - 1) {
+                return standPat;
+            } if (standPat > alpha) {
+                alpha = standPat;
+            }
+            int[] list = moves[ply];
+            int count = board.generate(list, true);
+            scoreMoves(list, count, ply, 0);
+            for (int i = 0; i < count; i++) {
+                int move = pickNext(list, count, i, ply);
+                if (!board.makeLegal(move)) {
+                    continue;
+                }
+                int score = -quiescence(-beta, -alpha, ply + 1);
+                board.unmake();
+                if (stopped) {
+                    return 0;
+                } if (score >= beta) {
+                    return score;
+                } if (score > alpha) {
+                    alpha = score;
+                }
+            } return alpha;
+        }
+
+        // Hash move first, then captures by most valuable victim / least valuable attacker, then killers and history
+        private void scoreMoves(int[] list, int count, int ply, int hashMove) {
+            int[] scores = orderScores[ply];
+            for (int i = 0; i < count; i++) {
+                int move = list[i];
+                int victim = board.pieceAt(SearchBoard.to(move));
+                int attacker = board.pieceAt(SearchBoard.from(move));
+                if (move == hashMove) {
+                    scores[i] = 1_000_000;
+                } else if (victim != 0 || (move & SearchBoard.EN_PASSANT_FLAG) != 0 || SearchBoard.promotion(move) != 0) {
+                    int victimValue = victim == 0 ? Evaluator.value(SearchBoard.PAWN) : Evaluator.value(SearchBoard.type(victim));
+                    scores[i] = 100_000 + victimValue * 10 + Evaluator.value(SearchBoard.promotion(move))
+                            - Evaluator.value(SearchBoard.type(attacker)) / 10;
+                } else if (move == killers[ply][0]) {
+                    scores[i] = 90_000;
+                } else if (move == killers[ply][1]) {
+                    scores[i] = 80_000;
+                } else {
+                    scores[i] = Math.min(history[attacker][SearchBoard.to(move)], 70_000);
+                }
+            }
+        }
+
+        // Selection sort step: move the best remaining move to position i
+        private int pickNext(int[] list, int count, int i, int ply) {
+            int[] scores = orderScores[ply];
+            int best = i;
+            for (int j = i + 1; j < count; j++) {
+                if (scores[j] > scores[best]) {
+                    best = j;
+                }
+            }
+            int move = list[best];
+            list[best] = list[i];
+            list[i] = move;
+            int score = scores[best];
+            scores[best] = scores[i];
+            scores[i] = score;
+            return move;
+        }
+
+        private boolean isQuiet(int move) {
+            return board.pieceAt(SearchBoard.to(move)) == 0 && (move & SearchBoard.EN_PASSANT_FLAG) == 0
+                    && SearchBoard.promotion(move) == 0;
+        }
+
+        private void updatePv(int ply, int move) {
+            pv[ply][0] = move;
+            System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+            pvLength[ply] = pvLength[ply + 1] + 1;
+        }
+
+        // Mate scores are stored relative to the node so they stay correct when reached at another ply
+        private static int toTable(int score, int ply) {
+            if (score >= SearchResult.MATE - MAX_PLY) {
+                return score + ply;
+            } if (score <= -SearchResult.MATE + MAX_PLY) {
+                return score - ply;
+            } return score;
+        }
+
+        private static int fromTable(int score, int ply) {
+            if (score >= SearchResult.MATE - MAX_PLY) {
+                return score - ply;
+            } if (score <= -SearchResult.MATE + MAX_PLY) {
+                return score + ply;
+            } return score;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package chess.engine;
+
+/**
+ * Static evaluation: material plus piece-square tables, with the king table blended from
+ * middlegame to endgame as pieces come off. Scores are centipawns for the side to move.
+ */
+final class Evaluator {
+    private static final int[] VALUES = {0, 0, 900, 330, 320, 500, 100}; //Indexed by piece type
+    private static final int[] PHASE = {0, 0, 4, 1, 1, 2, 0};
+    private static final int MAX_PHASE = 24;
+
+    // Tables are written from white's side with rank 8 first, so white looks up square ^ 56
+    private static final int[] PAWN_TABLE = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0
+    };
+    private static final int[] KNIGHT_TABLE = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50
+    };
+    private static final int[] BISHOP_TABLE = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20
+    };
+    private static final int[] ROOK_TABLE = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0
+    };
+    private static final int[] QUEEN_TABLE = {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20
+    };
+    private static final int[] KING_MIDDLE_TABLE = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20
+    };
+    private static final int[] KING_END_TABLE = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50
+    };
+    private static final int[][] TABLES = {null, null, QUEEN_TABLE, BISHOP_TABLE, KNIGHT_TABLE, ROOK_TABLE, PAWN_TABLE};
+
+    private Evaluator() {
+    }
+
+    static int value(int type) {
+        return VALUES[type];
+    }
+
+    static int evaluate(SearchBoard board) {
+        int[] score = new int[2];
+        int[] kingMiddle = new int[2];
+        int[] kingEnd = new int[2];
+        int phase = 0;
+        for (int square = 0; square < 64; square++) {
+            int code = board.pieceAt(square);
+            if (code == 0) {
+                continue;
+            }
+            int type = SearchBoard.type(code);
+            int color = SearchBoard.color(code);
+            int index = color == SearchBoard.WHITE ? square ^ 56 : square;
+            if (type == SearchBoard.KING) {
+                kingMiddle[color] = KING_MIDDLE_TABLE[index];
+                kingEnd[color] = KING_END_TABLE[index];
+                continue;
+            }
+            score[color] += VALUES[type] + TABLES[type][index];
+            phase += PHASE[type];
+        }
+        phase = Math.min(phase, MAX_PHASE);
+        for (int color = 0; color < 2; color++) {
+            score[color] += (kingMiddle[color] * phase + kingEnd[color] * (MAX_PHASE - phase)) / MAX_PHASE;
+        }
+        int side = board.sideToMove();
+        return score[side] - score[side ^ 1];
+    }
+}
@@ -0,0 +1,472 @@
+package chess.engine;
+
+import chess.*;
+
+/**
+ * Mutable mailbox board used by the search.
+ * <p>
+ * Unlike ChessGame it makes and unmakes moves in place without allocating, and keeps a Zobrist hash
+ * that always equals {@link PositionHash#of(ChessGame)} for the same position. Squares are 0-63
+ * (a1 = 0); pieces are 1-6 for white and 7-12 for black, in {@link ChessPiece.PieceType} order.
+ * Moves are ints: bits 0-5 start square, bits 6-11 end square, bits 12-14 promotion piece type,
+ * plus flags for en passant and castling.
+ */
+final class SearchBoard {
+    static final int WHITE = 0;
+    static final int BLACK = 1;
+
+    static final int KING = 1;
+    static final int QUEEN = 2;
+    static final int BISHOP = 3;
+    static final int KNIGHT = 4;
+    static final int ROOK = 5;
+    static final int PAWN = 6;
+
+    static final int EN_PASSANT_FLAG = 1 << 15;
+    static final int CASTLE_FLAG = 1 << 16;
+    static final int MAX_MOVES = 256;
+
+    private static final int MAX_HISTORY = 1024;
+    private static final int[][] KNIGHT_TARGETS = new int[64][];
+    private static final int[][] KING_TARGETS = new int[64][];
+    private static final int[][][] PAWN_TARGETS = new int[2][64][];
+    private static final int[][][] RAYS = new int[64][8][]; //0-3 orthogonal, 4-7 diagonal
+    private static final int[] CASTLE_MASK = new int[64];
+
+    static {
+        int[][] knight = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        int[][] king = {{1, 0}, {0, 1}, {-1, 0}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_TARGETS[square] = targets(square, knight, false);
+            KING_TARGETS[square] = targets(square, king, false);
+            PAWN_TARGETS[WHITE][square] = targets(square, new int[][]{{1, -1}, {1, 1}}, false);
+            PAWN_TARGETS[BLACK][square] = targets(square, new int[][]{{-1, -1}, {-1, 1}}, false);
+            for (int direction = 0; direction < 8; direction++) {
+                RAYS[square][direction] = targets(square, new int[][]{king[direction]}, true);
+            }
+        }
+        CASTLE_MASK[0] = 2;
+        CASTLE_MASK[4] = 3;
+        CASTLE_MASK[7] = 1;
+        CASTLE_MASK[56] = 8;
+        CASTLE_MASK[60] = 12;
+        CASTLE_MASK[63] = 4;
+    }
+
+    private final int[] squares = new int[64];
+    private final int[] kings = new int[2];
+    private int side;
+    private int castling; //Bit i matches PositionHash.castlingKey(i)
+    private int enPassantSquare = -1; //Square behind a pawn that just moved two, or -1
+    private long enPassantKey; //Key currently mixed into the hash for that square, or 0
+    private int halfmoveClock;
+    private long hash;
+
+    private int depth;
+    private final int[] moveStack = new int[MAX_HISTORY];
+    private final int[] capturedStack = new int[MAX_HISTORY];
+    private final int[] castlingStack = new int[MAX_HISTORY];
+    private final int[] enPassantStack = new int[MAX_HISTORY];
+    private final long[] enPassantKeyStack = new long[MAX_HISTORY];
+    private final int[] clockStack = new int[MAX_HISTORY];
+    private final long[] hashStack = new long[MAX_HISTORY];
+
+    SearchBoard(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        side = game.getTeamTurn() == ChessGame.TeamColor.WHITE ? WHITE : BLACK;
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(PackedMove.position(square));
+            if (piece == null) {
+                continue;
+            }
+            int code = PositionHash.pieceIndex(piece) + 1;
+            squares[square] = code;
+            if (type(code) == KING) {
+                kings[color(code)] = square;
+            } if (type(code) == PAWN && piece.pawnJustDoubleMoved && color(code) != side) {
+                enPassantSquare = color(code) == WHITE ? square - 8 : square + 8;
+            }
+        }
+        castling = rights(board, 1, 8, 1) | rights(board, 1, 1, 2) | rights(board, 8, 8, 4) | rights(board, 8, 1, 8);
+        enPassantKey = enPassantKey();
+        hash = PositionHash.of(game);
+    }
+
+    static int type(int code) {
+        return (code - 1) % 6 + 1;
+    }
+
+    static int color(int code) {
+        return code > 6 ? BLACK : WHITE;
+    }
+
+    static int from(int move) {
+        return move & 0x3F;
+    }
+
+    static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    static int promotion(int move) {
+        return (move >>> 12) & 0x7;
+    }
+
+    static ChessMove toChessMove(int move) {
+        int promotion = promotion(move);
+        return new ChessMove(PackedMove.position(from(move)), PackedMove.position(to(move)),
+                promotion == 0 ? null : ChessPiece.PieceType.values()[promotion - 1]);
+    }
+
+    int pieceAt(int square) {
+        return squares[square];
+    }
+
+    int sideToMove() {
+        return side;
+    }
+
+    long hash() {
+        return hash;
+    }
+
+    boolean inCheck() {
+        return isAttacked(kings[side], side ^ 1);
+    }
+
+    /**
+     * @return true if the side to move still has a piece other than pawns and its king
+     */
+    boolean hasNonPawnMaterial() {
+        for (int code : squares) {
+            if (code != 0 && color(code) == side && type(code) != PAWN && type(code) != KING) {
+                return true;
+            }
+        } return false;
+    }
+
+    /**
+     * @return true if the position already occurred since the last capture or pawn move
+     */
+    boolean isRepetition() {
+        for (int i = depth - 2; i >= 0 && i >= depth - halfmoveClock; i -= 2) {
+            if (hashStack[i] == hash) {
+                return true;
+            }
+        } return false;
+    }
+
+    int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * Writes pseudo-legal moves into the buffer, which must hold {@link #MAX_MOVES} entries
+     *
+     * @return the number of moves written
+     */
+    int generate(int[] moves, boolean capturesOnly) {
+        int count = 0;
+        for (int from = 0; from < 64; from++) {
+            int code = squares[from];
+            if (code == 0 || color(code) != side) {
+                continue;
+            } switch (type(code)) {
+                case PAWN -> count = pawnMoves(moves, count, from, capturesOnly);
+                case KNIGHT -> count = stepMoves(moves, count, from, KNIGHT_TARGETS[from], capturesOnly);
+                case KING -> {
+                    count = stepMoves(moves, count, from, KING_TARGETS[from], capturesOnly);
+                    if (!capturesOnly) {
+                        count = castlingMoves(moves, count);
+                    }
+                }
+                case BISHOP -> count = slideMoves(moves, count, from, 4, 8, capturesOnly);
+                case ROOK -> count = slideMoves(moves, count, from, 0, 4, capturesOnly);
+                default -> count = slideMoves(moves, count, from, 0, 8, capturesOnly);
+            }
+        } return count;
+    }
+
+    /**
+     * Plays a pseudo-legal move, undoing it again if it leaves the mover's king in check
+     *
+     * @return whether the move was legal and is now on the board
+     */
+    boolean makeLegal(int move) {
+        make(move);
+        if (isAttacked(kings[side ^ 1], side)) {
+            unmake();
+            return false;
+        } return true;
+    }
+
+    void make(int move) {
+        push(move);
+        int from = from(move);
+        int to = to(move);
+        int code = squares[from];
+        int captured = squares[to];
+        hash ^= enPassantKey;
+        hash ^= castlingHash(castling);
+
+        if ((move & EN_PASSANT_FLAG) != 0) {
+            int victimSquare = side == WHITE ? to - 8 : to + 8;
+            captured = squares[victimSquare];
+            remove(victimSquare);
+        } else if (captured != 0) {
+            remove(to);
+        }
+        capturedStack[depth - 1] = captured;
+        remove(from);
+        int promotion = promotion(move);
+        put(to, promotion == 0 ? code : promotion + side * 6);
+        if ((move & CASTLE_FLAG) != 0) {
+            int rookFrom = to > from ? to + 1 : to - 2;
+            int rookTo = to > from ? to - 1 : to + 1;
+            int rook = squares[rookFrom];
+            remove(rookFrom);
+            put(rookTo, rook);
+        } if (type(code) == KING) {
+            kings[side] = to;
+        }
+
+        castling &= ~(CASTLE_MASK[from] | CASTLE_MASK[to]);
+        hash ^= castlingHash(castling);
+        halfmoveClock = type(code) == PAWN || captured != 0 ? 0 : halfmoveClock + 1;
+        enPassantSquare = type(code) == PAWN && Math.abs(to - from) == 16 ? (from + to) / 2 : -1;
+        side ^= 1;
+        hash ^= PositionHash.sideToMoveKey();
+        enPassantKey = enPassantKey();
+        hash ^= enPassantKey;
+    }
+
+    void unmake() {
+        depth--;
+        int move = moveStack[depth];
+        side ^= 1;
+        int from = from(move);
+        int to = to(move);
+        int moved = promotion(move) == 0 ? squares[to] : PAWN + side * 6;
+        squares[to] = 0;
+        squares[from] = moved;
+        int captured = capturedStack[depth];
+        if ((move & EN_PASSANT_FLAG) != 0) {
+            squares[side == WHITE ? to - 8 : to + 8] = captured;
+        } else {
+            squares[to] = captured;
+        } if ((move & CASTLE_FLAG) != 0) {
+            int rookFrom = to > from ? to + 1 : to - 2;
+            int rookTo = to > from ? to - 1 : to + 1;
+            squares[rookFrom] = squares[rookTo];
+            squares[rookTo] = 0;
+        } if (type(moved) == KING) {
+            kings[side] = from;
+        }
+        pop();
+    }
+
+    /**
+     * Passes the turn, used by null-move pruning. Must not be called while in check.
+     */
+    void makeNull() {
+        push(0);
+        capturedStack[depth - 1] = 0;
+        hash ^= enPassantKey;
+        enPassantSquare = -1;
+        enPassantKey = 0L;
+        halfmoveClock++;
+        side ^= 1;
+        hash ^= PositionHash.sideToMoveKey();
+    }
+
+    void unmakeNull() {
+        depth--;
+        side ^= 1;
+        pop();
+    }
+
+    boolean isAttacked(int square, int bySide) {
+        int offset = bySide * 6;
+        for (int target : PAWN_TARGETS[bySide ^ 1][square]) {
+            if (squares[target] == PAWN + offset) {
+                return true;
+            }
+        } for (int target : KNIGHT_TARGETS[square]) {
+            if (squares[target] == KNIGHT + offset) {
+                return true;
+            }
+        } for (int target : KING_TARGETS[square]) {
+            if (squares[target] == KING + offset) {
+                return true;
+            }
+        } for (int direction = 0; direction < 8; direction++) {
+            int slider = direction < 4 ? ROOK + offset : BISHOP + offset;
+            for (int target : RAYS[square][direction]) {
+                int code = squares[target];
+                if (code == 0) {
+                    continue;
+                } if (code == slider || code == QUEEN + offset) {
+                    return true;
+                } break;
+            }
+        } return false;
+    }
+
+    private void push(int move) {
+        if (depth == MAX_HISTORY) {
+            throw new IllegalStateException("Search line too long");
+        }
+        moveStack[depth] = move;
+        castlingStack[depth] = castling;
+        enPassantStack[depth] = enPassantSquare;
+        enPassantKeyStack[depth] = enPassantKey;
+        clockStack[depth] = halfmoveClock;
+        hashStack[depth] = hash;
+        depth++;
+    }
+
+    private void pop() {
+        castling = castlingStack[depth];
+        enPassantSquare = enPassantStack[depth];
+        enPassantKey = enPassantKeyStack[depth];
+        halfmoveClock = clockStack[depth];
+        hash = hashStack[depth];
+    }
+
+    private void put(int square, int code) {
+        squares[square] = code;
+        hash ^= PositionHash.pieceKey(code - 1, square);
+    }
+
+    private void remove(int square) {
+        hash ^= PositionHash.pieceKey(squares[square] - 1, square);
+        squares[square] = 0;
+    }
+
+    // PositionHash only counts the en passant file when the side to move has a pawn beside the one that moved
+    private long enPassantKey() {
+        if (enPassantSquare < 0) {
+            return 0L;
+        }
+        int pawnSquare = side == WHITE ? enPassantSquare - 8 : enPassantSquare + 8;
+        int file = pawnSquare % 8;
+        int ownPawn = PAWN + side * 6;
+        if ((file > 0 && squares[pawnSquare - 1] == ownPawn) || (file < 7 && squares[pawnSquare + 1] == ownPawn)) {
+            return PositionHash.enPassantKey(file);
+        } return 0L;
+    }
+
+    private static long castlingHash(int rights) {
+        long key = 0L;
+        for (int i = 0; i < 4; i++) {
+            if ((rights & (1 << i)) != 0) {
+                key ^= PositionHash.castlingKey(i);
+            }
+        } return key;
+    }
+
+    private int pawnMoves(int[] moves, int count, int from, boolean capturesOnly) {
+        int forward = side == WHITE ? 8 : -8;
+        int promotionRank = side == WHITE ? 7 : 0;
+        int startRank = side == WHITE ? 1 : 6;
+        int one = from + forward;
+        if (squares[one] == 0) {
+            if (one / 8 == promotionRank) {
+                count = promotions(moves, count, from, one);
+            } else if (!capturesOnly) {
+                moves[count++] = from | (one << 6);
+                if (from / 8 == startRank && squares[one + forward] == 0) {
+                    moves[count++] = from | ((one + forward) << 6);
+                }
+            }
+        } for (int to : PAWN_TARGETS[side][from]) {
+            int code = squares[to];
+            if (code != 0 && color(code) != side) {
+                if (to / 8 == promotionRank) {
+                    count = promotions(moves, count, from, to);
+                } else {
+                    moves[count++] = from | (to << 6);
+                }
+            } else if (to == enPassantSquare) {
+                moves[count++] = from | (to << 6) | EN_PASSANT_FLAG;
+            }
+        } return count;
+    }
+
+    private static int promotions(int[] moves, int count, int from, int to) {
+        for (int piece : new int[]{QUEEN, KNIGHT, ROOK, BISHOP}) {
+            moves[count++] = from | (to << 6) | (piece << 12);
+        } return count;
+    }
+
+    private int stepMoves(int[] moves, int count, int from, int[] targets, boolean capturesOnly) {
+        for (int to : targets) {
+            int code = squares[to];
+            if (code == 0 ? !capturesOnly : color(code) != side) {
+                moves[count++] = from | (to << 6);
+            }
+        } return count;
+    }
+
+    private int slideMoves(int[] moves, int count, int from, int firstDirection, int lastDirection,
+                           boolean capturesOnly) {
+        for (int direction = firstDirection; direction < lastDirection; direction++) {
+            for (int to : RAYS[from][direction]) {
+                int code = squares[to];
+                if (code == 0) {
+                    if (!capturesOnly) {
+                        moves[count++] = from | (to << 6);
+                    } continue;
+                } if (color(code) != side) {
+                    moves[count++] = from | (to << 6);
+                } break;
+            }
+        } return count;
+    }
+
+    private int castlingMoves(int[] moves, int count) {
+        int kingSide = side == WHITE ? 1 : 4;
+        int queenSide = side == WHITE ? 2 : 8;
+        int home = side == WHITE ? 4 : 60;
+        if ((castling & (kingSide | queenSide)) == 0 || kings[side] != home || isAttacked(home, side ^ 1)) {
+            return count;
+        } if ((castling & kingSide) != 0 && squares[home + 1] == 0 && squares[home + 2] == 0
+                && !isAttacked(home + 1, side ^ 1) && !isAttacked(home + 2, side ^ 1)) {
+            moves[count++] = home | ((home + 2) << 6) | CASTLE_FLAG;
+        } if ((castling & queenSide) != 0 && squares[home - 1] == 0 && squares[home - 2] == 0
+                && squares[home - 3] == 0 && !isAttacked(home - 1, side ^ 1) && !isAttacked(home - 2, side ^ 1)) {
+            moves[count++] = home | ((home - 2) << 6) | CASTLE_FLAG;
+        } return count;
+    }
+
+    private static int rights(ChessBoard board, int row, int rookCol, int bit) {
+        ChessPiece king = board.getPiece(new ChessPosition(row, 5));
+        ChessPiece rook = board.getPiece(new ChessPosition(row, rookCol));
+        ChessGame.TeamColor color = row == 1 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        boolean kingHome = king != null && king.getPieceType() == ChessPiece.PieceType.KING
+                && king.getTeamColor() == color && !king.hasMoved;
+        boolean rookHome = rook != null && rook.getPieceType() == ChessPiece.PieceType.ROOK
+                && rook.getTeamColor() == color && !rook.hasMoved;
+        return kingHome && rookHome ? bit : 0;
+    }
+
+    private static int[] targets(int square, int[][] deltas, boolean slide) {
+        int[] buffer = new int[8];
+        int count = 0;
+        for (int[] delta : deltas) {
+            int row = square / 8 + delta[0];
+            int col = square % 8 + delta[1];
+            while (row >= 0 && row < 8 && col >= 0 && col < 8) {
+                buffer[count++] = row * 8 + col;
+                if (!slide) {
+                    break;
+                }
+                row += delta[0];
+                col += delta[1];
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(buffer, 0, result, 0, count);
+        return result;
+    }
+}
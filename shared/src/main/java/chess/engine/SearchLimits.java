@@ -0,0 +1,22 @@
+package chess.engine;
+
+/**
+ * How far the engine may search. The search stops at whichever limit it reaches first.
+ *
+ * @param maxDepth   deepest iteration to run, in plies
+ * @param timeMillis wall-clock budget for the whole search
+ */
+public record SearchLimits(
+        int maxDepth,
+        long timeMillis
+) {
+    public static final int MAX_DEPTH = 64;
+
+    public SearchLimits {
+        if (maxDepth < 1 || maxDepth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Depth must be between 1 and " + MAX_DEPTH);
+        } if (timeMillis < 1) {
+            throw new IllegalArgumentException("Time budget must be positive");
+        }
+    }
+}
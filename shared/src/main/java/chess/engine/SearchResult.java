@@ -0,0 +1,41 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * Outcome of an engine search
+ *
+ * @param bestMove           move to play, or null if the side to move has no legal moves
+ * @param score              centipawns for the side to move; mates are {@link #MATE} minus plies to mate
+ * @param depth              last fully searched depth, or 0 for book and tablebase moves
+ * @param principalVariation expected line starting with the best move
+ * @param nodes              positions visited
+ * @param source             where the move came from
+ */
+public record SearchResult(
+        ChessMove bestMove,
+        int score,
+        int depth,
+        List<ChessMove> principalVariation,
+        long nodes,
+        Source source
+) {
+    public static final int MATE = 30_000;
+
+    public enum Source {
+        BOOK,
+        TABLEBASE,
+        SEARCH
+    }
+
+    /**
+     * @return plies to mate (negative when the side to move is being mated), or 0 if no mate was found
+     */
+    public int matePlies() {
+        if (Math.abs(score) < MATE - SearchLimits.MAX_DEPTH * 4) {
+            return 0;
+        } return score > 0 ? MATE - score : -(MATE + score);
+    }
+}
@@ -0,0 +1,78 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table of search results, keyed by Zobrist hash.
+ * <p>
+ * One table can be shared by any number of searching threads without locks: each slot stores the
+ * key xor-ed with its data, so a slot torn by two concurrent writers simply fails the key check
+ * on the next probe and is treated as a miss.
+ */
+public final class TranspositionTable {
+    static final int EXACT = 0;
+    static final int LOWER = 1;
+    static final int UPPER = 2;
+
+    private static final int ENTRY_BYTES = 16;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+
+    /**
+     * @param megabytes approximate memory to use, rounded down to a power-of-two entry count
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Table needs at least 1 MB");
+        }
+        long entries = Long.highestOneBit((long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        int size = (int) Math.min(entries, 1 << 30);
+        keys = new long[size];
+        data = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * @return the packed entry for the hash, or 0 if there is none
+     */
+    long probe(long hash) {
+        int slot = (int) hash & mask;
+        long entry = data[slot];
+        return (keys[slot] ^ entry) == hash ? entry : 0L;
+    }
+
+    void store(long hash, int move, int score, int depth, int bound) {
+        int slot = (int) hash & mask;
+        long old = data[slot];
+        if ((keys[slot] ^ old) == hash && depth(old) > depth && bound != EXACT) {
+            return; //Keep the deeper result for this position
+        }
+        long entry = (move & 0x1FFFFL) | ((long) bound << 17) | ((long) (depth + 1) << 19)
+                | ((long) (score & 0xFFFF) << 32);
+        data[slot] = entry;
+        keys[slot] = hash ^ entry;
+    }
+
+    static int move(long entry) {
+        return (int) (entry & 0x1FFFF);
+    }
+
+    static int bound(long entry) {
+        return (int) (entry >>> 17) & 0x3;
+    }
+
+    static int depth(long entry) {
+        return (int) ((entry >>> 19) & 0xFF) - 1;
+    }
+
+    static int score(long entry) {
+        return (short) (entry >>> 32);
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(data, 0L);
+    }
+}
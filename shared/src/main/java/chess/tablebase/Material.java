@@ -0,0 +1,152 @@
+package chess.tablebase;
+
+import chess.ChessPiece;
+
+import java.util.Arrays;
+
+/**
+ * A tablebase piece set: a king plus one or two pieces (no pawns) against a lone king, e.g. "KQK",
+ * "KRK" or "KBNK". The side with the pieces is always stored as white.
+ * <p>
+ * A position is indexed by the side to move (0 = white, 1 = black) and the 0-63 squares of the
+ * white king, black king and each piece in canonical order (queen, rook, bishop, knight):
+ * {@code index = stm + 2 * (wk + 64 * bk + 64^2 * piece0 + ...)}.
+ */
+public final class Material {
+    public static final int MAX_PIECES = 2;
+    private static final String ORDER = "QRBN";
+
+    private final ChessPiece.PieceType[] pieces;
+    private final String name;
+
+    private Material(ChessPiece.PieceType[] pieces) {
+        this.pieces = pieces;
+        StringBuilder sb = new StringBuilder("K");
+        for (ChessPiece.PieceType piece : pieces) {
+            sb.append(letter(piece));
+        }
+        this.name = sb.append('K').toString();
+    }
+
+    /**
+     * @param name a piece set such as "KQK" or "KBNK"
+     * @throws IllegalArgumentException if the piece set is not supported
+     */
+    public static Material parse(String name) {
+        String upper = name.toUpperCase();
+        if (upper.length() < 3 || upper.charAt(0) != 'K' || !upper.endsWith("K")) {
+            throw new IllegalArgumentException("Piece set must look like KxK: " + name);
+        }
+        String middle = upper.substring(1, upper.length() - 1);
+        ChessPiece.PieceType[] types = new ChessPiece.PieceType[middle.length()];
+        for (int i = 0; i < middle.length(); i++) {
+            types[i] = switch (middle.charAt(i)) {
+                case 'Q' -> ChessPiece.PieceType.QUEEN;
+                case 'R' -> ChessPiece.PieceType.ROOK;
+                case 'B' -> ChessPiece.PieceType.BISHOP;
+                case 'N' -> ChessPiece.PieceType.KNIGHT;
+                default -> throw new IllegalArgumentException("Unsupported piece in " + name);
+            };
+        } return of(types);
+    }
+
+    /**
+     * @throws IllegalArgumentException if there are no pieces, too many pieces, or pawns/kings
+     */
+    public static Material of(ChessPiece.PieceType... pieces) {
+        if (pieces.length == 0 || pieces.length > MAX_PIECES) {
+            throw new IllegalArgumentException("Piece sets need 1 to " + MAX_PIECES + " pieces besides the kings");
+        }
+        ChessPiece.PieceType[] sorted = pieces.clone();
+        for (ChessPiece.PieceType piece : sorted) {
+            if (piece == ChessPiece.PieceType.PAWN || piece == ChessPiece.PieceType.KING) {
+                throw new IllegalArgumentException("Piece sets cannot contain " + piece);
+            }
+        }
+        Arrays.sort(sorted, (a, b) -> Integer.compare(ORDER.indexOf(letter(a)), ORDER.indexOf(letter(b))));
+        return new Material(sorted);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int pieceCount() {
+        return pieces.length;
+    }
+
+    public ChessPiece.PieceType piece(int i) {
+        return pieces[i];
+    }
+
+    /**
+     * @return the piece set left after piece {@code i} is captured, or null if only kings remain
+     */
+    public Material without(int i) {
+        if (pieces.length == 1) {
+            return null;
+        }
+        ChessPiece.PieceType[] rest = new ChessPiece.PieceType[pieces.length - 1];
+        for (int j = 0, k = 0; j < pieces.length; j++) {
+            if (j != i) {
+                rest[k++] = pieces[j];
+            }
+        } return new Material(rest);
+    }
+
+    /**
+     * @return number of indexable positions
+     */
+    public long size() {
+        return 2L << (6 * (pieces.length + 2));
+    }
+
+    /**
+     * @param squares white king, black king, then each piece's 0-63 square
+     */
+    public static long index(int stm, int[] squares, int count) {
+        long index = 0;
+        for (int i = count - 1; i >= 0; i--) {
+            index = (index << 6) | squares[i];
+        } return (index << 1) | stm;
+    }
+
+    /**
+     * Fills {@code squares} from an index
+     *
+     * @return the side to move
+     */
+    public int decode(long index, int[] squares) {
+        int stm = (int) (index & 1);
+        long rest = index >>> 1;
+        for (int i = 0; i < pieces.length + 2; i++) {
+            squares[i] = (int) (rest & 63);
+            rest >>>= 6;
+        } return stm;
+    }
+
+    static char letter(ChessPiece.PieceType piece) {
+        return switch (piece) {
+            case QUEEN -> 'Q';
+            case ROOK -> 'R';
+            case BISHOP -> 'B';
+            case KNIGHT -> 'N';
+            default -> throw new IllegalArgumentException("No tablebase letter for " + piece);
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Material that && name.equals(that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
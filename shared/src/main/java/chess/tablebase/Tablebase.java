@@ -0,0 +1,141 @@
+package chess.tablebase;
+
+import chess.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Probes memory-mapped endgame tables for positions with a lone king against a king and one or two
+ * pieces. Instances are safe to share between threads.
+ */
+public class Tablebase implements Closeable {
+    public static final String EXTENSION = ".tb";
+
+    private final Map<String, TablebaseFile> files;
+
+    private Tablebase(Map<String, TablebaseFile> files) {
+        this.files = files;
+    }
+
+    /**
+     * Maps every table file ({@code *.tb}) in a directory
+     */
+    public static Tablebase open(Path directory) throws IOException {
+        Map<String, TablebaseFile> files = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path path : stream) {
+                TablebaseFile file = TablebaseFile.open(path);
+                files.put(file.material().name(), file);
+            }
+        } catch (IOException e) {
+            for (TablebaseFile file : files.values()) {
+                file.close();
+            } throw e;
+        } return new Tablebase(files);
+    }
+
+    /**
+     * @return names of the piece sets that can be probed, e.g. "KQK"
+     */
+    public Set<String> materials() {
+        return Collections.unmodifiableSet(files.keySet());
+    }
+
+    /**
+     * @return the verdict for the side to move, or null if the position is not covered
+     */
+    public TablebaseResult probe(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        int[] squares = new int[Material.MAX_PIECES + 2];
+        ChessPiece.PieceType[] types = new ChessPiece.PieceType[Material.MAX_PIECES];
+        ChessGame.TeamColor strong = null;
+        int pieceCount = 0;
+        int whiteKing = -1;
+        int blackKing = -1;
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+                if (piece == null) {
+                    continue;
+                }
+                int square = PositionHash.square(row, col);
+                if (piece.getPieceType() == ChessPiece.PieceType.KING) {
+                    if (piece.getTeamColor() == ChessGame.TeamColor.WHITE) {
+                        whiteKing = square;
+                    } else {
+                        blackKing = square;
+                    } continue;
+                } if (piece.getPieceType() == ChessPiece.PieceType.PAWN || pieceCount == Material.MAX_PIECES
+                        || (strong != null && strong != piece.getTeamColor())) {
+                    return null;
+                }
+                strong = piece.getTeamColor();
+                types[pieceCount] = piece.getPieceType();
+                squares[pieceCount + 2] = square;
+                pieceCount++;
+            }
+        } if (strong == null || whiteKing < 0 || blackKing < 0 || hasCastlingRights(board, strong)) {
+            return null;
+        }
+
+        ChessPiece.PieceType[] pieces = new ChessPiece.PieceType[pieceCount];
+        System.arraycopy(types, 0, pieces, 0, pieceCount);
+        Material material = Material.of(pieces);
+        TablebaseFile file = files.get(material.name());
+        if (file == null) {
+            return null;
+        }
+
+        // Tables store the strong side as white; mirror ranks when black has the pieces
+        int flip = strong == ChessGame.TeamColor.WHITE ? 0 : 56;
+        int[] ordered = new int[pieceCount + 2];
+        ordered[0] = (strong == ChessGame.TeamColor.WHITE ? whiteKing : blackKing) ^ flip;
+        ordered[1] = (strong == ChessGame.TeamColor.WHITE ? blackKing : whiteKing) ^ flip;
+        boolean[] used = new boolean[pieceCount];
+        for (int i = 0; i < pieceCount; i++) { //Match found pieces to the canonical order
+            for (int j = 0; j < pieceCount; j++) {
+                if (!used[j] && types[j] == material.piece(i)) {
+                    used[j] = true;
+                    ordered[i + 2] = squares[j + 2] ^ flip;
+                    break;
+                }
+            }
+        }
+        int stm = game.getTeamTurn() == strong ? 0 : 1;
+        int distance = file.distance(Material.index(stm, ordered, pieceCount + 2));
+        if (distance < 0) {
+            return new TablebaseResult(TablebaseResult.Outcome.DRAW, 0);
+        } return new TablebaseResult((distance & 1) == 1 ? TablebaseResult.Outcome.WIN : TablebaseResult.Outcome.LOSS,
+                distance);
+    }
+
+    // Tables do not model castling, so skip positions where the strong side could still castle
+    private static boolean hasCastlingRights(ChessBoard board, ChessGame.TeamColor strong) {
+        int row = strong == ChessGame.TeamColor.WHITE ? 1 : 8;
+        ChessPiece king = board.getPiece(new ChessPosition(row, 5));
+        if (king == null || king.getPieceType() != ChessPiece.PieceType.KING || king.hasMoved) {
+            return false;
+        } for (int col : new int[]{1, 8}) {
+            ChessPiece rook = board.getPiece(new ChessPosition(row, col));
+            if (rook != null && rook.getPieceType() == ChessPiece.PieceType.ROOK && rook.getTeamColor() == strong
+                    && !rook.hasMoved) {
+                return true;
+            }
+        } return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (TablebaseFile file : files.values()) {
+            file.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package chess.tablebase;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One memory-mapped, bit-packed table written by {@link TablebaseGenerator#write}
+ */
+class TablebaseFile implements Closeable {
+    static final int MAGIC = 0x43485442; // "CHTB"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final Material material;
+    private final int bits;
+    private final int mask;
+    private final long entryCount;
+
+    private TablebaseFile(FileChannel channel, MappedByteBuffer buffer, Material material, int bits, long entryCount) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.material = material;
+        this.bits = bits;
+        this.mask = (1 << bits) - 1;
+        this.entryCount = entryCount;
+    }
+
+    static TablebaseFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a tablebase file: " + path);
+            }
+            int bits = buffer.getInt(8);
+            int pieces = buffer.getInt(12);
+            StringBuilder name = new StringBuilder("K");
+            for (int i = 0; i < pieces; i++) {
+                name.append((char) buffer.get(16 + i));
+            }
+            Material material = Material.parse(name.append('K').toString());
+            long entryCount = buffer.getLong(24);
+            if (bits < 1 || bits > 8 || entryCount != material.size()
+                    || HEADER_SIZE + (entryCount * bits + 7) / 8 + 1 > buffer.capacity()) {
+                throw new IOException("Corrupt tablebase file: " + path);
+            } return new TablebaseFile(channel, buffer, material, bits, entryCount);
+        } catch (IOException | IllegalArgumentException e) {
+            channel.close();
+            throw e instanceof IOException io ? io : new IOException("Corrupt tablebase file: " + path, e);
+        }
+    }
+
+    Material material() {
+        return material;
+    }
+
+    /**
+     * @return distance to mate in plies for the index, or -1 for a draw
+     */
+    int distance(long index) {
+        long bit = index * bits;
+        int offset = HEADER_SIZE + (int) (bit >>> 3);
+        int word = (buffer.get(offset) & 0xFF) | (buffer.get(offset + 1) & 0xFF) << 8;
+        return ((word >>> (int) (bit & 7)) & mask) - 1;
+    }
+
+    long entryCount() {
+        return entryCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
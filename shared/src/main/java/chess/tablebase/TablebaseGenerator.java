@@ -0,0 +1,362 @@
+package chess.tablebase;
+
+import chess.ChessPiece;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Offline retrograde generator for lone-king endgame tablebases.
+ * <p>
+ * Generation works backwards from the mates: pass 0 marks illegal, checkmated and stalemated
+ * positions, and pass n then resolves every position that is exactly n plies from mate
+ * (odd n: the strong side has a move into a loss-in-(n-1); even n: every move of the lone king
+ * leads to a win in fewer than n plies). Anything still unresolved once passes stop changing is a
+ * draw. Each pass is split across a fork-join pool by index range; passes only ever write one
+ * parity of distance, so workers can update the shared table in place.
+ * <p>
+ * Usage: {@code TablebaseGenerator <output dir> KQK KRK KBNK ...}
+ */
+public class TablebaseGenerator {
+    static final byte UNKNOWN = -1;
+    static final byte ILLEGAL = -2;
+    static final byte DRAW = -3;
+    static final int MAX_DISTANCE = 125;
+    private static final long SPLIT_THRESHOLD = 1 << 14;
+    private static final int MAX_CHILDREN = 128;
+
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+    private static final int[][] QUEEN_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    static {
+        int[][] knightJumps = {{2, 1}, {2, -1}, {1, 2}, {1, -2}, {-1, 2}, {-1, -2}, {-2, 1}, {-2, -1}};
+        for (int square = 0; square < 64; square++) {
+            KING_ATTACKS[square] = jumps(square, QUEEN_DIRECTIONS);
+            KNIGHT_ATTACKS[square] = jumps(square, knightJumps);
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final Map<Material, byte[]> tables = new HashMap<>();
+
+    public TablebaseGenerator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Generates (or returns the already generated) table for a piece set, generating the tables
+     * for the piece sets reachable by capture first.
+     *
+     * @return distance to mate in plies for each index (even: side to move loses, odd: side to move
+     * wins), or {@link #DRAW}
+     */
+    public byte[] generate(Material material) {
+        byte[] existing = tables.get(material);
+        if (existing != null) {
+            return existing;
+        }
+        byte[][] subTables = new byte[material.pieceCount()][];
+        int subMax = 0;
+        for (int i = 0; i < material.pieceCount(); i++) {
+            Material rest = material.without(i);
+            if (rest != null) {
+                subTables[i] = generate(rest);
+                subMax = Math.max(subMax, maxDistance(subTables[i]));
+            }
+        }
+
+        byte[] table = new byte[Math.toIntExact(material.size())];
+        Context context = new Context(material, table, subTables);
+        runPass(context, 0);
+        int quietPasses = 0;
+        for (int n = 1; quietPasses < 2 || n <= subMax + 2; n++) {
+            if (n > MAX_DISTANCE) {
+                throw new IllegalStateException(material + " has mates longer than " + MAX_DISTANCE + " plies");
+            }
+            quietPasses = runPass(context, n) == 0 ? quietPasses + 1 : 0;
+        } for (int i = 0; i < table.length; i++) {
+            if (table[i] < 0) {
+                table[i] = DRAW;
+            }
+        }
+        tables.put(material, table);
+        return table;
+    }
+
+    /**
+     * Generates a table and writes it as a bit-packed file readable by {@link Tablebase}.
+     * <p>
+     * Layout (big-endian header): magic, version, bits per entry, piece count, 4 piece letters,
+     * longest mate, entry count (8 bytes), then entries packed little-endian at {@code bits} each.
+     * An entry is 0 for a draw, otherwise distance to mate + 1.
+     */
+    public void write(Material material, Path file) throws IOException {
+        byte[] table = generate(material);
+        int maxDistance = maxDistance(table);
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(maxDistance + 1));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(TablebaseFile.MAGIC);
+            out.writeInt(TablebaseFile.VERSION);
+            out.writeInt(bits);
+            out.writeInt(material.pieceCount());
+            for (int i = 0; i < 4; i++) {
+                out.writeByte(i < material.pieceCount() ? Material.letter(material.piece(i)) : ' ');
+            }
+            out.writeInt(maxDistance);
+            out.writeLong(table.length);
+            long buffer = 0;
+            int buffered = 0;
+            for (byte value : table) {
+                buffer |= (long) (value == DRAW ? 0 : value + 1) << buffered;
+                buffered += bits;
+                while (buffered >= 8) {
+                    out.writeByte((int) buffer);
+                    buffer >>>= 8;
+                    buffered -= 8;
+                }
+            } if (buffered > 0) {
+                out.writeByte((int) buffer);
+            }
+            out.writeByte(0); //Padding so a probe can always read two bytes
+        }
+    }
+
+    private static int maxDistance(byte[] table) {
+        int max = 0;
+        for (byte value : table) {
+            max = Math.max(max, value);
+        } return max;
+    }
+
+    private int runPass(Context context, int n) {
+        LongAdder changed = new LongAdder();
+        pool.invoke(new PassTask(context, n, 0, context.table.length, changed));
+        return changed.intValue();
+    }
+
+    private record Context(Material material, byte[] table, byte[][] subTables) {}
+
+    private static class PassTask extends RecursiveAction {
+        private final Context context;
+        private final int n;
+        private final long from;
+        private final long to;
+        private final LongAdder changed;
+
+        PassTask(Context context, int n, long from, long to, LongAdder changed) {
+            this.context = context;
+            this.n = n;
+            this.from = from;
+            this.to = to;
+            this.changed = changed;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                long mid = (from + to) >>> 1;
+                invokeAll(new PassTask(context, n, from, mid, changed), new PassTask(context, n, mid, to, changed));
+                return;
+            }
+            Material material = context.material;
+            byte[] table = context.table;
+            int[] squares = new int[material.pieceCount() + 2];
+            long[] childIndex = new long[MAX_CHILDREN];
+            int[] childTable = new int[MAX_CHILDREN];
+            int mover = (n & 1) == 1 ? 0 : 1; //Odd passes resolve white wins, even passes black losses
+            int count = 0;
+            for (long index = from; index < to; index++) {
+                int i = (int) index;
+                if (n == 0) {
+                    table[i] = initialValue(material, index, squares, childIndex, childTable);
+                    continue;
+                } if (table[i] != UNKNOWN || (index & 1) != mover) {
+                    continue;
+                }
+                int stm = material.decode(index, squares);
+                int children = children(material, stm, squares, childIndex, childTable);
+                if (resolves(n, children, childIndex, childTable)) {
+                    table[i] = (byte) n;
+                    count++;
+                }
+            } changed.add(count);
+        }
+
+        private boolean resolves(int n, int children, long[] childIndex, int[] childTable) {
+            for (int c = 0; c < children; c++) {
+                int value = childValue(childIndex[c], childTable[c]);
+                if ((n & 1) == 1 && value == n - 1) {
+                    return true;
+                } if ((n & 1) == 0 && (value < 0 || (value & 1) == 0 || value >= n)) {
+                    return false;
+                }
+            } return (n & 1) == 0;
+        }
+
+        private int childValue(long index, int table) {
+            if (table < 0) {
+                return context.table[(int) index];
+            }
+            byte[] sub = context.subTables[table];
+            return sub == null ? DRAW : sub[(int) index];
+        }
+
+        private static byte initialValue(Material material, long index, int[] squares, long[] childIndex, int[] childTable) {
+            int stm = material.decode(index, squares);
+            int pieces = material.pieceCount() + 2;
+            long occupied = 0;
+            for (int i = 0; i < pieces; i++) {
+                if ((occupied & (1L << squares[i])) != 0) {
+                    return ILLEGAL;
+                } occupied |= 1L << squares[i];
+            } if ((KING_ATTACKS[squares[0]] & (1L << squares[1])) != 0) {
+                return ILLEGAL;
+            }
+            boolean blackInCheck = attackedByWhite(material, squares, squares[1], occupied, -1);
+            if (stm == 0 && blackInCheck) {
+                return ILLEGAL;
+            } if (children(material, stm, squares, childIndex, childTable) == 0) {
+                return (stm == 1 && blackInCheck) ? 0 : DRAW;
+            } return UNKNOWN;
+        }
+    }
+
+    /**
+     * Lists the legal moves of a position as child indexes. {@code childTable[c]} is -1 for a
+     * child in the same table, or the index of the piece the lone king captured.
+     */
+    static int children(Material material, int stm, int[] squares, long[] childIndex, int[] childTable) {
+        int pieces = material.pieceCount() + 2;
+        long occupied = 0;
+        for (int i = 0; i < pieces; i++) {
+            occupied |= 1L << squares[i];
+        }
+        int count = 0;
+        int[] child = squares.clone();
+        if (stm == 0) {
+            long kingTargets = KING_ATTACKS[squares[0]] & ~occupied & ~KING_ATTACKS[squares[1]];
+            for (long bits = kingTargets; bits != 0; bits &= bits - 1) {
+                child[0] = Long.numberOfTrailingZeros(bits);
+                childTable[count] = -1;
+                childIndex[count++] = Material.index(1, child, pieces);
+            } child[0] = squares[0];
+            for (int p = 2; p < pieces; p++) {
+                long targets = reach(material.piece(p - 2), squares[p], occupied) & ~occupied;
+                for (long bits = targets; bits != 0; bits &= bits - 1) {
+                    child[p] = Long.numberOfTrailingZeros(bits);
+                    childTable[count] = -1;
+                    childIndex[count++] = Material.index(1, child, pieces);
+                } child[p] = squares[p];
+            }
+        } else {
+            long kingTargets = KING_ATTACKS[squares[1]] & ~(1L << squares[0]) & ~KING_ATTACKS[squares[0]];
+            for (long bits = kingTargets; bits != 0; bits &= bits - 1) {
+                int target = Long.numberOfTrailingZeros(bits);
+                int captured = -1;
+                for (int p = 2; p < pieces; p++) {
+                    if (squares[p] == target) {
+                        captured = p;
+                    }
+                }
+                long after = occupied & ~(1L << squares[1]);
+                if (attackedByWhite(material, squares, target, after, captured)) {
+                    continue;
+                } if (captured < 0) {
+                    child[1] = target;
+                    childTable[count] = -1;
+                    childIndex[count++] = Material.index(0, child, pieces);
+                    child[1] = squares[1];
+                } else {
+                    int[] reduced = new int[pieces - 1];
+                    for (int p = 0, k = 0; p < pieces; p++) {
+                        if (p != captured) {
+                            reduced[k++] = p == 1 ? target : squares[p];
+                        }
+                    }
+                    childTable[count] = captured - 2;
+                    childIndex[count++] = Material.index(0, reduced, pieces - 1);
+                }
+            }
+        } return count;
+    }
+
+    /**
+     * @param skip index into {@code squares} of a piece that has just been captured, or -1
+     */
+    static boolean attackedByWhite(Material material, int[] squares, int target, long occupied, int skip) {
+        if ((KING_ATTACKS[squares[0]] & (1L << target)) != 0) {
+            return true;
+        } for (int p = 2; p < material.pieceCount() + 2; p++) {
+            if (p != skip && (reach(material.piece(p - 2), squares[p], occupied) & (1L << target)) != 0) {
+                return true;
+            }
+        } return false;
+    }
+
+    // Squares a piece attacks from a square, stopping sliders at the first occupied square
+    private static long reach(ChessPiece.PieceType type, int from, long occupied) {
+        return switch (type) {
+            case KNIGHT -> KNIGHT_ATTACKS[from];
+            case ROOK -> slide(from, occupied, ROOK_DIRECTIONS);
+            case BISHOP -> slide(from, occupied, BISHOP_DIRECTIONS);
+            case QUEEN -> slide(from, occupied, QUEEN_DIRECTIONS);
+            default -> throw new IllegalArgumentException("Unexpected tablebase piece " + type);
+        };
+    }
+
+    private static long slide(int from, long occupied, int[][] directions) {
+        long result = 0;
+        for (int[] direction : directions) {
+            int row = from / 8 + direction[0];
+            int col = from % 8 + direction[1];
+            while (row >= 0 && row < 8 && col >= 0 && col < 8) {
+                int square = row * 8 + col;
+                result |= 1L << square;
+                if ((occupied & (1L << square)) != 0) {
+                    break;
+                }
+                row += direction[0];
+                col += direction[1];
+            }
+        } return result;
+    }
+
+    private static long jumps(int from, int[][] offsets) {
+        long result = 0;
+        for (int[] offset : offsets) {
+            int row = from / 8 + offset[0];
+            int col = from % 8 + offset[1];
+            if (row >= 0 && row < 8 && col >= 0 && col < 8) {
+                result |= 1L << (row * 8 + col);
+            }
+        } return result;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: TablebaseGenerator <output dir> KQK KRK KBNK ...");
+            System.exit(1);
+        }
+        Path directory = Path.of(args[0]);
+        Files.createDirectories(directory);
+        TablebaseGenerator generator = new TablebaseGenerator(ForkJoinPool.commonPool());
+        for (int i = 1; i < args.length; i++) {
+            Material material = Material.parse(args[i]);
+            long start = System.nanoTime();
+            generator.write(material, directory.resolve(material.name() + Tablebase.EXTENSION));
+            System.out.printf("%s: %d positions in %d ms%n", material, material.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package chess.tablebase;
+
+/**
+ * Tablebase verdict for the side to move
+ *
+ * @param outcome      win, draw or loss for the side to move, with perfect play
+ * @param pliesToMate  half-moves until mate, or 0 for a draw
+ */
+public record TablebaseResult(
+        Outcome outcome,
+        int pliesToMate
+) {
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS
+    }
+}
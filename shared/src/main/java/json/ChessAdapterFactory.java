@@ -0,0 +1,187 @@
+package json;
+
+import chess.*;
+import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Streaming adapters for a compact canonical form of chess objects:
+ * <pre>
+ *   ChessMove  "e7e8q"
+ *   ChessBoard "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR KQkq e3"
+ *   ChessGame  {"fen":"rnbqkbnr/... b KQkq e3 0 1","moves":["e2e4"]}
+ * </pre>
+ * Both the compact and the reflective form are always read. Only a factory created with compactWrites
+ * writes the compact form; otherwise objects are written field by field, as plain Gson does, so JSON
+ * clients that know nothing of this form keep working. A WebSocket client asks for the compact form
+ * with ?json=compact when it connects, and is then sent {@link Serializer#COMPACT} JSON.
+ */
+public class ChessAdapterFactory implements TypeAdapterFactory {
+    private final boolean compactWrites;
+
+    public ChessAdapterFactory() {
+        this(false);
+    }
+
+    /**
+     * @param compactWrites write the compact form, e.g. for storage read back by this factory
+     */
+    public ChessAdapterFactory(boolean compactWrites) {
+        this.compactWrites = compactWrites;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> raw = type.getRawType();
+        if (raw == ChessMove.class) {
+            return (TypeAdapter<T>) new MoveAdapter(gson.getDelegateAdapter(this, TypeToken.get(ChessMove.class)), compactWrites);
+        } if (raw == ChessBoard.class) {
+            return (TypeAdapter<T>) new BoardAdapter(gson.getDelegateAdapter(this, TypeToken.get(ChessBoard.class)), compactWrites);
+        } if (raw == ChessGame.class) {
+            return (TypeAdapter<T>) new GameAdapter(gson.getDelegateAdapter(this, TypeToken.get(ChessGame.class)), compactWrites);
+        }
+        return null;
+    }
+
+    private static class MoveAdapter extends TypeAdapter<ChessMove> {
+        private final TypeAdapter<ChessMove> legacy;
+        private final boolean compact;
+
+        MoveAdapter(TypeAdapter<ChessMove> legacy, boolean compact) {
+            this.legacy = legacy;
+            this.compact = compact;
+        }
+
+        @Override
+        public void write(JsonWriter out, ChessMove move) throws IOException {
+            if (!compact) {
+                legacy.write(out, move);
+            } else if (move == null) {
+                out.nullValue();
+            } else {
+                out.value(Fen.moveToString(move));
+            }
+        }
+
+        @Override
+        public ChessMove read(JsonReader in) throws IOException {
+            return switch (in.peek()) {
+                case NULL -> {
+                    in.nextNull();
+                    yield null;
+                }
+                case STRING -> parse(in, Fen::parseMove);
+                default -> legacy.read(in); //{"startPosition":{...},"endPosition":{...}}
+            };
+        }
+    }
+
+    private static class BoardAdapter extends TypeAdapter<ChessBoard> {
+        private final TypeAdapter<ChessBoard> legacy;
+        private final boolean compact;
+
+        BoardAdapter(TypeAdapter<ChessBoard> legacy, boolean compact) {
+            this.legacy = legacy;
+            this.compact = compact;
+        }
+
+        @Override
+        public void write(JsonWriter out, ChessBoard board) throws IOException {
+            if (!compact) {
+                legacy.write(out, board);
+            } else if (board == null) {
+                out.nullValue();
+            } else {
+                out.value(Fen.formatBoard(board));
+            }
+        }
+
+        @Override
+        public ChessBoard read(JsonReader in) throws IOException {
+            return switch (in.peek()) {
+                case NULL -> {
+                    in.nextNull();
+                    yield null;
+                }
+                case STRING -> parse(in, Fen::parseBoard);
+                default -> legacy.read(in); //{"board":[[...]]}
+            };
+        }
+    }
+
+    private static class GameAdapter extends TypeAdapter<ChessGame> {
+        private final TypeAdapter<ChessGame> legacy;
+        private final boolean compact;
+
+        GameAdapter(TypeAdapter<ChessGame> legacy, boolean compact) {
+            this.legacy = legacy;
+            this.compact = compact;
+        }
+
+        @Override
+        public void write(JsonWriter out, ChessGame game) throws IOException {
+            if (!compact) {
+                legacy.write(out, game);
+                return;
+            } if (game == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("fen").value(Fen.format(game));
+            out.name("moves").beginArray();
+            for (ChessMove move : game.getMoveHistory()) {
+                out.value(Fen.moveToString(move));
+            }
+            out.endArray();
+            out.endObject();
+        }
+
+        @Override
+        public ChessGame read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            JsonElement tree = JsonParser.parseReader(in);
+            if (!tree.isJsonObject() || !tree.getAsJsonObject().has("fen")) {
+                return legacy.fromJsonTree(tree); //Written by reflection before this adapter existed
+            }
+            JsonObject object = tree.getAsJsonObject();
+            try {
+                ChessGame game = Fen.parse(object.get("fen").getAsString());
+                List<ChessMove> history = new ArrayList<>();
+                JsonElement moves = object.get("moves");
+                if (moves != null && moves.isJsonArray()) {
+                    for (JsonElement move : moves.getAsJsonArray()) {
+                        history.add(Fen.parseMove(move.getAsString()));
+                    }
+                }
+                game.setMoveHistory(history);
+                game.getKingPosition(ChessGame.TeamColor.WHITE);
+                game.getKingPosition(ChessGame.TeamColor.BLACK);
+                return game;
+            } catch (IllegalArgumentException | IllegalStateException | UnsupportedOperationException e) {
+                throw new JsonParseException("Bad chess game: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static <T> T parse(JsonReader in, Function<String, T> parser) throws IOException {
+        String text = in.nextString();
+        try {
+            return parser.apply(text);
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import websocket.commands.CommandAdapterFactory;
+
+/**
+ * The Gson used by the server, the client and the database, with the chess and command adapters
+ * registered. Gson instances are thread-safe and cache their adapters, so one is shared rather than
+ * each class building its own. Chess objects are written in the same shape plain Gson gives them and
+ * read in either that or the compact form of {@link ChessAdapterFactory}; {@link #COMPACT} writes the
+ * compact form, for connections that asked for it.
+ */
+public final class Serializer {
+    public static final Gson GSON = builder().create();
+    public static final Gson COMPACT = builder(true).create();
+
+    private Serializer() {
+    }
+
+    /**
+     * @return a builder with the shared adapters registered, for callers that need extra settings
+     */
+    public static GsonBuilder builder() {
+        return builder(false);
+    }
+
+    private static GsonBuilder builder(boolean compactWrites) {
+        return new GsonBuilder()
+                .registerTypeAdapterFactory(new ChessAdapterFactory(compactWrites))
+                .registerTypeAdapterFactory(new CommandAdapterFactory());
+    }
+}
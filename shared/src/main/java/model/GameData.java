@@ -2,12 +2,41 @@ package model;
 
 import chess.ChessGame;
 
+/**
+ * @param botColor the seat played by the computer, or null if both seats are for people
+ * @param version  how many times the stored game has been updated; a compare-and-set update only
+ *                 succeeds while this still matches what is stored
+ */
 public record GameData(
         int gameID,
         String whiteUsername,
         String blackUsername,
         String gameName,
         ChessGame game,
-        GameStatus status
-) {}
+        GameStatus status,
+        ChessGame.TeamColor botColor,
+        int version
+) {
+    public static final String BOT_USERNAME = "Computer";
 
+    public GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game,
+                    GameStatus status, ChessGame.TeamColor botColor) {
+        this(gameID, whiteUsername, blackUsername, gameName, game, status, botColor, 0);
+    }
+
+    public GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game,
+                    GameStatus status) {
+        this(gameID, whiteUsername, blackUsername, gameName, game, status, null);
+    }
+
+    public GameData withVersion(int version) {
+        return new GameData(gameID, whiteUsername, blackUsername, gameName, game, status, botColor, version);
+    }
+
+    /**
+     * @return true if the computer should move in the current position
+     */
+    public boolean isBotTurn() {
+        return botColor != null && status == GameStatus.ACTIVE && game != null && game.getTeamTurn() == botColor;
+    }
+}
@@ -0,0 +1,72 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One page of the game list. Pages are keyed on the game ID: the next page starts after the last ID of
+ * this one, so a page costs the same however deep it is and games created meanwhile don't shift it.
+ *
+ * @param after      only games whose ID comes after this one in the sort order, or null to start at the top
+ * @param limit      the most games to return, or null for all of them
+ * @param status     only games with this status, or null for any
+ * @param openSeat   only games with a seat nobody (person or computer) has taken
+ * @param player     only games this user plays in, or null for anyone's
+ * @param descending highest game ID first
+ */
+public record GameQuery(
+        Integer after,
+        Integer limit,
+        GameStatus status,
+        boolean openSeat,
+        String player,
+        boolean descending
+) {
+    public static final GameQuery ALL = new GameQuery(null, null, null, false, null, false);
+
+    public GameQuery withAfter(Integer after) {
+        return new GameQuery(after, limit, status, openSeat, player, descending);
+    }
+
+    public GameQuery withLimit(Integer limit) {
+        return new GameQuery(after, limit, status, openSeat, player, descending);
+    }
+
+    /**
+     * @return true if the game ID comes after {@code after} in the sort order, so it can be on this page
+     */
+    public boolean isPastAfter(int gameID) {
+        return after == null || (descending ? gameID < after : gameID > after);
+    }
+
+    public boolean matches(GameSummary game) {
+        if (!isPastAfter(game.gameID())) {
+            return false;
+        } if (status != null && game.status() != status) {
+            return false;
+        } if (openSeat && !game.hasOpenSeat()) {
+            return false;
+        } return player == null || player.equals(game.whiteUsername()) || player.equals(game.blackUsername());
+    }
+
+    public Comparator<GameSummary> order() {
+        Comparator<GameSummary> byID = Comparator.comparingInt(GameSummary::gameID);
+        return descending ? byID.reversed() : byID;
+    }
+
+    /**
+     * Picks this page out of a full list, for stores that cannot run the query themselves
+     */
+    public List<GameSummary> apply(Collection<GameSummary> games) {
+        List<GameSummary> page = new ArrayList<>();
+        for (GameSummary game : games) {
+            if (matches(game)) {
+                page.add(game);
+            }
+        }
+        page.sort(order());
+        return limit != null && page.size() > limit ? new ArrayList<>(page.subList(0, limit)) : page;
+    }
+}
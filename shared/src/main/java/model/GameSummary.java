@@ -0,0 +1,30 @@
+package model;
+
+import chess.ChessGame;
+
+/**
+ * The listed columns of a game, without its board and moves
+ *
+ * @param botColor the seat played by the computer, or null if both seats are for people
+ */
+public record GameSummary(
+        int gameID,
+        String whiteUsername,
+        String blackUsername,
+        String gameName,
+        GameStatus status,
+        ChessGame.TeamColor botColor
+) {
+    public static GameSummary of(GameData game) {
+        return new GameSummary(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(),
+                game.status(), game.botColor());
+    }
+
+    /**
+     * @return whether someone could still join as a player
+     */
+    public boolean hasOpenSeat() {
+        return (whiteUsername == null && botColor != ChessGame.TeamColor.WHITE)
+                || (blackUsername == null && botColor != ChessGame.TeamColor.BLACK);
+    }
+}
@@ -0,0 +1,37 @@
+package model;
+
+/**
+ * Engine assessment of one move of a finished game
+ *
+ * @param ply        0 for white's first move, 1 for black's reply, ...
+ * @param move       the move played, in coordinate notation
+ * @param bestMove   the engine's preferred move in the same position, or null if it found none
+ * @param evaluation score of the position after the move in centipawns, from white's point of view
+ * @param loss       centipawns the mover gave up compared to the best move, never negative
+ */
+public record MoveAnnotation(
+        int gameID,
+        int ply,
+        String move,
+        String bestMove,
+        int evaluation,
+        int loss,
+        Judgement judgement
+) {
+    public enum Judgement {
+        GOOD,
+        INACCURACY,
+        MISTAKE,
+        BLUNDER;
+
+        public static Judgement of(int loss) {
+            if (loss >= 300) {
+                return BLUNDER;
+            } if (loss >= 100) {
+                return MISTAKE;
+            } if (loss >= 50) {
+                return INACCURACY;
+            } return GOOD;
+        }
+    }
+}
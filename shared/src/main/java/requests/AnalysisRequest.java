@@ -0,0 +1,11 @@
+package requests;
+
+/**
+ * Either fen or gameID picks the position to analyse
+ */
+public record AnalysisRequest(
+        String authToken,
+        String fen,
+        Integer gameID,
+        int depth
+) {}
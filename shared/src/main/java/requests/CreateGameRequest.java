@@ -1,6 +1,16 @@
 package requests;
 
+import chess.ChessGame;
+
+/**
+ * @param botColor seat for the computer to play, or null for a game between people
+ */
 public record CreateGameRequest(
         String authToken,
-        String gameName
-) {}
+        String gameName,
+        ChessGame.TeamColor botColor
+) {
+    public CreateGameRequest(String authToken, String gameName) {
+        this(authToken, gameName, null);
+    }
+}
@@ -1,3 +1,12 @@
 package requests;
 
-public record ListGamesRequest(String authToken) {}
+import model.GameQuery;
+
+/**
+ * @param query the page of games to list; {@link GameQuery#ALL} lists every game
+ */
+public record ListGamesRequest(String authToken, GameQuery query) {
+    public ListGamesRequest(String authToken) {
+        this(authToken, GameQuery.ALL);
+    }
+}
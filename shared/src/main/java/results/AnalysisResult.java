@@ -0,0 +1,32 @@
+package results;
+
+import java.util.List;
+
+/**
+ * Engine verdict for a position. Scores are from white's point of view.
+ *
+ * @param fen                the analysed position
+ * @param depth              search depth reached, in plies
+ * @param score              centipawns, positive when white is better
+ * @param mateIn             moves until mate, positive when white mates, or null if no mate was found
+ * @param bestMove           best move in coordinate notation (e.g. "e2e4"), or null if the game is over
+ * @param principalVariation expected line starting with the best move
+ * @param bookMoves          moves the opening book plays here, most played first; empty out of book
+ * @param nodes              positions searched
+ * @param cached             true if served from the analysis cache
+ */
+public record AnalysisResult(
+        String fen,
+        int depth,
+        int score,
+        Integer mateIn,
+        String bestMove,
+        List<String> principalVariation,
+        List<String> bookMoves,
+        long nodes,
+        boolean cached
+) {
+    public AnalysisResult asCached() {
+        return new AnalysisResult(fen, depth, score, mateIn, bestMove, principalVariation, bookMoves, nodes, true);
+    }
+}
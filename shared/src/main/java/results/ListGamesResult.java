@@ -1,12 +1,32 @@
 package results;
+import chess.ChessGame;
+import model.GameData;
+import model.GameSummary;
+
 import java.util.List;
 
-public record ListGamesResult(List<GameInfo> games) {
+/**
+ * @param next pass as "after" to get the following page; null (and left out of the JSON) on the last page
+ */
+public record ListGamesResult(List<GameInfo> games, Integer next) {
+    public ListGamesResult(List<GameInfo> games) {
+        this(games, null);
+    }
+
     // Nested record w partial game info (not entire ChessGame)
     public record GameInfo(
             int gameID,
             String whiteUsername,
             String blackUsername,
             String gameName
-    ) {}
+    ) {
+        /**
+         * The listed form of a game: a seat played by the computer shows {@link GameData#BOT_USERNAME}
+         */
+        public static GameInfo of(GameSummary game) {
+            String white = game.botColor() == ChessGame.TeamColor.WHITE ? GameData.BOT_USERNAME : game.whiteUsername();
+            String black = game.botColor() == ChessGame.TeamColor.BLACK ? GameData.BOT_USERNAME : game.blackUsername();
+            return new GameInfo(game.gameID(), white, black, game.gameName());
+        }
+    }
 }
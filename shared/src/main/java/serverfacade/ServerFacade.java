@@ -1,6 +1,7 @@
 package serverfacade;
 
-import com.google.gson.Gson;
+import chess.ChessGame;
+import json.Serializer;
 import exception.ResponseException;
 import model.*;
 import requests.CreateGameRequest;
@@ -11,11 +12,14 @@ import results.ListGamesResult;
 
 import java.io.*;
 import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 
 public class ServerFacade {
 
     private final String serverUrl;
+    private volatile CachedList lastList; //The last game list fetched, reused while the server says it is current
 
     public ServerFacade(String url){
         serverUrl = url;
@@ -46,9 +50,41 @@ public class ServerFacade {
         return this.makeRequest("POST", path, new CreateGameRequest(authToken, gameName), GameData.class, authToken);
     }
 
+    /**
+     * Creates a game where the computer plays the given color
+     */
+    public GameData createGame(String authToken, String gameName, ChessGame.TeamColor botColor) throws ResponseException {
+        var path = "/game";
+        return this.makeRequest("POST", path, new CreateGameRequest(authToken, gameName, botColor), GameData.class, authToken);
+    }
+
     public List<ListGamesResult.GameInfo> listGames(String authToken) throws ResponseException {
         var path = "/game";
-        return this.makeRequest("GET", path, null, ListGamesResult.class, authToken).games();
+        return this.getGameList(path, authToken).games();
+    }
+
+    /**
+     * Lists one page of games. Pass the returned next as the query's after to get the following page.
+     */
+    public ListGamesResult listGames(String authToken, GameQuery query) throws ResponseException {
+        StringBuilder path = new StringBuilder("/game");
+        List<String> params = new ArrayList<>();
+        if (query.after() != null) {
+            params.add("after=" + query.after());
+        } if (query.limit() != null) {
+            params.add("limit=" + query.limit());
+        } if (query.status() != null) {
+            params.add("status=" + query.status().name());
+        } if (query.openSeat()) {
+            params.add("open=true");
+        } if (query.player() != null) {
+            params.add("player=" + URLEncoder.encode(query.player(), StandardCharsets.UTF_8));
+        } if (query.descending()) {
+            params.add("sort=desc");
+        } if (!params.isEmpty()) {
+            path.append('?').append(String.join("&", params));
+        }
+        return this.getGameList(path.toString(), authToken);
     }
 
     public void joinGame(String authToken, int gameID, String playerColor) throws ResponseException{
@@ -86,10 +122,47 @@ public class ServerFacade {
 
 
 
+    /**
+     * GET for a game list that sends the ETag of the last list fetched from the same path, and reuses
+     * that list when the server answers 304 Not Modified
+     */
+    private ListGamesResult getGameList(String path, String authToken) throws ResponseException {
+        try {
+            URL url = (new URI(serverUrl + path)).toURL();
+            HttpURLConnection http = (HttpURLConnection) url.openConnection();
+            http.setRequestMethod("GET");
+            if (authToken != null) {
+                http.setRequestProperty("Authorization", authToken);
+            }
+            CachedList cached = lastList;
+            if (cached != null && cached.path().equals(path)) {
+                http.setRequestProperty("If-None-Match", cached.etag());
+            }
+            http.connect();
+            if (cached != null && http.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return cached.result();
+            }
+            throwIfNotSuccessful(http);
+            ListGamesResult result = readBody(http, ListGamesResult.class);
+            String etag = http.getHeaderField("ETag");
+            lastList = etag == null ? null : new CachedList(path, etag, result);
+            return result;
+
+        }
+        catch (ResponseException ex) {
+            throw ex;
+        }
+        catch (Exception ex) {
+            throw new ResponseException(500, "Connection failed: " + ex.getMessage());
+        }
+    }
+
+    private record CachedList(String path, String etag, ListGamesResult result) {}
+
     private static void writeBody(Object request, HttpURLConnection http) throws IOException {
         if (request != null) {
             http.addRequestProperty("Content-Type", "application/json");
-            String reqData = new Gson().toJson(request);
+            String reqData = Serializer.GSON.toJson(request);
 
             try (OutputStream reqBody = http.getOutputStream()) {
                 reqBody.write(reqData.getBytes());
@@ -115,7 +188,7 @@ public class ServerFacade {
             try (InputStream respBody = http.getInputStream()) {
                 InputStreamReader reader = new InputStreamReader(respBody);
                 if (responseClass != null) {
-                    response = new Gson().fromJson(reader, responseClass);
+                    response = Serializer.GSON.fromJson(reader, responseClass);
                 }
             }
         } return response;
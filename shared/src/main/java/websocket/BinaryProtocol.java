@@ -0,0 +1,337 @@
+package websocket;
+
+import chess.*;
+import model.GameStatus;
+import model.GameSummary;
+import websocket.commands.*;
+import websocket.messages.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary frames for WebSocket commands and server messages, an alternative to JSON.
+ * <p>
+ * A frame is one type byte followed by its fields. Integers are unsigned varints (7 bits per byte,
+ * low bits first); game IDs and string lengths are stored plus one so that 0 can mean null. Moves
+ * are {@link PackedMove}s in two bytes, with NONE for a missing move. A game is a flags byte (bit 0 set when black is to move), a
+ * 64-bit occupancy mask with a1 as bit 0, one byte per occupied square and then the move history:
+ * <pre>
+ *   piece byte: bits 0-2 type ordinal, bit 3 black, bit 4 has moved, bit 5 pawn just moved two squares
+ * </pre>
+ * A game summary (in LOBBY messages) is the game ID as a varint, the white, black and game names, then
+ * one byte: bits 0-3 status ordinal, bits 4-5 the computer's seat (0 none, 1 white, 2 black).
+ * <p>
+ * A connection uses JSON until the client sends a binary frame; from then on the server answers in
+ * binary too.
+ */
+public final class BinaryProtocol {
+    // Commands
+    static final byte TYPE_CONNECT = 0x01;
+    static final byte TYPE_MAKE_MOVE = 0x02;
+    static final byte TYPE_LEAVE = 0x03;
+    static final byte TYPE_RESIGN = 0x04;
+    static final byte TYPE_LOBBY_SUBSCRIBE = 0x05;
+    static final byte TYPE_LOBBY_UNSUBSCRIBE = 0x06;
+    // Server messages
+    static final byte TYPE_LOAD_GAME = 0x11;
+    static final byte TYPE_ERROR = 0x12;
+    static final byte TYPE_NOTIFICATION = 0x13;
+    static final byte TYPE_MOVE = 0x14;
+    static final byte TYPE_LOBBY = 0x15;
+
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+    private static final GameStatus[] STATUSES = GameStatus.values();
+
+    private BinaryProtocol() {
+    }
+
+    public static byte[] encodeCommand(UserGameCommand command) {
+        Writer out = new Writer();
+        switch (command.getCommandType()) {
+            case CONNECT -> out.write(TYPE_CONNECT);
+            case MAKE_MOVE -> out.write(TYPE_MAKE_MOVE);
+            case LEAVE -> out.write(TYPE_LEAVE);
+            case RESIGN -> out.write(TYPE_RESIGN);
+            case LOBBY_SUBSCRIBE -> out.write(TYPE_LOBBY_SUBSCRIBE);
+            case LOBBY_UNSUBSCRIBE -> out.write(TYPE_LOBBY_UNSUBSCRIBE);
+        }
+        out.writeString(command.getAuthToken());
+        out.writeNullableInt(command.getGameID());
+        if (command instanceof ConnectCommand connect) {
+            out.write(connect.wantsMoveDeltas() ? 1 : 0);
+        } else if (command instanceof MakeMoveCommand makeMove) {
+            out.writeMove(makeMove.getMove());
+        } return out.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the frame is not a valid command
+     */
+    public static UserGameCommand decodeCommand(ByteBuffer frame) {
+        try {
+            byte type = frame.get();
+            String authToken = readString(frame);
+            Integer gameID = readNullableInt(frame);
+            UserGameCommand command = switch (type) {
+                case TYPE_CONNECT -> new ConnectCommand(authToken, gameID, (frame.get() & 1) != 0);
+                case TYPE_MAKE_MOVE -> new MakeMoveCommand(authToken, gameID, readMove(frame));
+                case TYPE_LEAVE -> new LeaveCommand(authToken, gameID);
+                case TYPE_RESIGN -> new ResignCommand(authToken, gameID);
+                case TYPE_LOBBY_SUBSCRIBE -> new LobbySubscribeCommand(authToken);
+                case TYPE_LOBBY_UNSUBSCRIBE -> new LobbyUnsubscribeCommand(authToken);
+                default -> throw new IllegalArgumentException("Unknown command type " + type);
+            };
+            expectEnd(frame);
+            return command;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Command frame is truncated");
+        }
+    }
+
+    public static byte[] encodeMessage(ServerMessage message) {
+        Writer out = new Writer();
+        if (message instanceof LoadGameMessage load) {
+            out.write(TYPE_LOAD_GAME);
+            out.writeGame(load.getGame());
+        } else if (message instanceof ErrorMessage error) {
+            out.write(TYPE_ERROR);
+            out.writeString(error.getErrorMessage());
+        } else if (message instanceof NotificationMessage notification) {
+            out.write(TYPE_NOTIFICATION);
+            out.writeString(notification.getMessage());
+        } else if (message instanceof MoveMessage move) {
+            out.write(TYPE_MOVE);
+            out.writeMove(move.getMove());
+            out.writeLong(move.getPositionHash());
+            out.writeVarint(move.getSequence());
+        } else if (message instanceof LobbyMessage lobby) {
+            out.write(TYPE_LOBBY);
+            out.writeVarint(lobby.getSequence());
+            out.write(lobby.isReset() ? 1 : 0);
+            out.writeSummaries(lobby.getAdded());
+            out.writeSummaries(lobby.getUpdated());
+            out.writeVarint(lobby.getRemoved().size());
+            for (int gameID : lobby.getRemoved()) {
+                out.writeVarint(gameID);
+            }
+        } else {
+            throw new IllegalArgumentException("No binary form for " + message.getServerMessageType());
+        } return out.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the frame is not a valid server message
+     */
+    public static ServerMessage decodeMessage(ByteBuffer frame) {
+        try {
+            byte type = frame.get();
+            ServerMessage message = switch (type) {
+                case TYPE_LOAD_GAME -> new LoadGameMessage(readGame(frame));
+                case TYPE_ERROR -> new ErrorMessage(readString(frame));
+                case TYPE_NOTIFICATION -> new NotificationMessage(readString(frame));
+                case TYPE_MOVE -> new MoveMessage(readMove(frame), frame.getLong(), readVarint(frame));
+                case TYPE_LOBBY -> readLobby(frame);
+                default -> throw new IllegalArgumentException("Unknown message type " + type);
+            };
+            expectEnd(frame);
+            return message;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Message frame is truncated");
+        }
+    }
+
+    private static ChessGame readGame(ByteBuffer frame) {
+        int flags = frame.get();
+        long occupied = frame.getLong();
+        ChessBoard board = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            if ((occupied & (1L << square)) == 0) {
+                continue;
+            }
+            int bits = frame.get();
+            if ((bits & 0x7) >= PIECE_TYPES.length) {
+                throw new IllegalArgumentException("Unknown piece type " + (bits & 0x7));
+            }
+            ChessPiece piece = new ChessPiece((bits & 0x8) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE,
+                    PIECE_TYPES[bits & 0x7]);
+            piece.setHasMoved((bits & 0x10) != 0);
+            piece.pawnJustDoubleMoved = (bits & 0x20) != 0;
+            board.addPiece(PackedMove.position(square), piece);
+        }
+        int plies = readVarint(frame);
+        List<ChessMove> history = new ArrayList<>(Math.min(plies, frame.remaining() / 2));
+        for (int i = 0; i < plies; i++) {
+            history.add(readMove(frame));
+        }
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn((flags & 1) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        game.setMoveHistory(history);
+        game.getKingPosition(ChessGame.TeamColor.WHITE);
+        game.getKingPosition(ChessGame.TeamColor.BLACK);
+        return game;
+    }
+
+    private static LobbyMessage readLobby(ByteBuffer frame) {
+        int sequence = readVarint(frame);
+        boolean reset = (frame.get() & 1) != 0;
+        List<GameSummary> added = readSummaries(frame);
+        List<GameSummary> updated = readSummaries(frame);
+        int count = readVarint(frame);
+        List<Integer> removed = new ArrayList<>(Math.min(count, frame.remaining()));
+        for (int i = 0; i < count; i++) {
+            removed.add(readVarint(frame));
+        }
+        return new LobbyMessage(sequence, reset, added, updated, removed);
+    }
+
+    private static List<GameSummary> readSummaries(ByteBuffer frame) {
+        int count = readVarint(frame);
+        List<GameSummary> summaries = new ArrayList<>(Math.min(count, frame.remaining() / 5));
+        for (int i = 0; i < count; i++) {
+            int gameID = readVarint(frame);
+            String white = readString(frame);
+            String black = readString(frame);
+            String name = readString(frame);
+            int bits = frame.get();
+            if ((bits & 0xF) >= STATUSES.length || ((bits >> 4) & 0x3) == 3) {
+                throw new IllegalArgumentException("Unknown game status or seat " + bits);
+            }
+            ChessGame.TeamColor bot = switch ((bits >> 4) & 0x3) {
+                case 1 -> ChessGame.TeamColor.WHITE;
+                case 2 -> ChessGame.TeamColor.BLACK;
+                default -> null;
+            };
+            summaries.add(new GameSummary(gameID, white, black, name, STATUSES[bits & 0xF], bot));
+        } return summaries;
+    }
+
+    private static ChessMove readMove(ByteBuffer frame) {
+        int packed = frame.getShort() & 0xFFFF;
+        return packed == PackedMove.NONE ? null : PackedMove.unpack(packed);
+    }
+
+    private static String readString(ByteBuffer frame) {
+        int length = readVarint(frame) - 1;
+        if (length < 0) {
+            return null;
+        } if (length > frame.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        frame.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Integer readNullableInt(ByteBuffer frame) {
+        int value = readVarint(frame);
+        return value == 0 ? null : value - 1;
+    }
+
+    private static int readVarint(ByteBuffer frame) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = frame.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint is too long");
+    }
+
+    private static void expectEnd(ByteBuffer frame) {
+        if (frame.hasRemaining()) {
+            throw new IllegalArgumentException(frame.remaining() + " unexpected bytes at end of frame");
+        }
+    }
+
+    private static final class Writer extends ByteArrayOutputStream {
+        Writer() {
+            super(64);
+        }
+
+        void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        void writeNullableInt(Integer value) {
+            if (value != null && value < 0) {
+                throw new IllegalArgumentException("IDs must not be negative: " + value);
+            }
+            writeVarint(value == null ? 0 : value + 1);
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeMove(ChessMove move) {
+            int packed = move == null ? PackedMove.NONE : PackedMove.pack(move);
+            write(packed >>> 8);
+            write(packed);
+        }
+
+        void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift));
+            }
+        }
+
+        void writeSummaries(List<GameSummary> summaries) {
+            writeVarint(summaries.size());
+            for (GameSummary summary : summaries) {
+                writeVarint(summary.gameID());
+                writeString(summary.whiteUsername());
+                writeString(summary.blackUsername());
+                writeString(summary.gameName());
+                int bot = summary.botColor() == null ? 0 : summary.botColor() == ChessGame.TeamColor.WHITE ? 1 : 2;
+                write(summary.status().ordinal() | bot << 4);
+            }
+        }
+
+        void writeGame(ChessGame game) {
+            ChessBoard board = game.getBoard();
+            long occupied = 0;
+            byte[] pieces = new byte[32];
+            int count = 0;
+            for (int square = 0; square < 64; square++) {
+                ChessPiece piece = board.getPiece(PackedMove.position(square));
+                if (piece == null) {
+                    continue;
+                } if (count == pieces.length) {
+                    pieces = Arrays.copyOf(pieces, 64);
+                }
+                occupied |= 1L << square;
+                pieces[count++] = (byte) (piece.getPieceType().ordinal()
+                        | (piece.getTeamColor() == ChessGame.TeamColor.BLACK ? 0x8 : 0)
+                        | (piece.hasMoved ? 0x10 : 0)
+                        | (piece.pawnJustDoubleMoved ? 0x20 : 0));
+            }
+            write(game.getTeamTurn() == ChessGame.TeamColor.BLACK ? 1 : 0);
+            writeLong(occupied);
+            write(pieces, 0, count);
+            List<ChessMove> history = game.getMoveHistory();
+            writeVarint(history.size());
+            for (ChessMove move : history) {
+                writeMove(move);
+            }
+        }
+    }
+}
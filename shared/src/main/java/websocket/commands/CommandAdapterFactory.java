@@ -0,0 +1,102 @@
+package websocket.commands;
+
+import chess.ChessMove;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Reads a {@link UserGameCommand} as its concrete subclass in one pass over the JSON.
+ * <p>
+ * Fields may come in any order; the command is built once all are read, so commandType does not
+ * have to be first. Unknown fields are skipped and an unknown commandType reads as null, as the
+ * reflective adapter would. Writing is left to the reflective adapter of the command's class.
+ * Register with {@code new GsonBuilder().registerTypeAdapterFactory(new CommandAdapterFactory())},
+ * then read with {@code gson.fromJson(json, UserGameCommand.class)}.
+ */
+public class CommandAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (type.getRawType() != UserGameCommand.class) {
+            return null;
+        }
+        return (TypeAdapter<T>) new CommandAdapter(gson, gson.getAdapter(ChessMove.class));
+    }
+
+    private static class CommandAdapter extends TypeAdapter<UserGameCommand> {
+        private final Gson gson;
+        private final TypeAdapter<ChessMove> moveAdapter;
+
+        CommandAdapter(Gson gson, TypeAdapter<ChessMove> moveAdapter) {
+            this.gson = gson;
+            this.moveAdapter = moveAdapter;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void write(JsonWriter out, UserGameCommand command) throws IOException {
+            if (command == null) {
+                out.nullValue();
+                return;
+            }
+            TypeAdapter<UserGameCommand> delegate = (TypeAdapter<UserGameCommand>) gson.getAdapter(command.getClass());
+            delegate.write(out, command);
+        }
+
+        @Override
+        public UserGameCommand read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            UserGameCommand.CommandType type = null;
+            String authToken = null;
+            Integer gameID = null;
+            ChessMove move = null;
+            boolean moveDeltas = false;
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "commandType" -> type = commandType(in.nextString());
+                    case "authToken" -> authToken = in.nextString();
+                    case "gameID" -> gameID = in.nextInt();
+                    case "move" -> move = moveAdapter.read(in);
+                    case "moveDeltas" -> moveDeltas = in.nextBoolean();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (type == null) {
+                return new UserGameCommand(null, authToken, gameID);
+            } return switch (type) {
+                case CONNECT -> new ConnectCommand(authToken, gameID, moveDeltas);
+                case MAKE_MOVE -> new MakeMoveCommand(authToken, gameID, move);
+                case LEAVE -> new LeaveCommand(authToken, gameID);
+                case RESIGN -> new ResignCommand(authToken, gameID);
+                case LOBBY_SUBSCRIBE -> new LobbySubscribeCommand(authToken);
+                case LOBBY_UNSUBSCRIBE -> new LobbyUnsubscribeCommand(authToken);
+            };
+        }
+
+        private static UserGameCommand.CommandType commandType(String name) {
+            try {
+                return UserGameCommand.CommandType.valueOf(name);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -1,7 +1,18 @@
 package websocket.commands;
 
 public class ConnectCommand extends UserGameCommand {
+    private final boolean moveDeltas; // Wants MOVE messages instead of a full LOAD_GAME after each move
+
     public ConnectCommand(String authToken, Integer gameID) {
+        this(authToken, gameID, false);
+    }
+
+    public ConnectCommand(String authToken, Integer gameID, boolean moveDeltas) {
         super(CommandType.CONNECT, authToken, gameID);
+        this.moveDeltas = moveDeltas;
+    }
+
+    public boolean wantsMoveDeltas() {
+        return moveDeltas;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,11 @@
+package websocket.commands;
+
+/**
+ * Asks for the list of games in play, then a LOBBY message whenever it changes. Sending it again
+ * starts over with a fresh snapshot.
+ */
+public class LobbySubscribeCommand extends UserGameCommand {
+    public LobbySubscribeCommand(String authToken) {
+        super(CommandType.LOBBY_SUBSCRIBE, authToken, null);
+    }
+}
@@ -0,0 +1,7 @@
+package websocket.commands;
+
+public class LobbyUnsubscribeCommand extends UserGameCommand {
+    public LobbyUnsubscribeCommand(String authToken) {
+        super(CommandType.LOBBY_UNSUBSCRIBE, authToken, null);
+    }
+}
@@ -26,7 +26,9 @@ public class UserGameCommand {
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        LOBBY_SUBSCRIBE, // No gameID; the lobby is every game in play
+        LOBBY_UNSUBSCRIBE
     }
 
     public CommandType getCommandType() {
@@ -0,0 +1,52 @@
+package websocket.messages;
+
+import model.GameSummary;
+
+import java.util.List;
+
+/**
+ * Changes to the lobby - the games still in play - since the previous LOBBY message.
+ * <p>
+ * sequence goes up by one with each batch of changes. A message with reset set replaces the whole
+ * lobby with its added games: the first one after subscribing, and after the server clears its games.
+ * Otherwise added and updated games replace any copy the client holds and removed games (finished, or
+ * gone) are dropped. A client that sees a sequence number skipped has missed a batch and should
+ * subscribe again.
+ */
+public class LobbyMessage extends ServerMessage {
+    private final int sequence;
+    private final boolean reset;
+    private final List<GameSummary> added;
+    private final List<GameSummary> updated;
+    private final List<Integer> removed;
+
+    public LobbyMessage(int sequence, boolean reset, List<GameSummary> added, List<GameSummary> updated,
+                        List<Integer> removed) {
+        super(ServerMessageType.LOBBY);
+        this.sequence = sequence;
+        this.reset = reset;
+        this.added = added;
+        this.updated = updated;
+        this.removed = removed;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public boolean isReset() {
+        return reset;
+    }
+
+    public List<GameSummary> getAdded() {
+        return added != null ? added : List.of();
+    }
+
+    public List<GameSummary> getUpdated() {
+        return updated != null ? updated : List.of();
+    }
+
+    public List<Integer> getRemoved() {
+        return removed != null ? removed : List.of();
+    }
+}
@@ -0,0 +1,31 @@
+package websocket.messages;
+import chess.ChessMove;
+
+/**
+ * One move applied to the game, sent instead of a full LOAD_GAME to clients that asked for deltas.
+ * sequence is the number of moves played including this one; positionHash is the
+ * {@link chess.PositionHash} after it, so a client can tell whether its copy still matches.
+ */
+public class MoveMessage extends ServerMessage {
+    private final ChessMove move;
+    private final long positionHash;
+    private final int sequence;
+    public MoveMessage(ChessMove move, long positionHash, int sequence) {
+        super(ServerMessageType.MOVE);
+        this.move = move;
+        this.positionHash = positionHash;
+        this.sequence = sequence;
+    }
+
+    public ChessMove getMove() {
+        return move;
+    }
+
+    public long getPositionHash() {
+        return positionHash;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+}
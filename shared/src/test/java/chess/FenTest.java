@@ -0,0 +1,52 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FenTest {
+
+    @Test
+    void testStartPositionRoundTrip() {
+        ChessGame game = Fen.parse(Fen.START);
+        assertEquals(new ChessGame().getBoard(), game.getBoard());
+        assertEquals(PositionHash.of(new ChessGame()), PositionHash.of(game));
+        assertEquals(Fen.START, Fen.format(new ChessGame()));
+    }
+
+    @Test
+    void testMatchesPlayedMoves() throws InvalidMoveException {
+        // 1. e4 d5 2. e5 f5 leaves an en passant capture on f6; 3. Ke2 loses white's castling rights
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 4, 5, 4));
+        game.makeMove(move(4, 5, 5, 5));
+        game.makeMove(move(7, 6, 5, 6));
+        String fen = "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 1";
+        assertEquals(fen, Fen.format(game));
+        assertEquals(PositionHash.of(game), PositionHash.of(Fen.parse(fen)));
+
+        game.makeMove(move(1, 5, 2, 5));
+        assertEquals("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 1", Fen.format(game));
+        assertEquals(PositionHash.of(game), PositionHash.of(Fen.parse(Fen.format(game))));
+    }
+
+    @Test
+    void testMoveNotation() {
+        assertEquals("e2e4", Fen.moveToString(move(2, 5, 4, 5)));
+        assertEquals("a7a8q", Fen.moveToString(new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1),
+                ChessPiece.PieceType.QUEEN)));
+    }
+
+    @Test
+    void testRejectsMalformed() {
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("8/8/8 w - -"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("4k3/8/8/8/8/8/8/4K3 w - e6"));
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+}
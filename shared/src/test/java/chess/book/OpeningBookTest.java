@@ -0,0 +1,93 @@
+package chess.book;
+
+import chess.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpeningBookTest {
+
+    private static final String PGN = """
+            [Event "One"]
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 {main line} Nc6 (2... d6 3. d4) 3. Bb5 a6 1-0
+
+            [Event "Two"]
+            [Result "1/2-1/2"]
+
+            1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5 1/2-1/2
+
+            [Event "Three"]
+            [Result "0-1"]
+
+            1. d4 d5 2. c4 e6 $1 0-1
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testBuildAndProbe() throws Exception {
+        OpeningBookBuilder builder = new OpeningBookBuilder(10, 1);
+        assertEquals(3, builder.addPgn(new StringReader(PGN)));
+        Path file = tempDir.resolve("book.bin");
+        int written = builder.write(file);
+        assertTrue(written > 0);
+
+        try (OpeningBook book = OpeningBook.open(file)) {
+            assertEquals(written, book.entryCount());
+            ChessGame game = new ChessGame();
+            int first = book.findFirst(PositionHash.of(game));
+            assertTrue(first >= 0, "Starting position should be in the book");
+
+            // 1.d4 only appears in a loss for white, so it carries no weight
+            ChessMove move = book.pickMove(game, new Random(7));
+            assertEquals(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null), move);
+            assertEquals(java.util.List.of(move), book.moves(game), "Weightless moves are not listed");
+
+            game.makeMove(move);
+            assertNotNull(book.pickMove(game, new Random(7)));
+        }
+    }
+
+    @Test
+    void testOutOfBookPosition() throws Exception {
+        OpeningBookBuilder builder = new OpeningBookBuilder(2, 1);
+        builder.addPgn(new StringReader(PGN));
+        Path file = tempDir.resolve("short.bin");
+        builder.write(file);
+
+        try (OpeningBook book = OpeningBook.open(file)) {
+            ChessGame game = new ChessGame();
+            game.makeMove(SanMove.resolve(game, "e4"));
+            game.makeMove(SanMove.resolve(game, "e5"));
+            assertEquals(-1, book.findFirst(PositionHash.of(game)));
+            assertNull(book.pickMove(game, new Random(1)));
+        }
+    }
+
+    @Test
+    void testResolveSpecialMoves() throws Exception {
+        ChessGame game = new ChessGame();
+        for (String san : new String[]{"e4", "e5", "Nf3", "Nc6", "Bc4", "Nf6"}) {
+            game.makeMove(SanMove.resolve(game, san));
+        }
+        ChessMove castle = SanMove.resolve(game, "O-O");
+        assertEquals(new ChessPosition(1, 7), castle.getEndPosition());
+        assertThrows(InvalidMoveException.class, () -> SanMove.resolve(game, "O-O-O"));
+        assertThrows(InvalidMoveException.class, () -> SanMove.resolve(game, "Qh9"));
+    }
+
+    @Test
+    void testRejectsNonBookFile() throws Exception {
+        Path file = tempDir.resolve("junk.bin");
+        java.nio.file.Files.write(file, new byte[32]);
+        assertThrows(java.io.IOException.class, () -> OpeningBook.open(file));
+    }
+}
@@ -0,0 +1,133 @@
+package chess.engine;
+
+import chess.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EngineTest {
+
+    @Test
+    void testPerftFromStart() {
+        SearchBoard board = new SearchBoard(new ChessGame());
+        assertEquals(20, perft(board, 1));
+        assertEquals(400, perft(board, 2));
+        assertEquals(8902, perft(board, 3));
+        assertEquals(197281, perft(board, 4));
+    }
+
+    @Test
+    void testIncrementalHashMatchesPositionHash() throws InvalidMoveException {
+        Random random = new Random(7);
+        for (int gameNumber = 0; gameNumber < 20; gameNumber++) {
+            ChessGame game = new ChessGame();
+            SearchBoard board = new SearchBoard(game);
+            for (int ply = 0; ply < 80; ply++) {
+                List<Integer> legal = legalMoves(board);
+                if (legal.isEmpty()) {
+                    break;
+                }
+                int move = legal.get(random.nextInt(legal.size()));
+                board.make(move);
+                game.makeMove(SearchBoard.toChessMove(move));
+                assertEquals(PositionHash.of(game), board.hash(), "Hash drifted after " + SearchBoard.toChessMove(move));
+                assertEquals(PositionHash.of(game), new SearchBoard(game).hash());
+            }
+        }
+    }
+
+    @Test
+    void testFindsMateInOne() {
+        // Back-rank mate: Ra1-a8#
+        ChessGame game = game(ChessGame.TeamColor.WHITE,
+                piece(1, 7, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                piece(1, 1, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK),
+                piece(8, 7, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING),
+                piece(7, 6, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN),
+                piece(7, 7, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN),
+                piece(7, 8, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        SearchResult result = new Engine(null, null, null).search(game, new SearchLimits(4, 10_000));
+        assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null), result.bestMove());
+        assertEquals(1, result.matePlies());
+        assertEquals(SearchResult.Source.SEARCH, result.source());
+    }
+
+    @Test
+    void testWinsHangingQueen() {
+        ChessGame game = game(ChessGame.TeamColor.BLACK,
+                piece(1, 5, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                piece(4, 4, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN),
+                piece(8, 5, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING),
+                piece(6, 3, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        SearchResult result = new Engine(null, null, new TranspositionTable(1)).search(game, new SearchLimits(3, 10_000));
+        assertEquals(new ChessPosition(4, 4), result.bestMove().getEndPosition());
+        assertTrue(result.score() > 200);
+    }
+
+    @Test
+    void testRespectsTimeBudget() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        long start = System.nanoTime();
+        SearchResult result = new Engine(null, null, null).search(game, new SearchLimits(SearchLimits.MAX_DEPTH, 200));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMillis < 1000, "Search took " + elapsedMillis + " ms");
+        assertNotNull(result.bestMove());
+        game.makeMove(result.bestMove());
+    }
+
+    @Test
+    void testNoMovesWhenCheckmated() {
+        ChessGame game = game(ChessGame.TeamColor.BLACK,
+                piece(6, 2, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                piece(7, 1, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN),
+                piece(8, 1, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        SearchResult result = new Engine(null, null, null).search(game, new SearchLimits(3, 1000));
+        assertNull(result.bestMove());
+        assertEquals(-SearchResult.MATE, result.score());
+    }
+
+    private static long perft(SearchBoard board, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        long total = 0;
+        for (int move : legalMoves(board)) {
+            board.make(move);
+            total += perft(board, depth - 1);
+            board.unmake();
+        } return total;
+    }
+
+    private static List<Integer> legalMoves(SearchBoard board) {
+        int[] moves = new int[SearchBoard.MAX_MOVES];
+        int count = board.generate(moves, false);
+        List<Integer> legal = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (board.makeLegal(moves[i])) {
+                board.unmake();
+                legal.add(moves[i]);
+            }
+        } return legal;
+    }
+
+    private record Placement(ChessPosition position, ChessPiece piece) {}
+
+    private static Placement piece(int row, int col, ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return new Placement(new ChessPosition(row, col), new ChessPiece(color, type));
+    }
+
+    private static ChessGame game(ChessGame.TeamColor turn, Placement... placements) {
+        ChessBoard board = new ChessBoard();
+        for (Placement placement : placements) {
+            board.addPiece(placement.position(), placement.piece());
+        }
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(turn);
+        return game;
+    }
+}
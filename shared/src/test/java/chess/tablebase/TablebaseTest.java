@@ -0,0 +1,107 @@
+package chess.tablebase;
+
+import chess.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TablebaseTest {
+
+    @TempDir
+    static Path tempDir;
+
+    private static TablebaseGenerator generator;
+
+    @BeforeAll
+    static void generate() throws Exception {
+        generator = new TablebaseGenerator(ForkJoinPool.commonPool());
+        generator.write(Material.parse("KQK"), tempDir.resolve("KQK" + Tablebase.EXTENSION));
+        generator.write(Material.parse("KRK"), tempDir.resolve("KRK" + Tablebase.EXTENSION));
+    }
+
+    @Test
+    void testLongestMates() {
+        // Known results: KQK is mate in 10 and KRK mate in 16 at worst (black to move adds a ply)
+        assertEquals(20, longest(generator.generate(Material.parse("KQK"))));
+        assertEquals(32, longest(generator.generate(Material.parse("KRK"))));
+    }
+
+    @Test
+    void testProbeMateInOne() throws Exception {
+        try (Tablebase tablebase = Tablebase.open(tempDir)) {
+            assertTrue(tablebase.materials().contains("KQK"));
+            ChessGame game = game(ChessGame.TeamColor.WHITE,
+                    piece(6, 3, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                    piece(1, 2, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN),
+                    piece(8, 1, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+            assertEquals(new TablebaseResult(TablebaseResult.Outcome.WIN, 1), tablebase.probe(game));
+        }
+    }
+
+    @Test
+    void testProbeMirroredCheckmate() throws Exception {
+        // Black has the queen and white is already mated
+        try (Tablebase tablebase = Tablebase.open(tempDir)) {
+            ChessGame game = game(ChessGame.TeamColor.WHITE,
+                    piece(3, 2, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING),
+                    piece(2, 1, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN),
+                    piece(1, 1, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+            assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+            assertEquals(new TablebaseResult(TablebaseResult.Outcome.LOSS, 0), tablebase.probe(game));
+        }
+    }
+
+    @Test
+    void testProbeDrawAndUncovered() throws Exception {
+        try (Tablebase tablebase = Tablebase.open(tempDir)) {
+            // The lone king takes the undefended queen
+            ChessGame hanging = game(ChessGame.TeamColor.BLACK,
+                    piece(1, 8, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                    piece(7, 2, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN),
+                    piece(8, 1, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+            assertEquals(TablebaseResult.Outcome.DRAW, tablebase.probe(hanging).outcome());
+
+            assertNull(tablebase.probe(new ChessGame()), "Opening position is not covered");
+            ChessGame bishop = game(ChessGame.TeamColor.WHITE,
+                    piece(1, 8, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                    piece(4, 4, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP),
+                    piece(8, 1, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+            assertNull(tablebase.probe(bishop), "KBK table was not written");
+        }
+    }
+
+    @Test
+    void testRejectsUnsupportedMaterial() {
+        assertThrows(IllegalArgumentException.class, () -> Material.parse("KPK"));
+        assertThrows(IllegalArgumentException.class, () -> Material.parse("KQRBK"));
+    }
+
+    private static int longest(byte[] table) {
+        int max = 0;
+        for (byte value : table) {
+            max = Math.max(max, value);
+        } return max;
+    }
+
+    private record Placement(ChessPosition position, ChessPiece piece) {}
+
+    private static Placement piece(int row, int col, ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return new Placement(new ChessPosition(row, col), new ChessPiece(color, type));
+    }
+
+    private static ChessGame game(ChessGame.TeamColor turn, Placement... placements) {
+        ChessBoard board = new ChessBoard();
+        for (Placement placement : placements) {
+            board.addPiece(placement.position(), placement.piece());
+        }
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(turn);
+        return game;
+    }
+}
@@ -0,0 +1,90 @@
+package json;
+
+import chess.*;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import model.GameData;
+import model.GameStatus;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChessAdapterFactoryTest {
+
+    private final Gson gson = new GsonBuilder().registerTypeAdapterFactory(new ChessAdapterFactory(true)).create();
+
+    @Test
+    void testGameRoundTrip() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 4, 5, 4));
+        game.makeMove(move(4, 5, 5, 5));
+        game.makeMove(move(7, 6, 5, 6)); //White can take en passant on f6
+        game.makeMove(move(1, 5, 2, 5)); //...but gives up castling instead
+
+        String json = gson.toJson(game);
+        assertEquals("{\"fen\":\"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 1\","
+                + "\"moves\":[\"e2e4\",\"d7d5\",\"e4e5\",\"f7f5\",\"e1e2\"]}", json);
+        ChessGame decoded = gson.fromJson(json, ChessGame.class);
+        assertEquals(game.getBoard(), decoded.getBoard());
+        assertEquals(game.getTeamTurn(), decoded.getTeamTurn());
+        assertEquals(game.getMoveHistory(), decoded.getMoveHistory());
+        assertEquals(PositionHash.of(game), PositionHash.of(decoded));
+        assertEquals(game.validMoves(new ChessPosition(8, 5)), decoded.validMoves(new ChessPosition(8, 5)));
+    }
+
+    @Test
+    void testReadsReflectiveGames() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        String legacy = new Gson().toJson(new GameData(1, "white", "black", "old", game, GameStatus.ACTIVE));
+
+        GameData decoded = gson.fromJson(legacy, GameData.class);
+        assertEquals(game.getBoard(), decoded.game().getBoard());
+        assertEquals(game.getMoveHistory(), decoded.game().getMoveHistory());
+        assertTrue(gson.toJson(decoded).length() * 10 < legacy.length(), "Compact form should be far smaller");
+    }
+
+    @Test
+    void testMovesAndBoards() {
+        ChessMove promotion = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.KNIGHT);
+        assertEquals("\"a7a8n\"", gson.toJson(promotion));
+        assertEquals(promotion, gson.fromJson("\"a7a8n\"", ChessMove.class));
+        assertEquals(promotion, gson.fromJson(new Gson().toJson(promotion), ChessMove.class));
+
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        String json = gson.toJson(board);
+        assertEquals("\"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR KQkq -\"", json);
+        assertEquals(board, gson.fromJson(json, ChessBoard.class));
+        assertEquals(board, gson.fromJson(new Gson().toJson(board), ChessBoard.class));
+    }
+
+    @Test
+    void testSharedGsonWritesPlainShape() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        ChessMove move = move(7, 5, 5, 5);
+        assertEquals(new Gson().toJson(game), Serializer.GSON.toJson(game), "JSON clients read games with plain Gson");
+        assertEquals(new Gson().toJson(move), Serializer.GSON.toJson(move));
+        assertFalse(Serializer.GSON.toJson(game).contains("KingPosition"), "Move search scratch state is not sent");
+        assertFalse(Serializer.GSON.toJson(game).contains("storedMovedPiece"));
+        assertTrue(Serializer.COMPACT.toJson(game).startsWith("{\"fen\":"));
+
+        String compact = gson.toJson(game);
+        assertEquals(game.getBoard(), Serializer.GSON.fromJson(compact, ChessGame.class).getBoard());
+        assertEquals(move, Serializer.GSON.fromJson("\"e7e5\"", ChessMove.class));
+    }
+
+    @Test
+    void testRejectsBadText() {
+        assertThrows(JsonParseException.class, () -> gson.fromJson("\"e9e4\"", ChessMove.class));
+        assertThrows(JsonParseException.class, () -> gson.fromJson("\"e7e8k\"", ChessMove.class));
+        assertThrows(JsonParseException.class, () -> gson.fromJson("{\"fen\":\"8/8 w\"}", ChessGame.class));
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+}
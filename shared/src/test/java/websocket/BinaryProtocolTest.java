@@ -0,0 +1,110 @@
+package websocket;
+
+import chess.*;
+import com.google.gson.Gson;
+import model.GameStatus;
+import model.GameSummary;
+import org.junit.jupiter.api.Test;
+import websocket.commands.*;
+import websocket.messages.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryProtocolTest {
+
+    @Test
+    void testCommandsRoundTrip() {
+        ChessMove promotion = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.QUEEN);
+        UserGameCommand[] commands = {
+                new ConnectCommand("token", 12, true),
+                new MakeMoveCommand("token", 300000, promotion),
+                new LeaveCommand(null, 0),
+                new ResignCommand("töken", null),
+                new LobbySubscribeCommand("token"),
+                new LobbyUnsubscribeCommand("token")
+        };
+        for (UserGameCommand command : commands) {
+            UserGameCommand decoded = BinaryProtocol.decodeCommand(ByteBuffer.wrap(BinaryProtocol.encodeCommand(command)));
+            assertEquals(command, decoded);
+            assertEquals(command.getClass(), decoded.getClass());
+        }
+        ConnectCommand connect = (ConnectCommand) BinaryProtocol.decodeCommand(
+                ByteBuffer.wrap(BinaryProtocol.encodeCommand(new ConnectCommand("token", 12, true))));
+        assertTrue(connect.wantsMoveDeltas());
+        MakeMoveCommand makeMove = (MakeMoveCommand) BinaryProtocol.decodeCommand(
+                ByteBuffer.wrap(BinaryProtocol.encodeCommand(commands[1])));
+        assertEquals(promotion, makeMove.getMove());
+    }
+
+    @Test
+    void testGameRoundTripKeepsPositionAndHistory() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 4, 5, 4));
+        game.makeMove(move(4, 5, 5, 5));
+        game.makeMove(move(7, 6, 5, 6)); //White can now take en passant on f6
+
+        byte[] frame = BinaryProtocol.encodeMessage(new LoadGameMessage(game));
+        ChessGame decoded = ((LoadGameMessage) BinaryProtocol.decodeMessage(ByteBuffer.wrap(frame))).getGame();
+        assertEquals(game.getBoard(), decoded.getBoard());
+        assertEquals(game.getTeamTurn(), decoded.getTeamTurn());
+        assertEquals(game.getMoveHistory(), decoded.getMoveHistory());
+        assertEquals(PositionHash.of(game), PositionHash.of(decoded));
+        assertEquals(game.validMoves(new ChessPosition(5, 5)), decoded.validMoves(new ChessPosition(5, 5)));
+        assertTrue(frame.length < new Gson().toJson(new LoadGameMessage(game)).length() / 10);
+    }
+
+    @Test
+    void testMessagesRoundTrip() {
+        MoveMessage move = new MoveMessage(move(2, 5, 4, 5), 0x8000_0000_1234_5678L, 1);
+        MoveMessage decodedMove = (MoveMessage) BinaryProtocol.decodeMessage(ByteBuffer.wrap(BinaryProtocol.encodeMessage(move)));
+        assertEquals(move.getMove(), decodedMove.getMove());
+        assertEquals(move.getPositionHash(), decodedMove.getPositionHash());
+        assertEquals(1, decodedMove.getSequence());
+
+        ErrorMessage error = (ErrorMessage) BinaryProtocol.decodeMessage(
+                ByteBuffer.wrap(BinaryProtocol.encodeMessage(new ErrorMessage("Error: bad"))));
+        assertEquals("Error: bad", error.getErrorMessage());
+        NotificationMessage note = (NotificationMessage) BinaryProtocol.decodeMessage(
+                ByteBuffer.wrap(BinaryProtocol.encodeMessage(new NotificationMessage("hi"))));
+        assertEquals("hi", note.getMessage());
+    }
+
+    @Test
+    void testLobbyMessageRoundTrip() {
+        GameSummary open = new GameSummary(7, null, null, "Open", GameStatus.ACTIVE, null);
+        GameSummary bot = new GameSummary(300000, "alice", null, "Bot", GameStatus.ACTIVE, ChessGame.TeamColor.BLACK);
+        LobbyMessage lobby = new LobbyMessage(42, false, List.of(open), List.of(bot), List.of(9, 100000));
+        LobbyMessage decoded = (LobbyMessage) BinaryProtocol.decodeMessage(ByteBuffer.wrap(BinaryProtocol.encodeMessage(lobby)));
+        assertEquals(42, decoded.getSequence());
+        assertFalse(decoded.isReset());
+        assertEquals(List.of(open), decoded.getAdded());
+        assertEquals(List.of(bot), decoded.getUpdated());
+        assertEquals(List.of(9, 100000), decoded.getRemoved());
+
+        LobbyMessage snapshot = (LobbyMessage) BinaryProtocol.decodeMessage(ByteBuffer.wrap(
+                BinaryProtocol.encodeMessage(new LobbyMessage(0, true, List.of(), null, null))));
+        assertTrue(snapshot.isReset());
+        assertEquals(List.of(), snapshot.getUpdated());
+        assertEquals(List.of(), snapshot.getRemoved());
+    }
+
+    @Test
+    void testMalformedFramesAreRejected() {
+        byte[] frame = BinaryProtocol.encodeCommand(new ConnectCommand("token", 12));
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryProtocol.decodeCommand(ByteBuffer.wrap(Arrays.copyOf(frame, frame.length - 1))));
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryProtocol.decodeCommand(ByteBuffer.wrap(Arrays.copyOf(frame, frame.length + 1))));
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.decodeCommand(ByteBuffer.wrap(new byte[]{0x7F})));
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.decodeMessage(ByteBuffer.wrap(new byte[0])));
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+}
@@ -0,0 +1,61 @@
+package websocket.commands;
+
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandAdapterFactoryTest {
+
+    private final Gson plainGson = new Gson();
+    private final Gson gson = new GsonBuilder().registerTypeAdapterFactory(new CommandAdapterFactory()).create();
+
+    @Test
+    void testReadsConcreteCommands() {
+        ChessMove move = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.QUEEN);
+        UserGameCommand[] commands = {
+                new ConnectCommand("token", 1, true),
+                new MakeMoveCommand("token", 2, move),
+                new LeaveCommand("token", 3),
+                new ResignCommand("token", 4)
+        };
+        for (UserGameCommand command : commands) {
+            UserGameCommand decoded = gson.fromJson(plainGson.toJson(command), UserGameCommand.class);
+            assertEquals(command.getClass(), decoded.getClass());
+            assertEquals(command, decoded);
+        }
+        MakeMoveCommand makeMove = (MakeMoveCommand) gson.fromJson(plainGson.toJson(commands[1]), UserGameCommand.class);
+        assertEquals(move, makeMove.getMove());
+        assertTrue(((ConnectCommand) gson.fromJson(plainGson.toJson(commands[0]), UserGameCommand.class)).wantsMoveDeltas());
+    }
+
+    @Test
+    void testFieldOrderAndUnknownFields() {
+        String json = "{\"extra\":{\"a\":[1,2]},\"move\":{\"startPosition\":{\"row\":2,\"col\":5},"
+                + "\"endPosition\":{\"row\":4,\"col\":5}},\"gameID\":7,\"authToken\":null,\"commandType\":\"MAKE_MOVE\"}";
+        UserGameCommand decoded = gson.fromJson(json, UserGameCommand.class);
+        assertInstanceOf(MakeMoveCommand.class, decoded);
+        assertEquals(7, decoded.getGameID());
+        assertNull(decoded.getAuthToken());
+        assertEquals(plainGson.fromJson(json, MakeMoveCommand.class).getMove(), ((MakeMoveCommand) decoded).getMove());
+    }
+
+    @Test
+    void testUnknownTypeReadsAsBaseCommand() {
+        UserGameCommand decoded = gson.fromJson("{\"commandType\":\"DANCE\",\"gameID\":3}", UserGameCommand.class);
+        assertEquals(UserGameCommand.class, decoded.getClass());
+        assertNull(decoded.getCommandType());
+        assertEquals(3, decoded.getGameID());
+        assertNull(gson.fromJson("null", UserGameCommand.class));
+    }
+
+    @Test
+    void testWritesLikeReflection() {
+        ConnectCommand command = new ConnectCommand("token", 5, true);
+        assertEquals(plainGson.toJson(command), gson.toJson(command, UserGameCommand.class));
+    }
+}